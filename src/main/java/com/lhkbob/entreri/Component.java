@@ -206,6 +206,7 @@ package com.lhkbob.entreri;
  * `double`           | value     | {@link com.lhkbob.entreri.property.DoubleProperty}        | {@link com.lhkbob.entreri.property.DefaultDouble}
  * `? extends Enum`   | value     | {@link com.lhkbob.entreri.property.EnumProperty}          | {@link com.lhkbob.entreri.property.DefaultEnum}
  * `? extends Object` | reference | {@link com.lhkbob.entreri.property.ObjectProperty}        | NA
+ * `Entity`           | reference | {@link com.lhkbob.entreri.property.EntityReferenceProperty} | NA
  * `List<?>`          | reference | {@link com.lhkbob.entreri.property.ReferenceListProperty} | NA
  * `List<?>`          | value     | {@link com.lhkbob.entreri.property.ValueListProperty}     | {@link com.lhkbob.entreri.property.Collection}
  * `Set<?>`           | reference | {@link com.lhkbob.entreri.property.ReferenceSetProperty}  | NA
@@ -213,6 +214,13 @@ package com.lhkbob.entreri;
  * `Map<?,?>`         | reference | {@link com.lhkbob.entreri.property.ReferenceMapProperty}  | NA
  * `Map<?,?>`         | value     | {@link com.lhkbob.entreri.property.ValueMapProperty}      | {@link com.lhkbob.entreri.property.Collection}
  *
+ * Value-semantics `Set<Integer>`, `Set<Long>`, `Map<Integer,?>` and `Map<Long,?>` properties can select
+ * the primitive-keyed {@link com.lhkbob.entreri.property.IntSetProperty}, {@link
+ * com.lhkbob.entreri.property.LongSetProperty}, {@link com.lhkbob.entreri.property.IntObjectMapProperty}
+ * or {@link com.lhkbob.entreri.property.LongObjectMapProperty} with {@link
+ * com.lhkbob.entreri.property.ImplementedBy}. Their getters return unmodifiable copies and they do not
+ * allow null elements or keys.
+ *
  * ## Advanced topics
  *
  * Internally, the entity system will generate proxy implementations of the component interfaces that
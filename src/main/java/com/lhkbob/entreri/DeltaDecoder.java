@@ -0,0 +1,71 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * DeltaDecoder
+ * ============
+ *
+ * DeltaDecoder applies deltas produced by a {@link DeltaEncoder} to a mirror {@link EntitySystem}, which
+ * should otherwise be left unmodified. Mirrored entities are matched to the encoding system's entities by
+ * id, but have their own ids and indices in the mirror. Entity references are translated to the mirrored
+ * entities, and every updated component has its version incremented so that the mirror's own consumers can
+ * detect the change.
+ *
+ * @author Michael Ludwig
+ * @see EntitySystem#createDeltaDecoder()
+ */
+public interface DeltaDecoder {
+    /**
+     * Apply the delta held in the remaining bytes of the buffer to the mirror. A delta whose watermark is not
+     * newer than the mirror's is ignored, so that duplicated or reordered deltas are harmless. A delta that
+     * encodes the full state removes every mirrored entity and component that it does not contain.
+     *
+     * @param delta The delta to apply
+     * @return The mirror's watermark after the delta is applied, to be acknowledged to the encoder
+     * @throws IOException          if the buffer does not contain a valid delta, or the delta is relative
+     *                              to a watermark newer than the mirror's
+     * @throws NullPointerException if delta is null
+     */
+    public long apply(ByteBuffer delta) throws IOException;
+
+    /**
+     * @return The watermark of the last delta applied, or 0
+     */
+    public long getWatermark();
+
+    /**
+     * Get the mirror of an entity of the encoding system.
+     *
+     * @param id The id of the entity in the encoding system
+     * @return The mirrored entity, or null if the entity has not been replicated
+     */
+    public Entity getEntity(int id);
+}
@@ -0,0 +1,90 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri;
+
+import java.nio.ByteBuffer;
+
+/**
+ * DeltaEncoder
+ * ============
+ *
+ * DeltaEncoder produces compact descriptions of how an {@link EntitySystem} has changed, to replicate the
+ * system to peers such as network clients that apply them with a {@link DeltaDecoder}. Each delta is
+ * relative to a watermark the peer has acknowledged, and it contains only the entities that were added or
+ * removed, the components that were removed, and the components whose version changed since that watermark.
+ * Changed components are written column-wise: the ids of their entities followed by one column per declared
+ * property, so that encoding costs a pass over each changed type's component versions instead of a rebuild of
+ * the full state for every peer.
+ *
+ * Every delta is assigned the next watermark. A server keeps the last watermark acknowledged by each peer and
+ * passes it to {@link #encode(long)}; the watermark 0 produces the full state. A delta can be applied to any
+ * mirror whose watermark is between its base and its own watermark, so a peer that missed deltas only needs
+ * to acknowledge what it last applied.
+ *
+ * Component changes are detected with {@link Component#getVersion()}, so changes to properties marked with
+ * {@link DoNotAutoVersion} are not replicated until something else updates the component's version. Every
+ * declared property of a changed type must be {@link com.lhkbob.entreri.property.Property.Persistent}.
+ * Ownership, decorated properties and entity sets are not replicated.
+ *
+ * @author Michael Ludwig
+ * @see EntitySystem#createDeltaEncoder()
+ */
+public interface DeltaEncoder extends AutoCloseable {
+    /**
+     * Encode the changes made to the system since the delta with the watermark `acknowledged` was encoded,
+     * or the full state of the system if it is 0. The returned buffer is owned by the encoder and reused for
+     * the next delta, so its contents must be sent or copied before `encode` is invoked again. It is ready
+     * to be read from its position to its limit.
+     *
+     * @param acknowledged The watermark of the last delta applied by the peer, or 0
+     * @return A buffer holding the delta
+     * @throws IllegalArgumentException      if the watermark was not produced by this encoder or was released
+     * @throws UnsupportedOperationException if a changed component type has a property that is not
+     *                                       persistent
+     * @throws IllegalStateException         if the encoder has been closed
+     */
+    public ByteBuffer encode(long acknowledged);
+
+    /**
+     * @return The watermark of the most recently encoded delta, or 0 if nothing has been encoded
+     */
+    public long getWatermark();
+
+    /**
+     * Discard the history kept for watermarks older than `watermark`, which must be the oldest watermark
+     * acknowledged by every peer. Deltas can no longer be encoded relative to the discarded watermarks.
+     *
+     * @param watermark The oldest watermark still needed
+     */
+    public void release(long watermark);
+
+    /**
+     * Detach the encoder from its system, after which it cannot encode deltas.
+     */
+    @Override
+    public void close();
+}
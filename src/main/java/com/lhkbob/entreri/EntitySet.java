@@ -0,0 +1,67 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri;
+
+import java.util.Set;
+
+/**
+ * EntitySet
+ * =========
+ *
+ * EntitySet is a specialized `Set` of entities from a single EntitySystem that is stored as a bitset over
+ * the entities' indices within the system. Unlike a general purpose collection of entities, it iterates in
+ * ascending index order, which is the same order the system stores entity and component data in. This makes
+ * it the preferred collection to pass to {@link EntitySystem#fastIterator(Iterable)} because the iterator can
+ * scan the bits directly without dereferencing any Entity instances.
+ *
+ * EntitySets are created by {@link EntitySystem#createEntitySet()}. The system keeps them valid as entities
+ * are removed and when the system is compacted, so a set never contains a dead entity. Attempting to add an
+ * entity from another system, or one that has been removed, will throw an exception.
+ *
+ * The bulk set operations `addAll`, `retainAll`, and `removeAll` are performed a word at a time when the
+ * argument is another EntitySet of the same system, making union, intersection, and difference of large
+ * selections cheap.
+ *
+ * @author Michael Ludwig
+ */
+public interface EntitySet extends Set<Entity> {
+    /**
+     * @return The EntitySystem that owns every entity that can be stored in this set
+     */
+    public EntitySystem getEntitySystem();
+
+    /**
+     * Add the entity to this set. The entity must be alive and belong to this set's system.
+     *
+     * @param entity The entity to add
+     * @return True if the set was modified
+     * @throws NullPointerException     if entity is null
+     * @throws IllegalArgumentException if the entity belongs to a different system or is not alive
+     */
+    @Override
+    public boolean add(Entity entity);
+}
@@ -26,12 +26,18 @@
  */
 package com.lhkbob.entreri;
 
+import com.lhkbob.entreri.impl.ChangeJournal;
 import com.lhkbob.entreri.impl.EntitySystemImpl;
+import com.lhkbob.entreri.impl.MappedComponentDataStoreFactory;
 import com.lhkbob.entreri.impl.apt.ComponentDataStoreFactory;
 import com.lhkbob.entreri.property.Property;
 import com.lhkbob.entreri.task.Scheduler;
 import com.lhkbob.entreri.task.Task;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.Collection;
 import java.util.Iterator;
 
@@ -75,6 +81,83 @@ public interface EntitySystem extends Iterable<Entity> {
         public static EntitySystem create() {
             return new EntitySystemImpl(new ComponentDataStoreFactory());
         }
+
+        /**
+         * Create a new EntitySystem using the default implementation, where every declared property that
+         * implements {@link com.lhkbob.entreri.property.Property.Mapped} keeps its values in a memory-mapped
+         * file within `directory`. Each component type has a subdirectory named after its class, with a file
+         * per mapped property. The files are grown by remapping as components are added.
+         *
+         * Values in the files are written back by the operating system, and are forced to disk when the
+         * system is saved with {@link EntitySystem#save(java.nio.channels.WritableByteChannel)}. Such a
+         * snapshot holds the entities, components, and unmapped properties, and is restored together with the
+         * files by {@link #load(java.nio.channels.ReadableByteChannel, java.io.File)}.
+         *
+         * @param directory The root directory of the mapped files
+         * @return A new, empty EntitySystem
+         * @throws NullPointerException if directory is null
+         */
+        public static EntitySystem create(File directory) {
+            return new EntitySystemImpl(new MappedComponentDataStoreFactory(new ComponentDataStoreFactory(),
+                                                                             directory));
+        }
+
+        /**
+         * Create a new EntitySystem using the default implementation, restored from a snapshot written by
+         * {@link EntitySystem#save(java.nio.channels.WritableByteChannel)}. Entities and components keep
+         * their ids, versions, and indices, but the loaded system has no ownership relationships, decorated
+         * properties, entity sets, or dirty flags.
+         *
+         * @param channel The channel to read the snapshot from, such as a {@link java.nio.channels.FileChannel}
+         * @return A new EntitySystem with the entities and components of the snapshot
+         * @throws IOException          if the snapshot could not be read, or does not match the component types
+         *                              available to this JVM
+         * @throws NullPointerException if channel is null
+         */
+        public static EntitySystem load(ReadableByteChannel channel) throws IOException {
+            EntitySystemImpl system = new EntitySystemImpl(new ComponentDataStoreFactory());
+            system.load(channel);
+            return system;
+        }
+
+        /**
+         * Create a new EntitySystem with properties mapped to files within `directory`, as in {@link
+         * #create(java.io.File)}, restored from a snapshot written by a system that was created with the same
+         * directory. The values of the mapped properties are paged in lazily from their files instead of
+         * being read from the snapshot.
+         *
+         * @param channel   The channel to read the snapshot from
+         * @param directory The root directory of the mapped files
+         * @return A new EntitySystem with the entities and components of the snapshot
+         * @throws IOException          if the snapshot could not be read
+         * @throws NullPointerException if channel or directory are null
+         */
+        public static EntitySystem load(ReadableByteChannel channel, File directory) throws IOException {
+            EntitySystemImpl system = new EntitySystemImpl(
+                    new MappedComponentDataStoreFactory(new ComponentDataStoreFactory(), directory));
+            system.load(channel);
+            return system;
+        }
+
+        /**
+         * Create a new EntitySystem using the default implementation, rebuilt from a journal that was opened
+         * in `directory` with {@link EntitySystem#openJournal(java.io.File)}. The most recent snapshot is
+         * loaded as in {@link #load(java.nio.channels.ReadableByteChannel)} and the changes recorded after it
+         * are replayed, up to the last commit that completely reached the disk. Ownership relationships are
+         * not recovered, and components of a type that is required by another are owned by nothing.
+         *
+         * Properties are recovered on the heap, so a journal of a system created with {@link
+         * #create(java.io.File)} cannot be recovered if it had mapped properties.
+         *
+         * @param directory The directory of the journal
+         * @return A new EntitySystem with the entities and components recorded by the journal
+         * @throws java.io.FileNotFoundException if the directory does not contain a journal snapshot
+         * @throws IOException                   if the journal could not be read or is invalid
+         * @throws NullPointerException          if directory is null
+         */
+        public static EntitySystem recover(File directory) throws IOException {
+            return ChangeJournal.recover(directory);
+        }
     }
 
     /**
@@ -141,13 +224,23 @@ public interface EntitySystem extends Iterable<Entity> {
      * The returned iterator will report the entities in the order given by the iterable. If the exact order
      * is not important, it can improve performance to sort the collection by entity id first if the
      * collection is to be iterated over multiple times. This helps order component access patterns to
-     * more likely hit the cache.
+     * more likely hit the cache. If `entities` is an {@link EntitySet} created by this system, the iterator
+     * scans its bits directly in entity index order without touching the Entity instances.
      *
      * @param entities The entity collection to walk over.
      * @return A new iterator over the collection of entities
      */
     public ComponentIterator fastIterator(Iterable<Entity> entities);
 
+    /**
+     * Create a new, empty EntitySet that can hold entities of this system. The set is kept valid by the
+     * system: removed entities are removed from the set and {@link #compact()} preserves membership of the
+     * remaining entities. Sets that are no longer referenced are garbage collected normally.
+     *
+     * @return A new entity set for this system
+     */
+    public EntitySet createEntitySet();
+
     /**
      * Compact the entity and component data so that iteration is more efficient. In the life time of an
      * entity system, entities and components are added and removed, possibly causing the list of components
@@ -166,6 +259,95 @@ public interface EntitySystem extends Iterable<Entity> {
      */
     public void compact();
 
+    /**
+     * Swap the buffers of every double-buffered property in the system, such as {@link
+     * com.lhkbob.entreri.property.BufferedFloatProperty}. Values written to those properties since the last
+     * swap become visible to their getters. This should be invoked once at each frame boundary, when no jobs
+     * are reading or writing components, for example from a task that is not {@link
+     * com.lhkbob.entreri.task.ParallelAware} so that it holds the system's exclusive lock.
+     *
+     * @see com.lhkbob.entreri.property.Property.DoubleBuffered
+     */
+    public void swapBuffers();
+
+    /**
+     * Write a snapshot of every entity and component in this system to the channel. Each component type is
+     * written as contiguous columns: the entity index, id and version of every component slot followed by the
+     * data of each declared property, staged through a large direct buffer. Removed entities and components
+     * that have not been compacted are preserved as empty slots so that indices are unchanged when the
+     * snapshot is restored with {@link Factory#load(java.nio.channels.ReadableByteChannel)}.
+     *
+     * Every declared property of every component type in the system must implement {@link
+     * com.lhkbob.entreri.property.Property.Persistent}. Ownership, decorated properties, entity sets, and
+     * dirty flags are not saved. The channel is not closed.
+     *
+     * @param channel The channel to write the snapshot to, such as a {@link java.nio.channels.FileChannel}
+     * @throws IOException                   if the snapshot could not be written
+     * @throws UnsupportedOperationException if a component type has a property that is not persistent, in
+     *                                       which case nothing is written
+     * @throws NullPointerException          if channel is null
+     */
+    public void save(WritableByteChannel channel) throws IOException;
+
+    /**
+     * Open a journal that records the changes made to this system in `directory`, so that the system can be
+     * rebuilt with {@link Factory#recover(java.io.File)} after the process ends unexpectedly. Opening the
+     * journal writes an initial snapshot of the system as if by {@link Journal#checkpoint()}. Changes are
+     * recorded until the journal is closed, and are durable once {@link Journal#commit()} returns, which
+     * should be invoked at a convenient point such as the end of every frame.
+     *
+     * Every declared property of every component type in the system must implement {@link
+     * com.lhkbob.entreri.property.Property.Persistent}, and property values are only recorded when they are
+     * modified through the generated component implementations.
+     *
+     * @param directory The directory of the journal's files, which is created if necessary
+     * @return The open journal
+     * @throws IOException                   if the directory or initial snapshot could not be written
+     * @throws UnsupportedOperationException if a component type has a property that is not persistent
+     * @throws IllegalStateException         if the system already has an open journal
+     * @throws NullPointerException          if directory is null
+     */
+    public Journal openJournal(File directory) throws IOException;
+
+    /**
+     * Create a new DeltaEncoder that encodes the changes made to this system relative to watermarks
+     * acknowledged by its peers. The encoder tracks additions and removals from the moment it is created
+     * until it is closed. A single encoder can serve any number of peers.
+     *
+     * @return A new delta encoder for this system
+     */
+    public DeltaEncoder createDeltaEncoder();
+
+    /**
+     * Create a new DeltaDecoder that applies deltas from a {@link DeltaEncoder} of another system to this
+     * system, which acts as its mirror.
+     *
+     * @return A new delta decoder for this system
+     */
+    public DeltaDecoder createDeltaDecoder();
+
+    /**
+     * Create an independent copy of this system for speculative simulation, such as AI look-ahead or
+     * client-side prediction, that can be modified and discarded without affecting this system. The fork has
+     * the same entities and components with the same ids, versions, indices, and dirty flags. Property values
+     * are copied a column at a time by properties that are {@link
+     * com.lhkbob.entreri.property.Property.Copyable}, regardless of {@link
+     * com.lhkbob.entreri.property.DoNotClone}, and component by component with {@link
+     * com.lhkbob.entreri.property.Property#clone(com.lhkbob.entreri.property.Property, int, int)} otherwise.
+     * The lists, sets and maps of reference semantics collection properties are shallow copies, so adding or
+     * removing elements in the fork does not modify this system. Any other referenced object, including the
+     * elements of those collections and the values of {@link com.lhkbob.entreri.property.ObjectProperty},
+     * is shared with this system, and mutating it through the fork is visible to both. Values mapped to files
+     * are copied onto the heap.
+     *
+     * The fork does not have the ownership relationships of this system, nor its decorated properties,
+     * entity sets, journal, or delta encoders. A fork is a snapshot, so modifications to this system after it
+     * is created are not visible to it.
+     *
+     * @return A new EntitySystem with a copy of the entities and components of this system
+     */
+    public EntitySystem fork();
+
     /**
      * Add a new Entity to this EntitySystem. The created Entity will not have any attached Components. You
      * can create a new entity from a template by calling {@link #addEntity(Entity)}.
@@ -178,8 +360,8 @@ public interface EntitySystem extends Iterable<Entity> {
      * Add a new Entity to this EntitySystem. If `template` is not null, the components attached to the
      * template will have their state cloned onto the new entity. The semantics of cloning is defined by the
      * `clone` method of the selected PropertyFactory used by the generated proxy. Factories often modify
-     * their behavior in response to the {@link com.lhkbob.entreri.property.DoNotClone} annotation. By default they
-     * follows Java's reference/value assignment rules.
+     * their behavior in response to the {@link com.lhkbob.entreri.property.DoNotClone} annotation. By default
+     * they follows Java's reference/value assignment rules.
      *
      * Specifying a null template makes this behave identically to {@link #addEntity()}.
      *
@@ -218,4 +400,33 @@ public interface EntitySystem extends Iterable<Entity> {
      * @throws NullPointerException if type or property are null
      */
     public <T extends Component, P extends Property<P>> P decorate(Class<T> type, P property);
+
+    /**
+     * Return an iterator over the components of the given type whose property has been modified since its
+     * dirty flag was last cleared. Generated component implementations set a component's dirty flag for a
+     * property whenever one of the property's setters or collection mutators is invoked, regardless of {@link
+     * DoNotAutoVersion}. Newly added components are not dirty. This allows consumers such as network
+     * replication to send only the columns that changed.
+     *
+     * The returned iterator produces the canonical components in component index order. Its `remove()`
+     * method clears the dirty flag of the last returned component without removing the component.
+     *
+     * @param type     The component type
+     * @param property The logical name of the property, as determined by the component's method patterns
+     * @return An iterator over the components whose property is dirty
+     * @throws NullPointerException     if type or property are null
+     * @throws IllegalArgumentException if the component type does not declare the property
+     */
+    public <T extends Component> Iterator<T> getDirtyComponents(Class<T> type, String property);
+
+    /**
+     * Clear the dirty flag of the given property for every component of the given type.
+     *
+     * @param type     The component type
+     * @param property The logical name of the property
+     * @throws NullPointerException     if type or property are null
+     * @throws IllegalArgumentException if the component type does not declare the property
+     * @see #getDirtyComponents(Class, String)
+     */
+    public <T extends Component> void clearDirty(Class<T> type, String property);
 }
@@ -0,0 +1,92 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Journal
+ * =======
+ *
+ * Journal is an append-only, on-disk log of the changes made to an {@link EntitySystem}, opened with {@link
+ * EntitySystem#openJournal(java.io.File)}. Structural changes, e.g. adding and removing entities and
+ * components, compacting and swapping buffers, are recorded as they happen. Property values are recorded
+ * when the journal is committed: every component whose property was modified through a generated setter or
+ * collection mutator since the last commit has the property's new value appended. The records are written to
+ * segment files in the journal's directory that are rotated once they grow past a fixed size.
+ *
+ * A checkpoint writes a complete snapshot of the system and starts a new generation of segments, after
+ * which the files of the older generations are deleted. {@link EntitySystem.Factory#recover(java.io.File)}
+ * rebuilds a system by loading the most recent snapshot and replaying the segments written after it, up to
+ * the last commit that reached the disk.
+ *
+ * Only what a snapshot holds is recovered: entity and component ids are reproduced but component versions
+ * are not, and ownership, decorated properties, entity sets and dirty flags are not journaled. Values that
+ * are written directly to a property instead of through a component are not journaled either.
+ *
+ * @author Michael Ludwig
+ */
+public interface Journal extends Closeable {
+    /**
+     * @return The directory holding the snapshots and segments of the journal
+     */
+    public File getDirectory();
+
+    /**
+     * Append the values of every modified property to the journal, then write all pending records to the
+     * current segment and force it to disk. Changes made before a successful commit will be recovered. If a
+     * record could not be written when a change was made, the failure is reported by this method.
+     *
+     * @throws IOException                   if the records could not be written
+     * @throws UnsupportedOperationException if a modified component type has a property that is not {@link
+     *                                       com.lhkbob.entreri.property.Property.Persistent}
+     * @throws IllegalStateException         if the journal has been closed
+     */
+    public void commit() throws IOException;
+
+    /**
+     * Commit the journal and write a snapshot of the entire system, starting a new generation of segments.
+     * Once the snapshot is on disk the snapshot and segments of earlier generations are deleted, bounding
+     * the size of the journal and the time needed to recover from it.
+     *
+     * @throws IOException                   if the snapshot or records could not be written
+     * @throws UnsupportedOperationException if a component type has a property that is not persistent
+     * @throws IllegalStateException         if the journal has been closed
+     */
+    public void checkpoint() throws IOException;
+
+    /**
+     * Commit and close the journal, detaching it from its entity system. Changes made after the journal is
+     * closed are not recorded. Closing a closed journal has no effect.
+     *
+     * @throws IOException if the final commit failed
+     */
+    @Override
+    public void close() throws IOException;
+}
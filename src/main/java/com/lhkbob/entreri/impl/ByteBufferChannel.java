@@ -0,0 +1,92 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+
+/**
+ * ByteBufferChannel
+ * =================
+ *
+ * ByteBufferChannel adapts a ByteBuffer to the channel interfaces used by {@link
+ * com.lhkbob.entreri.property.ColumnWriter} and {@link com.lhkbob.entreri.property.ColumnReader}. Reads
+ * consume the buffer from its position to its limit. Writes append at its position, replacing the buffer
+ * with one of twice the capacity when it is full, so the same buffer can be reused for every delta.
+ *
+ * @author Michael Ludwig
+ */
+final class ByteBufferChannel implements ByteChannel {
+    private ByteBuffer buffer;
+
+    ByteBufferChannel(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * @return The current buffer, which is replaced when a write needs more room
+     */
+    ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) {
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        int n = Math.min(dst.remaining(), buffer.remaining());
+        ByteBuffer block = buffer.duplicate();
+        block.limit(block.position() + n);
+        dst.put(block);
+        buffer.position(buffer.position() + n);
+        return n;
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+        int n = src.remaining();
+        if (buffer.remaining() < n) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() << 1, buffer.position() + n))
+                                         .order(buffer.order());
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+        buffer.put(src);
+        return n;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+    }
+}
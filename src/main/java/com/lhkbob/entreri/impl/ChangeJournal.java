@@ -0,0 +1,603 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.impl;
+
+import com.lhkbob.entreri.Component;
+import com.lhkbob.entreri.Entity;
+import com.lhkbob.entreri.Journal;
+import com.lhkbob.entreri.impl.apt.ComponentDataStoreFactory;
+import com.lhkbob.entreri.property.ColumnReader;
+import com.lhkbob.entreri.property.ColumnWriter;
+import com.lhkbob.entreri.property.Property;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * ChangeJournal
+ * =============
+ *
+ * ChangeJournal is the implementation of {@link Journal} for EntitySystemImpl. The system and its data stores
+ * notify the journal of every structural change, which is appended as a small record to an in-memory batch.
+ * When the journal is committed, the values of every component whose {@link DirtyFlags} report it as
+ * unjournaled are appended as well, one record per property holding the component indices followed by the
+ * values written by {@link com.lhkbob.entreri.property.Property.Persistent}. The batch is then written to the
+ * current segment as a single frame prefixed by its length and CRC-32 checksum, so that recovery can detect
+ * and discard a frame that was only partially written.
+ *
+ * A generation consists of a snapshot file, `snapshot-<generation>`, and the segments appended after it,
+ * `journal-<generation>-<segment>`. Snapshots are written to a temporary file and atomically renamed, so the
+ * newest snapshot in the directory is always complete. Component types are referred to by small ids that are
+ * defined within each segment the first time a type is used.
+ *
+ * @author Michael Ludwig
+ */
+public final class ChangeJournal implements Journal, ChangeListener {
+    /**
+     * The size in bytes past which a segment is closed and the next one is started, 16 MB.
+     */
+    public static final long DEFAULT_SEGMENT_SIZE = 16L << 20;
+
+    // identifies a journal segment, followed by the format version
+    private static final int SEGMENT_MAGIC = 0x45434a4c; // "ECJL"
+    private static final int SEGMENT_VERSION = 1;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final Pattern SNAPSHOT_NAME = Pattern.compile("snapshot-(\\d{8})(\\.tmp)?");
+    private static final Pattern SEGMENT_NAME = Pattern.compile("journal-(\\d{8})-\\d{8}");
+
+    // record opcodes
+    private static final byte TYPE = 1;
+    private static final byte ADD_ENTITY = 2;
+    private static final byte REMOVE_ENTITY = 3;
+    private static final byte ADD_COMPONENT = 4;
+    private static final byte REMOVE_COMPONENT = 5;
+    private static final byte COMPACT = 6;
+    private static final byte SWAP_BUFFERS = 7;
+    private static final byte VALUES = 8;
+
+    private final EntitySystemImpl system;
+    private final File directory;
+    private final long segmentSize;
+
+    // records made since the last commit, written to the segment as one frame
+    private final ByteArrayOutputStream pending;
+    private final ColumnWriter records;
+    private IOException failure;
+
+    // ids of the component types defined in the current segment
+    private final Map<Class<? extends Component>, Integer> typeIds;
+    private int[] indices;
+
+    private int generation;
+    private int segment;
+    private FileChannel channel;
+    private ColumnWriter out;
+    private boolean closed;
+
+    /**
+     * Create a journal for the system within the directory, which is created if necessary. The journal
+     * starts a generation after any already in the directory by writing a snapshot of the system, and then
+     * deletes the older generations.
+     *
+     * @param system      The system to record
+     * @param directory   The directory of the journal's files
+     * @param segmentSize The size in bytes past which segments are rotated
+     * @throws IOException                   if the directory could not be created or the snapshot could not
+     *                                       be written
+     * @throws UnsupportedOperationException if the system has a property that is not persistent
+     */
+    public ChangeJournal(EntitySystemImpl system, File directory, long segmentSize) throws IOException {
+        if (system == null || directory == null) {
+            throw new NullPointerException("Arguments cannot be null");
+        }
+        if (segmentSize < 1) {
+            throw new IllegalArgumentException("Segment size must be positive, not: " + segmentSize);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create journal directory: " + directory);
+        }
+
+        this.system = system;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+
+        pending = new ByteArrayOutputStream();
+        records = new ColumnWriter(Channels.newChannel(pending), BUFFER_SIZE);
+        typeIds = new HashMap<>();
+        indices = new int[16];
+
+        // everything up to now is in the snapshot
+        Iterator<ComponentDataStore<?>> stores = system.indexIterator();
+        while (stores.hasNext()) {
+            ComponentDataStore<?> store = stores.next();
+            for (int i = 0; i < store.getDeclaredPropertyCount(); i++) {
+                store.getDirtyFlags(store.getDeclaredPropertyName(i)).clearUnjournaled();
+            }
+        }
+        startGeneration(getLatestGeneration(directory, false) + 1);
+    }
+
+    @Override
+    public File getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public void commit() throws IOException {
+        ensureOpen();
+        try {
+            if (failure != null) {
+                throw failure;
+            }
+            writeValues();
+            records.flush();
+        } catch (IOException | RuntimeException e) {
+            // the batch is incomplete and must not be written
+            pending.reset();
+            typeIds.clear();
+            failure = null;
+            throw e;
+        }
+
+        if (pending.size() > 0) {
+            byte[] frame = pending.toByteArray();
+            pending.reset();
+
+            CRC32 checksum = new CRC32();
+            checksum.update(frame, 0, frame.length);
+            out.writeInt(frame.length);
+            out.writeInt((int) checksum.getValue());
+            out.writeBytes(frame, 0, frame.length);
+            out.flush();
+            channel.force(false);
+
+            if (channel.size() >= segmentSize) {
+                channel.close();
+                startSegment(segment + 1);
+            }
+        }
+    }
+
+    @Override
+    public void checkpoint() throws IOException {
+        commit();
+        channel.close();
+        startGeneration(generation + 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            commit();
+        } finally {
+            closed = true;
+            system.closeJournal(this);
+            channel.close();
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Journal has been closed");
+        }
+    }
+
+    @Override
+    public void entityAdded(int entityIndex) {
+        try {
+            records.writeByte(ADD_ENTITY);
+            records.writeInt(system.getEntityByIndex(entityIndex).getId());
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void entityRemoved(int entityIndex) {
+        try {
+            records.writeByte(REMOVE_ENTITY);
+            records.writeInt(entityIndex);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void componentAdded(Class<? extends Component> type, int entityIndex) {
+        try {
+            int typeId = getTypeId(type);
+            records.writeByte(ADD_COMPONENT);
+            records.writeInt(typeId);
+            records.writeInt(entityIndex);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void componentRemoved(Class<? extends Component> type, int entityIndex) {
+        try {
+            int typeId = getTypeId(type);
+            records.writeByte(REMOVE_COMPONENT);
+            records.writeInt(typeId);
+            records.writeInt(entityIndex);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void compacted() {
+        try {
+            records.writeByte(COMPACT);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void buffersSwapped() {
+        try {
+            records.writeByte(SWAP_BUFFERS);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    // the first failure is reported by the next commit
+    private void fail(IOException e) {
+        if (failure == null) {
+            failure = e;
+        }
+    }
+
+    private int getTypeId(Class<? extends Component> type) throws IOException {
+        Integer id = typeIds.get(type);
+        if (id == null) {
+            id = typeIds.size();
+            typeIds.put(type, id);
+            records.writeByte(TYPE);
+            records.writeInt(id);
+            records.writeString(type.getName());
+        }
+        return id;
+    }
+
+    private void writeValues() throws IOException {
+        // validate every modified type before writing anything so a failure does not leave a partial batch
+        List<ComponentDataStore<?>> stores = new ArrayList<>();
+        Iterator<ComponentDataStore<?>> it = system.indexIterator();
+        while (it.hasNext()) {
+            ComponentDataStore<?> store = it.next();
+            if (!store.isPersistent()) {
+                for (int i = 0; i < store.getDeclaredPropertyCount(); i++) {
+                    if (nextUnjournaled(store, store.getDirtyFlags(store.getDeclaredPropertyName(i)), 1) > 0) {
+                        throw new UnsupportedOperationException("Component type " + store.getType().getName() +
+                                                                " has properties that cannot be journaled");
+                    }
+                }
+            }
+            stores.add(store);
+        }
+
+        for (ComponentDataStore<?> store : stores) {
+            for (int i = 0; i < store.getDeclaredPropertyCount(); i++) {
+                DirtyFlags flags = store.getDirtyFlags(store.getDeclaredPropertyName(i));
+                int count = 0;
+                for (int c = nextUnjournaled(store, flags, 1); c > 0; c = nextUnjournaled(store, flags, c + 1)) {
+                    if (count == indices.length) {
+                        indices = Arrays.copyOf(indices, indices.length << 1);
+                    }
+                    indices[count++] = c;
+                }
+
+                if (count > 0) {
+                    int typeId = getTypeId(store.getType());
+                    records.writeByte(VALUES);
+                    records.writeInt(typeId);
+                    records.writeInt(i);
+                    records.writeInt(count);
+                    records.writeInts(indices, 0, count);
+                    ((Property.Persistent) store.getProperty(i)).write(records, indices, count);
+                }
+                flags.clearUnjournaled();
+            }
+        }
+    }
+
+    // the next live component at or after the index that is unjournaled, or -1
+    private static int nextUnjournaled(ComponentDataStore<?> store, DirtyFlags flags, int componentIndex) {
+        int max = store.getMaxComponentIndex();
+        int next = flags.nextUnjournaledIndex(componentIndex);
+        while (next > 0 && (next >= max || store.getComponent(next) == null)) {
+            next = flags.nextUnjournaledIndex(next + 1);
+        }
+        return next;
+    }
+
+    private void startGeneration(int generation) throws IOException {
+        File snapshot = getSnapshotFile(directory, generation);
+        File temp = new File(directory, snapshot.getName() + ".tmp");
+        try (FileChannel snapshotChannel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                                                            StandardOpenOption.TRUNCATE_EXISTING,
+                                                            StandardOpenOption.WRITE)) {
+            system.save(snapshotChannel);
+            snapshotChannel.force(true);
+        }
+        Files.move(temp.toPath(), snapshot.toPath(), StandardCopyOption.ATOMIC_MOVE);
+
+        this.generation = generation;
+        startSegment(0);
+
+        // the new snapshot supersedes every older file
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                int g = getGeneration(f.getName());
+                if (g >= 0 && g < generation) {
+                    Files.deleteIfExists(f.toPath());
+                }
+            }
+        }
+    }
+
+    private void startSegment(int segment) throws IOException {
+        this.segment = segment;
+        typeIds.clear();
+
+        channel = FileChannel.open(getSegmentFile(directory, generation, segment).toPath(),
+                                   StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        out = new ColumnWriter(channel, BUFFER_SIZE);
+        out.writeInt(SEGMENT_MAGIC);
+        out.writeInt(SEGMENT_VERSION);
+        out.writeInt(generation);
+        out.writeInt(segment);
+        out.flush();
+        channel.force(true);
+    }
+
+    /**
+     * Rebuild an entity system from the most recent snapshot in the directory and the segments written
+     * after it. Replay stops at the first frame that was not completely written.
+     *
+     * @param directory The directory of a journal
+     * @return A new EntitySystemImpl holding the recovered entities and components
+     * @throws FileNotFoundException if the directory does not contain a snapshot
+     * @throws IOException           if the snapshot or a segment could not be read or is invalid
+     */
+    public static EntitySystemImpl recover(File directory) throws IOException {
+        if (directory == null) {
+            throw new NullPointerException("Directory cannot be null");
+        }
+        int generation = getLatestGeneration(directory, true);
+        if (generation < 0) {
+            throw new FileNotFoundException("No journal snapshot in directory: " + directory);
+        }
+
+        EntitySystemImpl system = new EntitySystemImpl(new ComponentDataStoreFactory());
+        try (FileChannel snapshot = FileChannel.open(getSnapshotFile(directory, generation).toPath(),
+                                                     StandardOpenOption.READ)) {
+            system.load(snapshot);
+        }
+
+        for (int segment = 0; ; segment++) {
+            File file = getSegmentFile(directory, generation, segment);
+            if (!file.exists() || !replaySegment(system, file, generation, segment)) {
+                break;
+            }
+        }
+        return system;
+    }
+
+    // returns false if the segment ends with an incomplete frame
+    private static boolean replaySegment(EntitySystemImpl system, File file, int generation, int segment)
+            throws IOException {
+        try (FileChannel segmentChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ColumnReader in = new ColumnReader(segmentChannel, BUFFER_SIZE);
+            try {
+                if (in.readInt() != SEGMENT_MAGIC || in.readInt() != SEGMENT_VERSION ||
+                    in.readInt() != generation || in.readInt() != segment) {
+                    throw new IOException("Invalid journal segment header: " + file);
+                }
+            } catch (EOFException e) {
+                // the segment was created but its header never reached the disk
+                return false;
+            }
+
+            Map<Integer, ComponentDataStore<?>> types = new HashMap<>();
+            while (!in.isAtEnd()) {
+                byte[] frame;
+                int checksum;
+                try {
+                    int length = in.readInt();
+                    checksum = in.readInt();
+                    if (length < 0 || length > segmentChannel.size()) {
+                        return false;
+                    }
+                    frame = new byte[length];
+                    in.readBytes(frame, 0, length);
+                } catch (EOFException e) {
+                    return false;
+                }
+
+                CRC32 crc = new CRC32();
+                crc.update(frame, 0, frame.length);
+                if ((int) crc.getValue() != checksum) {
+                    return false;
+                }
+                replayFrame(system, types, new ColumnReader(Channels.newChannel(new ByteArrayInputStream(frame)),
+                                                            BUFFER_SIZE));
+            }
+            return true;
+        }
+    }
+
+    private static void replayFrame(EntitySystemImpl system, Map<Integer, ComponentDataStore<?>> types,
+                                    ColumnReader in) throws IOException {
+        int[] indices = new int[0];
+        while (!in.isAtEnd()) {
+            byte opcode = in.readByte();
+            switch (opcode) {
+            case TYPE: {
+                int id = in.readInt();
+                types.put(id, system.getRepository(system.getComponentType(in.readString())));
+                break;
+            }
+            case ADD_ENTITY: {
+                int id = in.readInt();
+                Entity added = system.addEntity();
+                if (added.getId() != id) {
+                    throw new IOException("Expected entity id " + id + " but recovered " + added.getId());
+                }
+                break;
+            }
+            case REMOVE_ENTITY:
+                system.removeEntity(getEntity(system, in.readInt()));
+                break;
+            case ADD_COMPONENT: {
+                ComponentDataStore<?> store = getStore(types, in.readInt());
+                int entityIndex = in.readInt();
+                getEntity(system, entityIndex); // validates the index
+                store.restoreComponent(entityIndex);
+                break;
+            }
+            case REMOVE_COMPONENT: {
+                ComponentDataStore<?> store = getStore(types, in.readInt());
+                int entityIndex = in.readInt();
+                getEntity(system, entityIndex); // validates the index
+                store.removeComponent(entityIndex);
+                break;
+            }
+            case COMPACT:
+                system.compact();
+                break;
+            case SWAP_BUFFERS:
+                system.swapBuffers();
+                break;
+            case VALUES: {
+                ComponentDataStore<?> store = getStore(types, in.readInt());
+                int property = in.readInt();
+                int count = in.readInt();
+                if (property < 0 || property >= store.getDeclaredPropertyCount() || count < 0) {
+                    throw new IOException("Invalid values record for " + store.getType().getName());
+                }
+                if (indices.length < count) {
+                    indices = new int[count];
+                }
+                in.readInts(indices, 0, count);
+                for (int i = 0; i < count; i++) {
+                    if (indices[i] < 1 || indices[i] >= store.getMaxComponentIndex() ||
+                        store.getComponent(indices[i]) == null) {
+                        throw new IOException("Values record for " + store.getType().getName() +
+                                              " refers to an invalid component index: " + indices[i]);
+                    }
+                }
+                Property p = store.getProperty(property);
+                if (!(p instanceof Property.Persistent)) {
+                    throw new IOException("Property " + store.getDeclaredPropertyName(property) + " of " +
+                                          store.getType().getName() + " cannot be recovered");
+                }
+                ((Property.Persistent) p).read(in, indices, count);
+                break;
+            }
+            default:
+                throw new IOException("Unknown journal record: " + opcode);
+            }
+        }
+    }
+
+    private static ComponentDataStore<?> getStore(Map<Integer, ComponentDataStore<?>> types, int typeId)
+            throws IOException {
+        ComponentDataStore<?> store = types.get(typeId);
+        if (store == null) {
+            throw new IOException("Undefined component type id in journal: " + typeId);
+        }
+        return store;
+    }
+
+    private static Entity getEntity(EntitySystemImpl system, int entityIndex) throws IOException {
+        Entity e = (entityIndex > 0 && entityIndex < system.getMaxEntityIndex()
+                    ? system.getEntityByIndex(entityIndex) : null);
+        if (e == null) {
+            throw new IOException("Journal refers to an invalid entity index: " + entityIndex);
+        }
+        return e;
+    }
+
+    private static File getSnapshotFile(File directory, int generation) {
+        return new File(directory, String.format("snapshot-%08d", generation));
+    }
+
+    private static File getSegmentFile(File directory, int generation, int segment) {
+        return new File(directory, String.format("journal-%08d-%08d", generation, segment));
+    }
+
+    // the generation of a snapshot or segment file name, or -1 if it is not part of a journal
+    private static int getGeneration(String name) {
+        Matcher m = SNAPSHOT_NAME.matcher(name);
+        if (!m.matches()) {
+            m = SEGMENT_NAME.matcher(name);
+            if (!m.matches()) {
+                return -1;
+            }
+        }
+        return Integer.parseInt(m.group(1));
+    }
+
+    private static int getLatestGeneration(File directory, boolean completeSnapshots) {
+        int latest = -1;
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                String name = f.getName();
+                if (completeSnapshots && (!name.startsWith("snapshot-") || name.endsWith(".tmp"))) {
+                    continue;
+                }
+                latest = Math.max(latest, getGeneration(name));
+            }
+        }
+        return latest;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.impl;
+
+import com.lhkbob.entreri.Component;
+
+/**
+ * ChangeListener
+ * ==============
+ *
+ * ChangeListener is notified by EntitySystemImpl and its ComponentDataStores of every structural change to
+ * the system, in the order they happen. It is used by the {@link ChangeJournal} and {@link
+ * VersionDeltaEncoder} to record changes that cannot be derived from the system's state later. Listeners
+ * must not modify the system.
+ *
+ * @author Michael Ludwig
+ */
+interface ChangeListener {
+    /**
+     * Invoked after an entity is added, before any components from its template are added.
+     *
+     * @param entityIndex The index of the new entity
+     */
+    public void entityAdded(int entityIndex);
+
+    /**
+     * Invoked after an entity's components have been removed but while the entity is still at its index.
+     *
+     * @param entityIndex The index of the removed entity
+     */
+    public void entityRemoved(int entityIndex);
+
+    /**
+     * Invoked after a component is added, before any of its required components are added.
+     *
+     * @param type        The component type
+     * @param entityIndex The index of the entity the component was added to
+     */
+    public void componentAdded(Class<? extends Component> type, int entityIndex);
+
+    /**
+     * Invoked after a component is removed.
+     *
+     * @param type        The component type
+     * @param entityIndex The index of the entity the component was removed from
+     */
+    public void componentRemoved(Class<? extends Component> type, int entityIndex);
+
+    /**
+     * Invoked after the system is compacted.
+     */
+    public void compacted();
+
+    /**
+     * Invoked after the buffers of double-buffered properties are swapped.
+     */
+    public void buffersSwapped();
+}
@@ -51,6 +51,10 @@ public class CollectionComponentIteratorImpl implements ComponentIterator {
 
     private Iterator<Entity> currentIterator;
 
+    // non-null when entities is an EntitySet of the system, in which case its bits are scanned directly
+    private final EntitySetImpl entitySet;
+    private int setIndex;
+
     /**
      * Create a new iterator that runs over the data in `system`, but restricted to the entities
      * returned by the given Iterable.
@@ -65,6 +69,13 @@ public class CollectionComponentIteratorImpl implements ComponentIterator {
         this.entities = entities;
         this.system = system;
 
+        if (entities instanceof EntitySetImpl && ((EntitySetImpl) entities).getEntitySystem() == system) {
+            entitySet = (EntitySetImpl) entities;
+        } else {
+            entitySet = null;
+        }
+        setIndex = 0;
+
         required = new AbstractComponent<?>[0];
         optional = new AbstractComponent<?>[0];
     }
@@ -103,16 +114,14 @@ public class CollectionComponentIteratorImpl implements ComponentIterator {
 
     @Override
     public boolean next() {
-        if (currentIterator == null) {
+        if (entitySet == null && currentIterator == null) {
             currentIterator = entities.iterator();
         }
 
         int entityIndex;
         int component;
         boolean found;
-        while (currentIterator.hasNext()) {
-            entityIndex = ((EntityImpl) currentIterator.next()).index;
-
+        while ((entityIndex = nextEntityIndex()) >= 0) {
             found = true;
             for (int i = 0; i < required.length; i++) {
                 component = required[i].owner.getComponentIndex(entityIndex);
@@ -139,8 +148,27 @@ public class CollectionComponentIteratorImpl implements ComponentIterator {
         return false;
     }
 
+    /*
+     * Return the index of the next entity to consider, or -1 if there are no more entities. A removed entity
+     * in a plain collection reports index 0, which never has components.
+     */
+    private int nextEntityIndex() {
+        if (entitySet != null) {
+            int next = entitySet.nextEntityIndex(setIndex + 1);
+            if (next > 0) {
+                setIndex = next;
+            }
+            return next;
+        } else if (currentIterator.hasNext()) {
+            return ((EntityImpl) currentIterator.next()).index;
+        } else {
+            return -1;
+        }
+    }
+
     @Override
     public void reset() {
         currentIterator = null;
+        setIndex = 0;
     }
 }
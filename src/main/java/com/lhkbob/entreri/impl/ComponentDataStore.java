@@ -29,10 +29,13 @@ package com.lhkbob.entreri.impl;
 import com.lhkbob.entreri.Component;
 import com.lhkbob.entreri.Entity;
 import com.lhkbob.entreri.Requires;
+import com.lhkbob.entreri.property.ColumnReader;
+import com.lhkbob.entreri.property.ColumnWriter;
 import com.lhkbob.entreri.property.IntProperty;
 import com.lhkbob.entreri.property.ObjectProperty;
 import com.lhkbob.entreri.property.Property;
 
+import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.util.*;
 
@@ -66,6 +69,18 @@ public abstract class ComponentDataStore<T extends Component> {
     private T[] components;
     private int componentInsert;
 
+    // bitmap of component indices that currently hold a live component, 64 indices per word; the 0th
+    // bit is never set
+    private long[] liveComponents;
+
+    // true while live components are ordered by ascending entity index, which holds after compact() and
+    // until a component is added to an entity with a lower index than the last added component
+    private boolean sortedByEntity;
+    private int lastEntityIndex;
+
+    // incremented whenever compact() moves live components to new indices
+    private int layoutVersion;
+
     private final List<DeclaredPropertyStore<?>> declaredProperties;
     private final List<DecoratedPropertyStore<?>> decoratedProperties;
 
@@ -75,6 +90,9 @@ public abstract class ComponentDataStore<T extends Component> {
 
     private final ObjectProperty ownerDelegatesProperty;
 
+    // also contained in decoratedProperties, keyed by declared property name
+    private final Map<String, DirtyFlags> dirtyFlags;
+
     private int idSeq;
     private int versionSeq;
 
@@ -104,6 +122,7 @@ public abstract class ComponentDataStore<T extends Component> {
         decoratedProperties = new ArrayList<>(); // empty for now
         for (Map.Entry<String, Property> p : properties.entrySet()) {
             DeclaredPropertyStore store = new DeclaredPropertyStore(p.getValue(), p.getKey());
+            store.attach(system);
             declaredProperties.add(store);
         }
         Collections.sort(declaredProperties);
@@ -111,8 +130,11 @@ public abstract class ComponentDataStore<T extends Component> {
         entityIndexToComponentRepository = new int[1]; // holds default 0 value in 0th index
         componentIndexToEntityIndex = new int[1]; // holds default 0 value in 0th index
         components = (T[]) new Component[1]; // holds default null value in 0th index
+        liveComponents = new long[1];
 
         componentInsert = 1;
+        sortedByEntity = true;
+        lastEntityIndex = 0;
 
         // Make sure properties' stores hold enough space
         resizePropertyStores(declaredProperties, 1);
@@ -123,6 +145,12 @@ public abstract class ComponentDataStore<T extends Component> {
         componentVersionProperty = decorate(new IntProperty(0, false));
         ownerDelegatesProperty = decorate(new ObjectProperty<>(Object.class, false));
 
+        // every declared property gets a bit per component that generated mutators set when it changes
+        dirtyFlags = new HashMap<>();
+        for (DeclaredPropertyStore<?> p : declaredProperties) {
+            dirtyFlags.put(p.key, decorate(new DirtyFlags()));
+        }
+
         idSeq = 1; // start at 1, just like entity id sequences versionSeq = 0;
 
         // initialize version for the 0th index
@@ -143,6 +171,58 @@ public abstract class ComponentDataStore<T extends Component> {
         return componentInsert;
     }
 
+    /**
+     * Get the smallest component index greater than or equal to `componentIndex` that holds a live
+     * component. Dead slots left behind by removed components are skipped a word at a time, so scanning a
+     * fragmented data store costs time proportional to the number of live components and not the number of
+     * slots.
+     *
+     * @param componentIndex The first component index to consider
+     * @return The next live component index, or -1 if there are no live components at or after the index
+     */
+    public int nextComponentIndex(int componentIndex) {
+        int word = componentIndex >> 6;
+        if (word >= liveComponents.length) {
+            return -1;
+        }
+
+        // mask off the bits below the starting index in the first word
+        long bits = liveComponents[word] & (-1L << componentIndex);
+        while (bits == 0L) {
+            if (++word == liveComponents.length) {
+                return -1;
+            }
+            bits = liveComponents[word];
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    /**
+     * Get whether or not the live components of this data store are ordered by their entity index, e.g. if
+     * `a < b` then `getEntityIndex(a) < getEntityIndex(b)` for all live component indices. This is true after
+     * {@link #compact(int[], int)} and remains true until a component is added to an entity with a lower
+     * index than the most recently added component. Removals do not affect the ordering.
+     *
+     * When true, the components of a type can be joined with other sorted types by a sequential merge
+     * instead of random lookups into the entity index.
+     *
+     * @return True if component order matches entity order
+     */
+    public boolean isSortedByEntity() {
+        return sortedByEntity;
+    }
+
+    /**
+     * Get a counter that changes every time {@link #compact(int[], int)} moves the live components of this
+     * data store to new component indices. Positions remembered within the data store, such as the merge
+     * cursors of an iterator, are only valid while the layout version is unchanged.
+     *
+     * @return The current layout version
+     */
+    public int getLayoutVersion() {
+        return layoutVersion;
+    }
+
     /**
      * @return The owning EntitySystem
      */
@@ -205,6 +285,14 @@ public abstract class ComponentDataStore<T extends Component> {
         return componentVersionProperty.get(componentIndex);
     }
 
+    /**
+     * @return The version that will be assigned to the next component that is added or updated, which is
+     * greater than the version of every current component
+     */
+    public int getNextVersion() {
+        return (0xefffffff & versionSeq);
+    }
+
     /**
      * Increment the component's version at the given index. This does nothing if the index is 0, preserving
      * the guarantee that an invalid component has a negative version.
@@ -271,6 +359,7 @@ public abstract class ComponentDataStore<T extends Component> {
 
         // Expand the component index
         componentIndexToEntityIndex = Arrays.copyOf(componentIndexToEntityIndex, size);
+        liveComponents = Arrays.copyOf(liveComponents, (size + 63) >> 6);
     }
 
     /*
@@ -284,6 +373,32 @@ public abstract class ComponentDataStore<T extends Component> {
         }
     }
 
+    private void remapPropertyStores(List<? extends PropertyStore<?>> properties, int[] entityOldToNewMap) {
+        int ct = properties.size();
+        for (int i = 0; i < ct; i++) {
+            properties.get(i).remap(entityOldToNewMap);
+        }
+    }
+
+    /**
+     * Get the dirty flags of a declared property. A component's flag is set by the generated component
+     * implementation whenever a mutator of the property is invoked, and it is cleared when the component is
+     * added or removed, or when the flag is cleared explicitly. The flags are indexed by component index and
+     * stay in sync with the components when the data store is compacted.
+     *
+     * @param propertyName The name of the declared property
+     * @return The dirty flags for the property
+     * @throws IllegalArgumentException if the component type does not declare the property
+     */
+    public DirtyFlags getDirtyFlags(String propertyName) {
+        DirtyFlags flags = dirtyFlags.get(propertyName);
+        if (flags == null) {
+            throw new IllegalArgumentException("Component type " + type.getSimpleName() +
+                                               " does not declare property: " + propertyName);
+        }
+        return flags;
+    }
+
     /**
      * @param componentIndex The component index whose component is fetched
      * @return The component reference at the given index, may be null
@@ -325,6 +440,11 @@ public abstract class ComponentDataStore<T extends Component> {
                     .clone(templateStore.getProperty(), fromTemplate.getIndex(), instance.getIndex());
         }
 
+        // the cloned values are not the defaults a replayed addition would start with
+        for (DirtyFlags flags : dirtyFlags.values()) {
+            flags.setUnjournaled(instance.getIndex());
+        }
+
         return instance;
     }
 
@@ -337,6 +457,21 @@ public abstract class ComponentDataStore<T extends Component> {
      * @throws IllegalArgumentException if initParams is incorrect
      */
     public T addComponent(int entityIndex) {
+        return addComponent(entityIndex, true);
+    }
+
+    /**
+     * Create a new component as in {@link #addComponent(int)} except that required components are not
+     * added. This is used when replaying a journal, which holds its own records of the required components.
+     *
+     * @param entityIndex The entity index which the component is attached to
+     * @return A new component of type T
+     */
+    T restoreComponent(int entityIndex) {
+        return addComponent(entityIndex, false);
+    }
+
+    private T addComponent(int entityIndex, boolean addRequired) {
         if (entityIndexToComponentRepository[entityIndex] != 0) {
             removeComponent(entityIndex);
         }
@@ -350,6 +485,12 @@ public abstract class ComponentDataStore<T extends Component> {
         components[componentIndex] = (T) instance;
         componentIndexToEntityIndex[componentIndex] = entityIndex;
         entityIndexToComponentRepository[entityIndex] = componentIndex;
+        liveComponents[componentIndex >> 6] |= (1L << componentIndex);
+        if (entityIndex < lastEntityIndex) {
+            sortedByEntity = false;
+        } else {
+            lastEntityIndex = entityIndex;
+        }
 
         // Set default value for declared and decorated properties,
         // this is needed because we might be overwriting a previously removed
@@ -373,12 +514,18 @@ public abstract class ComponentDataStore<T extends Component> {
         // connect component back to the index too
         instance.setIndex(componentIndex);
 
+        // the addition is recorded before any required components are added, so that replay assigns the
+        // same component indices
+        system.notifyComponentAdded(type, entityIndex);
+
         // ensure required components are added as well
-        Entity entity = system.getEntityByIndex(entityIndex);
-        for (int i = 0; i < requiredTypes.length; i++) {
-            if (entity.get((Class) requiredTypes[i]) == null) {
-                Component added = entity.add((Class) requiredTypes[i]);
-                added.setOwner(instance);
+        if (addRequired) {
+            Entity entity = system.getEntityByIndex(entityIndex);
+            for (int i = 0; i < requiredTypes.length; i++) {
+                if (entity.get((Class) requiredTypes[i]) == null) {
+                    Component added = entity.add((Class) requiredTypes[i]);
+                    added.setOwner(instance);
+                }
             }
         }
 
@@ -426,7 +573,13 @@ public abstract class ComponentDataStore<T extends Component> {
         componentIndexToEntityIndex[componentIndex] = 0; // component does not have entity
         componentIdProperty.set(componentIndex, 0); // clear id
         ownerDelegatesProperty.set(componentIndex, null);
+        if (componentIndex != 0) {
+            liveComponents[componentIndex >> 6] &= ~(1L << componentIndex);
+        }
 
+        if (oldComponent != null) {
+            system.notifyComponentRemoved(type, entityIndex);
+        }
         return oldComponent != null;
     }
 
@@ -491,6 +644,10 @@ public abstract class ComponentDataStore<T extends Component> {
         // also keeps the property data valid
         sort();
 
+        // Entity references stored in property data must follow the entities to their new indices
+        remapPropertyStores(declaredProperties, entityOldToNewMap);
+        remapPropertyStores(decoratedProperties, entityOldToNewMap);
+
         // Repair the componentToEntityIndex and the component.index values
         componentInsert = 1;
         for (int i = 1; i < components.length; i++) {
@@ -514,6 +671,16 @@ public abstract class ComponentDataStore<T extends Component> {
             resizePropertyStores(decoratedProperties, newSize);
         }
 
+        sortedByEntity = true;
+        lastEntityIndex = componentIndexToEntityIndex[componentInsert - 1];
+        layoutVersion++;
+
+        // every component is now packed into [1, componentInsert)
+        liveComponents = new long[(components.length + 63) >> 6];
+        for (int i = 1; i < componentInsert; i++) {
+            liveComponents[i >> 6] |= (1L << i);
+        }
+
         // Repair entityIndexToComponentRepository - and possible shrink the index
         // based on the number of packed entities
         if (numEntities < .6 * entityIndexToComponentRepository.length) {
@@ -527,6 +694,227 @@ public abstract class ComponentDataStore<T extends Component> {
         }
     }
 
+    /**
+     * Swap the buffers of every declared or decorated property that is {@link
+     * com.lhkbob.entreri.property.Property.DoubleBuffered}.
+     */
+    public void swapBuffers() {
+        swapPropertyBuffers(declaredProperties);
+        swapPropertyBuffers(decoratedProperties);
+    }
+
+    private void swapPropertyBuffers(List<? extends PropertyStore<?>> properties) {
+        int ct = properties.size();
+        for (int i = 0; i < ct; i++) {
+            properties.get(i).swapBuffers();
+        }
+    }
+
+    /**
+     * @return True if every declared property is {@link com.lhkbob.entreri.property.Property.Persistent}
+     * so that the data store can be written by {@link #write(ColumnWriter)}
+     */
+    public boolean isPersistent() {
+        for (int i = 0; i < declaredProperties.size(); i++) {
+            if (!(declaredProperties.get(i).property instanceof Property.Persistent)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return True if any declared property's values are mapped to a file instead of stored on the heap
+     */
+    public boolean isMapped() {
+        for (int i = 0; i < declaredProperties.size(); i++) {
+            Property property = declaredProperties.get(i).property;
+            if (property instanceof Property.Mapped && ((Property.Mapped) property).isMapped()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Write the entity mapping, ids, and versions of every component slot up to the max component index, and
+     * then each declared property's columns preceded by its name and class. Removed slots are written as
+     * well so that component indices are preserved. Decorated properties, ownership, and dirty flags are not
+     * written. Mapped properties are forced to their files.
+     *
+     * @param out The writer to write the component data to
+     * @throws IOException                   if the data could not be written
+     * @throws UnsupportedOperationException if a declared property is not persistent
+     */
+    public void write(ColumnWriter out) throws IOException {
+        if (!isPersistent()) {
+            throw new UnsupportedOperationException("Component type " + type.getName() +
+                                                    " has properties that cannot be saved");
+        }
+
+        int count = componentInsert;
+        out.writeInt(count);
+        out.writeInts(componentIndexToEntityIndex, 0, count);
+        out.writeInts(componentIdProperty.getIndexedData(), 0, count);
+        out.writeInts(componentVersionProperty.getIndexedData(), 0, count);
+        out.writeInt(idSeq);
+        out.writeInt(versionSeq);
+
+        out.writeInt(declaredProperties.size());
+        for (int i = 0; i < declaredProperties.size(); i++) {
+            DeclaredPropertyStore<?> p = declaredProperties.get(i);
+            out.writeString(p.key);
+            out.writeString(p.property.getClass().getName());
+            ((Property.Persistent) p.property).write(out, count);
+            if (p.property instanceof Property.Mapped) {
+                // mapped values are not in the snapshot, so they must be on disk when it is complete
+                ((Property.Mapped) p.property).force();
+            }
+        }
+    }
+
+    /**
+     * Read component data written by {@link #write(ColumnWriter)} into this data store, which must not have
+     * had any components added yet. The owning system's entities must already be restored so that the
+     * components can be attached to them. Every component is restored at the index it was written from.
+     *
+     * @param in          The reader to read the component data from
+     * @param numEntities The number of entity indices in the system
+     * @throws IOException           if the data could not be read, does not match the declared properties of
+     *                               the component type, or references entities that do not exist
+     * @throws IllegalStateException if the data store already has components
+     */
+    public void read(ColumnReader in, int numEntities) throws IOException {
+        if (componentInsert != 1) {
+            throw new IllegalStateException("Component data can only be read into an empty data store");
+        }
+
+        int count = in.readInt();
+        if (count < 1) {
+            throw new IOException("Invalid component count for " + type.getName() + ": " + count);
+        }
+        expandComponentRepository(count);
+
+        in.readInts(componentIndexToEntityIndex, 0, count);
+        in.readInts(componentIdProperty.getIndexedData(), 0, count);
+        in.readInts(componentVersionProperty.getIndexedData(), 0, count);
+        idSeq = in.readInt();
+        versionSeq = in.readInt();
+
+        int propertyCount = in.readInt();
+        if (propertyCount != declaredProperties.size()) {
+            throw new IOException("Expected " + declaredProperties.size() + " properties for " +
+                                  type.getName() + " but data has " + propertyCount);
+        }
+        for (int i = 0; i < propertyCount; i++) {
+            DeclaredPropertyStore<?> p = declaredProperties.get(i);
+            String key = in.readString();
+            String propertyType = in.readString();
+            if (!p.key.equals(key) || !p.property.getClass().getName().equals(propertyType)) {
+                throw new IOException("Expected property " + p.key + " of " + p.property.getClass().getName() +
+                                      " for " + type.getName() + " but data has " + key + " of " +
+                                      propertyType);
+            }
+            if (!(p.property instanceof Property.Persistent)) {
+                throw new IOException("Property " + key + " of " + type.getName() + " cannot be loaded");
+            }
+            ((Property.Persistent) p.property).read(in, count);
+        }
+
+        // recreate the canonical components for every slot that was live when written
+        componentInsert = count;
+        for (int i = 1; i < count; i++) {
+            int entityIndex = componentIndexToEntityIndex[i];
+            if (entityIndex == 0) {
+                continue;
+            }
+            if (entityIndex < 0 || entityIndex >= numEntities || system.getEntityByIndex(entityIndex) == null ||
+                entityIndexToComponentRepository[entityIndex] != 0) {
+                throw new IOException("Component " + i + " of " + type.getName() +
+                                      " is attached to an invalid entity index: " + entityIndex);
+            }
+
+            AbstractComponent<T> instance = createDataInstance();
+            components[i] = (T) instance;
+            entityIndexToComponentRepository[entityIndex] = i;
+            liveComponents[i >> 6] |= (1L << i);
+            if (entityIndex < lastEntityIndex) {
+                sortedByEntity = false;
+            } else {
+                lastEntityIndex = entityIndex;
+            }
+
+            ownerDelegatesProperty.set(i, new OwnerSupport(instance));
+            instance.setIndex(i);
+        }
+    }
+
+    /**
+     * Copy the components of `src` into this data store, which must not have had any components added yet.
+     * Both data stores must have been created by the same factory, and the owning system's entities must
+     * already be copied from the system of `src` so that every entity keeps its index. Every component is
+     * copied at its index with its id, version, and dirty flags. Properties that are {@link
+     * Property.Copyable} are copied a column at a time, and any others are cloned component by component.
+     * Decorated properties and ownership are not copied.
+     *
+     * @param src The data store to copy
+     * @throws IllegalStateException if the data store already has components, or if `src` has different
+     *                               declared properties
+     */
+    public void copy(ComponentDataStore<T> src) {
+        if (componentInsert != 1) {
+            throw new IllegalStateException("Component data can only be copied into an empty data store");
+        }
+        if (src.declaredProperties.size() != declaredProperties.size()) {
+            throw new IllegalStateException("Data stores for " + type.getName() +
+                                            " have different declared properties");
+        }
+
+        int count = src.componentInsert;
+        expandComponentRepository(count);
+        expandEntityIndex(src.entityIndexToComponentRepository.length);
+
+        System.arraycopy(src.entityIndexToComponentRepository, 0, entityIndexToComponentRepository, 0,
+                         src.entityIndexToComponentRepository.length);
+        System.arraycopy(src.componentIndexToEntityIndex, 0, componentIndexToEntityIndex, 0, count);
+        System.arraycopy(src.liveComponents, 0, liveComponents, 0, (count + 63) >> 6);
+        componentIdProperty.copy(src.componentIdProperty, count);
+        componentVersionProperty.copy(src.componentVersionProperty, count);
+        idSeq = src.idSeq;
+        versionSeq = src.versionSeq;
+        sortedByEntity = src.sortedByEntity;
+        lastEntityIndex = src.lastEntityIndex;
+
+        for (int i = 0; i < declaredProperties.size(); i++) {
+            DeclaredPropertyStore<?> p = declaredProperties.get(i);
+            DeclaredPropertyStore<?> from = src.declaredProperties.get(i);
+            if (!p.key.equals(from.key) || p.property.getClass() != from.property.getClass()) {
+                throw new IllegalStateException("Expected property " + p.key + " of " +
+                                                p.property.getClass().getName() + " for " + type.getName() +
+                                                " but found " + from.key + " of " +
+                                                from.property.getClass().getName());
+            }
+
+            if (p.property instanceof Property.Copyable) {
+                ((Property.Copyable) p.property).copy(from.property, count);
+            } else {
+                for (int j = src.nextComponentIndex(1); j >= 0; j = src.nextComponentIndex(j + 1)) {
+                    p.property.clone(from.property, j, j);
+                }
+            }
+            dirtyFlags.get(p.key).copy(src.dirtyFlags.get(p.key), count);
+        }
+
+        // recreate the canonical components, which start without an owner
+        componentInsert = count;
+        for (int i = nextComponentIndex(1); i >= 0; i = nextComponentIndex(i + 1)) {
+            AbstractComponent<T> instance = createDataInstance();
+            components[i] = (T) instance;
+            ownerDelegatesProperty.set(i, new OwnerSupport(instance));
+            instance.setIndex(i);
+        }
+    }
+
     /**
      * Decorate this component data store with the given property. This data store will take over
      * managing the values and capacity of the property so that it remains in sync with the components
@@ -540,6 +928,7 @@ public abstract class ComponentDataStore<T extends Component> {
         int size = (declaredProperties.isEmpty() ? componentInsert
                                                  : declaredProperties.get(0).property.getCapacity());
         DecoratedPropertyStore<P> pstore = new DecoratedPropertyStore<>(property);
+        pstore.attach(system);
 
         // Set values from factory to all component slots
         property.setCapacity(size);
@@ -571,6 +960,27 @@ public abstract class ComponentDataStore<T extends Component> {
             }
         }
 
+        void attach(EntitySystemImpl system) {
+            P property = getProperty();
+            if (property instanceof Property.EntityReferences) {
+                ((Property.EntityReferences) property).attach(system.getEntityIndex());
+            }
+        }
+
+        void remap(int[] entityOldToNewMap) {
+            P property = getProperty();
+            if (property instanceof Property.EntityReferences) {
+                ((Property.EntityReferences) property).remap(entityOldToNewMap);
+            }
+        }
+
+        void swapBuffers() {
+            P property = getProperty();
+            if (property instanceof Property.DoubleBuffered) {
+                ((Property.DoubleBuffered) property).swapBuffers();
+            }
+        }
+
         void swap(int a, int b) {
             P property = getProperty();
             if (property != null) {
@@ -0,0 +1,197 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.impl;
+
+import com.lhkbob.entreri.property.Property;
+
+import java.util.Arrays;
+
+/**
+ * DirtyFlags
+ * ==========
+ *
+ * DirtyFlags is the property a ComponentDataStore decorates itself with, once per declared property, to
+ * record which components have been modified by the generated mutators. It packs two bits per component: a
+ * dirty bit that is reported by {@link com.lhkbob.entreri.EntitySystem#getDirtyComponents(Class, String)}
+ * and cleared by the user, and a journal bit that is only cleared by a {@link ChangeJournal} once it has
+ * written the component's value. Keeping them separate means neither consumer hides changes from the other.
+ *
+ * @author Michael Ludwig
+ */
+public final class DirtyFlags
+        implements Property<DirtyFlags>, Property.ValueSemantics, Property.Copyable<DirtyFlags> {
+    private long[] dirty;
+    private long[] unjournaled;
+    private int capacity;
+
+    /**
+     * Create a new DirtyFlags with a capacity of 1 where no component is flagged.
+     */
+    public DirtyFlags() {
+        dirty = new long[1];
+        unjournaled = new long[1];
+        capacity = 1;
+    }
+
+    /**
+     * @param componentIndex The component's index
+     * @return True if the component is dirty
+     */
+    public boolean get(int componentIndex) {
+        return (dirty[componentIndex >> 6] & (1L << componentIndex)) != 0L;
+    }
+
+    /**
+     * Set whether or not the component is dirty. Setting a component to be dirty also flags it as not yet
+     * written to a journal, while clearing it only affects the dirty bit.
+     *
+     * @param componentIndex The component's index
+     * @param val            True if the component was modified
+     */
+    public void set(int componentIndex, boolean val) {
+        if (val) {
+            dirty[componentIndex >> 6] |= (1L << componentIndex);
+            unjournaled[componentIndex >> 6] |= (1L << componentIndex);
+        } else {
+            dirty[componentIndex >> 6] &= ~(1L << componentIndex);
+        }
+    }
+
+    /**
+     * Flag the component as not yet written to a journal without making it dirty, such as when its values
+     * are cloned from a template.
+     *
+     * @param componentIndex The component's index
+     */
+    public void setUnjournaled(int componentIndex) {
+        unjournaled[componentIndex >> 6] |= (1L << componentIndex);
+    }
+
+    /**
+     * Clear the dirty bit of every component.
+     */
+    public void clear() {
+        Arrays.fill(dirty, 0L);
+    }
+
+    /**
+     * @param componentIndex The first component index to consider
+     * @return The smallest dirty component index at or after the given index, or -1 if there are none
+     */
+    public int nextSetIndex(int componentIndex) {
+        return nextSetIndex(dirty, componentIndex);
+    }
+
+    /**
+     * @param componentIndex The first component index to consider
+     * @return The smallest component index at or after the given index that was modified since it was last
+     * written to a journal, or -1 if there are none
+     */
+    public int nextUnjournaledIndex(int componentIndex) {
+        return nextSetIndex(unjournaled, componentIndex);
+    }
+
+    /**
+     * Mark every component as written to the journal.
+     */
+    public void clearUnjournaled() {
+        Arrays.fill(unjournaled, 0L);
+    }
+
+    private static int nextSetIndex(long[] bits, int componentIndex) {
+        int word = componentIndex >> 6;
+        if (word >= bits.length) {
+            return -1;
+        }
+
+        long w = bits[word] & (-1L << componentIndex);
+        while (w == 0L) {
+            if (++word == bits.length) {
+                return -1;
+            }
+            w = bits[word];
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(w);
+    }
+
+    @Override
+    public void setDefaultValue(int index) {
+        // a new or removed component has nothing left to report or journal
+        dirty[index >> 6] &= ~(1L << index);
+        unjournaled[index >> 6] &= ~(1L << index);
+    }
+
+    @Override
+    public void clone(DirtyFlags src, int srcIndex, int dstIndex) {
+        setDefaultValue(dstIndex);
+    }
+
+    @Override
+    public void copy(DirtyFlags src, int count) {
+        // only the dirty bits are copied, journals always begin from a full snapshot
+        int words = count >> 6;
+        System.arraycopy(src.dirty, 0, dirty, 0, words);
+        for (int i = words << 6; i < count; i++) {
+            dirty[i >> 6] = (dirty[i >> 6] & ~(1L << i)) | (src.dirty[i >> 6] & (1L << i));
+        }
+    }
+
+    @Override
+    public void swap(int a, int b) {
+        swap(dirty, a, b);
+        swap(unjournaled, a, b);
+    }
+
+    private static void swap(long[] bits, int a, int b) {
+        long bitA = (bits[a >> 6] >>> a) & 1L;
+        long bitB = (bits[b >> 6] >>> b) & 1L;
+        if (bitA != bitB) {
+            bits[a >> 6] ^= (1L << a);
+            bits[b >> 6] ^= (1L << b);
+        }
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public void setCapacity(int size) {
+        int words = (size + 63) >> 6;
+        dirty = Arrays.copyOf(dirty, words);
+        unjournaled = Arrays.copyOf(unjournaled, words);
+        capacity = size;
+
+        // bits beyond the capacity must not be reported
+        int tail = size & 63;
+        if (tail != 0) {
+            dirty[words - 1] &= (1L << tail) - 1;
+            unjournaled[words - 1] &= (1L << tail) - 1;
+        }
+    }
+}
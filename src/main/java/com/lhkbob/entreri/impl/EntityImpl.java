@@ -79,6 +79,16 @@ public final class EntityImpl implements Entity {
         return system;
     }
 
+    /**
+     * Get the index of the entity within its system's entity array and component indices. This is 0 if the
+     * entity has been removed. The index can change when the system is compacted.
+     *
+     * @return The current index of the entity
+     */
+    int getIndex() {
+        return index;
+    }
+
     @Override
     public boolean isAlive() {
         return index != 0;
@@ -0,0 +1,281 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.impl;
+
+import com.lhkbob.entreri.Entity;
+import com.lhkbob.entreri.EntitySet;
+import com.lhkbob.entreri.EntitySystem;
+
+import java.util.*;
+
+/**
+ * EntitySetImpl
+ * =============
+ *
+ * EntitySet implementation used by EntitySystemImpl. Membership is stored as a bitset indexed by entity
+ * index, 64 entities per word. The owning system remaps the bits when it is compacted and clears bits of
+ * removed entities, see {@link EntitySystemImpl#compact()} and {@link EntitySystemImpl#removeEntity(Entity)}.
+ *
+ * @author Michael Ludwig
+ */
+public final class EntitySetImpl extends AbstractSet<Entity> implements EntitySet {
+    private final EntitySystemImpl system;
+
+    private long[] bits;
+    private int size;
+
+    /**
+     * Create a new and empty set for entities of the given system.
+     *
+     * @param system The owning system
+     */
+    EntitySetImpl(EntitySystemImpl system) {
+        this.system = system;
+        bits = new long[1];
+        size = 0;
+    }
+
+    @Override
+    public EntitySystem getEntitySystem() {
+        return system;
+    }
+
+    /**
+     * Get the smallest entity index greater than or equal to `entityIndex` that is contained in this set.
+     *
+     * @param entityIndex The first entity index to consider
+     * @return The next entity index in the set, or -1 if there are none
+     */
+    public int nextEntityIndex(int entityIndex) {
+        int word = entityIndex >> 6;
+        if (word >= bits.length) {
+            return -1;
+        }
+
+        long w = bits[word] & (-1L << entityIndex);
+        while (w == 0L) {
+            if (++word == bits.length) {
+                return -1;
+            }
+            w = bits[word];
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(w);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        int index = indexOf(o);
+        return index > 0 && (index >> 6) < bits.length && (bits[index >> 6] & (1L << index)) != 0L;
+    }
+
+    @Override
+    public boolean add(Entity entity) {
+        if (entity == null) {
+            throw new NullPointerException("Entity cannot be null");
+        }
+        int index = indexOf(entity);
+        if (index < 0) {
+            throw new IllegalArgumentException("Entity is not from this EntitySystem");
+        }
+        if (index == 0) {
+            throw new IllegalArgumentException("Entity has been removed");
+        }
+
+        int word = index >> 6;
+        if (word >= bits.length) {
+            bits = Arrays.copyOf(bits, Math.max(word + 1, (int) (bits.length * 1.5f)));
+        }
+        long mask = 1L << index;
+        if ((bits[word] & mask) != 0L) {
+            return false;
+        }
+        bits[word] |= mask;
+        size++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        int index = indexOf(o);
+        return index > 0 && clear(index);
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(bits, 0L);
+        size = 0;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Entity> c) {
+        EntitySetImpl other = asCompatibleSet(c);
+        if (other == null) {
+            return super.addAll(c);
+        }
+
+        if (other.bits.length > bits.length) {
+            bits = Arrays.copyOf(bits, other.bits.length);
+        }
+        for (int i = 0; i < other.bits.length; i++) {
+            bits[i] |= other.bits[i];
+        }
+        return updateSize();
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        EntitySetImpl other = asCompatibleSet(c);
+        if (other == null) {
+            return super.retainAll(c);
+        }
+
+        int shared = Math.min(bits.length, other.bits.length);
+        for (int i = 0; i < shared; i++) {
+            bits[i] &= other.bits[i];
+        }
+        Arrays.fill(bits, shared, bits.length, 0L);
+        return updateSize();
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        EntitySetImpl other = asCompatibleSet(c);
+        if (other == null) {
+            return super.removeAll(c);
+        }
+
+        int shared = Math.min(bits.length, other.bits.length);
+        for (int i = 0; i < shared; i++) {
+            bits[i] &= ~other.bits[i];
+        }
+        return updateSize();
+    }
+
+    @Override
+    public Iterator<Entity> iterator() {
+        return new EntitySetIterator();
+    }
+
+    /**
+     * Remove the entity index from the set, called by the system when the entity is removed.
+     *
+     * @param entityIndex The index of the removed entity
+     * @return True if the set contained the entity
+     */
+    boolean clear(int entityIndex) {
+        int word = entityIndex >> 6;
+        long mask = 1L << entityIndex;
+        if (word < bits.length && (bits[word] & mask) != 0L) {
+            bits[word] &= ~mask;
+            size--;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Update the set after the system has been compacted so that the set refers to the same entities.
+     *
+     * @param entityOldToNewMap A map from old entity index to new index
+     * @param numEntities       The number of entities that are in the system
+     */
+    void compact(int[] entityOldToNewMap, int numEntities) {
+        long[] packed = new long[(numEntities + 63) >> 6];
+        int old = nextEntityIndex(1);
+        while (old > 0) {
+            // removed entities have already been cleared, so every remaining index is remapped
+            int index = entityOldToNewMap[old];
+            packed[index >> 6] |= (1L << index);
+            old = nextEntityIndex(old + 1);
+        }
+        bits = packed;
+    }
+
+    private EntitySetImpl asCompatibleSet(Collection<?> c) {
+        if (c instanceof EntitySetImpl && ((EntitySetImpl) c).system == system) {
+            return (EntitySetImpl) c;
+        }
+        return null;
+    }
+
+    private boolean updateSize() {
+        int oldSize = size;
+        size = 0;
+        for (int i = 0; i < bits.length; i++) {
+            size += Long.bitCount(bits[i]);
+        }
+        return size != oldSize;
+    }
+
+    // returns -1 if o is not an entity of this system, or the (possibly 0 for removed) entity index
+    private int indexOf(Object o) {
+        if (!(o instanceof EntityImpl)) {
+            return -1;
+        }
+        EntityImpl e = (EntityImpl) o;
+        return e.getEntitySystem() == system ? e.index : -1;
+    }
+
+    private class EntitySetIterator implements Iterator<Entity> {
+        private int current;
+        private int next;
+
+        public EntitySetIterator() {
+            current = 0;
+            next = nextEntityIndex(1);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next > 0;
+        }
+
+        @Override
+        public Entity next() {
+            if (next <= 0) {
+                throw new NoSuchElementException();
+            }
+            current = next;
+            next = nextEntityIndex(current + 1);
+            return system.getEntityByIndex(current);
+        }
+
+        @Override
+        public void remove() {
+            if (current == 0) {
+                throw new IllegalStateException("Must call next() before remove()");
+            }
+            clear(current);
+            current = 0;
+        }
+    }
+}
@@ -28,11 +28,22 @@ package com.lhkbob.entreri.impl;
 
 import com.lhkbob.entreri.Component;
 import com.lhkbob.entreri.ComponentIterator;
+import com.lhkbob.entreri.DeltaDecoder;
+import com.lhkbob.entreri.DeltaEncoder;
 import com.lhkbob.entreri.Entity;
+import com.lhkbob.entreri.EntitySet;
 import com.lhkbob.entreri.EntitySystem;
+import com.lhkbob.entreri.Journal;
+import com.lhkbob.entreri.property.ColumnReader;
+import com.lhkbob.entreri.property.ColumnWriter;
 import com.lhkbob.entreri.property.Property;
 import com.lhkbob.entreri.task.Scheduler;
 
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.*;
 
 /**
@@ -46,6 +57,10 @@ import java.util.*;
  * @author Michael Ludwig
  */
 public final class EntitySystemImpl implements EntitySystem {
+    // identifies a snapshot written by save(), followed by the format version
+    private static final int SNAPSHOT_MAGIC = 0x45435353; // "ECSS"
+    private static final int SNAPSHOT_VERSION = 1;
+
     // converts valid component data types into indices into dataStores
     private final Map<Class<? extends Component>, Integer> typeIndexMap;
     private int typeIdSeq;
@@ -59,6 +74,18 @@ public final class EntitySystemImpl implements EntitySystem {
 
     private final Scheduler manager;
     private final ComponentDataStore.Factory dataStoreFactory;
+    private final Property.EntityIndex entityIndex;
+
+    // entity sets are weakly referenced so they are kept in sync with removals and compaction until
+    // they are garbage collected
+    private final List<WeakReference<EntitySetImpl>> entitySets;
+
+    // null unless a journal is open, in which case it is also a listener
+    private ChangeJournal journal;
+    // concurrent tasks can change the structure of different types, so notifications hold this lock since
+    // the listeners are not thread safe
+    private final Object listenerLock;
+    private volatile ChangeListener[] listeners;
 
     /**
      * Create a new EntitySystem that has no entities added.
@@ -69,8 +96,12 @@ public final class EntitySystemImpl implements EntitySystem {
         typeIdSeq = 0;
 
         manager = new Scheduler(this);
+        entityIndex = new EntityIndexImpl();
         entities = new EntityImpl[1];
         dataStores = new ComponentDataStore[0];
+        entitySets = new ArrayList<>();
+        listenerLock = new Object();
+        listeners = new ChangeListener[0];
 
         entityIdSeq = 1; // start at 1, id 0 is reserved for index = 0
         entityInsert = 1;
@@ -173,6 +204,292 @@ public final class EntitySystemImpl implements EntitySystem {
                 dataStores[i].compact(oldToNew, entityInsert);
             }
         }
+
+        // Remap entity sets, and forget any that have been garbage collected
+        Iterator<WeakReference<EntitySetImpl>> sets = entitySets.iterator();
+        while (sets.hasNext()) {
+            EntitySetImpl set = sets.next().get();
+            if (set == null) {
+                sets.remove();
+            } else {
+                set.compact(oldToNew, entityInsert);
+            }
+        }
+
+        synchronized (listenerLock) {
+            for (ChangeListener listener : listeners) {
+                listener.compacted();
+            }
+        }
+    }
+
+    @Override
+    public void swapBuffers() {
+        for (int i = 0; i < dataStores.length; i++) {
+            if (dataStores[i] != null) {
+                dataStores[i].swapBuffers();
+            }
+        }
+
+        synchronized (listenerLock) {
+            for (ChangeListener listener : listeners) {
+                listener.buffersSwapped();
+            }
+        }
+    }
+
+    @Override
+    public void save(WritableByteChannel channel) throws IOException {
+        if (channel == null) {
+            throw new NullPointerException("Channel cannot be null");
+        }
+
+        // validate every type before writing anything so a failure does not leave a partial snapshot
+        List<ComponentDataStore<?>> stores = new ArrayList<>();
+        for (int i = 0; i < dataStores.length; i++) {
+            if (dataStores[i] != null) {
+                if (!dataStores[i].isPersistent()) {
+                    throw new UnsupportedOperationException("Component type " +
+                                                            dataStores[i].getType().getName() +
+                                                            " has properties that cannot be saved");
+                }
+                stores.add(dataStores[i]);
+            }
+        }
+
+        ColumnWriter out = new ColumnWriter(channel);
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeInt(SNAPSHOT_VERSION);
+
+        // removed entities that have not been compacted are written as id 0 so indices are preserved
+        int[] ids = new int[entityInsert];
+        for (int i = 1; i < entityInsert; i++) {
+            if (entities[i] != null) {
+                ids[i] = entities[i].getId();
+            }
+        }
+        out.writeInt(entityInsert);
+        out.writeInt(entityIdSeq);
+        out.writeInts(ids, 0, entityInsert);
+
+        out.writeInt(stores.size());
+        for (ComponentDataStore<?> store : stores) {
+            out.writeString(store.getType().getName());
+            store.write(out);
+        }
+        out.flush();
+    }
+
+    /**
+     * Restore the entities and components of a snapshot written by {@link #save(WritableByteChannel)} into
+     * this system, which must be empty.
+     *
+     * @param channel The channel to read the snapshot from
+     * @throws IOException           if the snapshot could not be read or is invalid
+     * @throws IllegalStateException if the system already has entities or component types
+     * @throws NullPointerException  if channel is null
+     */
+    public void load(ReadableByteChannel channel) throws IOException {
+        if (channel == null) {
+            throw new NullPointerException("Channel cannot be null");
+        }
+        if (entityInsert != 1 || !typeIndexMap.isEmpty()) {
+            throw new IllegalStateException("Snapshot can only be loaded into an empty EntitySystem");
+        }
+
+        ColumnReader in = new ColumnReader(channel);
+        if (in.readInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("Channel does not contain an EntitySystem snapshot");
+        }
+        int version = in.readInt();
+        if (version != SNAPSHOT_VERSION) {
+            throw new IOException("Unsupported snapshot version: " + version);
+        }
+
+        int numEntities = in.readInt();
+        int idSeq = in.readInt();
+        if (numEntities < 1) {
+            throw new IOException("Invalid entity count: " + numEntities);
+        }
+        int[] ids = new int[numEntities];
+        in.readInts(ids, 0, numEntities);
+
+        entities = new EntityImpl[numEntities];
+        for (int i = 1; i < numEntities; i++) {
+            if (ids[i] != 0) {
+                entities[i] = new EntityImpl(this, i, ids[i]);
+            }
+        }
+        entityInsert = numEntities;
+        entityIdSeq = idSeq;
+
+        int numTypes = in.readInt();
+        for (int i = 0; i < numTypes; i++) {
+            Class<? extends Component> type = getComponentType(in.readString());
+            if (typeIndexMap.containsKey(type)) {
+                throw new IOException("Snapshot contains " + type.getName() + " more than once");
+            }
+            getRepository(type).read(in, entityInsert);
+        }
+    }
+
+    @Override
+    public Journal openJournal(File directory) throws IOException {
+        return openJournal(directory, ChangeJournal.DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Open a journal as in {@link #openJournal(java.io.File)} whose segments are rotated once they grow past
+     * `segmentSize` bytes.
+     *
+     * @param directory   The directory of the journal's files
+     * @param segmentSize The size in bytes past which segments are rotated
+     * @return The open journal
+     * @throws IOException if the directory or initial snapshot could not be written
+     */
+    ChangeJournal openJournal(File directory, long segmentSize) throws IOException {
+        if (directory == null) {
+            throw new NullPointerException("Directory cannot be null");
+        }
+        if (journal != null) {
+            throw new IllegalStateException("A journal is already open in " + journal.getDirectory());
+        }
+        journal = new ChangeJournal(this, directory, segmentSize);
+        addChangeListener(journal);
+        return journal;
+    }
+
+    @Override
+    public DeltaEncoder createDeltaEncoder() {
+        VersionDeltaEncoder encoder = new VersionDeltaEncoder(this);
+        addChangeListener(encoder);
+        return encoder;
+    }
+
+    @Override
+    public DeltaDecoder createDeltaDecoder() {
+        return new VersionDeltaDecoder(this);
+    }
+
+    @Override
+    public EntitySystem fork() {
+        ComponentDataStore.Factory factory = dataStoreFactory;
+        if (factory instanceof MappedComponentDataStoreFactory) {
+            // the fork must not share the parent's files, so its values are copied onto the heap
+            factory = ((MappedComponentDataStoreFactory) factory).getDelegate();
+        }
+
+        // removed entities that have not been compacted are copied as null so indices are preserved
+        EntitySystemImpl fork = new EntitySystemImpl(factory);
+        fork.entities = new EntityImpl[entities.length];
+        for (int i = 1; i < entityInsert; i++) {
+            if (entities[i] != null) {
+                fork.entities[i] = new EntityImpl(fork, i, entities[i].getId());
+            }
+        }
+        fork.entityInsert = entityInsert;
+        fork.entityIdSeq = entityIdSeq;
+
+        for (int i = 0; i < dataStores.length; i++) {
+            if (dataStores[i] != null) {
+                copyRepository(dataStores[i], fork);
+            }
+        }
+        return fork;
+    }
+
+    private static <T extends Component> void copyRepository(ComponentDataStore<T> store,
+                                                             EntitySystemImpl fork) {
+        fork.getRepository(store.getType()).copy(store);
+    }
+
+    /**
+     * @return The open journal recording changes to this system, or null
+     */
+    ChangeJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Detach the journal from this system, if it is the open journal.
+     *
+     * @param closed The journal that was closed
+     */
+    void closeJournal(ChangeJournal closed) {
+        if (journal == closed) {
+            journal = null;
+            removeChangeListener(closed);
+        }
+    }
+
+    void addChangeListener(ChangeListener listener) {
+        synchronized (listenerLock) {
+            ChangeListener[] added = Arrays.copyOf(listeners, listeners.length + 1);
+            added[added.length - 1] = listener;
+            listeners = added;
+        }
+    }
+
+    void removeChangeListener(ChangeListener listener) {
+        synchronized (listenerLock) {
+            List<ChangeListener> remaining = new ArrayList<>(Arrays.asList(listeners));
+            remaining.remove(listener);
+            listeners = remaining.toArray(new ChangeListener[remaining.size()]);
+        }
+    }
+
+    /**
+     * Notify the listeners that a component was added, see {@link ChangeListener#componentAdded(Class,
+     * int)}.
+     *
+     * @param type        The component type
+     * @param entityIndex The index of the entity the component was added to
+     */
+    void notifyComponentAdded(Class<? extends Component> type, int entityIndex) {
+        if (listeners.length > 0) {
+            synchronized (listenerLock) {
+                for (ChangeListener listener : listeners) {
+                    listener.componentAdded(type, entityIndex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Notify the listeners that a component was removed, see {@link ChangeListener#componentRemoved(Class,
+     * int)}.
+     *
+     * @param type        The component type
+     * @param entityIndex The index of the entity the component was removed from
+     */
+    void notifyComponentRemoved(Class<? extends Component> type, int entityIndex) {
+        if (listeners.length > 0) {
+            synchronized (listenerLock) {
+                for (ChangeListener listener : listeners) {
+                    listener.componentRemoved(type, entityIndex);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The upper bound (exclusive) for entity index values
+     */
+    int getMaxEntityIndex() {
+        return entityInsert;
+    }
+
+    Class<? extends Component> getComponentType(String typeName) throws IOException {
+        Class<?> type;
+        try {
+            type = getClass().getClassLoader().loadClass(typeName);
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unable to find component type: " + typeName, e);
+        }
+        if (!Component.class.isAssignableFrom(type)) {
+            throw new IOException("Snapshot type is not a Component: " + typeName);
+        }
+        return type.asSubclass(Component.class);
     }
 
     @Override
@@ -202,6 +519,11 @@ public final class EntitySystemImpl implements EntitySystem {
 
         EntityImpl newEntity = new EntityImpl(this, entityIndex, entityIdSeq++);
         entities[entityIndex] = newEntity;
+        synchronized (listenerLock) {
+            for (ChangeListener listener : listeners) {
+                listener.entityAdded(entityIndex);
+            }
+        }
 
         if (template != null) {
             for (Component c : template) {
@@ -238,6 +560,24 @@ public final class EntitySystemImpl implements EntitySystem {
             }
         }
 
+        // Clear the entity from its sets, and forget any that have been garbage collected
+        int liveSets = 0;
+        for (int i = 0; i < entitySets.size(); i++) {
+            WeakReference<EntitySetImpl> ref = entitySets.get(i);
+            EntitySetImpl set = ref.get();
+            if (set != null) {
+                set.clear(ei.index);
+                entitySets.set(liveSets++, ref);
+            }
+        }
+        entitySets.subList(liveSets, entitySets.size()).clear();
+
+        synchronized (listenerLock) {
+            for (ChangeListener listener : listeners) {
+                listener.entityRemoved(ei.index);
+            }
+        }
+
         // clear out the entity
         entities[ei.index] = null;
         ei.index = 0;
@@ -249,6 +589,13 @@ public final class EntitySystemImpl implements EntitySystem {
         return index.decorate(property);
     }
 
+    @Override
+    public EntitySet createEntitySet() {
+        EntitySetImpl set = new EntitySetImpl(this);
+        entitySets.add(new WeakReference<>(set));
+        return set;
+    }
+
     @Override
     public ComponentIterator fastIterator() {
         return new SystemComponentIteratorImpl(this);
@@ -302,17 +649,41 @@ public final class EntitySystemImpl implements EntitySystem {
         return new ComponentRepositoryIterator();
     }
 
+    @Override
+    public <T extends Component> Iterator<T> getDirtyComponents(Class<T> type, String property) {
+        if (property == null) {
+            throw new NullPointerException("Property name cannot be null");
+        }
+        return new DirtyComponentIterator<>(getRepository(type), property);
+    }
+
+    @Override
+    public <T extends Component> void clearDirty(Class<T> type, String property) {
+        if (property == null) {
+            throw new NullPointerException("Property name cannot be null");
+        }
+        getRepository(type).getDirtyFlags(property).clear();
+    }
+
     /**
      * Return the canonical Entity instance associated with the given index.
      *
      * @param entityIndex The index that the entity is stored at within the entity array and component
      *                    indicees
-     * @return The canonical Entity instance for the index
+     * @return The canonical Entity instance for the index, or null if the entity at the index was removed
      */
     Entity getEntityByIndex(int entityIndex) {
         return entities[entityIndex];
     }
 
+    /**
+     * @return The entity index attached to properties that implement {@link
+     * com.lhkbob.entreri.property.Property.EntityReferences}
+     */
+    Property.EntityIndex getEntityIndex() {
+        return entityIndex;
+    }
+
     @SuppressWarnings({ "rawtypes", "unchecked" })
     private <T extends Component> void addFromTemplate(int entityIndex, Class type, T c) {
         ComponentDataStore index = getRepository(type);
@@ -398,6 +769,77 @@ public final class EntitySystemImpl implements EntitySystem {
         }
     }
 
+    private static class DirtyComponentIterator<T extends Component> implements Iterator<T> {
+        private final ComponentDataStore<T> store;
+        private final DirtyFlags flags;
+
+        private int index; // last returned component index, or 0
+        private int next; // next dirty component index, or -1 if there are no more
+        private boolean advanced;
+
+        public DirtyComponentIterator(ComponentDataStore<T> store, String property) {
+            this.store = store;
+            flags = store.getDirtyFlags(property);
+            index = 0;
+            advanced = false;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!advanced) {
+                advance();
+            }
+            return next > 0;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            advanced = false;
+            index = next;
+            return store.getComponent(index);
+        }
+
+        @Override
+        public void remove() {
+            if (index == 0) {
+                throw new IllegalStateException("Must call next() before remove()");
+            }
+            flags.set(index, false);
+        }
+
+        private void advance() {
+            // the 0th index does not belong to a component, and dirty flags of removed components were reset
+            next = flags.nextSetIndex(index + 1);
+            while (next > 0 && (next >= store.getMaxComponentIndex() || store.getComponent(next) == null)) {
+                next = flags.nextSetIndex(next + 1);
+            }
+            advanced = true;
+        }
+    }
+
+    private class EntityIndexImpl implements Property.EntityIndex {
+        @Override
+        public EntitySystem getEntitySystem() {
+            return EntitySystemImpl.this;
+        }
+
+        @Override
+        public Entity getEntity(int index) {
+            return entities[index];
+        }
+
+        @Override
+        public int getIndex(Entity entity) {
+            if (entity.getEntitySystem() != EntitySystemImpl.this) {
+                throw new IllegalArgumentException("Entity is not from this EntitySystem");
+            }
+            return ((EntityImpl) entity).getIndex();
+        }
+    }
+
     private class EntityIterator implements Iterator<Entity> {
         private int index;
         private boolean advanced;
@@ -0,0 +1,101 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.impl;
+
+import com.lhkbob.entreri.Component;
+import com.lhkbob.entreri.property.Property;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * MappedComponentDataStoreFactory
+ * ===============================
+ *
+ * MappedComponentDataStoreFactory wraps another factory and maps the declared properties of each created data
+ * store that implement {@link com.lhkbob.entreri.property.Property.Mapped} to files. Each component type
+ * gets a directory named after its qualified class name within the root directory, holding one file per
+ * mapped property named after the property.
+ *
+ * @author Michael Ludwig
+ */
+public class MappedComponentDataStoreFactory implements ComponentDataStore.Factory {
+    private final ComponentDataStore.Factory delegate;
+    private final File directory;
+
+    /**
+     * Create a factory that maps the properties of the data stores created by `delegate` to files within
+     * `directory`.
+     *
+     * @param delegate  The factory creating the data stores
+     * @param directory The root directory of the mapped files
+     * @throws NullPointerException if delegate or directory are null
+     */
+    public MappedComponentDataStoreFactory(ComponentDataStore.Factory delegate, File directory) {
+        if (delegate == null || directory == null) {
+            throw new NullPointerException("Arguments cannot be null");
+        }
+        this.delegate = delegate;
+        this.directory = directory;
+    }
+
+    /**
+     * @return The factory creating the data stores before their properties are mapped
+     */
+    public ComponentDataStore.Factory getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @return The root directory of the mapped files
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public <T extends Component> ComponentDataStore<T> create(EntitySystemImpl impl, Class<T> type) {
+        ComponentDataStore<T> store = delegate.create(impl, type);
+
+        File typeDirectory = new File(directory, type.getName());
+        for (int i = 0; i < store.getDeclaredPropertyCount(); i++) {
+            Property property = store.getProperty(i);
+            if (property instanceof Property.Mapped) {
+                File file = new File(typeDirectory, store.getDeclaredPropertyName(i));
+                try {
+                    if (!typeDirectory.isDirectory() && !typeDirectory.mkdirs()) {
+                        throw new IOException("Unable to create directory: " + typeDirectory);
+                    }
+                    ((Property.Mapped) property).map(file);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Unable to map property file: " + file, e);
+                }
+            }
+        }
+        return store;
+    }
+}
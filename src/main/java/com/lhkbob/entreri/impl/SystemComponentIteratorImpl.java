@@ -49,6 +49,17 @@ public class SystemComponentIteratorImpl implements ComponentIterator {
 
     private AbstractComponent<?> primary;
 
+    // merge cursors into the required and optional data stores, used when every store involved is sorted
+    // by entity index so each store can be walked forward in step with the primary
+    private int[] requiredCursors;
+    private int[] optionalCursors;
+
+    // layout versions of the primary, required and optional data stores when the iteration began, a cursor
+    // is abandoned for lookups if its store has been compacted since
+    private int primaryVersion;
+    private int[] requiredVersions;
+    private int[] optionalVersions;
+
     /**
      * Create a new ComponentIterator that will iterate over components within the given EntitySystem. It is
      * initialized with no required or optional components, but at least one required component must be added
@@ -64,6 +75,10 @@ public class SystemComponentIteratorImpl implements ComponentIterator {
         this.system = system;
         required = new AbstractComponent<?>[0];
         optional = new AbstractComponent<?>[0];
+        requiredCursors = new int[0];
+        optionalCursors = new int[0];
+        requiredVersions = new int[0];
+        optionalVersions = new int[0];
         primary = null;
         index = 0;
     }
@@ -84,6 +99,8 @@ public class SystemComponentIteratorImpl implements ComponentIterator {
             // check if the new data is shorter, but we will definitely
             // putting one data into the required array
             required = Arrays.copyOf(required, required.length + 1);
+            requiredCursors = Arrays.copyOf(requiredCursors, required.length);
+            requiredVersions = Arrays.copyOf(requiredVersions, required.length);
 
             if (data.owner.getMaxComponentIndex() < primary.owner.getMaxComponentIndex()) {
                 // new primary
@@ -110,6 +127,8 @@ public class SystemComponentIteratorImpl implements ComponentIterator {
         // add the data to the optional array
         optional = Arrays.copyOf(optional, optional.length + 1);
         optional[optional.length - 1] = data;
+        optionalCursors = Arrays.copyOf(optionalCursors, optional.length);
+        optionalVersions = Arrays.copyOf(optionalVersions, optional.length);
 
         return (T) data;
     }
@@ -119,13 +138,22 @@ public class SystemComponentIteratorImpl implements ComponentIterator {
         if (primary == null) {
             return false;
         }
+        if (index == 0) {
+            beginMerge();
+        }
+
+        // if the primary visits entities in ascending order, any other sorted store can be walked forward
+        // with a cursor instead of randomly looking up each entity
+        boolean primarySorted = primary.owner.isSortedByEntity() &&
+                                primary.owner.getLayoutVersion() == primaryVersion;
 
         boolean found;
         int entity;
         int component;
-        int count = primary.owner.getMaxComponentIndex();
-        while (index < count - 1) {
-            index++; // always increment one
+        int next;
+        // jump directly between live components of the primary type, skipping removed slots
+        while ((next = primary.owner.nextComponentIndex(index + 1)) > 0) {
+            index = next;
 
             found = true;
             entity = primary.owner.getEntityIndex(index);
@@ -133,7 +161,18 @@ public class SystemComponentIteratorImpl implements ComponentIterator {
                 // we have a possible entity candidate
                 primary.setIndex(index);
                 for (int i = 0; i < required.length; i++) {
-                    component = required[i].owner.getComponentIndex(entity);
+                    ComponentDataStore<?> store = required[i].owner;
+                    if (primarySorted && store.isSortedByEntity() &&
+                        store.getLayoutVersion() == requiredVersions[i]) {
+                        component = merge(store, requiredCursors, i, entity);
+                        if (component < 0) {
+                            // the required type has no components for this or any later entity
+                            return false;
+                        }
+                    } else {
+                        component = store.getComponentIndex(entity);
+                    }
+
                     if (component == 0) {
                         found = false;
                         break;
@@ -146,7 +185,13 @@ public class SystemComponentIteratorImpl implements ComponentIterator {
                     // we have satisfied all required components,
                     // so now set all optional requirements as well
                     for (int i = 0; i < optional.length; i++) {
-                        component = optional[i].owner.getComponentIndex(entity);
+                        ComponentDataStore<?> store = optional[i].owner;
+                        if (primarySorted && store.isSortedByEntity() &&
+                            store.getLayoutVersion() == optionalVersions[i]) {
+                            component = Math.max(0, merge(store, optionalCursors, i, entity));
+                        } else {
+                            component = store.getComponentIndex(entity);
+                        }
                         optional[i].setIndex(component);
                     }
 
@@ -158,8 +203,47 @@ public class SystemComponentIteratorImpl implements ComponentIterator {
         return false;
     }
 
+    /*
+     * Rewind the merge cursors and remember the layout of every store at the start of an iteration. A store
+     * compacted after this is looked up by entity for the rest of the iteration, since its cursor no longer
+     * refers to the same component.
+     */
+    private void beginMerge() {
+        primaryVersion = primary.owner.getLayoutVersion();
+        for (int i = 0; i < required.length; i++) {
+            requiredCursors[i] = 1;
+            requiredVersions[i] = required[i].owner.getLayoutVersion();
+        }
+        for (int i = 0; i < optional.length; i++) {
+            optionalCursors[i] = 1;
+            optionalVersions[i] = optional[i].owner.getLayoutVersion();
+        }
+    }
+
+    /*
+     * Advance the cursor for a sorted store until it reaches the first live component whose entity is at
+     * least the given entity. Returns the component index if the entity has a component in the store, 0 if
+     * it does not, and -1 if the store has no component for this or any later entity.
+     */
+    private static int merge(ComponentDataStore<?> store, int[] cursors, int cursor, int entity) {
+        int component = cursors[cursor];
+        while ((component = store.nextComponentIndex(component)) > 0) {
+            int componentEntity = store.getEntityIndex(component);
+            if (componentEntity >= entity) {
+                cursors[cursor] = component;
+                return componentEntity == entity ? component : 0;
+            }
+            component++;
+        }
+
+        // exhausted, but start from the end next time in case new components are appended
+        cursors[cursor] = store.getMaxComponentIndex();
+        return -1;
+    }
+
     @Override
     public void reset() {
+        // the merge cursors are rewound by the first call to next()
         index = 0;
     }
 }
@@ -0,0 +1,260 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.impl;
+
+import com.lhkbob.entreri.Component;
+import com.lhkbob.entreri.DeltaDecoder;
+import com.lhkbob.entreri.Entity;
+import com.lhkbob.entreri.property.ColumnReader;
+import com.lhkbob.entreri.property.EntityReferenceProperty;
+import com.lhkbob.entreri.property.Property;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * VersionDeltaDecoder
+ * ===================
+ *
+ * VersionDeltaDecoder is the implementation of {@link DeltaDecoder} for EntitySystemImpl that reads the
+ * format written by {@link VersionDeltaEncoder}. It maps the ids of the encoding system's entities to the
+ * mirrored entities it has created.
+ *
+ * @author Michael Ludwig
+ */
+public final class VersionDeltaDecoder implements DeltaDecoder {
+    private static final int BUFFER_SIZE = 1 << 13;
+
+    private final EntitySystemImpl mirror;
+    private final Map<Integer, Entity> entities;
+    private long watermark;
+
+    private int[] indices;
+
+    /**
+     * Create a decoder that applies deltas to the mirror system.
+     *
+     * @param mirror The mirror system
+     */
+    public VersionDeltaDecoder(EntitySystemImpl mirror) {
+        if (mirror == null) {
+            throw new NullPointerException("Mirror cannot be null");
+        }
+        this.mirror = mirror;
+        entities = new HashMap<>();
+        watermark = 0;
+        indices = new int[16];
+    }
+
+    @Override
+    public long getWatermark() {
+        return watermark;
+    }
+
+    @Override
+    public Entity getEntity(int id) {
+        return entities.get(id);
+    }
+
+    @Override
+    public long apply(ByteBuffer delta) throws IOException {
+        if (delta == null) {
+            throw new NullPointerException("Delta cannot be null");
+        }
+        ColumnReader in = new ColumnReader(new ByteBufferChannel(delta), BUFFER_SIZE);
+        if (in.readInt() != VersionDeltaEncoder.DELTA_MAGIC) {
+            throw new IOException("Buffer does not contain a delta");
+        }
+        int version = in.readInt();
+        if (version != VersionDeltaEncoder.DELTA_VERSION) {
+            throw new IOException("Unsupported delta version: " + version);
+        }
+        long base = in.readLong();
+        long next = in.readLong();
+        if (next <= watermark) {
+            // already applied, or superseded by a delta that was applied
+            return watermark;
+        }
+        if (base > watermark) {
+            throw new IOException("Delta from watermark " + base + " cannot be applied to a mirror at " +
+                                  watermark);
+        }
+
+        int typeCount = in.readInt();
+        if (typeCount < 0) {
+            throw new IOException("Invalid type count: " + typeCount);
+        }
+        List<Class<? extends Component>> types = new ArrayList<>(typeCount);
+        for (int i = 0; i < typeCount; i++) {
+            types.add(mirror.getComponentType(in.readString()));
+        }
+
+        // a full state delta removes every mirrored entity and component it does not mention, since it
+        // carries no removal log
+        Set<Integer> present = (base == 0 ? new HashSet<Integer>() : null);
+        Map<Integer, Set<Class<? extends Component>>> presentTypes = null;
+        if (base == 0) {
+            presentTypes = new HashMap<>();
+        }
+        int logCount = in.readInt();
+        for (int i = 0; i < logCount; i++) {
+            byte op = in.readByte();
+            int type = in.readInt();
+            int id = in.readInt();
+            switch (op) {
+            case VersionDeltaEncoder.ADD_ENTITY:
+                if (!entities.containsKey(id)) {
+                    entities.put(id, mirror.addEntity());
+                }
+                if (present != null) {
+                    present.add(id);
+                }
+                break;
+            case VersionDeltaEncoder.REMOVE_ENTITY: {
+                Entity e = entities.remove(id);
+                if (e != null && e.isAlive()) {
+                    mirror.removeEntity(e);
+                }
+                break;
+            }
+            case VersionDeltaEncoder.REMOVE_COMPONENT: {
+                Entity e = entities.get(id);
+                if (e != null) {
+                    e.remove(getType(types, type));
+                }
+                break;
+            }
+            case VersionDeltaEncoder.SWAP_BUFFERS:
+                mirror.swapBuffers();
+                break;
+            default:
+                throw new IOException("Unknown delta log entry: " + op);
+            }
+        }
+
+        int changedTypes = in.readInt();
+        for (int t = 0; t < changedTypes; t++) {
+            Class<? extends Component> type = getType(types, in.readInt());
+            ComponentDataStore<?> store = mirror.getRepository(type);
+            int count = in.readInt();
+            if (count < 0) {
+                throw new IOException("Invalid component count for " + type.getName() + ": " + count);
+            }
+            if (indices.length < count) {
+                indices = new int[count];
+            }
+            for (int i = 0; i < count; i++) {
+                int id = in.readInt();
+                Entity e = entities.get(id);
+                if (e == null) {
+                    throw new IOException("Delta updates a " + type.getName() + " of an unknown entity: " + id);
+                }
+                indices[i] = getOrAdd(e, type).getIndex();
+                if (presentTypes != null) {
+                    Set<Class<? extends Component>> entityTypes = presentTypes.get(id);
+                    if (entityTypes == null) {
+                        entityTypes = new HashSet<>();
+                        presentTypes.put(id, entityTypes);
+                    }
+                    entityTypes.add(type);
+                }
+            }
+
+            int propertyCount = in.readInt();
+            if (propertyCount != store.getDeclaredPropertyCount()) {
+                throw new IOException("Expected " + store.getDeclaredPropertyCount() + " properties for " +
+                                      type.getName() + " but delta has " + propertyCount);
+            }
+            for (int p = 0; p < propertyCount; p++) {
+                Property<?> property = store.getProperty(p);
+                if (property instanceof EntityReferenceProperty) {
+                    EntityReferenceProperty references = (EntityReferenceProperty) property;
+                    for (int i = 0; i < count; i++) {
+                        int id = in.readInt();
+                        references.set(indices[i], id == 0 ? null : entities.get(id));
+                    }
+                } else if (property instanceof Property.Persistent) {
+                    ((Property.Persistent) property).read(in, indices, count);
+                } else {
+                    throw new IOException("Property " + store.getDeclaredPropertyName(p) + " of " +
+                                          type.getName() + " cannot be decoded");
+                }
+            }
+
+            for (int i = 0; i < count; i++) {
+                store.incrementVersion(indices[i]);
+            }
+        }
+
+        if (present != null) {
+            Iterator<Map.Entry<Integer, Entity>> it = entities.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Integer, Entity> e = it.next();
+                if (!present.contains(e.getKey())) {
+                    it.remove();
+                    if (e.getValue().isAlive()) {
+                        mirror.removeEntity(e.getValue());
+                    }
+                } else {
+                    removeMissingComponents(e.getValue(), presentTypes.get(e.getKey()));
+                }
+            }
+        }
+
+        watermark = next;
+        return watermark;
+    }
+
+    private static Class<? extends Component> getType(List<Class<? extends Component>> types, int index)
+            throws IOException {
+        if (index < 0 || index >= types.size()) {
+            throw new IOException("Invalid component type index in delta: " + index);
+        }
+        return types.get(index);
+    }
+
+    private static void removeMissingComponents(Entity e, Set<Class<? extends Component>> present) {
+        List<Class<? extends Component>> missing = new ArrayList<>();
+        for (Component c : e) {
+            if (present == null || !present.contains(c.getType())) {
+                missing.add(c.getType());
+            }
+        }
+        for (Class<? extends Component> type : missing) {
+            e.remove(type);
+        }
+    }
+
+    private static <T extends Component> T getOrAdd(Entity e, Class<T> type) {
+        T c = e.get(type);
+        if (c == null) {
+            c = e.add(type);
+        }
+        return c;
+    }
+}
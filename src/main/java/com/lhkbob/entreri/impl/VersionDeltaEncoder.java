@@ -0,0 +1,355 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.impl;
+
+import com.lhkbob.entreri.Component;
+import com.lhkbob.entreri.DeltaEncoder;
+import com.lhkbob.entreri.Entity;
+import com.lhkbob.entreri.property.ColumnWriter;
+import com.lhkbob.entreri.property.EntityReferenceProperty;
+import com.lhkbob.entreri.property.Property;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+
+/**
+ * VersionDeltaEncoder
+ * ===================
+ *
+ * VersionDeltaEncoder is the implementation of {@link DeltaEncoder} for EntitySystemImpl. For every watermark
+ * it remembers the next version of each component type at the time the delta was encoded, so a component has
+ * changed since the watermark if its version is at least that value. Additions and removals of entities and
+ * removals of components leave nothing behind to compare against, and neither does swapping the buffers of
+ * double-buffered properties, so they are kept in a log as they are reported by the system, and each
+ * watermark remembers its position in the log.
+ *
+ * A delta is laid out as a header with the base and new watermarks, a table of the component type names it
+ * refers to, the log entries since the base, and then for each changed type the entity ids of its changed
+ * components followed by a column per declared property. Entity references are written as entity ids.
+ *
+ * @author Michael Ludwig
+ */
+public final class VersionDeltaEncoder implements DeltaEncoder, ChangeListener {
+    // identifies a delta, followed by the format version
+    static final int DELTA_MAGIC = 0x45434444; // "ECDD"
+    static final int DELTA_VERSION = 1;
+
+    // log entry opcodes
+    static final byte ADD_ENTITY = 1;
+    static final byte REMOVE_ENTITY = 2;
+    static final byte REMOVE_COMPONENT = 3;
+    static final byte SWAP_BUFFERS = 4;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final EntitySystemImpl system;
+    private final ByteBufferChannel channel;
+    private final ColumnWriter out;
+    private boolean closed;
+
+    // changes that versions cannot express, logBase is the position of the first entry
+    private byte[] logOps;
+    private Class<?>[] logTypes;
+    private int[] logIds;
+    private int logSize;
+    private long logBase;
+
+    private final NavigableMap<Long, Frame> frames;
+    private long watermark;
+
+    // reused between deltas
+    private final List<ComponentDataStore<?>> changedStores;
+    private final List<int[]> changedIndices;
+    private final List<Integer> changedCounts;
+
+    /**
+     * Create an encoder for the system. It must be registered as a listener of the system to see
+     * additions and removals.
+     *
+     * @param system The system to encode
+     */
+    public VersionDeltaEncoder(EntitySystemImpl system) {
+        if (system == null) {
+            throw new NullPointerException("System cannot be null");
+        }
+        this.system = system;
+        channel = new ByteBufferChannel(ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN));
+        out = new ColumnWriter(channel, BUFFER_SIZE);
+
+        logOps = new byte[16];
+        logTypes = new Class<?>[16];
+        logIds = new int[16];
+        logSize = 0;
+        logBase = 0;
+
+        frames = new TreeMap<>();
+        watermark = 0;
+
+        changedStores = new ArrayList<>();
+        changedIndices = new ArrayList<>();
+        changedCounts = new ArrayList<>();
+    }
+
+    @Override
+    public ByteBuffer encode(long acknowledged) {
+        if (closed) {
+            throw new IllegalStateException("Encoder has been closed");
+        }
+        Frame base = null;
+        if (acknowledged != 0) {
+            base = frames.get(acknowledged);
+            if (base == null) {
+                throw new IllegalArgumentException("Watermark is not available: " + acknowledged);
+            }
+        }
+
+        // find the changed components of each type, validating them before anything is written
+        changedStores.clear();
+        changedCounts.clear();
+        Map<Class<?>, Integer> typeTable = new LinkedHashMap<>();
+        Iterator<ComponentDataStore<?>> stores = system.indexIterator();
+        for (int s = 0; stores.hasNext(); s++) {
+            ComponentDataStore<?> store = stores.next();
+            Integer since = (base == null ? null : base.nextVersions.get(store.getType()));
+            if (s == changedIndices.size()) {
+                changedIndices.add(new int[16]);
+            }
+            int[] indices = changedIndices.get(s);
+
+            int count = 0;
+            for (int c = store.nextComponentIndex(1); c > 0 && c < store.getMaxComponentIndex();
+                 c = store.nextComponentIndex(c + 1)) {
+                if (since == null || store.getVersion(c) >= since) {
+                    if (count == indices.length) {
+                        indices = Arrays.copyOf(indices, indices.length << 1);
+                    }
+                    indices[count++] = c;
+                }
+            }
+            changedIndices.set(s, indices);
+            if (count > 0) {
+                if (!store.isPersistent()) {
+                    throw new UnsupportedOperationException("Component type " + store.getType().getName() +
+                                                            " has properties that cannot be encoded");
+                }
+                typeTable.put(store.getType(), typeTable.size());
+            }
+            changedStores.add(store);
+            changedCounts.add(count);
+        }
+
+        int logStart = (base == null ? logSize : (int) (base.logPosition - logBase));
+        for (int i = logStart; i < logSize; i++) {
+            if (logTypes[i] != null && !typeTable.containsKey(logTypes[i])) {
+                typeTable.put(logTypes[i], typeTable.size());
+            }
+        }
+
+        long next = watermark + 1;
+        ByteBuffer delta;
+        try {
+            delta = channel.getBuffer();
+            delta.clear();
+            out.writeInt(DELTA_MAGIC);
+            out.writeInt(DELTA_VERSION);
+            out.writeLong(acknowledged);
+            out.writeLong(next);
+
+            out.writeInt(typeTable.size());
+            for (Class<?> type : typeTable.keySet()) {
+                out.writeString(type.getName());
+            }
+
+            if (base == null) {
+                // the full state adds every live entity
+                List<Entity> entities = new ArrayList<>();
+                for (Entity e : system) {
+                    entities.add(e);
+                }
+                out.writeInt(entities.size());
+                for (Entity e : entities) {
+                    out.writeByte(ADD_ENTITY);
+                    out.writeInt(-1);
+                    out.writeInt(e.getId());
+                }
+            } else {
+                out.writeInt(logSize - logStart);
+                for (int i = logStart; i < logSize; i++) {
+                    out.writeByte(logOps[i]);
+                    out.writeInt(logTypes[i] == null ? -1 : typeTable.get(logTypes[i]));
+                    out.writeInt(logIds[i]);
+                }
+            }
+
+            int changedTypes = 0;
+            for (int i = 0; i < changedCounts.size(); i++) {
+                if (changedCounts.get(i) > 0) {
+                    changedTypes++;
+                }
+            }
+            out.writeInt(changedTypes);
+            for (int s = 0; s < changedStores.size(); s++) {
+                int count = changedCounts.get(s);
+                if (count > 0) {
+                    writeComponents(changedStores.get(s), changedIndices.get(s), count,
+                                    typeTable.get(changedStores.get(s).getType()));
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            // the channel writes to memory
+            throw new IllegalStateException("Unable to encode delta", e);
+        }
+
+        // the frame records the state that the delta brought the peer to
+        Map<Class<?>, Integer> nextVersions = new HashMap<>();
+        for (ComponentDataStore<?> store : changedStores) {
+            nextVersions.put(store.getType(), store.getNextVersion());
+        }
+        frames.put(next, new Frame(nextVersions, logBase + logSize));
+        watermark = next;
+
+        delta = channel.getBuffer();
+        delta.flip();
+        return delta;
+    }
+
+    private void writeComponents(ComponentDataStore<?> store, int[] indices, int count, int typeIndex)
+            throws IOException {
+        out.writeInt(typeIndex);
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            out.writeInt(system.getEntityByIndex(store.getEntityIndex(indices[i])).getId());
+        }
+
+        out.writeInt(store.getDeclaredPropertyCount());
+        for (int p = 0; p < store.getDeclaredPropertyCount(); p++) {
+            Property property = store.getProperty(p);
+            if (property instanceof EntityReferenceProperty) {
+                // indices are meaningless to the mirror, so references are written as ids
+                EntityReferenceProperty references = (EntityReferenceProperty) property;
+                for (int i = 0; i < count; i++) {
+                    Entity e = references.get(indices[i]);
+                    out.writeInt(e == null ? 0 : e.getId());
+                }
+            } else {
+                ((Property.Persistent) property).write(out, indices, count);
+            }
+        }
+    }
+
+    @Override
+    public long getWatermark() {
+        return watermark;
+    }
+
+    @Override
+    public void release(long watermark) {
+        frames.headMap(watermark, false).clear();
+
+        // log entries before the oldest remaining frame can no longer be encoded
+        long keep = (frames.isEmpty() ? logBase + logSize : frames.firstEntry().getValue().logPosition);
+        int drop = (int) (keep - logBase);
+        if (drop > 0) {
+            System.arraycopy(logOps, drop, logOps, 0, logSize - drop);
+            System.arraycopy(logTypes, drop, logTypes, 0, logSize - drop);
+            System.arraycopy(logIds, drop, logIds, 0, logSize - drop);
+            Arrays.fill(logTypes, logSize - drop, logSize, null);
+            logSize -= drop;
+            logBase = keep;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            system.removeChangeListener(this);
+        }
+    }
+
+    @Override
+    public void entityAdded(int entityIndex) {
+        log(ADD_ENTITY, null, system.getEntityByIndex(entityIndex).getId());
+    }
+
+    @Override
+    public void entityRemoved(int entityIndex) {
+        log(REMOVE_ENTITY, null, system.getEntityByIndex(entityIndex).getId());
+    }
+
+    @Override
+    public void componentAdded(Class<? extends Component> type, int entityIndex) {
+        // the new component's version is newer than any watermark
+    }
+
+    @Override
+    public void componentRemoved(Class<? extends Component> type, int entityIndex) {
+        log(REMOVE_COMPONENT, type, system.getEntityByIndex(entityIndex).getId());
+    }
+
+    @Override
+    public void compacted() {
+        // entities are identified by id so compaction does not affect deltas
+    }
+
+    @Override
+    public void buffersSwapped() {
+        // swapping does not change component versions, so the mirror must swap as well
+        log(SWAP_BUFFERS, null, 0);
+    }
+
+    private void log(byte op, Class<?> type, int entityId) {
+        if (frames.isEmpty()) {
+            // the first delta will be relative to nothing, so there is no need to keep a log yet
+            logBase++;
+            return;
+        }
+        if (logSize == logOps.length) {
+            int size = logSize << 1;
+            logOps = Arrays.copyOf(logOps, size);
+            logTypes = Arrays.copyOf(logTypes, size);
+            logIds = Arrays.copyOf(logIds, size);
+        }
+        logOps[logSize] = op;
+        logTypes[logSize] = type;
+        logIds[logSize] = entityId;
+        logSize++;
+    }
+
+    private static class Frame {
+        final Map<Class<?>, Integer> nextVersions;
+        final long logPosition;
+
+        Frame(Map<Class<?>, Integer> nextVersions, long logPosition) {
+            this.nextVersions = nextVersions;
+            this.logPosition = logPosition;
+        }
+    }
+}
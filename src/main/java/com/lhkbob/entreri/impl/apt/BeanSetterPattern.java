@@ -193,6 +193,8 @@ public class BeanSetterPattern extends AbstractMethodPattern {
             String field = generator.getPropertyMemberName(property.getName());
             String index = generator.getComponentIndex();
             generator.appendSyntax(field + ".set(" + index + ", " + getParameterNames().get(0) + ");");
+            generator.appendSyntax(generator.getDirtyFlagsMemberName(property.getName()) + ".set(" + index +
+                                   ", true);");
 
             if (needsUpdate) {
                 generator.appendSyntax("updateVersion();");
@@ -33,7 +33,9 @@ import com.lhkbob.entreri.Validate;
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
 import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import java.lang.annotation.Annotation;
@@ -45,8 +47,9 @@ import java.util.regex.Pattern;
  * ========================
  *
  * This method pattern matches methods that resemble the element query and manipulation methods provided as
- * part of Java's collections framework for sets, lists, and maps. Primitive collections are not supported by
- * this pattern.
+ * part of Java's collections framework for sets, lists, and maps. Primitive lists are supported by using a
+ * primitive array as the logical property type, and primitive set elements and map keys are supported when
+ * the property provides primitive method variants (see below).
  *
  * ## Set and List patterns
  *
@@ -84,6 +87,16 @@ import java.util.regex.Pattern;
  * This method pattern requires that the selected Property implementation expose an `add(int, E) -> boolean`
  * method where `E` is the element type of the container.
  *
+ * If the single parameter is a primitive type, the property is treated as a primitive list whose logical type
+ * is an array of that primitive, such as `int[]` for `addId(int)`. The array type must be declared by
+ * another method of the property (e.g. a bean setter), or by the Collection attribute with a type of LIST.
+ * The same applies to the removing and querying patterns. Primitive lists must use a Property implementation
+ * that provides the primitive `add`, `remove`, and `contains` methods, such as {@link
+ * com.lhkbob.entreri.property.IntListProperty}. A primitive parameter is also accepted for a set or map
+ * property whose element or key type is the boxed primitive, such as `addId(int)` for a `Set<Integer>`, in
+ * which case the Property must provide the primitive variant of the method, such as {@link
+ * com.lhkbob.entreri.property.IntSetProperty}.
+ *
  * ### Removing
  *
  * Methods that fit the following pattern will remove an element from the container. The pattern is
@@ -212,9 +225,12 @@ public class CollectionsMethodPattern extends AbstractMethodPattern {
                                 String... propertyPrefixes) {
         method:
         for (ExecutableElement a : methods) {
-            // all parameters must be declared types (not primitives)
+            // all parameters must be declared types, except for the element of a primitive list
+            boolean primitiveList = propertyMethod.equals("add") || propertyMethod.equals("remove") ||
+                                    propertyMethod.equals("contains");
             for (VariableElement p : a.getParameters()) {
-                if (p.asType().getKind() != TypeKind.DECLARED) {
+                if (p.asType().getKind() != TypeKind.DECLARED &&
+                    !(primitiveList && p.asType().getKind().isPrimitive())) {
                     continue method;
                 }
             }
@@ -327,15 +343,23 @@ public class CollectionsMethodPattern extends AbstractMethodPattern {
         } else {
             switch (attr.type()) {
             case LIST:
-                // regardless of the method, the property type is always list<parameter>
+                // regardless of the method, the property type is always list<parameter>, or an array for
+                // primitive lists
+                if (keyType.getKind().isPrimitive()) {
+                    return context.getTypes().getArrayType(keyType);
+                }
                 return context.fromGenericClass(List.class, keyType);
             case SET:
-                // regardless of the method, the property type is always set<parameter>
+                // regardless of the method, the property type is always set<parameter>, boxing primitives
+                if (keyType.getKind().isPrimitive()) {
+                    keyType = context.getTypes().boxedClass((PrimitiveType) keyType).asType();
+                }
                 return context.fromGenericClass(Set.class, keyType);
             case MAP:
                 // for any method except contains, the property type is map<param, returnType>
                 // for contains, it is ambiguous because the return type is always a boolean
-                if (propertyMethod.equals("contains") || valueType.getKind() != TypeKind.DECLARED) {
+                if (propertyMethod.equals("contains") || valueType.getKind() != TypeKind.DECLARED ||
+                    keyType.getKind().isPrimitive()) {
                     return null;
                 } else {
                     return context.fromGenericClass(Map.class, keyType, valueType);
@@ -382,7 +406,14 @@ public class CollectionsMethodPattern extends AbstractMethodPattern {
             return ((DeclaredType) property.getType()).getTypeArguments().get(1);
         }
 
+        private boolean isPrimitiveListProperty() {
+            return property.getType().getKind() == TypeKind.ARRAY;
+        }
+
         private boolean isMapProperty() {
+            if (property.getType().getKind() != TypeKind.DECLARED) {
+                return false;
+            }
             return ((DeclaredType) property.getType()).getTypeArguments().size() == 2;
         }
 
@@ -395,6 +426,24 @@ public class CollectionsMethodPattern extends AbstractMethodPattern {
 
         @Override
         public boolean arePropertiesValid(Context context) {
+            if (isPrimitiveListProperty()) {
+                // the element type must be the component type of the array
+                if (!context.getTypes().isSameType(((ArrayType) property.getType()).getComponentType(),
+                                                   getKeyType())) {
+                    return false;
+                }
+            } else if (property.getType().getKind() != TypeKind.DECLARED) {
+                return false;
+            } else if (getKeyType().getKind().isPrimitive()) {
+                // a primitive element or key of a declared collection must box to its first type argument,
+                // and the property must then provide the primitive method variant
+                TypeMirror boxed = context.getTypes().boxedClass((PrimitiveType) getKeyType()).asType();
+                if (!context.getTypes().isSameType(boxed, ((DeclaredType) property.getType())
+                                                                  .getTypeArguments().get(0))) {
+                    return false;
+                }
+            }
+
             boolean isMap = isMapProperty();
             // verify that the chosen logical property type is consistent with return type options
             if (propertyMethod.equals("remove")) {
@@ -472,6 +521,10 @@ public class CollectionsMethodPattern extends AbstractMethodPattern {
             Context ctx = generator.getContext();
             String name = getParameterNames().get(0);
             for (AnnotationMirror annot : property.getAttributes()) {
+                if (getKeyType().getKind().isPrimitive()) {
+                    // primitive elements can never be null
+                    break;
+                }
                 if (generator.getContext()
                              .isAnnotationType(annot, com.lhkbob.entreri.property.Collection.class)) {
                     if (propertyMethod.equals("put")) {
@@ -523,6 +576,10 @@ public class CollectionsMethodPattern extends AbstractMethodPattern {
                 }
             }
 
+            if (mutator) {
+                generator.appendSyntax(generator.getDirtyFlagsMemberName(property.getName()) + ".set(" +
+                                       index + ", true);");
+            }
             if (needsUpdate) {
                 generator.appendSyntax("updateVersion();");
             }
@@ -29,6 +29,7 @@ package com.lhkbob.entreri.impl.apt;
 import com.lhkbob.entreri.Component;
 import com.lhkbob.entreri.impl.AbstractComponent;
 import com.lhkbob.entreri.impl.ComponentDataStore;
+import com.lhkbob.entreri.impl.DirtyFlags;
 import com.lhkbob.entreri.impl.EntitySystemImpl;
 import com.lhkbob.entreri.property.Property;
 
@@ -233,6 +234,8 @@ public class ComponentGenerator implements Generator {
         for (PropertyDeclaration s : spec.getProperties()) {
             appendSyntax("private final " + s.getPropertyImplementation() + " " +
                          getPropertyMemberName(s.getName(), true) + ";");
+            appendSyntax("private final " + DirtyFlags.class.getName() + " " +
+                         getDirtyFlagsMemberName(s.getName(), true) + ";");
         }
         newline();
 
@@ -243,6 +246,8 @@ public class ComponentGenerator implements Generator {
         for (PropertyDeclaration s : spec.getProperties()) {
             appendSyntax(getPropertyMemberName(s.getName(), true) + " = (" +
                          s.getPropertyImplementation() + ") properties.get(\"" + s.getName() + "\");");
+            appendSyntax(getDirtyFlagsMemberName(s.getName(), true) + " = getDirtyFlags(\"" + s.getName() +
+                         "\");");
         }
         appendSyntax("}");
         newline();
@@ -293,6 +298,20 @@ public class ComponentGenerator implements Generator {
         }
     }
 
+    @Override
+    public String getDirtyFlagsMemberName(String propertyName) {
+        return getDirtyFlagsMemberName(propertyName, false);
+    }
+
+    private String getDirtyFlagsMemberName(String propertyName, boolean inDataStoreImpl) {
+        String inDataStoreImplName = "dirty_" + filterName(propertyName);
+        if (!inDataStoreImpl) {
+            return "data." + inDataStoreImplName;
+        } else {
+            return inDataStoreImplName;
+        }
+    }
+
     @Override
     public String getMemberName(String propertyName, Object owner) {
         Map<String, String> forKey = auxMembers.get(owner);
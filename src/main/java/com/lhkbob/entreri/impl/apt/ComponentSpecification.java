@@ -215,7 +215,9 @@ public class ComponentSpecification {
                         try {
                             impl.value();
                         } catch (MirroredTypeException e) {
-                            propType = e.getTypeMirror();
+                            // explicitly selected generic properties still need their type variables bound
+                            propType = context.getValueTypeMapper()
+                                              .specializeProperty(p.getType(), e.getTypeMirror());
                         }
                         break;
                     }
@@ -47,6 +47,14 @@ public interface Generator {
      */
     public String getPropertyMemberName(String propertyName);
 
+    /**
+     * @param propertyName The logical name of the property as determined by the method pattern defining the
+     *                     property
+     * @return The field name of the property's dirty flags, a {@link
+     * com.lhkbob.entreri.impl.DirtyFlags}, in the Component implementation class
+     */
+    public String getDirtyFlagsMemberName(String propertyName);
+
     /**
      * Get a unique name that can be used to declare a new member variable. `name` is a meaningful variable
      * name that will be included in the returned member name after uniqueness is guaranteed. `owner` is
@@ -209,6 +209,8 @@ public class MultiSetterPattern extends AbstractMethodPattern {
             for (int i = 0; i < getParameterNames().size(); i++) {
                 String field = generator.getPropertyMemberName(properties.get(i).getName());
                 generator.appendSyntax(field + ".set(" + index + ", " + getParameterNames().get(i) + ");");
+                generator.appendSyntax(generator.getDirtyFlagsMemberName(properties.get(i).getName()) +
+                                       ".set(" + index + ", true);");
             }
 
             if (needsUpdate) {
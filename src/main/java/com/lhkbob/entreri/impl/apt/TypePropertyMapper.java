@@ -110,8 +110,6 @@ public final class TypePropertyMapper {
         }
 
         TypeMirror propertyType = tu.erasure(eu.getTypeElement(Property.class.getCanonicalName()).asType());
-        TypeMirror generic = tu.erasure(eu.getTypeElement(Property.Generic.class.getCanonicalName())
-                                          .asType());
 
         Queue<TypeMirror> lookup = new ArrayDeque<>();
         lookup.add(baseType);
@@ -152,30 +150,7 @@ public final class TypePropertyMapper {
 
                     // check if this property type implements Generic, and if it does unify the type parameters
                     // to the specified base type
-                    for (TypeMirror superClass : tu.directSupertypes(mappedType)) {
-                        if (tu.isSameType(tu.erasure(superClass), generic)) {
-                            Map<TypeVariable, ReferenceType> varMapping = unify(baseType,
-                                                                                ((DeclaredType) superClass)
-                                                                                        .getTypeArguments()
-                                                                                        .get(0));
-                            if (varMapping == null) {
-                                throw new IllegalComponentDefinitionException(baseType.toString(),
-                                                                              "Declared type does not unify with generic property: " +
-                                                                              superClass.toString());
-                            }
-
-                            DeclaredType incomplete = (DeclaredType) mappedType;
-                            List<? extends TypeMirror> vars = incomplete.getTypeArguments();
-                            TypeMirror[] args = new TypeMirror[vars.size()];
-                            for (int i = 0; i < args.length; i++) {
-                                TypeVariable var = (TypeVariable) vars.get(i);
-                                args[i] = varMapping.get(var);
-                            }
-                            mappedPropertyType = tu.getDeclaredType((TypeElement) incomplete.asElement(),
-                                                                    args);
-                            break;
-                        }
-                    }
+                    mappedPropertyType = unifyGenericProperty(baseType, mappedType);
                     if (mappedPropertyType == null) {
                         if (requiresUnification) {
                             // the mapped property wasn't generic, but it needs to be to support the subtype
@@ -206,6 +181,58 @@ public final class TypePropertyMapper {
                                                       pathSuffix + " semantics");
     }
 
+    /**
+     * Parameterize a property type that was selected explicitly, such as with {@link
+     * com.lhkbob.entreri.property.ImplementedBy}, for the given base type. If the property implements {@link
+     * com.lhkbob.entreri.property.Property.Generic}, its type variables are unified with the base type.
+     * Otherwise the property type is returned unmodified.
+     *
+     * @param baseType     The base type the property must support
+     * @param propertyType The selected property type
+     * @return The property type, parameterized for the base type if it is generic
+     * @throws IllegalComponentDefinitionException if the base type does not unify with the generic property
+     */
+    public TypeMirror specializeProperty(TypeMirror baseType, TypeMirror propertyType) {
+        if (propertyType.getKind() != TypeKind.DECLARED) {
+            return propertyType;
+        }
+        // use the declaration's type so that its type variables are available, even if the selected type is raw
+        TypeMirror declaredType = ((DeclaredType) propertyType).asElement().asType();
+        DeclaredType unified = unifyGenericProperty(baseType, declaredType);
+        return (unified != null ? unified : propertyType);
+    }
+
+    /*
+     * Return the generic property type parameterized to match baseType, or null if the property type does not
+     * implement Generic.
+     */
+    private DeclaredType unifyGenericProperty(TypeMirror baseType, TypeMirror mappedType) {
+        TypeMirror generic = tu.erasure(eu.getTypeElement(Property.Generic.class.getCanonicalName())
+                                          .asType());
+        for (TypeMirror superClass : tu.directSupertypes(mappedType)) {
+            if (tu.isSameType(tu.erasure(superClass), generic)) {
+                Map<TypeVariable, ReferenceType> varMapping = unify(baseType, ((DeclaredType) superClass)
+                        .getTypeArguments().get(0));
+                if (varMapping == null) {
+                    throw new IllegalComponentDefinitionException(baseType.toString(),
+                                                                  "Declared type does not unify with generic property: " +
+                                                                  superClass.toString());
+                }
+
+                DeclaredType incomplete = (DeclaredType) mappedType;
+                List<? extends TypeMirror> vars = ((DeclaredType) incomplete.asElement().asType())
+                        .getTypeArguments();
+                TypeMirror[] args = new TypeMirror[vars.size()];
+                for (int i = 0; i < args.length; i++) {
+                    TypeVariable var = (TypeVariable) vars.get(i);
+                    args[i] = varMapping.get(var);
+                }
+                return tu.getDeclaredType((TypeElement) incomplete.asElement(), args);
+            }
+        }
+        return null;
+    }
+
     private Map<TypeVariable, ReferenceType> unify(TypeMirror targetType, TypeMirror genericType) {
         if (genericType.getKind() == TypeKind.DECLARED) {
             // the raw types of target and generic must be equal
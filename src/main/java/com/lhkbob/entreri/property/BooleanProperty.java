@@ -26,6 +26,7 @@
  */
 package com.lhkbob.entreri.property;
 
+import java.io.IOException;
 import java.util.Arrays;
 
 /**
@@ -44,7 +45,9 @@ import java.util.Arrays;
  *
  * @author Michael Ludwig
  */
-public final class BooleanProperty implements Property<BooleanProperty>, Property.ValueSemantics {
+public final class BooleanProperty
+        implements Property<BooleanProperty>, Property.ValueSemantics, Property.Persistent,
+                   Property.Copyable<BooleanProperty> {
     private final boolean defaultValue;
     private final boolean cloneValue;
     private boolean[] data;
@@ -115,6 +118,11 @@ public final class BooleanProperty implements Property<BooleanProperty>, Propert
         }
     }
 
+    @Override
+    public void copy(BooleanProperty src, int count) {
+        System.arraycopy(src.data, 0, data, 0, count);
+    }
+
     @Override
     public void swap(int a, int b) {
         boolean t = data[a];
@@ -131,4 +139,28 @@ public final class BooleanProperty implements Property<BooleanProperty>, Propert
     public void setCapacity(int size) {
         data = Arrays.copyOf(data, size);
     }
+
+    @Override
+    public void write(ColumnWriter out, int count) throws IOException {
+        out.writeBooleans(data, 0, count);
+    }
+
+    @Override
+    public void read(ColumnReader in, int count) throws IOException {
+        in.readBooleans(data, 0, count);
+    }
+
+    @Override
+    public void write(ColumnWriter out, int[] indices, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.writeByte(data[indices[i]] ? (byte) 1 : (byte) 0);
+        }
+    }
+
+    @Override
+    public void read(ColumnReader in, int[] indices, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            data[indices[i]] = in.readByte() != 0;
+        }
+    }
 }
@@ -0,0 +1,217 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * BufferedFloatProperty
+ * =====================
+ *
+ * BufferedFloatProperty is a double-buffered implementation of Property that stores a single float value,
+ * with value semantics. It keeps a front array holding the values committed at the end of the last frame and
+ * a back array that receives the values assigned during the current frame. {@link #get(int)} always reads
+ * the front array, so jobs can read stable previous-frame data while another job writes the next frame.
+ * Calling {@link com.lhkbob.entreri.EntitySystem#swapBuffers()} at a frame boundary publishes the back array
+ * to the front. It is not the default property for `float` so it must be selected with {@link
+ * ImplementedBy}.
+ *
+ * Because reads see the committed value, a task that writes a value and then reads it within the same frame
+ * will see the previous value; {@link #getPending(int)} reads the back array instead. Newly added
+ * components and cloned values are written to both arrays so they are visible immediately.
+ *
+ * It supports the {@link DefaultFloat} and {@link DoNotClone} attributes. Values will not be cloned if
+ * either the source or destination property specify not to clone the value.
+ *
+ * ## Supported method patterns
+ *
+ * BufferedFloatProperty defines the `get(int) -> float` and `set(int, float) -> void` methods that can be
+ * used by a component's Java Bean getters and setters of type `float`.
+ *
+ * @author Michael Ludwig
+ */
+public final class BufferedFloatProperty
+        implements Property<BufferedFloatProperty>, Property.ValueSemantics, Property.DoubleBuffered,
+                   Property.Persistent, Property.Copyable<BufferedFloatProperty> {
+    private final float defaultValue;
+    private final boolean cloneValue;
+    private float[] front;
+    private float[] back;
+
+    /**
+     * Create a BufferedFloatProperty with a programmer friendly signature.
+     *
+     * @param defaultValue The default float value when components are initialized
+     * @param cloneValue   True if the value is cloned, or false if clones just use the default
+     */
+    public BufferedFloatProperty(float defaultValue, boolean cloneValue) {
+        this.defaultValue = defaultValue;
+        this.cloneValue = cloneValue;
+        front = new float[1];
+        back = new float[1];
+    }
+
+    /**
+     * Create a BufferedFloatProperty using the constructor satisfying the default annotation conventions.
+     */
+    public BufferedFloatProperty(DefaultFloat dflt, DoNotClone clonePolicy) {
+        this((dflt != null ? dflt.value() : 0.0f), clonePolicy == null);
+    }
+
+    /**
+     * Return the front array of this property, holding the values committed by the last buffer swap. The
+     * array may be longer than necessary for the number of components in the system.
+     *
+     * @return The committed float data
+     */
+    public float[] getIndexedData() {
+        return front;
+    }
+
+    /**
+     * Return the back array of this property, holding the values assigned since the last buffer swap.
+     *
+     * @return The pending float data
+     */
+    public float[] getIndexedPendingData() {
+        return back;
+    }
+
+    /**
+     * Get the value committed for the given component index by the last buffer swap.
+     *
+     * @param componentIndex The component's index
+     * @return The committed value for the given component
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     */
+    public float get(int componentIndex) {
+        return front[componentIndex];
+    }
+
+    /**
+     * Get the value assigned for the given component index in the current frame, which will be committed by
+     * the next buffer swap.
+     *
+     * @param componentIndex The component's index
+     * @return The pending value for the given component
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     */
+    public float getPending(int componentIndex) {
+        return back[componentIndex];
+    }
+
+    /**
+     * Store `val` in the back array of this property for the given component index. It becomes visible to
+     * {@link #get(int)} after the next buffer swap.
+     *
+     * @param componentIndex The index of the component being modified
+     * @param val            The value to store
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     */
+    public void set(int componentIndex, float val) {
+        back[componentIndex] = val;
+    }
+
+    @Override
+    public void swapBuffers() {
+        System.arraycopy(back, 0, front, 0, back.length);
+    }
+
+    @Override
+    public void setDefaultValue(int index) {
+        front[index] = defaultValue;
+        back[index] = defaultValue;
+    }
+
+    @Override
+    public void clone(BufferedFloatProperty src, int srcIndex, int dstIndex) {
+        if (!src.cloneValue || !cloneValue) {
+            setDefaultValue(dstIndex);
+        } else {
+            float v = src.back[srcIndex];
+            front[dstIndex] = v;
+            back[dstIndex] = v;
+        }
+    }
+
+    @Override
+    public void copy(BufferedFloatProperty src, int count) {
+        System.arraycopy(src.front, 0, front, 0, count);
+        System.arraycopy(src.back, 0, back, 0, count);
+    }
+
+    @Override
+    public void swap(int a, int b) {
+        float t = front[a];
+        front[a] = front[b];
+        front[b] = t;
+
+        t = back[a];
+        back[a] = back[b];
+        back[b] = t;
+    }
+
+    @Override
+    public int getCapacity() {
+        return front.length;
+    }
+
+    @Override
+    public void setCapacity(int size) {
+        front = Arrays.copyOf(front, size);
+        back = Arrays.copyOf(back, size);
+    }
+
+    @Override
+    public void write(ColumnWriter out, int count) throws IOException {
+        out.writeFloats(front, 0, count);
+        out.writeFloats(back, 0, count);
+    }
+
+    @Override
+    public void read(ColumnReader in, int count) throws IOException {
+        in.readFloats(front, 0, count);
+        in.readFloats(back, 0, count);
+    }
+
+    @Override
+    public void write(ColumnWriter out, int[] indices, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.writeFloat(front[indices[i]]);
+            out.writeFloat(back[indices[i]]);
+        }
+    }
+
+    @Override
+    public void read(ColumnReader in, int[] indices, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            front[indices[i]] = in.readFloat();
+            back[indices[i]] = in.readFloat();
+        }
+    }
+}
@@ -26,6 +26,7 @@
  */
 package com.lhkbob.entreri.property;
 
+import java.io.IOException;
 import java.util.Arrays;
 
 /**
@@ -44,7 +45,9 @@ import java.util.Arrays;
  *
  * @author Michael Ludwig
  */
-public final class CharProperty implements Property<CharProperty>, Property.ValueSemantics {
+public final class CharProperty
+        implements Property<CharProperty>, Property.ValueSemantics, Property.Persistent,
+                   Property.Copyable<CharProperty> {
     private final char defaultValue;
     private final boolean cloneValue;
     private char[] data;
@@ -114,6 +117,11 @@ public final class CharProperty implements Property<CharProperty>, Property.Valu
         }
     }
 
+    @Override
+    public void copy(CharProperty src, int count) {
+        System.arraycopy(src.data, 0, data, 0, count);
+    }
+
     @Override
     public void swap(int a, int b) {
         char t = data[a];
@@ -130,4 +138,28 @@ public final class CharProperty implements Property<CharProperty>, Property.Valu
     public void setCapacity(int size) {
         data = Arrays.copyOf(data, size);
     }
+
+    @Override
+    public void write(ColumnWriter out, int count) throws IOException {
+        out.writeChars(data, 0, count);
+    }
+
+    @Override
+    public void read(ColumnReader in, int count) throws IOException {
+        in.readChars(data, 0, count);
+    }
+
+    @Override
+    public void write(ColumnWriter out, int[] indices, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.writeChar(data[indices[i]]);
+        }
+    }
+
+    @Override
+    public void read(ColumnReader in, int[] indices, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            data[indices[i]] = in.readChar();
+        }
+    }
 }
@@ -0,0 +1,390 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * ColumnReader
+ * ============
+ *
+ * ColumnReader reads the contiguous little-endian blocks written by {@link ColumnWriter} back into primitive
+ * arrays. The channel is read into a single large direct buffer, and each column is filled from the buffer's
+ * typed views with bulk `get` calls. It is used by {@link
+ * com.lhkbob.entreri.EntitySystem.Factory#load(java.nio.channels.ReadableByteChannel)} together with {@link
+ * com.lhkbob.entreri.property.Property.Persistent} to restore an entity system.
+ *
+ * A ColumnReader does not close its channel, and it may read past the last value that was requested.
+ *
+ * @author Michael Ludwig
+ */
+public final class ColumnReader {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    /**
+     * Create a ColumnReader that reads from the given channel with the default buffer size of {@link
+     * ColumnWriter#DEFAULT_BUFFER_SIZE}.
+     *
+     * @param channel The channel to read from
+     * @throws NullPointerException if channel is null
+     */
+    public ColumnReader(ReadableByteChannel channel) {
+        this(channel, ColumnWriter.DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a ColumnReader that reads from the given channel into a direct buffer of `bufferSize` bytes.
+     *
+     * @param channel    The channel to read from
+     * @param bufferSize The size of the direct buffer in bytes
+     * @throws NullPointerException     if channel is null
+     * @throws IllegalArgumentException if bufferSize is less than 8
+     */
+    public ColumnReader(ReadableByteChannel channel, int bufferSize) {
+        if (channel == null) {
+            throw new NullPointerException("Channel cannot be null");
+        }
+        if (bufferSize < 8) {
+            throw new IllegalArgumentException("Buffer size must be at least 8, not: " + bufferSize);
+        }
+        this.channel = channel;
+        buffer = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.limit(0); // nothing has been read yet
+    }
+
+    /**
+     * @return The next int
+     * @throws IOException  if the channel could not be read
+     * @throws EOFException if the channel ends first
+     */
+    public int readInt() throws IOException {
+        require(4);
+        return buffer.getInt();
+    }
+
+    /**
+     * @return The next long
+     * @throws IOException  if the channel could not be read
+     * @throws EOFException if the channel ends first
+     */
+    public long readLong() throws IOException {
+        require(8);
+        return buffer.getLong();
+    }
+
+    /**
+     * @return The next byte
+     * @throws IOException  if the channel could not be read
+     * @throws EOFException if the channel ends first
+     */
+    public byte readByte() throws IOException {
+        require(1);
+        return buffer.get();
+    }
+
+    /**
+     * @return The next short
+     * @throws IOException  if the channel could not be read
+     * @throws EOFException if the channel ends first
+     */
+    public short readShort() throws IOException {
+        require(2);
+        return buffer.getShort();
+    }
+
+    /**
+     * @return The next char
+     * @throws IOException  if the channel could not be read
+     * @throws EOFException if the channel ends first
+     */
+    public char readChar() throws IOException {
+        require(2);
+        return buffer.getChar();
+    }
+
+    /**
+     * @return The next float
+     * @throws IOException  if the channel could not be read
+     * @throws EOFException if the channel ends first
+     */
+    public float readFloat() throws IOException {
+        require(4);
+        return buffer.getFloat();
+    }
+
+    /**
+     * @return The next double
+     * @throws IOException  if the channel could not be read
+     * @throws EOFException if the channel ends first
+     */
+    public double readDouble() throws IOException {
+        require(8);
+        return buffer.getDouble();
+    }
+
+    /**
+     * Read a string written by {@link ColumnWriter#writeString(String)}.
+     *
+     * @return The next string
+     * @throws IOException  if the channel could not be read or the length is negative
+     * @throws EOFException if the channel ends first
+     */
+    public String readString() throws IOException {
+        int length = readInt();
+        if (length < 0) {
+            throw new IOException("Invalid string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        readBytes(bytes, 0, length);
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * Read `length` booleans into `data` starting at `offset`, one byte per value.
+     *
+     * @param data   The destination array
+     * @param offset The first index filled
+     * @param length The number of values read
+     * @throws IOException  if the channel could not be read
+     * @throws EOFException if the channel ends first
+     */
+    public void readBooleans(boolean[] data, int offset, int length) throws IOException {
+        int end = offset + length;
+        while (offset < end) {
+            require(1);
+            int n = Math.min(buffer.remaining(), end - offset);
+            for (int i = 0; i < n; i++) {
+                data[offset + i] = buffer.get() != 0;
+            }
+            offset += n;
+        }
+    }
+
+    /**
+     * Read `length` bytes into `data` starting at `offset`.
+     *
+     * @param data   The destination array
+     * @param offset The first index filled
+     * @param length The number of values read
+     * @throws IOException  if the channel could not be read
+     * @throws EOFException if the channel ends first
+     */
+    public void readBytes(byte[] data, int offset, int length) throws IOException {
+        int end = offset + length;
+        while (offset < end) {
+            require(1);
+            int n = Math.min(buffer.remaining(), end - offset);
+            buffer.get(data, offset, n);
+            offset += n;
+        }
+    }
+
+    /**
+     * Fill the remaining bytes of `data`, advancing its position to its limit.
+     *
+     * @param data The destination buffer
+     * @throws IOException  if the channel could not be read
+     * @throws EOFException if the channel ends first
+     */
+    public void readBytes(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            require(1);
+            int n = Math.min(buffer.remaining(), data.remaining());
+            ByteBuffer block = buffer.duplicate();
+            block.limit(block.position() + n);
+            data.put(block);
+            buffer.position(buffer.position() + n);
+        }
+    }
+
+    /**
+     * Read `length` shorts into `data` starting at `offset`.
+     *
+     * @param data   The destination array
+     * @param offset The first index filled
+     * @param length The number of values read
+     * @throws IOException  if the channel could not be read
+     * @throws EOFException if the channel ends first
+     */
+    public void readShorts(short[] data, int offset, int length) throws IOException {
+        int end = offset + length;
+        while (offset < end) {
+            require(2);
+            int n = Math.min(buffer.remaining() >> 1, end - offset);
+            buffer.asShortBuffer().get(data, offset, n);
+            advance(n << 1);
+            offset += n;
+        }
+    }
+
+    /**
+     * Read `length` chars into `data` starting at `offset`.
+     *
+     * @param data   The destination array
+     * @param offset The first index filled
+     * @param length The number of values read
+     * @throws IOException  if the channel could not be read
+     * @throws EOFException if the channel ends first
+     */
+    public void readChars(char[] data, int offset, int length) throws IOException {
+        int end = offset + length;
+        while (offset < end) {
+            require(2);
+            int n = Math.min(buffer.remaining() >> 1, end - offset);
+            buffer.asCharBuffer().get(data, offset, n);
+            advance(n << 1);
+            offset += n;
+        }
+    }
+
+    /**
+     * Read `length` ints into `data` starting at `offset`.
+     *
+     * @param data   The destination array
+     * @param offset The first index filled
+     * @param length The number of values read
+     * @throws IOException  if the channel could not be read
+     * @throws EOFException if the channel ends first
+     */
+    public void readInts(int[] data, int offset, int length) throws IOException {
+        int end = offset + length;
+        while (offset < end) {
+            require(4);
+            int n = Math.min(buffer.remaining() >> 2, end - offset);
+            buffer.asIntBuffer().get(data, offset, n);
+            advance(n << 2);
+            offset += n;
+        }
+    }
+
+    /**
+     * Read `length` longs into `data` starting at `offset`.
+     *
+     * @param data   The destination array
+     * @param offset The first index filled
+     * @param length The number of values read
+     * @throws IOException  if the channel could not be read
+     * @throws EOFException if the channel ends first
+     */
+    public void readLongs(long[] data, int offset, int length) throws IOException {
+        int end = offset + length;
+        while (offset < end) {
+            require(8);
+            int n = Math.min(buffer.remaining() >> 3, end - offset);
+            buffer.asLongBuffer().get(data, offset, n);
+            advance(n << 3);
+            offset += n;
+        }
+    }
+
+    /**
+     * Read `length` floats into `data` starting at `offset`.
+     *
+     * @param data   The destination array
+     * @param offset The first index filled
+     * @param length The number of values read
+     * @throws IOException  if the channel could not be read
+     * @throws EOFException if the channel ends first
+     */
+    public void readFloats(float[] data, int offset, int length) throws IOException {
+        int end = offset + length;
+        while (offset < end) {
+            require(4);
+            int n = Math.min(buffer.remaining() >> 2, end - offset);
+            buffer.asFloatBuffer().get(data, offset, n);
+            advance(n << 2);
+            offset += n;
+        }
+    }
+
+    /**
+     * Read `length` doubles into `data` starting at `offset`.
+     *
+     * @param data   The destination array
+     * @param offset The first index filled
+     * @param length The number of values read
+     * @throws IOException  if the channel could not be read
+     * @throws EOFException if the channel ends first
+     */
+    public void readDoubles(double[] data, int offset, int length) throws IOException {
+        int end = offset + length;
+        while (offset < end) {
+            require(8);
+            int n = Math.min(buffer.remaining() >> 3, end - offset);
+            buffer.asDoubleBuffer().get(data, offset, n);
+            advance(n << 3);
+            offset += n;
+        }
+    }
+
+    /**
+     * @return True if every byte of the channel has been read
+     * @throws IOException if the channel could not be read
+     */
+    public boolean isAtEnd() throws IOException {
+        if (buffer.hasRemaining()) {
+            return false;
+        }
+
+        buffer.clear();
+        int read;
+        do {
+            read = channel.read(buffer);
+        } while (read == 0);
+        buffer.flip();
+        return read < 0;
+    }
+
+    // the typed views do not move the buffer's position, so it is advanced past the copied values
+    private void advance(int bytes) {
+        buffer.position(buffer.position() + bytes);
+    }
+
+    private void require(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+
+        // move the unread bytes to the front and fill the rest of the buffer from the channel
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                buffer.flip();
+                throw new EOFException("Channel ended before " + bytes + " more bytes could be read");
+            }
+        }
+        buffer.flip();
+    }
+}
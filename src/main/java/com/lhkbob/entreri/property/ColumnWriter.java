@@ -0,0 +1,362 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * ColumnWriter
+ * ============
+ *
+ * ColumnWriter writes whole columns of primitive property data to a channel as contiguous little-endian
+ * blocks. Values are staged in a single large direct buffer and copied into it with the bulk `put` methods
+ * of its typed views, so that a column of a million floats costs a handful of memory copies and channel
+ * writes instead of a call per value. It is the counterpart of {@link ColumnReader}, and is used by {@link
+ * com.lhkbob.entreri.EntitySystem#save(java.nio.channels.WritableByteChannel)} together with {@link
+ * com.lhkbob.entreri.property.Property.Persistent} to snapshot an entity system.
+ *
+ * A ColumnWriter does not close its channel, and buffered data only reaches the channel once the buffer
+ * fills or {@link #flush()} is called.
+ *
+ * @author Michael Ludwig
+ */
+public final class ColumnWriter implements Flushable {
+    /**
+     * The size in bytes of the direct buffer used when one is not specified, 4 MB.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 22;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    /**
+     * Create a ColumnWriter that writes to the given channel with the default buffer size.
+     *
+     * @param channel The channel to write to
+     * @throws NullPointerException if channel is null
+     */
+    public ColumnWriter(WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a ColumnWriter that writes to the given channel, staging data in a direct buffer of
+     * `bufferSize` bytes.
+     *
+     * @param channel    The channel to write to
+     * @param bufferSize The size of the direct buffer in bytes
+     * @throws NullPointerException     if channel is null
+     * @throws IllegalArgumentException if bufferSize is less than 8
+     */
+    public ColumnWriter(WritableByteChannel channel, int bufferSize) {
+        if (channel == null) {
+            throw new NullPointerException("Channel cannot be null");
+        }
+        if (bufferSize < 8) {
+            throw new IllegalArgumentException("Buffer size must be at least 8, not: " + bufferSize);
+        }
+        this.channel = channel;
+        buffer = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * @param value The int to write
+     * @throws IOException if the channel could not be written to
+     */
+    public void writeInt(int value) throws IOException {
+        require(4);
+        buffer.putInt(value);
+    }
+
+    /**
+     * @param value The long to write
+     * @throws IOException if the channel could not be written to
+     */
+    public void writeLong(long value) throws IOException {
+        require(8);
+        buffer.putLong(value);
+    }
+
+    /**
+     * @param value The byte to write
+     * @throws IOException if the channel could not be written to
+     */
+    public void writeByte(byte value) throws IOException {
+        require(1);
+        buffer.put(value);
+    }
+
+    /**
+     * @param value The short to write
+     * @throws IOException if the channel could not be written to
+     */
+    public void writeShort(short value) throws IOException {
+        require(2);
+        buffer.putShort(value);
+    }
+
+    /**
+     * @param value The char to write
+     * @throws IOException if the channel could not be written to
+     */
+    public void writeChar(char value) throws IOException {
+        require(2);
+        buffer.putChar(value);
+    }
+
+    /**
+     * @param value The float to write
+     * @throws IOException if the channel could not be written to
+     */
+    public void writeFloat(float value) throws IOException {
+        require(4);
+        buffer.putFloat(value);
+    }
+
+    /**
+     * @param value The double to write
+     * @throws IOException if the channel could not be written to
+     */
+    public void writeDouble(double value) throws IOException {
+        require(8);
+        buffer.putDouble(value);
+    }
+
+    /**
+     * Write a string as its length in bytes followed by its UTF-8 encoding.
+     *
+     * @param value The string to write
+     * @throws IOException          if the channel could not be written to
+     * @throws NullPointerException if value is null
+     */
+    public void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF8);
+        writeInt(bytes.length);
+        writeBytes(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Write `length` booleans from `data` starting at `offset`, one byte per value.
+     *
+     * @param data   The source array
+     * @param offset The first index written
+     * @param length The number of values written
+     * @throws IOException if the channel could not be written to
+     */
+    public void writeBooleans(boolean[] data, int offset, int length) throws IOException {
+        int end = offset + length;
+        while (offset < end) {
+            require(1);
+            int n = Math.min(buffer.remaining(), end - offset);
+            for (int i = 0; i < n; i++) {
+                buffer.put(data[offset + i] ? (byte) 1 : (byte) 0);
+            }
+            offset += n;
+        }
+    }
+
+    /**
+     * Write `length` bytes from `data` starting at `offset`.
+     *
+     * @param data   The source array
+     * @param offset The first index written
+     * @param length The number of values written
+     * @throws IOException if the channel could not be written to
+     */
+    public void writeBytes(byte[] data, int offset, int length) throws IOException {
+        int end = offset + length;
+        while (offset < end) {
+            require(1);
+            int n = Math.min(buffer.remaining(), end - offset);
+            buffer.put(data, offset, n);
+            offset += n;
+        }
+    }
+
+    /**
+     * Write the remaining bytes of `data`, advancing its position to its limit.
+     *
+     * @param data The source buffer
+     * @throws IOException if the channel could not be written to
+     */
+    public void writeBytes(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            require(1);
+            int n = Math.min(buffer.remaining(), data.remaining());
+            ByteBuffer block = data.duplicate();
+            block.limit(block.position() + n);
+            buffer.put(block);
+            data.position(data.position() + n);
+        }
+    }
+
+    /**
+     * Write `length` shorts from `data` starting at `offset`.
+     *
+     * @param data   The source array
+     * @param offset The first index written
+     * @param length The number of values written
+     * @throws IOException if the channel could not be written to
+     */
+    public void writeShorts(short[] data, int offset, int length) throws IOException {
+        int end = offset + length;
+        while (offset < end) {
+            require(2);
+            int n = Math.min(buffer.remaining() >> 1, end - offset);
+            buffer.asShortBuffer().put(data, offset, n);
+            advance(n << 1);
+            offset += n;
+        }
+    }
+
+    /**
+     * Write `length` chars from `data` starting at `offset`.
+     *
+     * @param data   The source array
+     * @param offset The first index written
+     * @param length The number of values written
+     * @throws IOException if the channel could not be written to
+     */
+    public void writeChars(char[] data, int offset, int length) throws IOException {
+        int end = offset + length;
+        while (offset < end) {
+            require(2);
+            int n = Math.min(buffer.remaining() >> 1, end - offset);
+            buffer.asCharBuffer().put(data, offset, n);
+            advance(n << 1);
+            offset += n;
+        }
+    }
+
+    /**
+     * Write `length` ints from `data` starting at `offset`.
+     *
+     * @param data   The source array
+     * @param offset The first index written
+     * @param length The number of values written
+     * @throws IOException if the channel could not be written to
+     */
+    public void writeInts(int[] data, int offset, int length) throws IOException {
+        int end = offset + length;
+        while (offset < end) {
+            require(4);
+            int n = Math.min(buffer.remaining() >> 2, end - offset);
+            buffer.asIntBuffer().put(data, offset, n);
+            advance(n << 2);
+            offset += n;
+        }
+    }
+
+    /**
+     * Write `length` longs from `data` starting at `offset`.
+     *
+     * @param data   The source array
+     * @param offset The first index written
+     * @param length The number of values written
+     * @throws IOException if the channel could not be written to
+     */
+    public void writeLongs(long[] data, int offset, int length) throws IOException {
+        int end = offset + length;
+        while (offset < end) {
+            require(8);
+            int n = Math.min(buffer.remaining() >> 3, end - offset);
+            buffer.asLongBuffer().put(data, offset, n);
+            advance(n << 3);
+            offset += n;
+        }
+    }
+
+    /**
+     * Write `length` floats from `data` starting at `offset`.
+     *
+     * @param data   The source array
+     * @param offset The first index written
+     * @param length The number of values written
+     * @throws IOException if the channel could not be written to
+     */
+    public void writeFloats(float[] data, int offset, int length) throws IOException {
+        int end = offset + length;
+        while (offset < end) {
+            require(4);
+            int n = Math.min(buffer.remaining() >> 2, end - offset);
+            buffer.asFloatBuffer().put(data, offset, n);
+            advance(n << 2);
+            offset += n;
+        }
+    }
+
+    /**
+     * Write `length` doubles from `data` starting at `offset`.
+     *
+     * @param data   The source array
+     * @param offset The first index written
+     * @param length The number of values written
+     * @throws IOException if the channel could not be written to
+     */
+    public void writeDoubles(double[] data, int offset, int length) throws IOException {
+        int end = offset + length;
+        while (offset < end) {
+            require(8);
+            int n = Math.min(buffer.remaining() >> 3, end - offset);
+            buffer.asDoubleBuffer().put(data, offset, n);
+            advance(n << 3);
+            offset += n;
+        }
+    }
+
+    /**
+     * Write all buffered data to the channel.
+     *
+     * @throws IOException if the channel could not be written to
+     */
+    @Override
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // the typed views do not move the buffer's position, so it is advanced past the copied values
+    private void advance(int bytes) {
+        buffer.position(buffer.position() + bytes);
+    }
+
+    private void require(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+}
@@ -33,7 +33,8 @@ import java.lang.annotation.*;
  * =============
  *
  * Default double attribute for properties. This is a property-level attribute and is supported by
- * {@link com.lhkbob.entreri.property.DoubleProperty}, the default property for `double` values.
+ * {@link com.lhkbob.entreri.property.DoubleProperty}, the default property for `double` values, and by {@link
+ * com.lhkbob.entreri.property.DoubleVectorProperty}.
  *
  * @author Michael Ludwig
  */
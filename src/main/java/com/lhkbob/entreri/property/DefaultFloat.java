@@ -33,7 +33,8 @@ import java.lang.annotation.*;
  * ============
  *
  * Default float attribute for properties. This is a property-level attribute and is supported by
- * {@link com.lhkbob.entreri.property.FloatProperty}, the default property for `float` values.
+ * {@link com.lhkbob.entreri.property.FloatProperty}, the default property for `float` values, and by {@link
+ * com.lhkbob.entreri.property.FloatVectorProperty}.
  *
  * @author Michael Ludwig
  */
@@ -0,0 +1,295 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * DictionaryObjectProperty
+ * ========================
+ *
+ * DictionaryObjectProperty is an implementation of Property with reference semantics that stores Objects
+ * using dictionary encoding. Each distinct instance is stored once in a shared value table, and each
+ * component holds only the code of its value in that table. Codes are stored in a `short[]` until there are
+ * more than 65535 distinct values, after which they are stored in an `int[]`. This is well suited to columns
+ * that hold few distinct values across many components, such as names or shared descriptors, because it
+ * replaces an object pointer per component with a small integer and two components can be compared by code.
+ *
+ * Values are deduplicated by identity, not by `equals()`, which matches the reference semantics of {@link
+ * ObjectProperty}. The code 0 always represents `null`, which is the default value. A value's code is
+ * released once no component refers to it, and may then be reused by another value, so codes should only be
+ * compared while neither component is modified. It is not the default property for any type so it must be
+ * selected with {@link ImplementedBy}. It supports the {@link DoNotClone} attribute.
+ *
+ * Like {@link ObjectProperty}, the property is not {@link com.lhkbob.entreri.property.Property.Persistent}
+ * because its dictionary holds arbitrary objects. A component type that declares it cannot be saved to a
+ * snapshot, journaled, or encoded as a delta, and those operations throw an UnsupportedOperationException.
+ *
+ * ## Supported method patterns
+ *
+ * DictionaryObjectProperty defines the `get(int) -> T` and `set(int, T) -> void` methods that can be used
+ * by a component's Java Bean getters and setters of type the Object type `T`.
+ *
+ * ## Generic
+ *
+ * As a generic property, this property supports any type that extends {@link java.lang.Object}.
+ *
+ * @author Michael Ludwig
+ */
+public final class DictionaryObjectProperty<T>
+        implements Property<DictionaryObjectProperty<T>>, Property.ReferenceSemantics, Property.Generic<T>,
+                   Property.Copyable<DictionaryObjectProperty<T>> {
+    private static final int MAX_SHORT_CODE = 0xffff;
+
+    private final boolean cloneValue;
+
+    // exactly one of these is non-null, the short codes are treated as unsigned
+    private short[] shortCodes;
+    private int[] intCodes;
+
+    // the dictionary, where code 0 is reserved for null
+    private T[] values;
+    private int[] refCounts;
+    private final IdentityHashMap<T, Integer> codes;
+    private int codeCount; // codes [1, codeCount) have been assigned at some point
+
+    private int[] freeCodes;
+    private int freeCount;
+
+    /**
+     * Create a DictionaryObjectProperty with the given clone policy. This is the programmer-friendly
+     * constructor.
+     *
+     * @param type       The component class type
+     * @param cloneValue True if the value should be copied (by reference) during a component clone
+     */
+    @SuppressWarnings("unchecked")
+    public DictionaryObjectProperty(Class<T> type, boolean cloneValue) {
+        this.cloneValue = cloneValue;
+        shortCodes = new short[1];
+        values = (T[]) Array.newInstance(type, 8);
+        refCounts = new int[8];
+        codes = new IdentityHashMap<>();
+        codeCount = 1;
+        freeCodes = new int[8];
+        freeCount = 0;
+    }
+
+    /**
+     * A constructor meeting the default conventions for automated creation.
+     */
+    public DictionaryObjectProperty(Class<T> type, DoNotClone doNotClone) {
+        this(type, doNotClone == null);
+    }
+
+    /**
+     * Return the backing short array of codes, if there have never been more than 65535 distinct values. Each
+     * element is an unsigned code that can be passed to {@link #getValue(int)} after masking with `0xffff`.
+     *
+     * @return The code data, or null if codes are stored in an int array
+     */
+    public short[] getIndexedShortData() {
+        return shortCodes;
+    }
+
+    /**
+     * Return the backing int array of codes, if there have been more than 65535 distinct values.
+     *
+     * @return The code data, or null if codes are stored in a short array
+     */
+    public int[] getIndexedIntData() {
+        return intCodes;
+    }
+
+    /**
+     * @return The number of distinct non-null values currently referenced by components
+     */
+    public int getDictionarySize() {
+        return codes.size();
+    }
+
+    /**
+     * Get the code of the value stored for the given component index. Two components in this property
+     * have the same value exactly when they have the same code.
+     *
+     * @param componentIndex The component's index
+     * @return The value's code, or 0 if the value is null
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     */
+    public int getCode(int componentIndex) {
+        return (shortCodes != null ? shortCodes[componentIndex] & 0xffff : intCodes[componentIndex]);
+    }
+
+    /**
+     * Get the value in the dictionary for the given code.
+     *
+     * @param code The code of a value, such as returned by {@link #getCode(int)}
+     * @return The value, or null if the code is 0 or not currently in use
+     * @throws ArrayIndexOutOfBoundsException if the code has never been assigned
+     */
+    public T getValue(int code) {
+        return values[code];
+    }
+
+    /**
+     * Get the value stored in this property for the given component index.
+     *
+     * @param componentIndex The component's index
+     * @return The object for the given component
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     */
+    public T get(int componentIndex) {
+        return values[getCode(componentIndex)];
+    }
+
+    /**
+     * Store `val` in this property for the given component index. If the identical instance is already in
+     * the dictionary, its code is reused.
+     *
+     * @param componentIndex The index of the component being modified
+     * @param val            The value to store, can be null
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     */
+    public void set(int componentIndex, T val) {
+        int oldCode = getCode(componentIndex);
+        if (values[oldCode] == val) {
+            return;
+        }
+
+        int newCode = acquire(val);
+        release(oldCode);
+        setCode(componentIndex, newCode);
+    }
+
+    private void setCode(int componentIndex, int code) {
+        if (shortCodes != null) {
+            shortCodes[componentIndex] = (short) code;
+        } else {
+            intCodes[componentIndex] = code;
+        }
+    }
+
+    /*
+     * Look up or assign the code for a value and add a reference to it.
+     */
+    private int acquire(T val) {
+        if (val == null) {
+            return 0;
+        }
+
+        Integer existing = codes.get(val);
+        int code;
+        if (existing != null) {
+            code = existing;
+        } else {
+            if (freeCount > 0) {
+                code = freeCodes[--freeCount];
+            } else {
+                code = codeCount++;
+                if (code >= values.length) {
+                    values = Arrays.copyOf(values, values.length << 1);
+                    refCounts = Arrays.copyOf(refCounts, values.length);
+                }
+                if (code > MAX_SHORT_CODE && shortCodes != null) {
+                    // codes no longer fit in an unsigned short so widen the storage
+                    intCodes = new int[shortCodes.length];
+                    for (int i = 0; i < shortCodes.length; i++) {
+                        intCodes[i] = shortCodes[i] & 0xffff;
+                    }
+                    shortCodes = null;
+                }
+            }
+            values[code] = val;
+            codes.put(val, code);
+        }
+        refCounts[code]++;
+        return code;
+    }
+
+    /*
+     * Remove a reference to a code, removing its value from the dictionary if it is no longer used.
+     */
+    private void release(int code) {
+        if (code != 0 && --refCounts[code] == 0) {
+            codes.remove(values[code]);
+            values[code] = null;
+            if (freeCount == freeCodes.length) {
+                freeCodes = Arrays.copyOf(freeCodes, freeCount << 1);
+            }
+            freeCodes[freeCount++] = code;
+        }
+    }
+
+    @Override
+    public void setDefaultValue(int index) {
+        set(index, null);
+    }
+
+    @Override
+    public void clone(DictionaryObjectProperty<T> src, int srcIndex, int dstIndex) {
+        if (!src.cloneValue || !cloneValue) {
+            setDefaultValue(dstIndex);
+        } else {
+            set(dstIndex, src.get(srcIndex));
+        }
+    }
+
+    @Override
+    public void copy(DictionaryObjectProperty<T> src, int count) {
+        for (int i = 0; i < count; i++) {
+            set(i, src.get(i));
+        }
+    }
+
+    @Override
+    public void swap(int a, int b) {
+        int t = getCode(a);
+        setCode(a, getCode(b));
+        setCode(b, t);
+    }
+
+    @Override
+    public int getCapacity() {
+        return (shortCodes != null ? shortCodes.length : intCodes.length);
+    }
+
+    @Override
+    public void setCapacity(int size) {
+        // components that are discarded no longer refer to their values
+        for (int i = size; i < getCapacity(); i++) {
+            release(getCode(i));
+        }
+
+        if (shortCodes != null) {
+            shortCodes = Arrays.copyOf(shortCodes, size);
+        } else {
+            intCodes = Arrays.copyOf(intCodes, size);
+        }
+    }
+}
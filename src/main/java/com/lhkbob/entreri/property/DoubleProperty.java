@@ -26,6 +26,7 @@
  */
 package com.lhkbob.entreri.property;
 
+import java.io.IOException;
 import java.util.Arrays;
 
 /**
@@ -44,7 +45,9 @@ import java.util.Arrays;
  *
  * @author Michael Ludwig
  */
-public final class DoubleProperty implements Property<DoubleProperty>, Property.ValueSemantics {
+public final class DoubleProperty
+        implements Property<DoubleProperty>, Property.ValueSemantics, Property.Persistent,
+                   Property.Copyable<DoubleProperty> {
     private final double defaultValue;
     private final boolean cloneValue;
     private double[] data;
@@ -114,6 +117,11 @@ public final class DoubleProperty implements Property<DoubleProperty>, Property.
         }
     }
 
+    @Override
+    public void copy(DoubleProperty src, int count) {
+        System.arraycopy(src.data, 0, data, 0, count);
+    }
+
     @Override
     public void swap(int a, int b) {
         double t = data[a];
@@ -130,4 +138,28 @@ public final class DoubleProperty implements Property<DoubleProperty>, Property.
     public void setCapacity(int size) {
         data = Arrays.copyOf(data, size);
     }
+
+    @Override
+    public void write(ColumnWriter out, int count) throws IOException {
+        out.writeDoubles(data, 0, count);
+    }
+
+    @Override
+    public void read(ColumnReader in, int count) throws IOException {
+        in.readDoubles(data, 0, count);
+    }
+
+    @Override
+    public void write(ColumnWriter out, int[] indices, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.writeDouble(data[indices[i]]);
+        }
+    }
+
+    @Override
+    public void read(ColumnReader in, int[] indices, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            data[indices[i]] = in.readDouble();
+        }
+    }
 }
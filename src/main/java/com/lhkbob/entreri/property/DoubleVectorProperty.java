@@ -0,0 +1,260 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import com.lhkbob.entreri.IllegalComponentDefinitionException;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * DoubleVectorProperty
+ * ====================
+ *
+ * DoubleVectorProperty is an implementation of Property that stores a fixed-length `double[]` vector per
+ * component, with value semantics. Every component's elements are packed contiguously into a single double
+ * array with a stride equal to the declared {@link Dimension}, so 3-vectors, quaternions, and 4x4 matrices can
+ * be stored without a heap object per component. It is not the default property for `double[]` so it must be
+ * selected with {@link ImplementedBy}.
+ *
+ * It requires the {@link Dimension} attribute, and supports the {@link DefaultDouble} and {@link DoNotClone}
+ * attributes. The default value is applied to every element of the vector. Values will not be cloned if
+ * either the source or destination property specify not to clone the value.
+ *
+ * ## Supported method patterns
+ *
+ * DoubleVectorProperty defines the `get(int) -> double[]` and `set(int, double[]) -> void` methods that can be
+ * used by a component's Java Bean getters and setters of type `double[]`. The getter allocates a new array, so
+ * it also defines `get(int, double[]) -> void` to support getters annotated with {@link
+ * com.lhkbob.entreri.ReturnValue} that fill a caller-owned array without allocating.
+ *
+ * @author Michael Ludwig
+ */
+public final class DoubleVectorProperty
+        implements Property<DoubleVectorProperty>, Property.ValueSemantics, Property.Persistent,
+                   Property.Copyable<DoubleVectorProperty> {
+    private final int dimension;
+    private final double defaultValue;
+    private final boolean cloneValue;
+    private double[] data;
+
+    /**
+     * Create a DoubleVectorProperty with a programmer friendly signature.
+     *
+     * @param dimension    The number of elements stored per component
+     * @param defaultValue The default value of every element when components are initialized
+     * @param cloneValue   True if the value is cloned, or false if clones just use the default
+     * @throws IllegalArgumentException if dimension is less than 1
+     */
+    public DoubleVectorProperty(int dimension, double defaultValue, boolean cloneValue) {
+        if (dimension < 1) {
+            throw new IllegalArgumentException("Dimension must be at least 1, not: " + dimension);
+        }
+        this.dimension = dimension;
+        this.defaultValue = defaultValue;
+        this.cloneValue = cloneValue;
+        data = new double[dimension];
+    }
+
+    /**
+     * Create a DoubleVectorProperty using the constructor satisfying the default annotation conventions.
+     *
+     * @throws IllegalComponentDefinitionException if the dimension attribute is missing or invalid
+     */
+    public DoubleVectorProperty(Dimension dimension, DefaultDouble dflt, DoNotClone clonePolicy) {
+        this(checkDimension(dimension), (dflt != null ? dflt.value() : 0.0), clonePolicy == null);
+    }
+
+    private static int checkDimension(Dimension dimension) {
+        if (dimension == null) {
+            throw new IllegalComponentDefinitionException("DoubleVectorProperty requires the @Dimension attribute");
+        }
+        if (dimension.value() < 1) {
+            throw new IllegalComponentDefinitionException("@Dimension must be at least 1, not: " +
+                                                          dimension.value());
+        }
+        return dimension.value();
+    }
+
+    /**
+     * @return The number of elements stored for each component
+     */
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Return the backing double array of this property. The array may be longer than necessary for the number
+     * of components in the system. The elements of a component start at `componentIndex * getDimension()`
+     * and are stored contiguously.
+     *
+     * @return The double data for all packed vectors
+     */
+    public double[] getIndexedData() {
+        return data;
+    }
+
+    /**
+     * Get a single element of the vector stored for the given component index.
+     *
+     * @param componentIndex The component's index
+     * @param element        The element within the vector, from 0 to `getDimension() - 1`
+     * @return The element value
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex or element is invalid
+     */
+    public double get(int componentIndex, int element) {
+        return data[componentIndex * dimension + element];
+    }
+
+    /**
+     * Set a single element of the vector stored for the given component index.
+     *
+     * @param componentIndex The component's index
+     * @param element        The element within the vector, from 0 to `getDimension() - 1`
+     * @param val            The new element value
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex or element is invalid
+     */
+    public void set(int componentIndex, int element, double val) {
+        data[componentIndex * dimension + element] = val;
+    }
+
+    /**
+     * Get a copy of the vector stored for the given component index.
+     *
+     * @param componentIndex The component's index
+     * @return A newly allocated array of length `getDimension()`
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     */
+    public double[] get(int componentIndex) {
+        double[] result = new double[dimension];
+        get(componentIndex, result);
+        return result;
+    }
+
+    /**
+     * Copy the vector stored for the given component index into `result`, which must have at least
+     * `getDimension()` elements.
+     *
+     * @param componentIndex The component's index
+     * @param result         The array to fill
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     * @throws IllegalArgumentException       if result is too short
+     */
+    public void get(int componentIndex, double[] result) {
+        if (result.length < dimension) {
+            throw new IllegalArgumentException("Array must have at least " + dimension + " elements, not: " +
+                                               result.length);
+        }
+        System.arraycopy(data, componentIndex * dimension, result, 0, dimension);
+    }
+
+    /**
+     * Store the first `getDimension()` elements of `val` in this property for the given component index.
+     *
+     * @param componentIndex The index of the component being modified
+     * @param val            The vector to copy
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     * @throws IllegalArgumentException       if val is too short
+     */
+    public void set(int componentIndex, double[] val) {
+        if (val.length < dimension) {
+            throw new IllegalArgumentException("Array must have at least " + dimension + " elements, not: " +
+                                               val.length);
+        }
+        System.arraycopy(val, 0, data, componentIndex * dimension, dimension);
+    }
+
+    @Override
+    public void setDefaultValue(int index) {
+        int offset = index * dimension;
+        Arrays.fill(data, offset, offset + dimension, defaultValue);
+    }
+
+    @Override
+    public void clone(DoubleVectorProperty src, int srcIndex, int dstIndex) {
+        if (!src.cloneValue || !cloneValue || src.dimension != dimension) {
+            setDefaultValue(dstIndex);
+        } else {
+            System.arraycopy(src.data, srcIndex * dimension, data, dstIndex * dimension, dimension);
+        }
+    }
+
+    @Override
+    public void copy(DoubleVectorProperty src, int count) {
+        System.arraycopy(src.data, 0, data, 0, count * dimension);
+    }
+
+    @Override
+    public void swap(int a, int b) {
+        int offsetA = a * dimension;
+        int offsetB = b * dimension;
+        for (int i = 0; i < dimension; i++) {
+            double t = data[offsetA + i];
+            data[offsetA + i] = data[offsetB + i];
+            data[offsetB + i] = t;
+        }
+    }
+
+    @Override
+    public int getCapacity() {
+        return data.length / dimension;
+    }
+
+    @Override
+    public void setCapacity(int size) {
+        data = Arrays.copyOf(data, size * dimension);
+    }
+
+    @Override
+    public void write(ColumnWriter out, int count) throws IOException {
+        out.writeInt(dimension);
+        out.writeDoubles(data, 0, count * dimension);
+    }
+
+    @Override
+    public void read(ColumnReader in, int count) throws IOException {
+        int written = in.readInt();
+        if (written != dimension) {
+            throw new IOException("Expected dimension " + dimension + " but data has " + written);
+        }
+        in.readDoubles(data, 0, count * dimension);
+    }
+
+    @Override
+    public void write(ColumnWriter out, int[] indices, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.writeDoubles(data, indices[i] * dimension, dimension);
+        }
+    }
+
+    @Override
+    public void read(ColumnReader in, int[] indices, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            in.readDoubles(data, indices[i] * dimension, dimension);
+        }
+    }
+}
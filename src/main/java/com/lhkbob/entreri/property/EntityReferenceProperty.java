@@ -0,0 +1,216 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import com.lhkbob.entreri.Entity;
+import com.lhkbob.entreri.EntitySystem;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * EntityReferenceProperty
+ * =======================
+ *
+ * EntityReferenceProperty is a Property implementation with reference semantics for storing references to
+ * other entities of the same EntitySystem. Instead of holding Entity instances in an Object array, the index
+ * of each referenced entity is stored in an `int[]`, where 0 represents a null reference. It is the default
+ * property for {@link com.lhkbob.entreri.Entity} when the {@link Reference} attribute is present.
+ *
+ * The property resolves indices through the {@link com.lhkbob.entreri.property.Property.EntityIndex} that
+ * its system attaches, so it must be attached before a non-null reference is assigned. The stored indices
+ * are kept valid by the entity system: {@link com.lhkbob.entreri.EntitySystem#compact()} remaps them to the
+ * new entity indices, and references to removed entities are reset to null. A reference to an entity that
+ * has been removed but not yet compacted is reported as null by {@link #get(int)} immediately, without a scan
+ * over every stored reference at removal time.
+ *
+ * When cloning from a template in another entity system, the reference cannot be carried over so the default
+ * null value is used instead. It supports the {@link DoNotClone} attribute.
+ *
+ * ## Supported method patterns
+ *
+ * EntityReferenceProperty defines the `get(int) -> Entity` and `set(int, Entity) -> void` methods that can
+ * be used by a component's Java Bean getters and setters.
+ *
+ * @author Michael Ludwig
+ */
+public final class EntityReferenceProperty
+        implements Property<EntityReferenceProperty>, Property.ReferenceSemantics, Property.Persistent,
+                   Property.EntityReferences, Property.Copyable<EntityReferenceProperty> {
+    private final boolean cloneValue;
+    private EntityIndex entities;
+    private int[] data;
+
+    /**
+     * Create an EntityReferenceProperty with the given clone policy. This is the programmer-friendly
+     * constructor.
+     *
+     * @param cloneValue True if the reference should be copied during a component clone
+     */
+    public EntityReferenceProperty(boolean cloneValue) {
+        this.cloneValue = cloneValue;
+        data = new int[1];
+    }
+
+    /**
+     * A constructor meeting the default conventions for automated creation.
+     */
+    public EntityReferenceProperty(DoNotClone doNotClone) {
+        this(doNotClone == null);
+    }
+
+    @Override
+    public void attach(EntityIndex entities) {
+        if (this.entities != null && this.entities.getEntitySystem() != entities.getEntitySystem()) {
+            throw new IllegalStateException("Property is already attached to a different EntitySystem");
+        }
+        this.entities = entities;
+    }
+
+    /**
+     * @return The entity system this property is attached to, or null if it has not been attached yet
+     */
+    public EntitySystem getEntitySystem() {
+        return entities == null ? null : entities.getEntitySystem();
+    }
+
+    /**
+     * Return the backing int array of this property's data store. Each element is the index of the
+     * referenced entity within its system, or 0 for a null reference. The array may be longer than necessary
+     * for the number of components in the system. An index can refer to an entity that has been removed
+     * until the system is compacted.
+     *
+     * @return The entity indices for all components
+     */
+    public int[] getIndexedData() {
+        return data;
+    }
+
+    /**
+     * Get the entity referenced by the given component index. If the referenced entity has been removed,
+     * null is returned.
+     *
+     * @param componentIndex The component's index
+     * @return The referenced entity, or null
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     */
+    public Entity get(int componentIndex) {
+        int entityIndex = data[componentIndex];
+        return entityIndex == 0 ? null : entities.getEntity(entityIndex);
+    }
+
+    /**
+     * Store a reference to `entity` in this property for the given component index.
+     *
+     * @param componentIndex The index of the component being modified
+     * @param entity         The entity to reference, can be null
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     * @throws IllegalArgumentException       if the entity is from a different EntitySystem than this
+     *                                        property
+     * @throws IllegalStateException          if the property has not been attached to an EntitySystem
+     */
+    public void set(int componentIndex, Entity entity) {
+        if (entity == null) {
+            data[componentIndex] = 0;
+        } else {
+            if (entities == null) {
+                throw new IllegalStateException("Property is not attached to an EntitySystem");
+            } else if (entity.getEntitySystem() != entities.getEntitySystem()) {
+                throw new IllegalArgumentException("Entity is not from the same EntitySystem as the property");
+            }
+            // a removed entity has an index of 0, so it is stored as a null reference
+            data[componentIndex] = entities.getIndex(entity);
+        }
+    }
+
+    @Override
+    public void remap(int[] entityOldToNewMap) {
+        for (int i = 0; i < data.length; i++) {
+            data[i] = entityOldToNewMap[data[i]];
+        }
+    }
+
+    @Override
+    public void setDefaultValue(int index) {
+        data[index] = 0;
+    }
+
+    @Override
+    public void clone(EntityReferenceProperty src, int srcIndex, int dstIndex) {
+        if (!src.cloneValue || !cloneValue || src.entities != entities) {
+            setDefaultValue(dstIndex);
+        } else {
+            data[dstIndex] = src.data[srcIndex];
+        }
+    }
+
+    @Override
+    public void copy(EntityReferenceProperty src, int count) {
+        System.arraycopy(src.data, 0, data, 0, count);
+    }
+
+    @Override
+    public void swap(int a, int b) {
+        int t = data[a];
+        data[a] = data[b];
+        data[b] = t;
+    }
+
+    @Override
+    public int getCapacity() {
+        return data.length;
+    }
+
+    @Override
+    public void setCapacity(int size) {
+        data = Arrays.copyOf(data, size);
+    }
+
+    @Override
+    public void write(ColumnWriter out, int count) throws IOException {
+        out.writeInts(data, 0, count);
+    }
+
+    @Override
+    public void read(ColumnReader in, int count) throws IOException {
+        in.readInts(data, 0, count);
+    }
+
+    @Override
+    public void write(ColumnWriter out, int[] indices, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.writeInt(data[indices[i]]);
+        }
+    }
+
+    @Override
+    public void read(ColumnReader in, int[] indices, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            data[indices[i]] = in.readInt();
+        }
+    }
+}
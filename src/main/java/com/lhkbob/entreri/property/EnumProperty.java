@@ -26,6 +26,7 @@
  */
 package com.lhkbob.entreri.property;
 
+import java.io.IOException;
 import java.util.Arrays;
 
 /**
@@ -33,10 +34,16 @@ import java.util.Arrays;
  * ============
  *
  * EnumProperty is a specialized generic property for enum values that stores just the ordinal values of a
- * specific enum class in a packed int array.  The type-mapping of component implementation generation
+ * specific enum class in a packed primitive array.  The type-mapping of component implementation generation
  * automatically uses an EnumProperty for any enum properties unless there's an explicit mapping declared in
  * META-INF for a particular enum.
  *
+ * The width of the packed array is chosen from the number of constants of the enum class: a `byte[]` is used
+ * when there are at most 256 constants, a `short[]` for at most 65536 constants, and an `int[]` otherwise.
+ * Byte and short ordinals are stored unsigned. Exactly one of {@link #getIndexedByteData()}, {@link
+ * #getIndexedShortData()}, and {@link #getIndexedIntData()} returns the backing array; the others return
+ * null.
+ *
  * It supports the {@link DefaultEnum} and {@link
  * DoNotClone} attributes. Values will not be cloned if either the source or
  * destination property specify not to clone the value.
@@ -53,11 +60,16 @@ import java.util.Arrays;
  * @author Michael Ludwig
  */
 public class EnumProperty<T extends Enum>
-        implements Property<EnumProperty<T>>, Property.ValueSemantics, Property.Generic<T> {
+        implements Property<EnumProperty<T>>, Property.ValueSemantics, Property.Generic<T>,
+                   Property.Persistent, Property.Copyable<EnumProperty<T>> {
     private final T[] values;
     private final T defaultValue;
     private final boolean cloneValue;
-    private int[] data;
+
+    // only one of these is non-null, depending on the number of enum constants
+    private byte[] byteData;
+    private short[] shortData;
+    private int[] intData;
 
     /**
      * Create an EnumProperty with the selected default enum value and clone policy. This is a programmer
@@ -68,10 +80,10 @@ public class EnumProperty<T extends Enum>
      */
     @SuppressWarnings("unchecked")
     public EnumProperty(T dflt, boolean cloneValue) {
-        values = (T[]) dflt.getClass().getEnumConstants();
+        values = (T[]) dflt.getDeclaringClass().getEnumConstants();
         defaultValue = dflt;
         this.cloneValue = cloneValue;
-        data = new int[1];
+        allocate();
     }
 
     /**
@@ -83,7 +95,17 @@ public class EnumProperty<T extends Enum>
         values = enumType.getEnumConstants();
         defaultValue = values[dflt != null ? dflt.ordinal() : 0];
         cloneValue = doNotClone == null;
-        data = new int[1];
+        allocate();
+    }
+
+    private void allocate() {
+        if (values.length <= 0xff + 1) {
+            byteData = new byte[1];
+        } else if (values.length <= 0xffff + 1) {
+            shortData = new short[1];
+        } else {
+            intData = new int[1];
+        }
     }
 
     /**
@@ -92,10 +114,61 @@ public class EnumProperty<T extends Enum>
      * component's index. The int values correspond to the ordinals of the enum class stored by this
      * EnumProperty.
      *
+     * If the ordinals are stored in a narrower type, they are first widened to an `int[]` that the property
+     * keeps using, so the returned array stays live but the memory savings are lost.
+     *
      * @return The int data for all packed properties that this property has been packed with
+     * @deprecated Use the width-specific {@link #getIndexedByteData()}, {@link #getIndexedShortData()}, or
+     * {@link #getIndexedIntData()}
      */
+    @Deprecated
     public int[] getIndexedData() {
-        return data;
+        if (intData == null) {
+            int[] widened = new int[getCapacity()];
+            for (int i = 0; i < widened.length; i++) {
+                widened[i] = get(i).ordinal();
+            }
+            byteData = null;
+            shortData = null;
+            intData = widened;
+        }
+        return intData;
+    }
+
+    /**
+     * Return the backing byte array of this property's data store if the enum has at most 256 constants.
+     * The array may be longer than necessary for the number of components in the system. Data can be accessed
+     * for a component directly using the component's index. The unsigned byte values, `data[i] & 0xff`,
+     * correspond to the ordinals of the enum class stored by this EnumProperty.
+     *
+     * @return The ordinals for all components, or null if the ordinals are stored in a wider type
+     */
+    public byte[] getIndexedByteData() {
+        return byteData;
+    }
+
+    /**
+     * Return the backing short array of this property's data store if the enum has more than 256 constants
+     * and at most 65536. The array may be longer than necessary for the number of components in the system.
+     * The unsigned short values, `data[i] & 0xffff`, correspond to the ordinals of the enum class stored by
+     * this EnumProperty.
+     *
+     * @return The ordinals for all components, or null if the ordinals are stored in a different type
+     */
+    public short[] getIndexedShortData() {
+        return shortData;
+    }
+
+    /**
+     * Return the backing int array of this property's data store if the enum has more than 65536 constants,
+     * or if {@link #getIndexedData()} widened the storage.
+     * The array may be longer than necessary for the number of components in the system. The int values
+     * correspond to the ordinals of the enum class stored by this EnumProperty.
+     *
+     * @return The ordinals for all components, or null if the ordinals are stored in a narrower type
+     */
+    public int[] getIndexedIntData() {
+        return intData;
     }
 
     /**
@@ -106,7 +179,13 @@ public class EnumProperty<T extends Enum>
      * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
      */
     public T get(int index) {
-        return values[data[index]];
+        if (byteData != null) {
+            return values[byteData[index] & 0xff];
+        } else if (shortData != null) {
+            return values[shortData[index] & 0xffff];
+        } else {
+            return values[intData[index]];
+        }
     }
 
     /**
@@ -117,17 +196,36 @@ public class EnumProperty<T extends Enum>
      * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
      */
     public void set(int index, T value) {
-        data[index] = value.ordinal();
+        int ordinal = value.ordinal();
+        if (byteData != null) {
+            byteData[index] = (byte) ordinal;
+        } else if (shortData != null) {
+            shortData[index] = (short) ordinal;
+        } else {
+            intData[index] = ordinal;
+        }
     }
 
     @Override
     public void setCapacity(int size) {
-        data = Arrays.copyOf(data, size);
+        if (byteData != null) {
+            byteData = Arrays.copyOf(byteData, size);
+        } else if (shortData != null) {
+            shortData = Arrays.copyOf(shortData, size);
+        } else {
+            intData = Arrays.copyOf(intData, size);
+        }
     }
 
     @Override
     public int getCapacity() {
-        return data.length;
+        if (byteData != null) {
+            return byteData.length;
+        } else if (shortData != null) {
+            return shortData.length;
+        } else {
+            return intData.length;
+        }
     }
 
     @Override
@@ -144,10 +242,119 @@ public class EnumProperty<T extends Enum>
         }
     }
 
+    @Override
+    public void copy(EnumProperty<T> src, int count) {
+        // either property may have been widened by getIndexedData()
+        if (byteData != null && src.byteData != null) {
+            System.arraycopy(src.byteData, 0, byteData, 0, count);
+        } else if (shortData != null && src.shortData != null) {
+            System.arraycopy(src.shortData, 0, shortData, 0, count);
+        } else if (intData != null && src.intData != null) {
+            System.arraycopy(src.intData, 0, intData, 0, count);
+        } else {
+            for (int i = 0; i < count; i++) {
+                set(i, src.get(i));
+            }
+        }
+    }
+
     @Override
     public void swap(int indexA, int indexB) {
-        int ord = data[indexA];
-        data[indexA] = data[indexB];
-        data[indexB] = ord;
+        if (byteData != null) {
+            byte ord = byteData[indexA];
+            byteData[indexA] = byteData[indexB];
+            byteData[indexB] = ord;
+        } else if (shortData != null) {
+            short ord = shortData[indexA];
+            shortData[indexA] = shortData[indexB];
+            shortData[indexB] = ord;
+        } else {
+            int ord = intData[indexA];
+            intData[indexA] = intData[indexB];
+            intData[indexB] = ord;
+        }
+    }
+
+    @Override
+    public void write(ColumnWriter out, int count) throws IOException {
+        // the width depends only on the number of constants, so storage widened by getIndexedData() is
+        // narrowed again
+        out.writeInt(values.length);
+        if (values.length <= 0xff + 1) {
+            byte[] ordinals = byteData;
+            if (ordinals == null) {
+                ordinals = new byte[count];
+                for (int i = 0; i < count; i++) {
+                    ordinals[i] = (byte) intData[i];
+                }
+            }
+            out.writeBytes(ordinals, 0, count);
+        } else if (values.length <= 0xffff + 1) {
+            short[] ordinals = shortData;
+            if (ordinals == null) {
+                ordinals = new short[count];
+                for (int i = 0; i < count; i++) {
+                    ordinals[i] = (short) intData[i];
+                }
+            }
+            out.writeShorts(ordinals, 0, count);
+        } else {
+            out.writeInts(intData, 0, count);
+        }
+    }
+
+    @Override
+    public void read(ColumnReader in, int count) throws IOException {
+        int constants = in.readInt();
+        if (constants != values.length) {
+            throw new IOException("Expected " + values.length + " enum constants but data has " + constants);
+        }
+        if (values.length <= 0xff + 1) {
+            byte[] ordinals = (byteData != null ? byteData : new byte[count]);
+            in.readBytes(ordinals, 0, count);
+            for (int i = 0; i < count; i++) {
+                int ordinal = checkOrdinal(ordinals[i] & 0xff);
+                if (intData != null) {
+                    // the storage was widened, so the ordinals were read into a temporary array
+                    intData[i] = ordinal;
+                }
+            }
+        } else if (values.length <= 0xffff + 1) {
+            short[] ordinals = (shortData != null ? shortData : new short[count]);
+            in.readShorts(ordinals, 0, count);
+            for (int i = 0; i < count; i++) {
+                int ordinal = checkOrdinal(ordinals[i] & 0xffff);
+                if (intData != null) {
+                    // the storage was widened, so the ordinals were read into a temporary array
+                    intData[i] = ordinal;
+                }
+            }
+        } else {
+            in.readInts(intData, 0, count);
+            for (int i = 0; i < count; i++) {
+                checkOrdinal(intData[i]);
+            }
+        }
+    }
+
+    @Override
+    public void write(ColumnWriter out, int[] indices, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.writeInt(get(indices[i]).ordinal());
+        }
+    }
+
+    @Override
+    public void read(ColumnReader in, int[] indices, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            set(indices[i], values[checkOrdinal(in.readInt())]);
+        }
+    }
+
+    private int checkOrdinal(int ordinal) throws IOException {
+        if (ordinal < 0 || ordinal >= values.length) {
+            throw new IOException("Invalid ordinal for " + values.length + " enum constants: " + ordinal);
+        }
+        return ordinal;
     }
 }
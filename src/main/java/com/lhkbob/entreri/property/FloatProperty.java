@@ -26,6 +26,7 @@
  */
 package com.lhkbob.entreri.property;
 
+import java.io.IOException;
 import java.util.Arrays;
 
 /**
@@ -44,7 +45,9 @@ import java.util.Arrays;
  *
  * @author Michael Ludwig
  */
-public final class FloatProperty implements Property<FloatProperty>, Property.ValueSemantics {
+public final class FloatProperty
+        implements Property<FloatProperty>, Property.ValueSemantics, Property.Persistent,
+                   Property.Copyable<FloatProperty> {
     private final float defaultValue;
     private final boolean cloneValue;
     private float[] data;
@@ -115,6 +118,11 @@ public final class FloatProperty implements Property<FloatProperty>, Property.Va
         }
     }
 
+    @Override
+    public void copy(FloatProperty src, int count) {
+        System.arraycopy(src.data, 0, data, 0, count);
+    }
+
     @Override
     public void swap(int a, int b) {
         float t = data[a];
@@ -131,4 +139,28 @@ public final class FloatProperty implements Property<FloatProperty>, Property.Va
     public void setCapacity(int size) {
         data = Arrays.copyOf(data, size);
     }
+
+    @Override
+    public void write(ColumnWriter out, int count) throws IOException {
+        out.writeFloats(data, 0, count);
+    }
+
+    @Override
+    public void read(ColumnReader in, int count) throws IOException {
+        in.readFloats(data, 0, count);
+    }
+
+    @Override
+    public void write(ColumnWriter out, int[] indices, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.writeFloat(data[indices[i]]);
+        }
+    }
+
+    @Override
+    public void read(ColumnReader in, int[] indices, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            data[indices[i]] = in.readFloat();
+        }
+    }
 }
@@ -0,0 +1,495 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * IntObjectMapProperty
+ * ====================
+ *
+ * IntObjectMapProperty is a Property implementation for storing maps from `int` keys to values of type `V`
+ * with value semantics. Instead of a HashMap per component, each component's map is an open-addressing hash
+ * table with linear probing, and the tables of every component are stored in shared pool arrays: one for
+ * keys, one for values, and an occupancy bitmap. Each component has an offset into the pools, a power of two
+ * table capacity, and a size. Keys are never boxed and there are no per-entry objects.
+ *
+ * When a table becomes more than three quarters full it is rehashed into a table of twice the capacity at
+ * the end of the pools. The abandoned slots are tracked and the pools are repacked in component order once
+ * they outnumber the slots in use. The default value is an empty map. Values may be null, but keys may not
+ * be null when using the boxed methods.
+ *
+ * It supports the {@link DoNotClone} attribute. It is not the default property for `Map<Integer, V>`, so a
+ * component must select it with {@link ImplementedBy}. The default {@link ValueMapProperty} returns a live
+ * view from its getter and allows null keys.
+ *
+ * Because the values are arbitrary objects, the property is not {@link
+ * com.lhkbob.entreri.property.Property.Persistent}. A component type that declares it cannot be saved to a
+ * snapshot, journaled, or encoded as a delta, and those operations throw an UnsupportedOperationException.
+ *
+ * ## Supported method patterns
+ *
+ * IntObjectMapProperty supports the standard `get(int) -> Map<Integer, V>` and `set(int, Map<Integer, V>)
+ * -> void` methods used for the Java Bean patterns, where the getter returns an unmodifiable copy of the map.
+ * Additionally it provides `put(int, Integer, V) -> V`, `get(int, Integer) -> V`, `remove(int, Integer) ->
+ * V`, and `contains(int, Integer) -> boolean` used by the collections method patterns, as well as
+ * equivalents taking a primitive `int` key that avoid boxing.
+ *
+ * ## Generic
+ *
+ * As a generic property, this property can store any subclass of Object as the value type of its maps.
+ *
+ * @author Michael Ludwig
+ */
+public class IntObjectMapProperty<V>
+        implements Property<IntObjectMapProperty<V>>, Property.ValueSemantics,
+                   Property.Generic<Map<Integer, V>>, Property.Copyable<IntObjectMapProperty<V>> {
+    private static final int MIN_TABLE_CAPACITY = 4;
+
+    private final boolean cloneValue;
+
+    // per-component columns into the shared pools
+    private int[] offsets;
+    private int[] capacities; // always 0 or a power of two
+    private int[] sizes;
+
+    private int[] keys;
+    private Object[] values;
+    private long[] occupied; // bit per pool slot
+    private int poolSize; // pools[poolSize:] are unreserved
+    private int garbage; // number of slots in pools[0:poolSize] no longer reserved by a component
+
+    /**
+     * Create an IntObjectMapProperty with a programmer friendly signature.
+     *
+     * @param cloneValue True if the value is cloned, or false if clones just use the default
+     */
+    public IntObjectMapProperty(boolean cloneValue) {
+        this.cloneValue = cloneValue;
+        offsets = new int[1];
+        capacities = new int[1];
+        sizes = new int[1];
+        keys = new int[MIN_TABLE_CAPACITY];
+        values = new Object[MIN_TABLE_CAPACITY];
+        occupied = new long[1];
+        poolSize = 0;
+        garbage = 0;
+    }
+
+    /**
+     * Constructor meeting the requirements for automated code generation.
+     */
+    public IntObjectMapProperty(DoNotClone clonePolicy) {
+        this(clonePolicy == null);
+    }
+
+    /**
+     * @param index The component index
+     * @return The number of entries in the component's map
+     */
+    public int size(int index) {
+        return sizes[index];
+    }
+
+    /**
+     * @param index The component index
+     * @return An unmodifiable copy of the current entries of the component's map
+     */
+    @SuppressWarnings("unchecked")
+    public Map<Integer, V> get(int index) {
+        Map<Integer, V> map = new HashMap<>();
+        int offset = offsets[index];
+        int end = offset + capacities[index];
+        for (int i = offset; i < end; i++) {
+            if (isOccupied(i)) {
+                map.put(keys[i], (V) values[i]);
+            }
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * Copy the given map into this property's map for the component.
+     *
+     * @param index The component index
+     * @param map   The new map entries
+     * @throws NullPointerException if map is null, or contains a null key
+     */
+    public void set(int index, Map<Integer, V> map) {
+        if (map == null) {
+            throw new NullPointerException("Value-semantics map cannot be null");
+        }
+        setDefaultValue(index);
+        for (Map.Entry<Integer, V> e : map.entrySet()) {
+            put(index, e.getKey().intValue(), e.getValue());
+        }
+    }
+
+    /**
+     * Put the `key`-`value` pair into the map at `index`. This has equivalent behavior to {@link
+     * java.util.Map#put(Object, Object)}.
+     *
+     * @param index The component index
+     * @param key   The map key
+     * @param value The value to associate with the key
+     * @return The previous value for the key, or null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int index, int key, V value) {
+        int slot = find(index, key);
+        if (slot >= 0) {
+            V old = (V) values[slot];
+            values[slot] = value;
+            return old;
+        }
+
+        ensureCapacity(index, sizes[index] + 1);
+        slot = insert(offsets[index], capacities[index] - 1, key);
+        values[slot] = value;
+        sizes[index]++;
+        return null;
+    }
+
+    /**
+     * Boxed variant of {@link #put(int, int, Object)} used by generated components.
+     *
+     * @throws NullPointerException if key is null
+     */
+    public V put(int index, Integer key, V value) {
+        return put(index, key.intValue(), value);
+    }
+
+    /**
+     * Get the `key`'s value from the map at `index`. This has equivalent behavior to {@link
+     * java.util.Map#get(Object)}.
+     *
+     * @param index The component index
+     * @param key   The key to look up
+     * @return The value associated with the key, or null
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int index, int key) {
+        int slot = find(index, key);
+        return slot >= 0 ? (V) values[slot] : null;
+    }
+
+    /**
+     * Boxed variant of {@link #get(int, int)} used by generated components.
+     *
+     * @throws NullPointerException if key is null
+     */
+    public V get(int index, Integer key) {
+        return get(index, key.intValue());
+    }
+
+    /**
+     * Remove the `key` from the map at `index`. This has equivalent behavior to {@link
+     * java.util.Map#remove(Object)}.
+     *
+     * @param index The component index
+     * @param key   The key to remove
+     * @return The value that was associated with the key, or null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int index, int key) {
+        int slot = find(index, key);
+        if (slot < 0) {
+            return null;
+        }
+
+        V old = (V) values[slot];
+        delete(offsets[index], capacities[index] - 1, slot - offsets[index]);
+        sizes[index]--;
+        return old;
+    }
+
+    /**
+     * Boxed variant of {@link #remove(int, int)} used by generated components.
+     *
+     * @throws NullPointerException if key is null
+     */
+    public V remove(int index, Integer key) {
+        return remove(index, key.intValue());
+    }
+
+    /**
+     * Check if `key` is contained in the map at `index`. This has equivalent behavior to {@link
+     * java.util.Map#containsKey(Object)}.
+     *
+     * @param index The component index
+     * @param key   The key to check for
+     * @return True if the current map contains `key`
+     */
+    public boolean contains(int index, int key) {
+        return find(index, key) >= 0;
+    }
+
+    /**
+     * Boxed variant of {@link #contains(int, int)} used by generated components.
+     *
+     * @throws NullPointerException if key is null
+     */
+    public boolean contains(int index, Integer key) {
+        return contains(index, key.intValue());
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+    private boolean isOccupied(int slot) {
+        return (occupied[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    /*
+     * Return the pool slot holding the key in the component's table, or -1 if it is not present.
+     */
+    private int find(int index, int key) {
+        int capacity = capacities[index];
+        if (capacity == 0) {
+            return -1;
+        }
+
+        int offset = offsets[index];
+        int mask = capacity - 1;
+        int i = hash(key) & mask;
+        while (isOccupied(offset + i)) {
+            if (keys[offset + i] == key) {
+                return offset + i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /*
+     * Mark the first free slot along the key's probe sequence as occupied by the key, and return it. The key
+     * must not already be in the table and the table must have a free slot.
+     */
+    private int insert(int offset, int mask, int key) {
+        int i = hash(key) & mask;
+        while (isOccupied(offset + i)) {
+            i = (i + 1) & mask;
+        }
+        int slot = offset + i;
+        occupied[slot >>> 6] |= (1L << slot);
+        keys[slot] = key;
+        return slot;
+    }
+
+    /*
+     * Remove the entry at the table position, shifting later entries of the same probe run backwards so that
+     * no tombstones are needed.
+     */
+    private void delete(int offset, int mask, int position) {
+        int hole = position;
+        int next = (hole + 1) & mask;
+        while (isOccupied(offset + next)) {
+            int ideal = hash(keys[offset + next]) & mask;
+            // the entry can fill the hole if the hole lies between its ideal position and where it is now
+            if (((next - ideal) & mask) >= ((next - hole) & mask)) {
+                keys[offset + hole] = keys[offset + next];
+                values[offset + hole] = values[offset + next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+
+        int slot = offset + hole;
+        occupied[slot >>> 6] &= ~(1L << slot);
+        values[slot] = null;
+    }
+
+    /*
+     * Make sure the component's table can hold the required number of entries while staying at most three
+     * quarters full, rehashing it into a larger table at the end of the pools if necessary.
+     */
+    private void ensureCapacity(int index, int required) {
+        int capacity = capacities[index];
+        if (required <= capacity - (capacity >> 2)) {
+            return;
+        }
+
+        int newCapacity = Math.max(MIN_TABLE_CAPACITY, capacity << 1);
+        while (required > newCapacity - (newCapacity >> 2)) {
+            newCapacity <<= 1;
+        }
+        if (garbage + capacity > poolSize - garbage - capacity) {
+            // most of the pools would be unreserved after relocating, so repack them first
+            repack();
+        }
+
+        int offset = offsets[index];
+        int newOffset = poolSize;
+        growPools(newOffset + newCapacity);
+        int newMask = newCapacity - 1;
+        for (int i = offset; i < offset + capacity; i++) {
+            if (isOccupied(i)) {
+                int slot = insert(newOffset, newMask, keys[i]);
+                values[slot] = values[i];
+                occupied[i >>> 6] &= ~(1L << i);
+                values[i] = null;
+            }
+        }
+
+        garbage += capacity;
+        offsets[index] = newOffset;
+        capacities[index] = newCapacity;
+        poolSize = newOffset + newCapacity;
+    }
+
+    private void growPools(int required) {
+        if (required > keys.length) {
+            int newLength = Math.max(required, keys.length << 1);
+            keys = Arrays.copyOf(keys, newLength);
+            values = Arrays.copyOf(values, newLength);
+            occupied = Arrays.copyOf(occupied, (newLength + 63) >> 6);
+        }
+    }
+
+    /*
+     * Copy every component's table into new pools in component order, discarding garbage. Tables keep their
+     * capacity so no rehashing is needed.
+     */
+    private void repack() {
+        int newLength = Math.max(MIN_TABLE_CAPACITY, (poolSize - garbage) << 1);
+        int[] newKeys = new int[newLength];
+        Object[] newValues = new Object[newLength];
+        long[] newOccupied = new long[(newLength + 63) >> 6];
+
+        int newSize = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            int offset = offsets[i];
+            int capacity = capacities[i];
+            System.arraycopy(keys, offset, newKeys, newSize, capacity);
+            System.arraycopy(values, offset, newValues, newSize, capacity);
+            for (int j = 0; j < capacity; j++) {
+                if (isOccupied(offset + j)) {
+                    newOccupied[(newSize + j) >>> 6] |= (1L << (newSize + j));
+                }
+            }
+            offsets[i] = newSize;
+            newSize += capacity;
+        }
+
+        keys = newKeys;
+        values = newValues;
+        occupied = newOccupied;
+        poolSize = newSize;
+        garbage = 0;
+    }
+
+    @Override
+    public void setCapacity(int size) {
+        for (int i = size; i < offsets.length; i++) {
+            // discarded components no longer reserve their slots, but must release their values
+            setDefaultValue(i);
+            garbage += capacities[i];
+        }
+
+        offsets = Arrays.copyOf(offsets, size);
+        capacities = Arrays.copyOf(capacities, size);
+        sizes = Arrays.copyOf(sizes, size);
+
+        if (garbage > poolSize - garbage) {
+            repack();
+        }
+    }
+
+    @Override
+    public int getCapacity() {
+        return offsets.length;
+    }
+
+    @Override
+    public void swap(int indexA, int indexB) {
+        int t = offsets[indexA];
+        offsets[indexA] = offsets[indexB];
+        offsets[indexB] = t;
+
+        t = capacities[indexA];
+        capacities[indexA] = capacities[indexB];
+        capacities[indexB] = t;
+
+        t = sizes[indexA];
+        sizes[indexA] = sizes[indexB];
+        sizes[indexB] = t;
+    }
+
+    @Override
+    public void setDefaultValue(int index) {
+        // keep the table so the component can reuse it, but clear its entries
+        int offset = offsets[index];
+        int end = offset + capacities[index];
+        for (int i = offset; i < end; i++) {
+            occupied[i >>> 6] &= ~(1L << i);
+            values[i] = null;
+        }
+        sizes[index] = 0;
+    }
+
+    @Override
+    public void clone(IntObjectMapProperty<V> src, int srcIndex, int dstIndex) {
+        if (src.cloneValue && cloneValue) {
+            copyValue(src, srcIndex, dstIndex);
+        } else {
+            setDefaultValue(dstIndex);
+        }
+    }
+
+    @Override
+    public void copy(IntObjectMapProperty<V> src, int count) {
+        for (int i = 0; i < count; i++) {
+            copyValue(src, i, i);
+        }
+    }
+
+    private void copyValue(IntObjectMapProperty<V> src, int srcIndex, int dstIndex) {
+        if (src == this && srcIndex == dstIndex) {
+            return;
+        }
+        setDefaultValue(dstIndex);
+        ensureCapacity(dstIndex, src.sizes[srcIndex]);
+
+        // read the source location after the destination may have caused a repack
+        int offset = src.offsets[srcIndex];
+        int end = offset + src.capacities[srcIndex];
+        int dstOffset = offsets[dstIndex];
+        int dstMask = capacities[dstIndex] - 1;
+        for (int i = offset; i < end; i++) {
+            if (src.isOccupied(i)) {
+                int slot = insert(dstOffset, dstMask, src.keys[i]);
+                values[slot] = src.values[i];
+            }
+        }
+        sizes[dstIndex] = src.sizes[srcIndex];
+    }
+}
@@ -26,6 +26,7 @@
  */
 package com.lhkbob.entreri.property;
 
+import java.io.IOException;
 import java.util.Arrays;
 
 /**
@@ -44,7 +45,9 @@ import java.util.Arrays;
  *
  * @author Michael Ludwig
  */
-public final class IntProperty implements Property<IntProperty>, Property.ValueSemantics {
+public final class IntProperty
+        implements Property<IntProperty>, Property.ValueSemantics, Property.Persistent,
+                   Property.Copyable<IntProperty> {
     private final int defaultValue;
     private final boolean cloneValue;
     private int[] data;
@@ -114,6 +117,11 @@ public final class IntProperty implements Property<IntProperty>, Property.ValueS
         }
     }
 
+    @Override
+    public void copy(IntProperty src, int count) {
+        System.arraycopy(src.data, 0, data, 0, count);
+    }
+
     @Override
     public void swap(int a, int b) {
         int t = data[a];
@@ -130,4 +138,28 @@ public final class IntProperty implements Property<IntProperty>, Property.ValueS
     public void setCapacity(int size) {
         data = Arrays.copyOf(data, size);
     }
+
+    @Override
+    public void write(ColumnWriter out, int count) throws IOException {
+        out.writeInts(data, 0, count);
+    }
+
+    @Override
+    public void read(ColumnReader in, int count) throws IOException {
+        in.readInts(data, 0, count);
+    }
+
+    @Override
+    public void write(ColumnWriter out, int[] indices, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.writeInt(data[indices[i]]);
+        }
+    }
+
+    @Override
+    public void read(ColumnReader in, int[] indices, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            data[indices[i]] = in.readInt();
+        }
+    }
 }
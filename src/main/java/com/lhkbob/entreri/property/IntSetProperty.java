@@ -0,0 +1,499 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * IntSetProperty
+ * ==============
+ *
+ * IntSetProperty is a Property implementation for storing sets of `int` values with value semantics.
+ * Instead of a HashSet per component, each component's set is an open-addressing hash table with linear
+ * probing, and the tables of every component are stored in a shared pool array with an occupancy bitmap.
+ * Each component has an offset into the pool, a power of two table capacity, and a size. Elements are never
+ * boxed and there are no per-element objects.
+ *
+ * When a table becomes more than three quarters full it is rehashed into a table of twice the capacity at
+ * the end of the pool. The abandoned slots are tracked and the pool is repacked in component order once they
+ * outnumber the slots in use. The default value is an empty set.
+ *
+ * It supports the {@link DoNotClone} attribute. It is not the default property for `Set<Integer>`, so a
+ * component must select it with {@link ImplementedBy}. The default {@link ValueSetProperty} returns a live
+ * view from its getter and allows null elements.
+ *
+ * ## Supported method patterns
+ *
+ * IntSetProperty supports the standard `get(int) -> Set<Integer>` and `set(int, Set<Integer>) -> void`
+ * methods used for the Java Bean patterns, where the getter returns an unmodifiable copy of the set.
+ * Additionally it provides `add(int, Integer) -> boolean`, `remove(int, Integer) -> boolean`, and
+ * `contains(int, Integer) -> boolean` used by the collections method patterns, as well as equivalents
+ * taking a primitive `int` that avoid boxing.
+ *
+ * @author Michael Ludwig
+ */
+public class IntSetProperty
+        implements Property<IntSetProperty>, Property.ValueSemantics, Property.Persistent,
+                   Property.Copyable<IntSetProperty> {
+    private static final int MIN_TABLE_CAPACITY = 4;
+
+    private final boolean cloneValue;
+
+    // per-component columns into the shared pool
+    private int[] offsets;
+    private int[] capacities; // always 0 or a power of two
+    private int[] sizes;
+
+    private int[] elements;
+    private long[] occupied; // bit per pool slot
+    private int poolSize; // pool[poolSize:] is unreserved
+    private int garbage; // number of slots in pool[0:poolSize] no longer reserved by a component
+
+    /**
+     * Create an IntSetProperty with a programmer friendly signature.
+     *
+     * @param cloneValue True if the value is cloned, or false if clones just use the default
+     */
+    public IntSetProperty(boolean cloneValue) {
+        this.cloneValue = cloneValue;
+        offsets = new int[1];
+        capacities = new int[1];
+        sizes = new int[1];
+        elements = new int[MIN_TABLE_CAPACITY];
+        occupied = new long[1];
+        poolSize = 0;
+        garbage = 0;
+    }
+
+    /**
+     * Constructor meeting the requirements for automated code generation.
+     */
+    public IntSetProperty(DoNotClone clonePolicy) {
+        this(clonePolicy == null);
+    }
+
+    /**
+     * @param index The component index
+     * @return The number of elements in the component's set
+     */
+    public int size(int index) {
+        return sizes[index];
+    }
+
+    /**
+     * @param index The component index
+     * @return An unmodifiable copy of the current elements of the component's set
+     */
+    public Set<Integer> get(int index) {
+        Set<Integer> set = new HashSet<>();
+        int offset = offsets[index];
+        int end = offset + capacities[index];
+        for (int i = offset; i < end; i++) {
+            if (isOccupied(i)) {
+                set.add(elements[i]);
+            }
+        }
+        return Collections.unmodifiableSet(set);
+    }
+
+    /**
+     * Copy the given set into this property's set for the component.
+     *
+     * @param index The component index
+     * @param set   The new set elements
+     * @throws NullPointerException if set is null, or contains a null element
+     */
+    public void set(int index, Set<Integer> set) {
+        if (set == null) {
+            throw new NullPointerException("Value-semantics set cannot be null");
+        }
+        setDefaultValue(index);
+        for (Integer e : set) {
+            add(index, e.intValue());
+        }
+    }
+
+    /**
+     * Add `element` to the set at `index`. This has equivalent behavior to {@link
+     * java.util.Set#add(Object)}.
+     *
+     * @param index   The component index
+     * @param element The element to add
+     * @return True if the set did not already contain the element
+     */
+    public boolean add(int index, int element) {
+        if (find(index, element) >= 0) {
+            return false;
+        }
+
+        ensureCapacity(index, sizes[index] + 1);
+        insert(offsets[index], capacities[index] - 1, element);
+        sizes[index]++;
+        return true;
+    }
+
+    /**
+     * Boxed variant of {@link #add(int, int)} used by generated components.
+     *
+     * @throws NullPointerException if element is null
+     */
+    public boolean add(int index, Integer element) {
+        return add(index, element.intValue());
+    }
+
+    /**
+     * Remove `element` from the set at `index`. This has equivalent behavior to {@link
+     * java.util.Set#remove(Object)}.
+     *
+     * @param index   The component index
+     * @param element The element to remove
+     * @return True if the element was removed
+     */
+    public boolean remove(int index, int element) {
+        int slot = find(index, element);
+        if (slot < 0) {
+            return false;
+        }
+
+        delete(offsets[index], capacities[index] - 1, slot - offsets[index]);
+        sizes[index]--;
+        return true;
+    }
+
+    /**
+     * Boxed variant of {@link #remove(int, int)} used by generated components.
+     *
+     * @throws NullPointerException if element is null
+     */
+    public boolean remove(int index, Integer element) {
+        return remove(index, element.intValue());
+    }
+
+    /**
+     * Check if `element` is contained in the set at `index`. This has equivalent behavior to {@link
+     * java.util.Set#contains(Object)}.
+     *
+     * @param index   The component index
+     * @param element The element to check for
+     * @return True if the current set contains `element`
+     */
+    public boolean contains(int index, int element) {
+        return find(index, element) >= 0;
+    }
+
+    /**
+     * Boxed variant of {@link #contains(int, int)} used by generated components.
+     *
+     * @throws NullPointerException if element is null
+     */
+    public boolean contains(int index, Integer element) {
+        return contains(index, element.intValue());
+    }
+
+    private static int hash(int element) {
+        int h = element * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+    private boolean isOccupied(int slot) {
+        return (occupied[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    /*
+     * Return the pool slot holding the element in the component's table, or -1 if it is not present.
+     */
+    private int find(int index, int element) {
+        int capacity = capacities[index];
+        if (capacity == 0) {
+            return -1;
+        }
+
+        int offset = offsets[index];
+        int mask = capacity - 1;
+        int i = hash(element) & mask;
+        while (isOccupied(offset + i)) {
+            if (elements[offset + i] == element) {
+                return offset + i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /*
+     * Store the element in the first free slot along its probe sequence. The element must not already be in
+     * the table and the table must have a free slot.
+     */
+    private void insert(int offset, int mask, int element) {
+        int i = hash(element) & mask;
+        while (isOccupied(offset + i)) {
+            i = (i + 1) & mask;
+        }
+        int slot = offset + i;
+        occupied[slot >>> 6] |= (1L << slot);
+        elements[slot] = element;
+    }
+
+    /*
+     * Remove the element at the table position, shifting later elements of the same probe run backwards so
+     * that no tombstones are needed.
+     */
+    private void delete(int offset, int mask, int position) {
+        int hole = position;
+        int next = (hole + 1) & mask;
+        while (isOccupied(offset + next)) {
+            int ideal = hash(elements[offset + next]) & mask;
+            // the element can fill the hole if the hole lies between its ideal position and where it is now
+            if (((next - ideal) & mask) >= ((next - hole) & mask)) {
+                elements[offset + hole] = elements[offset + next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+
+        int slot = offset + hole;
+        occupied[slot >>> 6] &= ~(1L << slot);
+    }
+
+    /*
+     * Make sure the component's table can hold the required number of elements while staying at most three
+     * quarters full, rehashing it into a larger table at the end of the pool if necessary.
+     */
+    private void ensureCapacity(int index, int required) {
+        int capacity = capacities[index];
+        if (required <= capacity - (capacity >> 2)) {
+            return;
+        }
+
+        int newCapacity = Math.max(MIN_TABLE_CAPACITY, capacity << 1);
+        while (required > newCapacity - (newCapacity >> 2)) {
+            newCapacity <<= 1;
+        }
+        if (garbage + capacity > poolSize - garbage - capacity) {
+            // most of the pool would be unreserved after relocating, so repack it first
+            repack();
+        }
+
+        int offset = offsets[index];
+        int newOffset = poolSize;
+        growPool(newOffset + newCapacity);
+        int newMask = newCapacity - 1;
+        for (int i = offset; i < offset + capacity; i++) {
+            if (isOccupied(i)) {
+                insert(newOffset, newMask, elements[i]);
+                occupied[i >>> 6] &= ~(1L << i);
+            }
+        }
+
+        garbage += capacity;
+        offsets[index] = newOffset;
+        capacities[index] = newCapacity;
+        poolSize = newOffset + newCapacity;
+    }
+
+    private void growPool(int required) {
+        if (required > elements.length) {
+            int newLength = Math.max(required, elements.length << 1);
+            elements = Arrays.copyOf(elements, newLength);
+            occupied = Arrays.copyOf(occupied, (newLength + 63) >> 6);
+        }
+    }
+
+    /*
+     * Copy every component's table into a new pool in component order, discarding garbage. Tables keep their
+     * capacity so no rehashing is needed.
+     */
+    private void repack() {
+        int newLength = Math.max(MIN_TABLE_CAPACITY, (poolSize - garbage) << 1);
+        int[] newElements = new int[newLength];
+        long[] newOccupied = new long[(newLength + 63) >> 6];
+
+        int newSize = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            int offset = offsets[i];
+            int capacity = capacities[i];
+            System.arraycopy(elements, offset, newElements, newSize, capacity);
+            for (int j = 0; j < capacity; j++) {
+                if (isOccupied(offset + j)) {
+                    newOccupied[(newSize + j) >>> 6] |= (1L << (newSize + j));
+                }
+            }
+            offsets[i] = newSize;
+            newSize += capacity;
+        }
+
+        elements = newElements;
+        occupied = newOccupied;
+        poolSize = newSize;
+        garbage = 0;
+    }
+
+    @Override
+    public void setCapacity(int size) {
+        for (int i = size; i < offsets.length; i++) {
+            // discarded components no longer reserve their slots
+            setDefaultValue(i);
+            garbage += capacities[i];
+        }
+
+        offsets = Arrays.copyOf(offsets, size);
+        capacities = Arrays.copyOf(capacities, size);
+        sizes = Arrays.copyOf(sizes, size);
+
+        if (garbage > poolSize - garbage) {
+            repack();
+        }
+    }
+
+    @Override
+    public int getCapacity() {
+        return offsets.length;
+    }
+
+    @Override
+    public void swap(int indexA, int indexB) {
+        int t = offsets[indexA];
+        offsets[indexA] = offsets[indexB];
+        offsets[indexB] = t;
+
+        t = capacities[indexA];
+        capacities[indexA] = capacities[indexB];
+        capacities[indexB] = t;
+
+        t = sizes[indexA];
+        sizes[indexA] = sizes[indexB];
+        sizes[indexB] = t;
+    }
+
+    @Override
+    public void setDefaultValue(int index) {
+        // keep the table so the component can reuse it, but clear its elements
+        int offset = offsets[index];
+        int end = offset + capacities[index];
+        for (int i = offset; i < end; i++) {
+            occupied[i >>> 6] &= ~(1L << i);
+        }
+        sizes[index] = 0;
+    }
+
+    @Override
+    public void clone(IntSetProperty src, int srcIndex, int dstIndex) {
+        if (src.cloneValue && cloneValue) {
+            copyValue(src, srcIndex, dstIndex);
+        } else {
+            setDefaultValue(dstIndex);
+        }
+    }
+
+    @Override
+    public void copy(IntSetProperty src, int count) {
+        for (int i = 0; i < count; i++) {
+            copyValue(src, i, i);
+        }
+    }
+
+    private void copyValue(IntSetProperty src, int srcIndex, int dstIndex) {
+        if (src == this && srcIndex == dstIndex) {
+            return;
+        }
+        setDefaultValue(dstIndex);
+        ensureCapacity(dstIndex, src.sizes[srcIndex]);
+
+        // read the source location after the destination may have caused a repack
+        int offset = src.offsets[srcIndex];
+        int end = offset + src.capacities[srcIndex];
+        int dstOffset = offsets[dstIndex];
+        int dstMask = capacities[dstIndex] - 1;
+        for (int i = offset; i < end; i++) {
+            if (src.isOccupied(i)) {
+                insert(dstOffset, dstMask, src.elements[i]);
+            }
+        }
+        sizes[dstIndex] = src.sizes[srcIndex];
+    }
+
+    @Override
+    public void write(ColumnWriter out, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            writeSet(out, i);
+        }
+    }
+
+    @Override
+    public void read(ColumnReader in, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            readSet(in, i);
+        }
+    }
+
+    @Override
+    public void write(ColumnWriter out, int[] indices, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            writeSet(out, indices[i]);
+        }
+    }
+
+    @Override
+    public void read(ColumnReader in, int[] indices, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            readSet(in, indices[i]);
+        }
+    }
+
+    /*
+     * Write the size of the component's set followed by its elements in table order.
+     */
+    private void writeSet(ColumnWriter out, int index) throws IOException {
+        out.writeInt(sizes[index]);
+        int offset = offsets[index];
+        int end = offset + capacities[index];
+        for (int i = offset; i < end; i++) {
+            if (isOccupied(i)) {
+                out.writeInt(elements[i]);
+            }
+        }
+    }
+
+    private void readSet(ColumnReader in, int index) throws IOException {
+        int size = in.readInt();
+        if (size < 0) {
+            throw new IOException("Invalid set size: " + size);
+        }
+        setDefaultValue(index);
+        ensureCapacity(index, size);
+        int offset = offsets[index];
+        int mask = capacities[index] - 1;
+        for (int i = 0; i < size; i++) {
+            insert(offset, mask, in.readInt());
+        }
+        sizes[index] = size;
+    }
+}
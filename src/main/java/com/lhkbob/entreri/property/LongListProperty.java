@@ -0,0 +1,393 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * LongListProperty
+ * ================
+ *
+ * LongListProperty is a Property implementation for storing variable-length lists of `long` values with value
+ * semantics. Unlike {@link com.lhkbob.entreri.property.ValueListProperty}, no List instance is allocated per
+ * component and no element is boxed. The elements of every component are stored in a single shared pool
+ * array, in the manner of a compressed sparse row layout: each component has an offset into the pool, the
+ * number of elements in its list, and the number of pool slots reserved for it.
+ *
+ * When a component's list outgrows its reserved slots, it is relocated to the end of the pool with double
+ * the capacity, so appends are amortized constant time. The abandoned slots are tracked and the pool is
+ * repacked in component order once they outnumber the slots in use. The default value is an empty list.
+ *
+ * It is not the default property for `long[]` so it must be selected with {@link ImplementedBy}. It supports
+ * the {@link DoNotClone} attribute.
+ *
+ * ## Supported method patterns
+ *
+ * LongListProperty supports the standard `get(int) -> long[]` and `set(int, long[]) -> void` methods used for
+ * the Java Bean patterns, where the getter returns a copy of the list. Additionally it provides `add(int,
+ * long) -> boolean`, `remove(int, long) -> boolean`, and `contains(int, long) -> boolean` that are used by
+ * the collections method patterns to manipulate the list without copying it.
+ *
+ * @author Michael Ludwig
+ */
+public final class LongListProperty
+        implements Property<LongListProperty>, Property.ValueSemantics, Property.Persistent,
+                   Property.Copyable<LongListProperty> {
+    private static final int MIN_LIST_CAPACITY = 4;
+
+    private final boolean cloneValue;
+
+    // per-component columns into the shared pool
+    private int[] offsets;
+    private int[] lengths;
+    private int[] capacities;
+
+    private long[] pool;
+    private int poolSize; // pool[poolSize:] is unreserved
+    private int garbage; // number of slots in pool[0:poolSize] no longer reserved by a component
+
+    /**
+     * Create an LongListProperty with a programmer friendly signature.
+     *
+     * @param cloneValue True if the value is cloned, or false if clones just use the default
+     */
+    public LongListProperty(boolean cloneValue) {
+        this.cloneValue = cloneValue;
+        offsets = new int[1];
+        lengths = new int[1];
+        capacities = new int[1];
+        pool = new long[MIN_LIST_CAPACITY];
+        poolSize = 0;
+        garbage = 0;
+    }
+
+    /**
+     * Create an LongListProperty using the constructor satisfying the default annotation conventions.
+     */
+    public LongListProperty(DoNotClone clonePolicy) {
+        this(clonePolicy == null);
+    }
+
+    /**
+     * Return the shared pool array that stores the elements of every component's list. The elements of a
+     * component start at {@link #getOffset(int)} and there are {@link #size(int)} of them. The returned array
+     * is replaced whenever the pool grows or is repacked, so it should not be held across modifications.
+     *
+     * @return The element pool
+     */
+    public long[] getIndexedData() {
+        return pool;
+    }
+
+    /**
+     * @param index The component index
+     * @return The offset into {@link #getIndexedData()} of the first element of the component's list
+     */
+    public int getOffset(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * @param index The component index
+     * @return The number of elements in the component's list
+     */
+    public int size(int index) {
+        return lengths[index];
+    }
+
+    /**
+     * Get a single element of the list stored for the given component index. The element must be less than
+     * the current size of the list, but this is not validated.
+     *
+     * @param index   The component index
+     * @param element The index of the element within the list
+     * @return The element value
+     */
+    public long get(int index, int element) {
+        return pool[offsets[index] + element];
+    }
+
+    /**
+     * Set a single element of the list stored for the given component index. The element must be less than
+     * the current size of the list, but this is not validated.
+     *
+     * @param index   The component index
+     * @param element The index of the element within the list
+     * @param value   The new element value
+     */
+    public void set(int index, int element, long value) {
+        pool[offsets[index] + element] = value;
+    }
+
+    /**
+     * @param index The component index
+     * @return A copy of the current list
+     */
+    public long[] get(int index) {
+        int offset = offsets[index];
+        return Arrays.copyOfRange(pool, offset, offset + lengths[index]);
+    }
+
+    /**
+     * Copy the given array into this property's list for the component.
+     *
+     * @param index The component index
+     * @param list  The new list values
+     * @throws NullPointerException if list is null
+     */
+    public void set(int index, long[] list) {
+        if (list == null) {
+            throw new NullPointerException("Value-semantics list cannot be null");
+        }
+        lengths[index] = 0;
+        ensureCapacity(index, list.length);
+        System.arraycopy(list, 0, pool, offsets[index], list.length);
+        lengths[index] = list.length;
+    }
+
+    /**
+     * Append `element` to the list at `index`.
+     *
+     * @param index   The component index
+     * @param element The element to append to the current list
+     * @return True, the list is always modified
+     */
+    public boolean add(int index, long element) {
+        int length = lengths[index];
+        ensureCapacity(index, length + 1);
+        pool[offsets[index] + length] = element;
+        lengths[index] = length + 1;
+        return true;
+    }
+
+    /**
+     * Remove the first occurrence of `element` from the list at `index`, shifting later elements down.
+     *
+     * @param index   The component index
+     * @param element The element to remove from the current list
+     * @return True if the element was removed
+     */
+    public boolean remove(int index, long element) {
+        int offset = offsets[index];
+        int length = lengths[index];
+        for (int i = 0; i < length; i++) {
+            if (pool[offset + i] == element) {
+                System.arraycopy(pool, offset + i + 1, pool, offset + i, length - i - 1);
+                lengths[index] = length - 1;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check if `element` is contained in the list at `index`.
+     *
+     * @param index   The component index
+     * @param element The element to check for
+     * @return True if the current list contains `element`
+     */
+    public boolean contains(int index, long element) {
+        int offset = offsets[index];
+        int end = offset + lengths[index];
+        for (int i = offset; i < end; i++) {
+            if (pool[i] == element) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Make sure the component has at least the required number of reserved slots, relocating its current
+     * elements to the end of the pool if it must grow.
+     */
+    private void ensureCapacity(int index, int required) {
+        int capacity = capacities[index];
+        if (required <= capacity) {
+            return;
+        }
+
+        int offset = offsets[index];
+        int newCapacity = Math.max(required, Math.max(MIN_LIST_CAPACITY, capacity << 1));
+        if (capacity > 0 && offset + capacity == poolSize) {
+            // the list is already at the end of the pool so it can grow in place
+            growPool(offset + newCapacity);
+            poolSize = offset + newCapacity;
+        } else {
+            if (garbage + capacity > poolSize - garbage - capacity) {
+                // most of the pool would be unreserved after relocating, so repack it first
+                repack();
+                offset = offsets[index];
+            }
+            garbage += capacity;
+
+            int newOffset = poolSize;
+            growPool(newOffset + newCapacity);
+            System.arraycopy(pool, offset, pool, newOffset, lengths[index]);
+            offsets[index] = newOffset;
+            poolSize = newOffset + newCapacity;
+        }
+        capacities[index] = newCapacity;
+    }
+
+    private void growPool(int required) {
+        if (required > pool.length) {
+            pool = Arrays.copyOf(pool, Math.max(required, pool.length << 1));
+        }
+    }
+
+    /*
+     * Copy every component's reserved slots into a new pool in component order, discarding garbage.
+     */
+    private void repack() {
+        long[] newPool = new long[Math.max(MIN_LIST_CAPACITY, (poolSize - garbage) << 1)];
+        int newSize = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            System.arraycopy(pool, offsets[i], newPool, newSize, lengths[i]);
+            offsets[i] = newSize;
+            newSize += capacities[i];
+        }
+        pool = newPool;
+        poolSize = newSize;
+        garbage = 0;
+    }
+
+    @Override
+    public void setCapacity(int size) {
+        for (int i = size; i < offsets.length; i++) {
+            // discarded components no longer reserve their slots
+            garbage += capacities[i];
+        }
+
+        offsets = Arrays.copyOf(offsets, size);
+        lengths = Arrays.copyOf(lengths, size);
+        capacities = Arrays.copyOf(capacities, size);
+
+        if (garbage > poolSize - garbage) {
+            repack();
+        }
+    }
+
+    @Override
+    public int getCapacity() {
+        return offsets.length;
+    }
+
+    @Override
+    public void swap(int indexA, int indexB) {
+        int t = offsets[indexA];
+        offsets[indexA] = offsets[indexB];
+        offsets[indexB] = t;
+
+        t = lengths[indexA];
+        lengths[indexA] = lengths[indexB];
+        lengths[indexB] = t;
+
+        t = capacities[indexA];
+        capacities[indexA] = capacities[indexB];
+        capacities[indexB] = t;
+    }
+
+    @Override
+    public void setDefaultValue(int index) {
+        // keep the reserved slots so the component can reuse them
+        lengths[index] = 0;
+    }
+
+    @Override
+    public void clone(LongListProperty src, int srcIndex, int dstIndex) {
+        if (src.cloneValue && cloneValue) {
+            copyValue(src, srcIndex, dstIndex);
+        } else {
+            setDefaultValue(dstIndex);
+        }
+    }
+
+    @Override
+    public void copy(LongListProperty src, int count) {
+        for (int i = 0; i < count; i++) {
+            copyValue(src, i, i);
+        }
+    }
+
+    private void copyValue(LongListProperty src, int srcIndex, int dstIndex) {
+        int length = src.lengths[srcIndex];
+        lengths[dstIndex] = 0;
+        ensureCapacity(dstIndex, length);
+        System.arraycopy(src.pool, src.offsets[srcIndex], pool, offsets[dstIndex], length);
+        lengths[dstIndex] = length;
+    }
+
+    @Override
+    public void write(ColumnWriter out, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            writeList(out, i);
+        }
+    }
+
+    @Override
+    public void read(ColumnReader in, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            readList(in, i);
+        }
+    }
+
+    @Override
+    public void write(ColumnWriter out, int[] indices, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            writeList(out, indices[i]);
+        }
+    }
+
+    @Override
+    public void read(ColumnReader in, int[] indices, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            readList(in, indices[i]);
+        }
+    }
+
+    /*
+     * Write the length of the component's list followed by its elements.
+     */
+    private void writeList(ColumnWriter out, int index) throws IOException {
+        out.writeInt(lengths[index]);
+        out.writeLongs(pool, offsets[index], lengths[index]);
+    }
+
+    private void readList(ColumnReader in, int index) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Invalid list length: " + length);
+        }
+        lengths[index] = 0;
+        ensureCapacity(index, length);
+        in.readLongs(pool, offsets[index], length);
+        lengths[index] = length;
+    }
+}
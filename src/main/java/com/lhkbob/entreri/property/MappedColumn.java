@@ -0,0 +1,171 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * MappedColumn
+ * ============
+ *
+ * MappedColumn is the storage shared by the mapped property implementations. It holds fixed-size elements in
+ * a little-endian byte buffer that is either on the heap or, after {@link #map(java.io.File)}, a
+ * memory-mapped region of a file. The mapped region grows by remapping a larger region of the file, and is
+ * never shrunk so that values beyond the current capacity survive in the file.
+ *
+ * @author Michael Ludwig
+ */
+final class MappedColumn {
+    private final int elementSize;
+
+    private ByteBuffer buffer;
+    private int capacity;
+    private File file; // null until mapped
+
+    /**
+     * Create a heap column with a capacity of one element.
+     *
+     * @param elementSize The size of an element in bytes
+     */
+    MappedColumn(int elementSize) {
+        this.elementSize = elementSize;
+        buffer = ByteBuffer.allocate(elementSize).order(ByteOrder.LITTLE_ENDIAN);
+        capacity = 1;
+    }
+
+    /**
+     * @return The little-endian buffer holding the elements, which is replaced when the column grows
+     */
+    ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    boolean isMapped() {
+        return file != null;
+    }
+
+    void setCapacity(int size) {
+        int bytes = size * elementSize;
+        if (file != null) {
+            if (bytes > buffer.capacity()) {
+                try {
+                    buffer = mapRegion(file, bytes);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Unable to grow mapped file: " + file, e);
+                }
+            }
+        } else {
+            ByteBuffer grown = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer old = buffer.duplicate();
+            old.limit(Math.min(old.capacity(), bytes));
+            grown.put(old).clear();
+            buffer = grown;
+        }
+        capacity = size;
+    }
+
+    void map(File file) throws IOException {
+        if (this.file != null) {
+            throw new IllegalStateException("Column is already mapped to " + this.file);
+        }
+
+        boolean initialize = file.length() == 0L;
+        ByteBuffer mapped = mapRegion(file, Math.max(capacity * elementSize, (int) file.length()));
+        if (initialize) {
+            // the file is new, so it takes the current values
+            ByteBuffer old = buffer.duplicate();
+            old.clear();
+            mapped.put(old).clear();
+        }
+        buffer = mapped;
+        this.file = file;
+    }
+
+    void force() {
+        if (buffer instanceof MappedByteBuffer) {
+            ((MappedByteBuffer) buffer).force();
+        }
+    }
+
+    void write(ColumnWriter out, int count) throws IOException {
+        out.writeInt(file != null ? 1 : 0);
+        if (file == null) {
+            ByteBuffer data = buffer.duplicate();
+            data.position(0).limit(count * elementSize);
+            out.writeBytes(data);
+        }
+    }
+
+    void read(ColumnReader in, int count) throws IOException {
+        boolean mapped = in.readInt() != 0;
+        if (mapped) {
+            // the values were left in the column's file when the snapshot was written
+            if (file == null) {
+                throw new IOException("Values were written to a mapped file but the property is not mapped");
+            }
+        } else {
+            ByteBuffer data = buffer.duplicate();
+            data.position(0).limit(count * elementSize);
+            in.readBytes(data);
+        }
+    }
+
+    void write(ColumnWriter out, int[] indices, int count) throws IOException {
+        ByteBuffer data = buffer.duplicate();
+        for (int i = 0; i < count; i++) {
+            int offset = indices[i] * elementSize;
+            data.limit(offset + elementSize).position(offset);
+            out.writeBytes(data);
+        }
+    }
+
+    void read(ColumnReader in, int[] indices, int count) throws IOException {
+        ByteBuffer data = buffer.duplicate();
+        for (int i = 0; i < count; i++) {
+            int offset = indices[i] * elementSize;
+            data.limit(offset + elementSize).position(offset);
+            in.readBytes(data);
+        }
+    }
+
+    private static ByteBuffer mapRegion(File file, int bytes) throws IOException {
+        // the mapping remains valid after the channel is closed
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, bytes).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+}
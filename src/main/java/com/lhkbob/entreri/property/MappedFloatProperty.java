@@ -0,0 +1,189 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+
+/**
+ * MappedFloatProperty
+ * ===================
+ *
+ * MappedFloatProperty is an implementation of Property that stores a single float value with value semantics
+ * in a buffer that can be memory-mapped to a file. Until it is mapped the values are kept in a heap buffer,
+ * so it behaves like {@link FloatProperty} in an EntitySystem created without a directory. In a system
+ * created with {@link com.lhkbob.entreri.EntitySystem.Factory#create(java.io.File)} the values live in the
+ * property's file and survive a restart without being serialized. It is not the default property for `float`
+ * so it must be selected with {@link ImplementedBy}.
+ *
+ * It supports the {@link DefaultFloat} and {@link DoNotClone} attributes. Values will not be cloned if
+ * either the source or destination property specify not to clone the value.
+ *
+ * ## Supported method patterns
+ *
+ * MappedFloatProperty defines the `get(int) -> float` and `set(int, float) -> void` methods that can be used
+ * by a component's Java Bean getters and setters of type `float`.
+ *
+ * @author Michael Ludwig
+ */
+public final class MappedFloatProperty
+        implements Property<MappedFloatProperty>, Property.ValueSemantics, Property.Persistent,
+                   Property.Mapped, Property.Copyable<MappedFloatProperty> {
+    private final float defaultValue;
+    private final boolean cloneValue;
+    private final MappedColumn column;
+    private FloatBuffer data;
+
+    /**
+     * Create a MappedFloatProperty with a programmer friendly signature.
+     *
+     * @param defaultValue The default float value when components are initialized
+     * @param cloneValue   True if the value is cloned, or false if clones just use the default
+     */
+    public MappedFloatProperty(float defaultValue, boolean cloneValue) {
+        this.defaultValue = defaultValue;
+        this.cloneValue = cloneValue;
+        column = new MappedColumn(4);
+        data = column.getBuffer().asFloatBuffer();
+    }
+
+    /**
+     * Create a MappedFloatProperty using the constructor satisfying the default annotation conventions.
+     */
+    public MappedFloatProperty(DefaultFloat dflt, DoNotClone clonePolicy) {
+        this((dflt != null ? dflt.value() : 0.0f), clonePolicy == null);
+    }
+
+    /**
+     * Return the buffer holding the values of this property, indexed by component index. The buffer may be
+     * longer than necessary for the number of components in the system, and it is replaced whenever the
+     * capacity grows so it should not be held across modifications.
+     *
+     * @return The float data for all components
+     */
+    public FloatBuffer getIndexedData() {
+        return data;
+    }
+
+    /**
+     * Get the value stored in this property for the given component index.
+     *
+     * @param componentIndex The component's index
+     * @return The value for the given component
+     * @throws IndexOutOfBoundsException if the componentIndex is invalid
+     */
+    public float get(int componentIndex) {
+        return data.get(componentIndex);
+    }
+
+    /**
+     * Store `val` in this property for the given component index.
+     *
+     * @param componentIndex The index of the component being modified
+     * @param val            The value to store
+     * @throws IndexOutOfBoundsException if the componentIndex is invalid
+     */
+    public void set(int componentIndex, float val) {
+        data.put(componentIndex, val);
+    }
+
+    @Override
+    public void map(File file) throws IOException {
+        column.map(file);
+        data = column.getBuffer().asFloatBuffer();
+    }
+
+    @Override
+    public boolean isMapped() {
+        return column.isMapped();
+    }
+
+    @Override
+    public void force() {
+        column.force();
+    }
+
+    @Override
+    public void setDefaultValue(int index) {
+        set(index, defaultValue);
+    }
+
+    @Override
+    public void clone(MappedFloatProperty src, int srcIndex, int dstIndex) {
+        if (!src.cloneValue || !cloneValue) {
+            setDefaultValue(dstIndex);
+        } else {
+            set(dstIndex, src.get(srcIndex));
+        }
+    }
+
+    @Override
+    public void copy(MappedFloatProperty src, int count) {
+        for (int i = 0; i < count; i++) {
+            set(i, src.get(i));
+        }
+    }
+
+    @Override
+    public void swap(int a, int b) {
+        float t = data.get(a);
+        data.put(a, data.get(b));
+        data.put(b, t);
+    }
+
+    @Override
+    public int getCapacity() {
+        return column.getCapacity();
+    }
+
+    @Override
+    public void setCapacity(int size) {
+        column.setCapacity(size);
+        data = column.getBuffer().asFloatBuffer();
+    }
+
+    @Override
+    public void write(ColumnWriter out, int count) throws IOException {
+        column.write(out, count);
+    }
+
+    @Override
+    public void read(ColumnReader in, int count) throws IOException {
+        column.read(in, count);
+    }
+
+    @Override
+    public void write(ColumnWriter out, int[] indices, int count) throws IOException {
+        column.write(out, indices, count);
+    }
+
+    @Override
+    public void read(ColumnReader in, int[] indices, int count) throws IOException {
+        column.read(in, indices, count);
+    }
+}
@@ -55,7 +55,8 @@ import java.util.Arrays;
  * @author Michael Ludwig
  */
 public final class ObjectProperty<T>
-        implements Property<ObjectProperty<T>>, Property.ReferenceSemantics, Property.Generic<T> {
+        implements Property<ObjectProperty<T>>, Property.ReferenceSemantics, Property.Generic<T>,
+                   Property.Copyable<ObjectProperty<T>> {
     private final boolean cloneValue;
     private T[] data;
 
@@ -126,6 +127,18 @@ public final class ObjectProperty<T>
         }
     }
 
+    /**
+     * Copy the references of `src` into this property. The referenced objects are shared, so mutating an
+     * object through either property is visible to both.
+     *
+     * @param src   The property to copy from
+     * @param count The number of component indices to copy
+     */
+    @Override
+    public void copy(ObjectProperty<T> src, int count) {
+        System.arraycopy(src.data, 0, data, 0, count);
+    }
+
     @Override
     public void swap(int a, int b) {
         T t = data[a];
@@ -0,0 +1,287 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * PackedBooleanProperty
+ * =====================
+ *
+ * PackedBooleanProperty is an alternative to {@link BooleanProperty} that packs its values into a bitset,
+ * storing 64 components per `long` instead of a byte per component. It stores a single boolean with value
+ * semantics and supports the {@link DefaultBoolean} and {@link DoNotClone} attributes exactly like
+ * BooleanProperty. It is selected for a component's property by annotating it with
+ * `@ImplementedBy(PackedBooleanProperty.class)`, and is most valuable for components declaring many flags.
+ *
+ * Beyond single value access, the packed representation allows bulk queries and updates that operate on 64
+ * components at a time: {@link #count()}, {@link #nextSetIndex(int)}, {@link #and(PackedBooleanProperty)},
+ * {@link #or(PackedBooleanProperty)}, and {@link #andNot(PackedBooleanProperty)}. Bulk operations are only
+ * meaningful between properties of the same component type, since they combine values by component index.
+ *
+ * ## Supported method patterns
+ *
+ * PackedBooleanProperty defines the `get(int) -> boolean` and `set(int, boolean) -> void` methods that can be
+ * used by a component's Java Bean getters and setters of type `boolean`.
+ *
+ * @author Michael Ludwig
+ */
+public final class PackedBooleanProperty
+        implements Property<PackedBooleanProperty>, Property.ValueSemantics, Property.Persistent,
+                   Property.Copyable<PackedBooleanProperty> {
+    private final boolean defaultValue;
+    private final boolean cloneValue;
+    private long[] data;
+    private int capacity;
+
+    /**
+     * Create a PackedBooleanProperty with a programmer friendly signature.
+     *
+     * @param defaultValue The default boolean value when components are initialized
+     * @param cloneValue   True if the value is cloned, or false if clones just use the default
+     */
+    public PackedBooleanProperty(boolean defaultValue, boolean cloneValue) {
+        this.defaultValue = defaultValue;
+        this.cloneValue = cloneValue;
+        data = new long[1];
+        capacity = 1;
+    }
+
+    /**
+     * Create a PackedBooleanProperty using the constructor satisfying the default annotation conventions.
+     */
+    public PackedBooleanProperty(DefaultBoolean dflt, DoNotClone clonePolicy) {
+        this((dflt != null && dflt.value()), clonePolicy == null);
+    }
+
+    /**
+     * Return the backing long array of this property. The value for a component index `i` is stored in bit
+     * `i % 64` of the word at `i / 64`. The array may be longer than necessary for the number of components in
+     * the system.
+     *
+     * @return The packed bits for all components of the property
+     */
+    public long[] getIndexedData() {
+        return data;
+    }
+
+    /**
+     * Get the value stored in this property for the given component index.
+     *
+     * @param componentIndex The component's index
+     * @return The value for the given component
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     */
+    public boolean get(int componentIndex) {
+        return (data[componentIndex >> 6] & (1L << componentIndex)) != 0L;
+    }
+
+    /**
+     * Store `val` in this property for the given component index.
+     *
+     * @param componentIndex The index of the component being modified
+     * @param val            The value to store
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     */
+    public void set(int componentIndex, boolean val) {
+        if (val) {
+            data[componentIndex >> 6] |= (1L << componentIndex);
+        } else {
+            data[componentIndex >> 6] &= ~(1L << componentIndex);
+        }
+    }
+
+    /**
+     * Set the value of every component index to false.
+     */
+    public void clear() {
+        Arrays.fill(data, 0L);
+    }
+
+    /**
+     * Count the number of component indices, excluding the reserved 0th index, whose value is true. Note
+     * that this includes unused indices whose default value may be true.
+     *
+     * @return The number of true values in the property
+     */
+    public int count() {
+        int count = 0;
+        for (int i = 0; i < data.length; i++) {
+            count += Long.bitCount(data[i]);
+        }
+        // exclude the 0th index, which does not belong to a live component
+        return (data[0] & 1L) != 0L ? count - 1 : count;
+    }
+
+    /**
+     * Get the smallest component index greater than or equal to `componentIndex` whose value is true.
+     *
+     * @param componentIndex The first component index to consider
+     * @return The next component index with a true value, or -1 if there are none
+     */
+    public int nextSetIndex(int componentIndex) {
+        int word = componentIndex >> 6;
+        if (word >= data.length) {
+            return -1;
+        }
+
+        long bits = data[word] & (-1L << componentIndex);
+        while (bits == 0L) {
+            if (++word == data.length) {
+                return -1;
+            }
+            bits = data[word];
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    /**
+     * Update every value of this property to be the logical and of its current value and the value of the
+     * same component index in `other`.
+     *
+     * @param other The other property, which should belong to the same component type
+     * @throws NullPointerException if other is null
+     */
+    public void and(PackedBooleanProperty other) {
+        int shared = Math.min(data.length, other.data.length);
+        for (int i = 0; i < shared; i++) {
+            data[i] &= other.data[i];
+        }
+        Arrays.fill(data, shared, data.length, 0L);
+    }
+
+    /**
+     * Update every value of this property to be the logical or of its current value and the value of the
+     * same component index in `other`.
+     *
+     * @param other The other property, which should belong to the same component type
+     * @throws NullPointerException if other is null
+     */
+    public void or(PackedBooleanProperty other) {
+        int shared = Math.min(data.length, other.data.length);
+        for (int i = 0; i < shared; i++) {
+            data[i] |= other.data[i];
+        }
+        clearUnusedBits();
+    }
+
+    /**
+     * Update every value of this property to be false where the value of the same component index in `other`
+     * is true.
+     *
+     * @param other The other property, which should belong to the same component type
+     * @throws NullPointerException if other is null
+     */
+    public void andNot(PackedBooleanProperty other) {
+        int shared = Math.min(data.length, other.data.length);
+        for (int i = 0; i < shared; i++) {
+            data[i] &= ~other.data[i];
+        }
+    }
+
+    @Override
+    public void setDefaultValue(int index) {
+        set(index, defaultValue);
+    }
+
+    @Override
+    public void clone(PackedBooleanProperty src, int srcIndex, int dstIndex) {
+        if (!src.cloneValue || !cloneValue) {
+            setDefaultValue(dstIndex);
+        } else {
+            set(dstIndex, src.get(srcIndex));
+        }
+    }
+
+    @Override
+    public void copy(PackedBooleanProperty src, int count) {
+        // whole words are copied directly, and the bits of a partial last word one at a time
+        int words = count >> 6;
+        System.arraycopy(src.data, 0, data, 0, words);
+        for (int i = words << 6; i < count; i++) {
+            set(i, src.get(i));
+        }
+    }
+
+    @Override
+    public void swap(int a, int b) {
+        boolean t = get(a);
+        set(a, get(b));
+        set(b, t);
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public void setCapacity(int size) {
+        data = Arrays.copyOf(data, (size + 63) >> 6);
+        capacity = size;
+        clearUnusedBits();
+    }
+
+    // keep bits at or beyond the capacity cleared so count() and the bulk operations ignore them
+    private void clearUnusedBits() {
+        int tail = capacity & 63;
+        if (tail != 0) {
+            data[data.length - 1] &= (1L << tail) - 1;
+        }
+    }
+
+    @Override
+    public void write(ColumnWriter out, int count) throws IOException {
+        out.writeLongs(data, 0, (count + 63) >> 6);
+    }
+
+    @Override
+    public void read(ColumnReader in, int count) throws IOException {
+        int words = (count + 63) >> 6;
+        in.readLongs(data, 0, words);
+        // the last word may hold bits beyond count that were not meant to be read
+        int tail = count & 63;
+        if (tail != 0) {
+            data[words - 1] &= (1L << tail) - 1;
+        }
+    }
+
+    @Override
+    public void write(ColumnWriter out, int[] indices, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.writeByte(get(indices[i]) ? (byte) 1 : (byte) 0);
+        }
+    }
+
+    @Override
+    public void read(ColumnReader in, int[] indices, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            set(indices[i], in.readByte() != 0);
+        }
+    }
+}
@@ -26,6 +26,12 @@
  */
 package com.lhkbob.entreri.property;
 
+import com.lhkbob.entreri.Entity;
+import com.lhkbob.entreri.EntitySystem;
+
+import java.io.File;
+import java.io.IOException;
+
 /**
  * Property
  * ========
@@ -241,6 +247,238 @@ public interface Property<T extends Property<T>> {
     public static interface Generic<P> {
     }
 
+    /**
+     * DoubleBuffered
+     * ==============
+     *
+     * DoubleBuffered is an interface that a Property subclass can implement when it keeps two copies of its
+     * data: a front buffer of values committed at the end of the last frame that its getters read, and a back
+     * buffer that its setters write during the current frame. {@link
+     * com.lhkbob.entreri.EntitySystem#swapBuffers()} invokes {@link #swapBuffers()} on every double-buffered
+     * property of the system at a frame boundary.
+     *
+     * @author Michael Ludwig
+     * @see com.lhkbob.entreri.property.BufferedFloatProperty
+     */
+    public static interface DoubleBuffered {
+        /**
+         * Publish the values written to the back buffer so that they are visible to reads from the front
+         * buffer. The back buffer retains its values so that components that are not written in the next
+         * frame keep their state.
+         *
+         * This is for internal use *only*, and should not be called outside the management of components.
+         */
+        public void swapBuffers();
+    }
+
+    /**
+     * Persistent
+     * ==========
+     *
+     * Persistent is an interface that a Property subclass can implement when its values can be written as
+     * columns of primitive data and restored without knowledge of any other object. {@link
+     * com.lhkbob.entreri.EntitySystem#save(java.nio.channels.WritableByteChannel)} requires every declared
+     * property of every component type in the system to be persistent. A property should write fixed-size
+     * blocks with the bulk methods of {@link ColumnWriter} so that saving and loading remain simple array
+     * copies.
+     *
+     * @author Michael Ludwig
+     * @see com.lhkbob.entreri.property.ColumnWriter
+     * @see com.lhkbob.entreri.property.ColumnReader
+     */
+    public static interface Persistent {
+        /**
+         * Write the values of the components with indices from 0 to `count - 1`.
+         *
+         * This is for internal use *only*, and should not be called outside the management of components.
+         *
+         * @param out   The writer to write the values to
+         * @param count The number of component indices to write, at most the capacity
+         * @throws IOException if the values could not be written
+         */
+        public void write(ColumnWriter out, int count) throws IOException;
+
+        /**
+         * Read the values of the components with indices from 0 to `count - 1` that were written by {@link
+         * #write(ColumnWriter, int)} of a property with the same configuration. The capacity of the property is
+         * at least `count` when this is invoked.
+         *
+         * This is for internal use *only*, and should not be called outside the management of components.
+         *
+         * @param in    The reader to read the values from
+         * @param count The number of component indices to read
+         * @throws IOException if the values could not be read or were written by an incompatible
+         *                             property
+         */
+        public void read(ColumnReader in, int count) throws IOException;
+
+        /**
+         * Write the values of the `count` components whose indices are the first `count` elements of
+         * `indices`, in that order. Unlike {@link #write(ColumnWriter, int)}, no description of the
+         * property's configuration is written.
+         *
+         * This is for internal use *only*, and should not be called outside the management of components.
+         *
+         * @param out     The writer to write the values to
+         * @param indices The component indices to write
+         * @param count   The number of component indices to write
+         * @throws IOException if the values could not be written
+         */
+        public void write(ColumnWriter out, int[] indices, int count) throws IOException;
+
+        /**
+         * Read values written by {@link #write(ColumnWriter, int[], int)} of a property with the same
+         * configuration into the `count` components whose indices are the first `count` elements of
+         * `indices`.
+         *
+         * This is for internal use *only*, and should not be called outside the management of components.
+         *
+         * @param in      The reader to read the values from
+         * @param indices The component indices to read
+         * @param count   The number of component indices to read
+         * @throws IOException if the values could not be read
+         */
+        public void read(ColumnReader in, int[] indices, int count) throws IOException;
+    }
+
+    /**
+     * Copyable
+     * ========
+     *
+     * Copyable is an interface that a Property subclass can implement when it can copy all of the values of
+     * another property of the same configuration at once. {@link com.lhkbob.entreri.EntitySystem#fork()}
+     * uses it to copy every column of a component type without regard to the {@link DoNotClone} policy,
+     * which only applies to templates. Properties that do not implement it are forked one component at a
+     * time with {@link Property#clone(Property, int, int)}, and so lose the values of components that are
+     * not cloned.
+     *
+     * Values are copied with the same semantics as the property's accessors. A property with reference
+     * semantics shares its referenced objects with the source, while a property with value semantics holds
+     * its own copies.
+     *
+     * @param <T> The type of property, which must be the implementing type
+     * @author Michael Ludwig
+     */
+    public static interface Copyable<T extends Property<T>> {
+        /**
+         * Replace the values of the components with indices from 0 to `count - 1` with the values of `src`.
+         * The capacity of both properties is at least `count` when this is invoked.
+         *
+         * This is for internal use *only*, and should not be called outside the management of components.
+         *
+         * @param src   The property to copy, which is never this property
+         * @param count The number of component indices to copy
+         */
+        public void copy(T src, int count);
+    }
+
+    /**
+     * Mapped
+     * ======
+     *
+     * Mapped is an interface that a Property subclass can implement when it can keep its values in a
+     * memory-mapped file instead of the Java heap. A {@link com.lhkbob.entreri.EntitySystem} created with
+     * {@link com.lhkbob.entreri.EntitySystem.Factory#create(java.io.File)} maps every such declared property
+     * to its own file. When the file already holds values, such as after a restart, the property adopts them
+     * and the operating system pages them in lazily as components are accessed.
+     *
+     * A mapped property is also {@link com.lhkbob.entreri.property.Property.Persistent}, but writes no data
+     * to a snapshot since its file holds the values. Instead {@link #force()} is invoked when the snapshot
+     * is saved, so that the snapshot and the files form a consistent checkpoint.
+     *
+     * @author Michael Ludwig
+     * @see com.lhkbob.entreri.property.MappedFloatProperty
+     */
+    public static interface Mapped {
+        /**
+         * Move the values of this property into the given file, which is grown by remapping as the capacity
+         * increases. If the file is empty its contents are initialized from the current values, otherwise the
+         * current values are replaced by the file's contents.
+         *
+         * This is for internal use *only*, and should not be called outside the management of components.
+         *
+         * @param file The file to map
+         * @throws IOException           if the file could not be mapped
+         * @throws IllegalStateException if the property is already mapped
+         */
+        public void map(File file) throws IOException;
+
+        /**
+         * @return True if the property's values are stored in a memory-mapped file
+         */
+        public boolean isMapped();
+
+        /**
+         * Write any modified values of a mapped property to its file. This does nothing if the property is
+         * not mapped.
+         */
+        public void force();
+    }
+
+    /**
+     * EntityReferences
+     * ================
+     *
+     * EntityReferences is an interface that a Property subclass can implement when it stores references to
+     * entities of its system by entity index instead of by Entity instance. The system attaches an {@link
+     * com.lhkbob.entreri.property.Property.EntityIndex} to the property when it is added to a component data
+     * store, and remaps the stored indices whenever {@link com.lhkbob.entreri.EntitySystem#compact()}
+     * moves entities.
+     *
+     * @author Michael Ludwig
+     * @see com.lhkbob.entreri.property.EntityReferenceProperty
+     */
+    public static interface EntityReferences {
+        /**
+         * Attach the index of the entity system whose entities this property references.
+         *
+         * This is for internal use *only*, and should not be called outside the management of components.
+         *
+         * @param entities The entity index of the owning system
+         * @throws IllegalStateException if the property is already attached to a different system
+         */
+        public void attach(EntityIndex entities);
+
+        /**
+         * Update every stored entity index after the system has been compacted. Removed entities map to 0.
+         *
+         * This is for internal use *only*, and should not be called outside the management of components.
+         *
+         * @param entityOldToNewMap A map from old entity index to new entity index
+         */
+        public void remap(int[] entityOldToNewMap);
+    }
+
+    /**
+     * EntityIndex
+     * ===========
+     *
+     * EntityIndex is the view of an entity system's entity array that is handed to {@link
+     * com.lhkbob.entreri.property.Property.EntityReferences} properties. Index 0 never refers to an entity,
+     * so it can be stored as a null reference.
+     *
+     * @author Michael Ludwig
+     */
+    public static interface EntityIndex {
+        /**
+         * @return The entity system being indexed
+         */
+        public EntitySystem getEntitySystem();
+
+        /**
+         * @param index The entity index
+         * @return The entity currently stored at the index, or null if it was removed
+         */
+        public Entity getEntity(int index);
+
+        /**
+         * @param entity An entity of the indexed system
+         * @return The current index of the entity, or 0 if it has been removed
+         * @throws IllegalArgumentException if the entity belongs to a different system
+         */
+        public int getIndex(Entity entity);
+    }
+
     /**
      * Resize the internal storage to support indexed lookups from 0 to `size - 1`.  If `size` is less than
      * the current capacity, all previous values with an index less than `size` must be preserved, and the
@@ -0,0 +1,359 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import com.lhkbob.entreri.IllegalComponentDefinitionException;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * QuantizedDoubleProperty
+ * ======================
+ *
+ * QuantizedDoubleProperty is an implementation of Property that stores a `double` per component as a
+ * fixed-point value within a bounded range, with value semantics. The range is declared by the {@link Within}
+ * attribute, which must specify both a minimum and maximum, and is divided into `2^bits - 1` equal steps
+ * where the number of bits is declared by the {@link Quantized} attribute. With 8 or fewer bits values are
+ * packed into a `byte[]`, otherwise into a `short[]`, which is an 8x or 4x reduction over {@link
+ * DoubleProperty}. This is well suited to values like health, angles, or normalized quantities that have a
+ * known range and do not need full floating point precision.
+ *
+ * Values are rounded to the nearest step, so a value read back differs from the value assigned by at most
+ * half of {@link #getStep()}. The minimum and maximum of the range are represented exactly. Values outside of
+ * the range are clamped, although the validation generated for {@link Within} normally rejects them first.
+ * It is not the default property for `double` so it must be selected with {@link ImplementedBy}.
+ *
+ * It supports the {@link DefaultDouble} and {@link DoNotClone} attributes. Values will not be cloned if
+ * either the source or destination property specify not to clone the value.
+ *
+ * ## Supported method patterns
+ *
+ * QuantizedDoubleProperty defines the `get(int) -> double` and `set(int, double) -> void` methods that can be
+ * used by a component's Java Bean getters and setters of type `double`.
+ *
+ * @author Michael Ludwig
+ */
+public final class QuantizedDoubleProperty
+        implements Property<QuantizedDoubleProperty>, Property.ValueSemantics, Property.Persistent,
+                   Property.Copyable<QuantizedDoubleProperty> {
+    private final double min;
+    private final double max;
+    private final int bits;
+    private final int levels;
+    private final double step;
+    private final double scale;
+
+    private final int defaultValue; // quantized
+    private final boolean cloneValue;
+
+    // exactly one of these is non-null, depending on the number of bits
+    private byte[] byteData;
+    private short[] shortData;
+
+    /**
+     * Create a QuantizedDoubleProperty with a programmer friendly signature.
+     *
+     * @param min          The minimum value of the range, inclusive
+     * @param max          The maximum value of the range, inclusive
+     * @param bits         The number of bits used to store each value, from 1 to 16
+     * @param defaultValue The default value, clamped to the range
+     * @param cloneValue   True if the value is cloned, or false if clones just use the default
+     * @throws IllegalArgumentException if the range is not finite, min is not less than max, or bits is
+     *                                  invalid
+     */
+    public QuantizedDoubleProperty(double min, double max, int bits, double defaultValue,
+                                   boolean cloneValue) {
+        if (Double.isInfinite(min) || Double.isNaN(min) || Double.isInfinite(max) || Double.isNaN(max)) {
+            throw new IllegalArgumentException("Range must be finite, not: [" + min + ", " + max +
+                                               "]");
+        }
+        if (min >= max) {
+            throw new IllegalArgumentException("Minimum must be less than maximum, not: [" + min + ", " +
+                                               max + "]");
+        }
+        if (bits < 1 || bits > 16) {
+            throw new IllegalArgumentException("Bits must be between 1 and 16, not: " + bits);
+        }
+        this.min = min;
+        this.max = max;
+        this.bits = bits;
+        levels = (1 << bits) - 1;
+        step = (max - min) / levels;
+        scale = levels / (max - min);
+
+        this.defaultValue = quantize(defaultValue);
+        this.cloneValue = cloneValue;
+
+        if (bits <= 8) {
+            byteData = new byte[1];
+        } else {
+            shortData = new short[1];
+        }
+        setDefaultValue(0);
+    }
+
+    /**
+     * Create a QuantizedDoubleProperty using the constructor satisfying the default annotation conventions.
+     *
+     * @throws IllegalComponentDefinitionException if the range is missing or unbounded, or the precision is
+     *                                             invalid
+     */
+    public QuantizedDoubleProperty(Within range, Quantized precision, DefaultDouble dflt,
+                                   DoNotClone clonePolicy) {
+        this(checkMin(range), range.max(), checkBits(precision),
+             (dflt != null ? dflt.value() : 0.0), clonePolicy == null);
+    }
+
+    private static double checkMin(Within range) {
+        if (range == null) {
+            throw new IllegalComponentDefinitionException("QuantizedDoubleProperty requires the @Within " +
+                                                          "attribute");
+        }
+        if (Double.isInfinite(range.min()) || Double.isInfinite(range.max()) || range.min() >= range.max()) {
+            throw new IllegalComponentDefinitionException("@Within must declare a bounded range for a " +
+                                                          "quantized property, not: [" + range.min() +
+                                                          ", " + range.max() + "]");
+        }
+        return range.min();
+    }
+
+    private static int checkBits(Quantized precision) {
+        int bits = (precision != null ? precision.bits() : 16);
+        if (bits < 1 || bits > 16) {
+            throw new IllegalComponentDefinitionException("@Quantized bits must be between 1 and 16, not: " +
+                                                          bits);
+        }
+        return bits;
+    }
+
+    private int quantize(double value) {
+        if (value <= min || Double.isNaN(value)) {
+            return 0;
+        } else if (value >= max) {
+            return levels;
+        } else {
+            return (int) Math.round((value - min) * scale);
+        }
+    }
+
+    /**
+     * @return The minimum value of the range
+     */
+    public double getMinimum() {
+        return min;
+    }
+
+    /**
+     * @return The maximum value of the range
+     */
+    public double getMaximum() {
+        return max;
+    }
+
+    /**
+     * @return The number of bits used to store each value
+     */
+    public int getBits() {
+        return bits;
+    }
+
+    /**
+     * @return The difference between two adjacent representable values
+     */
+    public double getStep() {
+        return step;
+    }
+
+    /**
+     * Return the backing byte array of this property, if it uses 8 or fewer bits. Each element holds an
+     * unsigned step count, so the value for a component is `getMinimum() + (data[index] & 0xff) *
+     * getStep()`.
+     *
+     * @return The quantized data, or null if values are stored in a short array
+     */
+    public byte[] getIndexedByteData() {
+        return byteData;
+    }
+
+    /**
+     * Return the backing short array of this property, if it uses more than 8 bits. Each element holds an
+     * unsigned step count, so the value for a component is `getMinimum() + (data[index] & 0xffff) *
+     * getStep()`.
+     *
+     * @return The quantized data, or null if values are stored in a byte array
+     */
+    public short[] getIndexedShortData() {
+        return shortData;
+    }
+
+    /**
+     * Get the number of steps above the minimum stored for the given component index.
+     *
+     * @param componentIndex The component's index
+     * @return The quantized value, from 0 to `2^getBits() - 1`
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     */
+    public int getQuantized(int componentIndex) {
+        return (byteData != null ? byteData[componentIndex] & 0xff : shortData[componentIndex] & 0xffff);
+    }
+
+    /**
+     * Get the value stored in this property for the given component index.
+     *
+     * @param componentIndex The component's index
+     * @return The nearest representable value to the value that was last assigned
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     */
+    public double get(int componentIndex) {
+        int q = getQuantized(componentIndex);
+        // return max exactly instead of accumulating rounding error from the step
+        return (q == levels ? max : min + q * step);
+    }
+
+    /**
+     * Store `val` in this property for the given component index, rounded to the nearest representable
+     * value.
+     *
+     * @param componentIndex The index of the component being modified
+     * @param val            The value to store, clamped to the range
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     */
+    public void set(int componentIndex, double val) {
+        setQuantized(componentIndex, quantize(val));
+    }
+
+    private void setQuantized(int componentIndex, int q) {
+        if (byteData != null) {
+            byteData[componentIndex] = (byte) q;
+        } else {
+            shortData[componentIndex] = (short) q;
+        }
+    }
+
+    @Override
+    public void setCapacity(int size) {
+        if (byteData != null) {
+            byteData = Arrays.copyOf(byteData, size);
+        } else {
+            shortData = Arrays.copyOf(shortData, size);
+        }
+    }
+
+    @Override
+    public int getCapacity() {
+        return (byteData != null ? byteData.length : shortData.length);
+    }
+
+    @Override
+    public void swap(int indexA, int indexB) {
+        int a = getQuantized(indexA);
+        setQuantized(indexA, getQuantized(indexB));
+        setQuantized(indexB, a);
+    }
+
+    @Override
+    public void setDefaultValue(int index) {
+        setQuantized(index, defaultValue);
+    }
+
+    @Override
+    public void clone(QuantizedDoubleProperty src, int srcIndex, int dstIndex) {
+        if (!src.cloneValue || !cloneValue) {
+            setDefaultValue(dstIndex);
+        } else if (src.min == min && src.max == max && src.bits == bits) {
+            // same quantization so the steps can be copied directly
+            setQuantized(dstIndex, src.getQuantized(srcIndex));
+        } else {
+            set(dstIndex, src.get(srcIndex));
+        }
+    }
+
+    @Override
+    public void copy(QuantizedDoubleProperty src, int count) {
+        if (byteData != null) {
+            System.arraycopy(src.byteData, 0, byteData, 0, count);
+        } else {
+            System.arraycopy(src.shortData, 0, shortData, 0, count);
+        }
+    }
+
+    @Override
+    public void write(ColumnWriter out, int count) throws IOException {
+        out.writeInt(bits);
+        out.writeLong(Double.doubleToLongBits(min));
+        out.writeLong(Double.doubleToLongBits(max));
+        if (byteData != null) {
+            out.writeBytes(byteData, 0, count);
+        } else {
+            out.writeShorts(shortData, 0, count);
+        }
+    }
+
+    @Override
+    public void read(ColumnReader in, int count) throws IOException {
+        int writtenBits = in.readInt();
+        double writtenMin = Double.longBitsToDouble(in.readLong());
+        double writtenMax = Double.longBitsToDouble(in.readLong());
+        if (writtenBits != bits || Double.compare(writtenMin, min) != 0 ||
+            Double.compare(writtenMax, max) != 0) {
+            throw new IOException("Expected " + bits + " bits within [" + min + ", " + max + "] but data has " +
+                                  writtenBits + " bits within [" + writtenMin + ", " + writtenMax + "]");
+        }
+        if (byteData != null) {
+            in.readBytes(byteData, 0, count);
+        } else {
+            in.readShorts(shortData, 0, count);
+        }
+    }
+
+    @Override
+    public void write(ColumnWriter out, int[] indices, int count) throws IOException {
+        if (byteData != null) {
+            for (int i = 0; i < count; i++) {
+                out.writeByte(byteData[indices[i]]);
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                out.writeShort(shortData[indices[i]]);
+            }
+        }
+    }
+
+    @Override
+    public void read(ColumnReader in, int[] indices, int count) throws IOException {
+        if (byteData != null) {
+            for (int i = 0; i < count; i++) {
+                byteData[indices[i]] = in.readByte();
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                shortData[indices[i]] = in.readShort();
+            }
+        }
+    }
+}
@@ -26,6 +26,7 @@
  */
 package com.lhkbob.entreri.property;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -55,7 +56,7 @@ import java.util.List;
  */
 public class ReferenceListProperty<T>
         implements Property<ReferenceListProperty<T>>, Property.ReferenceSemantics,
-                   Property.Generic<List<T>> {
+                   Property.Generic<List<T>>, Property.Copyable<ReferenceListProperty<T>> {
     private final boolean clone;
     private List<T>[] data;
 
@@ -174,4 +175,20 @@ public class ReferenceListProperty<T>
             setDefaultValue(dstIndex);
         }
     }
+
+    /**
+     * Copy the lists of `src` into this property. Each non-null list is copied into a new ArrayList so that
+     * adding to or removing from a list of one property does not modify the other, although the elements
+     * themselves are shared.
+     *
+     * @param src   The property to copy from
+     * @param count The number of component indices to copy
+     */
+    @Override
+    public void copy(ReferenceListProperty<T> src, int count) {
+        for (int i = 0; i < count; i++) {
+            List<T> list = src.get(i);
+            set(i, list == null ? null : new ArrayList<>(list));
+        }
+    }
 }
@@ -27,7 +27,10 @@
 package com.lhkbob.entreri.property;
 
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /**
  * ReferenceMapProperty
@@ -56,7 +59,7 @@ import java.util.Map;
  */
 public class ReferenceMapProperty<K, V>
         implements Property<ReferenceMapProperty<K, V>>, Property.ReferenceSemantics,
-                   Property.Generic<Map<K, V>> {
+                   Property.Generic<Map<K, V>>, Property.Copyable<ReferenceMapProperty<K, V>> {
     private final boolean clone;
     private Map<K, V>[] data;
 
@@ -189,4 +192,25 @@ public class ReferenceMapProperty<K, V>
             setDefaultValue(dstIndex);
         }
     }
+
+    /**
+     * Copy the maps of `src` into this property. Each non-null map is copied into a new TreeMap with the
+     * same comparator if it is sorted, or a new LinkedHashMap with the same iteration order otherwise, so
+     * that putting or removing a key in a map of one property does not modify the other. The keys and values
+     * themselves are shared.
+     *
+     * @param src   The property to copy from
+     * @param count The number of component indices to copy
+     */
+    @Override
+    public void copy(ReferenceMapProperty<K, V> src, int count) {
+        for (int i = 0; i < count; i++) {
+            Map<K, V> map = src.get(i);
+            if (map instanceof SortedMap) {
+                set(i, new TreeMap<>((SortedMap<K, V>) map));
+            } else {
+                set(i, map == null ? null : new LinkedHashMap<>(map));
+            }
+        }
+    }
 }
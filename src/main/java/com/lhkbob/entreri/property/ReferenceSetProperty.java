@@ -27,7 +27,10 @@
 package com.lhkbob.entreri.property;
 
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 /**
  * ReferenceSetProperty
@@ -54,7 +57,8 @@ import java.util.Set;
  * @author Michael Ludwig
  */
 public class ReferenceSetProperty<T>
-        implements Property<ReferenceSetProperty<T>>, Property.ReferenceSemantics, Property.Generic<Set<T>> {
+        implements Property<ReferenceSetProperty<T>>, Property.ReferenceSemantics, Property.Generic<Set<T>>,
+                   Property.Copyable<ReferenceSetProperty<T>> {
     private final boolean clone;
     private Set<T>[] data;
 
@@ -172,4 +176,25 @@ public class ReferenceSetProperty<T>
             setDefaultValue(dstIndex);
         }
     }
+
+    /**
+     * Copy the sets of `src` into this property. Each non-null set is copied into a new TreeSet with the
+     * same comparator if it is sorted, or a new LinkedHashSet with the same iteration order otherwise, so
+     * that adding to or removing from a set of one property does not modify the other. The elements
+     * themselves are shared.
+     *
+     * @param src   The property to copy from
+     * @param count The number of component indices to copy
+     */
+    @Override
+    public void copy(ReferenceSetProperty<T> src, int count) {
+        for (int i = 0; i < count; i++) {
+            Set<T> set = src.get(i);
+            if (set instanceof SortedSet) {
+                set(i, new TreeSet<>((SortedSet<T>) set));
+            } else {
+                set(i, set == null ? null : new LinkedHashSet<>(set));
+            }
+        }
+    }
 }
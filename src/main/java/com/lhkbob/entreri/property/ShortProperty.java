@@ -26,6 +26,7 @@
  */
 package com.lhkbob.entreri.property;
 
+import java.io.IOException;
 import java.util.Arrays;
 
 /**
@@ -44,7 +45,9 @@ import java.util.Arrays;
  *
  * @author Michael Ludwig
  */
-public final class ShortProperty implements Property<ShortProperty>, Property.ValueSemantics {
+public final class ShortProperty
+        implements Property<ShortProperty>, Property.ValueSemantics, Property.Persistent,
+                   Property.Copyable<ShortProperty> {
     private final short defaultValue;
     private final boolean cloneValue;
     private short[] data;
@@ -115,6 +118,11 @@ public final class ShortProperty implements Property<ShortProperty>, Property.Va
         }
     }
 
+    @Override
+    public void copy(ShortProperty src, int count) {
+        System.arraycopy(src.data, 0, data, 0, count);
+    }
+
     @Override
     public void swap(int a, int b) {
         short t = data[a];
@@ -131,4 +139,28 @@ public final class ShortProperty implements Property<ShortProperty>, Property.Va
     public void setCapacity(int size) {
         data = Arrays.copyOf(data, size);
     }
+
+    @Override
+    public void write(ColumnWriter out, int count) throws IOException {
+        out.writeShorts(data, 0, count);
+    }
+
+    @Override
+    public void read(ColumnReader in, int count) throws IOException {
+        in.readShorts(data, 0, count);
+    }
+
+    @Override
+    public void write(ColumnWriter out, int[] indices, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.writeShort(data[indices[i]]);
+        }
+    }
+
+    @Override
+    public void read(ColumnReader in, int[] indices, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            data[indices[i]] = in.readShort();
+        }
+    }
 }
@@ -47,6 +47,11 @@ import java.util.List;
  * allowed to have null references as elements. Value semantics are not enforced upon the elements, they
  * are stored and treated as references.
  *
+ * The backing list of a component is only created the first time it is modified, so growing the capacity
+ * of the property, resetting a component, or reading a component that never stored anything does not
+ * allocate. Until then the getter returns a shared empty list, and reading never modifies the property so it
+ * is safe to read from several threads at once.
+ *
  * ## Supported method patterns
  *
  * ValueListProperty supports the standard `get(int) -> List<T>` and `set(int, List<T>) -> void` methods
@@ -62,7 +67,8 @@ import java.util.List;
  * @author Michael Ludwig
  */
 public class ValueListProperty<T>
-        implements Property<ValueListProperty<T>>, Property.ValueSemantics, Property.Generic<List<T>> {
+        implements Property<ValueListProperty<T>>, Property.ValueSemantics, Property.Generic<List<T>>,
+                   Property.Copyable<ValueListProperty<T>> {
     private final Constructor<? extends List<T>> newListCtor;
     private final boolean clone;
     private List<T>[] data;
@@ -86,9 +92,6 @@ public class ValueListProperty<T>
         clone = cloneValue;
         data = new List[1];
         readOnlyData = new List[1];
-
-        // must initialize it so that the 0 index obeys value semantics
-        setDefaultValue(0);
     }
 
     /**
@@ -100,10 +103,12 @@ public class ValueListProperty<T>
 
     /**
      * @param index The component index
-     * @return The current List as a read-only reference (this mirrors any changes to the value)
+     * @return The current List as a read-only reference, which mirrors later changes to the value once the
+     * list has been modified, or a shared empty list if it never has been
      */
     public List<T> get(int index) {
-        return readOnlyData[index];
+        List<T> view = readOnlyData[index];
+        return (view != null ? view : Collections.<T>emptyList());
     }
 
     /**
@@ -116,8 +121,13 @@ public class ValueListProperty<T>
         if (list == null) {
             throw new NullPointerException("Value-semantics list cannot be null");
         }
-        data[index].clear();
-        data[index].addAll(list);
+        if (data[index] == null && list.isEmpty()) {
+            // an uncreated list is already empty
+            return;
+        }
+        List<T> value = getData(index);
+        value.clear();
+        value.addAll(list);
     }
 
     /**
@@ -129,7 +139,7 @@ public class ValueListProperty<T>
      * @return True if the list was modified (generally always true for lists)
      */
     public boolean add(int index, T element) {
-        return data[index].add(element);
+        return getData(index).add(element);
     }
 
     /**
@@ -141,7 +151,7 @@ public class ValueListProperty<T>
      * @return True if the element was removed
      */
     public boolean remove(int index, T element) {
-        return data[index].remove(element);
+        return data[index] != null && data[index].remove(element);
     }
 
     /**
@@ -153,20 +163,14 @@ public class ValueListProperty<T>
      * @return True if the current list contains `element`
      */
     public boolean contains(int index, T element) {
-        return data[index].contains(element);
+        return data[index] != null && data[index].contains(element);
     }
 
     @Override
     public void setCapacity(int size) {
-        int oldLength = data.length;
-
+        // new slots are left null and are created when first needed
         data = Arrays.copyOf(data, size);
         readOnlyData = Arrays.copyOf(readOnlyData, size);
-
-        // guarantee we have value semantics for new values
-        for (int i = oldLength; i < size; i++) {
-            setDefaultValue(i);
-        }
     }
 
     @Override
@@ -187,6 +191,16 @@ public class ValueListProperty<T>
 
     @Override
     public void setDefaultValue(int index) {
+        // an uncreated list is already empty
+        if (data[index] != null) {
+            data[index].clear();
+        }
+    }
+
+    /*
+     * Get the modifiable list for the component, creating it the first time it is needed.
+     */
+    private List<T> getData(int index) {
         if (data[index] == null) {
             // first time initialization for this slot
             try {
@@ -195,17 +209,27 @@ public class ValueListProperty<T>
                 throw new RuntimeException("Error creating default value for list property", e);
             }
             readOnlyData[index] = Collections.unmodifiableList(data[index]);
-        } else {
-            data[index].clear();
         }
+        return data[index];
     }
 
     @Override
     public void clone(ValueListProperty<T> src, int srcIndex, int dstIndex) {
-        if (src.clone && clone) {
-            set(dstIndex, src.get(srcIndex));
+        if (src.clone && clone && src.data[srcIndex] != null) {
+            set(dstIndex, src.data[srcIndex]);
         } else {
             setDefaultValue(dstIndex);
         }
     }
+
+    @Override
+    public void copy(ValueListProperty<T> src, int count) {
+        for (int i = 0; i < count; i++) {
+            if (src.data[i] != null) {
+                set(i, src.data[i]);
+            } else {
+                setDefaultValue(i);
+            }
+        }
+    }
 }
@@ -47,6 +47,11 @@ import java.util.Map;
  * allowed to have null references as keys and values. Value semantics are not enforced upon the elements,
  * they are stored and treated as references.
  *
+ * The backing map of a component is only created the first time it is modified, so growing the capacity
+ * of the property, resetting a component, or reading a component that never stored anything does not
+ * allocate. Until then the getter returns a shared empty map, and reading never modifies the property so it
+ * is safe to read from several threads at once.
+ *
  * ## Supported method patterns
  *
  * ValueMapProperty supports the standard `get(int) -> Map<T>` and `set(int, Map<T>) -> void` methods used
@@ -63,7 +68,8 @@ import java.util.Map;
  * @author Michael Ludwig
  */
 public class ValueMapProperty<K, V>
-        implements Property<ValueMapProperty<K, V>>, Property.ValueSemantics, Property.Generic<Map<K, V>> {
+        implements Property<ValueMapProperty<K, V>>, Property.ValueSemantics, Property.Generic<Map<K, V>>,
+                   Property.Copyable<ValueMapProperty<K, V>> {
     private final Constructor<? extends Map<K, V>> newMapCtor;
     private final boolean clone;
     private Map<K, V>[] data;
@@ -87,9 +93,6 @@ public class ValueMapProperty<K, V>
         clone = cloneValue;
         data = new Map[1];
         readOnlyData = new Map[1];
-
-        // must initialize it so that the 0 index obeys value semantics
-        setDefaultValue(0);
     }
 
     /**
@@ -101,10 +104,12 @@ public class ValueMapProperty<K, V>
 
     /**
      * @param index The component index
-     * @return The current Map as a read-only view (this mirrors any changes to the map)
+     * @return The current Map as a read-only reference, which mirrors later changes to the value once the
+     * map has been modified, or a shared empty map if it never has been
      */
     public Map<K, V> get(int index) {
-        return readOnlyData[index];
+        Map<K, V> view = readOnlyData[index];
+        return (view != null ? view : Collections.<K, V>emptyMap());
     }
 
     /**
@@ -117,8 +122,13 @@ public class ValueMapProperty<K, V>
         if (map == null) {
             throw new NullPointerException("Value-semantics map cannot be null");
         }
-        data[index].clear();
-        data[index].putAll(map);
+        if (data[index] == null && map.isEmpty()) {
+            // an uncreated map is already empty
+            return;
+        }
+        Map<K, V> value = getData(index);
+        value.clear();
+        value.putAll(map);
     }
 
     /**
@@ -131,7 +141,7 @@ public class ValueMapProperty<K, V>
      * @return The previous value for the key, or null
      */
     public V put(int index, K key, V value) {
-        return data[index].put(key, value);
+        return getData(index).put(key, value);
     }
 
     /**
@@ -143,7 +153,7 @@ public class ValueMapProperty<K, V>
      * @return The current map's value associated with the key
      */
     public V get(int index, K key) {
-        return data[index].get(key);
+        return data[index] == null ? null : data[index].get(key);
     }
 
     /**
@@ -155,7 +165,7 @@ public class ValueMapProperty<K, V>
      * @return The element that was removed
      */
     public V remove(int index, K key) {
-        return data[index].remove(key);
+        return data[index] == null ? null : data[index].remove(key);
     }
 
     /**
@@ -167,20 +177,14 @@ public class ValueMapProperty<K, V>
      * @return True if the current map contains the `key`
      */
     public boolean contains(int index, K key) {
-        return data[index].containsKey(key);
+        return data[index] != null && data[index].containsKey(key);
     }
 
     @Override
     public void setCapacity(int size) {
-        int oldLength = data.length;
-
+        // new slots are left null and are created when first needed
         data = Arrays.copyOf(data, size);
         readOnlyData = Arrays.copyOf(readOnlyData, size);
-
-        // guarantee we have value semantics for new values
-        for (int i = oldLength; i < size; i++) {
-            setDefaultValue(i);
-        }
     }
 
     @Override
@@ -201,6 +205,16 @@ public class ValueMapProperty<K, V>
 
     @Override
     public void setDefaultValue(int index) {
+        // an uncreated map is already empty
+        if (data[index] != null) {
+            data[index].clear();
+        }
+    }
+
+    /*
+     * Get the modifiable map for the component, creating it the first time it is needed.
+     */
+    private Map<K, V> getData(int index) {
         if (data[index] == null) {
             // first time initialization for this slot
             try {
@@ -209,17 +223,27 @@ public class ValueMapProperty<K, V>
                 throw new RuntimeException("Error creating default value for map property", e);
             }
             readOnlyData[index] = Collections.unmodifiableMap(data[index]);
-        } else {
-            data[index].clear();
         }
+        return data[index];
     }
 
     @Override
     public void clone(ValueMapProperty<K, V> src, int srcIndex, int dstIndex) {
-        if (src.clone && clone) {
-            set(dstIndex, src.get(srcIndex));
+        if (src.clone && clone && src.data[srcIndex] != null) {
+            set(dstIndex, src.data[srcIndex]);
         } else {
             setDefaultValue(dstIndex);
         }
     }
+
+    @Override
+    public void copy(ValueMapProperty<K, V> src, int count) {
+        for (int i = 0; i < count; i++) {
+            if (src.data[i] != null) {
+                set(i, src.data[i]);
+            } else {
+                setDefaultValue(i);
+            }
+        }
+    }
 }
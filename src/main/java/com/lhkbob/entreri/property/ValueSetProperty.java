@@ -46,6 +46,11 @@ import java.util.Set;
  * itself cannot store null sets as a value type, the sets it maintains are allowed to have null references as
  * elements. Value semantics are not enforced upon the elements, they are stored and treated as references.
  *
+ * The backing set of a component is only created the first time it is modified, so growing the capacity
+ * of the property, resetting a component, or reading a component that never stored anything does not
+ * allocate. Until then the getter returns a shared empty set, and reading never modifies the property so it
+ * is safe to read from several threads at once.
+ *
  * ## Supported method patterns
  *
  * ValueSetProperty supports the standard `get(int) -> Set<T>` and `set(int, Set<T>) -> void` methods used
@@ -61,7 +66,8 @@ import java.util.Set;
  * @author Michael Ludwig
  */
 public class ValueSetProperty<T>
-        implements Property<ValueSetProperty<T>>, Property.ValueSemantics, Property.Generic<Set<T>> {
+        implements Property<ValueSetProperty<T>>, Property.ValueSemantics, Property.Generic<Set<T>>,
+                   Property.Copyable<ValueSetProperty<T>> {
     private final Constructor<? extends Set<T>> newSetCtor;
     private final boolean clone;
     private Set<T>[] data;
@@ -85,9 +91,6 @@ public class ValueSetProperty<T>
         clone = cloneValue;
         data = new Set[1];
         readOnlyData = new Set[1];
-
-        // must initialize it so that the 0 index obeys value semantics
-        setDefaultValue(0);
     }
 
     /**
@@ -99,10 +102,12 @@ public class ValueSetProperty<T>
 
     /**
      * @param index The component index
-     * @return The current Set as a read-only reference (this mirrors any changes to the value)
+     * @return The current Set as a read-only reference, which mirrors later changes to the value once the
+     * set has been modified, or a shared empty set if it never has been
      */
     public Set<T> get(int index) {
-        return readOnlyData[index];
+        Set<T> view = readOnlyData[index];
+        return (view != null ? view : Collections.<T>emptySet());
     }
 
     /**
@@ -115,8 +120,13 @@ public class ValueSetProperty<T>
         if (set == null) {
             throw new NullPointerException("Value-semantics set cannot be null");
         }
-        data[index].clear();
-        data[index].addAll(set);
+        if (data[index] == null && set.isEmpty()) {
+            // an uncreated set is already empty
+            return;
+        }
+        Set<T> value = getData(index);
+        value.clear();
+        value.addAll(set);
     }
 
     /**
@@ -128,7 +138,7 @@ public class ValueSetProperty<T>
      * @return True if the set was modified (e.g. the set did not contain the element before)
      */
     public boolean add(int index, T element) {
-        return data[index].add(element);
+        return getData(index).add(element);
     }
 
     /**
@@ -140,7 +150,7 @@ public class ValueSetProperty<T>
      * @return True if the element was removed
      */
     public boolean remove(int index, T element) {
-        return data[index].remove(element);
+        return data[index] != null && data[index].remove(element);
     }
 
     /**
@@ -152,19 +162,14 @@ public class ValueSetProperty<T>
      * @return True if the current set contains `element`
      */
     public boolean contains(int index, T element) {
-        return data[index].contains(element);
+        return data[index] != null && data[index].contains(element);
     }
 
     @Override
     public void setCapacity(int size) {
-        int oldLength = data.length;
+        // new slots are left null and are created when first needed
         data = Arrays.copyOf(data, size);
         readOnlyData = Arrays.copyOf(readOnlyData, size);
-
-        // guarantee we have value semantics for new elements
-        for (int i = oldLength; i < size; i++) {
-            setDefaultValue(i);
-        }
     }
 
     @Override
@@ -185,6 +190,16 @@ public class ValueSetProperty<T>
 
     @Override
     public void setDefaultValue(int index) {
+        // an uncreated set is already empty
+        if (data[index] != null) {
+            data[index].clear();
+        }
+    }
+
+    /*
+     * Get the modifiable set for the component, creating it the first time it is needed.
+     */
+    private Set<T> getData(int index) {
         if (data[index] == null) {
             // first time initialization for this slot
             try {
@@ -193,17 +208,27 @@ public class ValueSetProperty<T>
                 throw new RuntimeException("Error creating default value for set property", e);
             }
             readOnlyData[index] = Collections.unmodifiableSet(data[index]);
-        } else {
-            data[index].clear();
         }
+        return data[index];
     }
 
     @Override
     public void clone(ValueSetProperty<T> src, int srcIndex, int dstIndex) {
-        if (src.clone && clone) {
-            set(dstIndex, src.get(srcIndex));
+        if (src.clone && clone && src.data[srcIndex] != null) {
+            set(dstIndex, src.data[srcIndex]);
         } else {
             setDefaultValue(dstIndex);
         }
     }
+
+    @Override
+    public void copy(ValueSetProperty<T> src, int count) {
+        for (int i = 0; i < count; i++) {
+            if (src.data[i] != null) {
+                set(i, src.data[i]);
+            } else {
+                setDefaultValue(i);
+            }
+        }
+    }
 }
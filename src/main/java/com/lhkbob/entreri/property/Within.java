@@ -43,6 +43,9 @@ import java.lang.annotation.*;
  * the range it declares is a contract on both the accessors and mutators of the property. Regardless of
  * where this attribute is applied for a property, any mutator method will verify the range is satisfied.
  *
+ * A bounded range is also used by {@link com.lhkbob.entreri.property.QuantizedFloatProperty} and {@link
+ * com.lhkbob.entreri.property.QuantizedDoubleProperty} to store values as fixed-point steps within the range.
+ *
  * @author Michael Ludwig
  */
 @Documented
@@ -28,9 +28,17 @@ package com.lhkbob.entreri.task;
 
 import com.lhkbob.entreri.Component;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 
 /**
@@ -46,20 +54,66 @@ import java.util.concurrent.locks.Lock;
  * {@link Scheduler#createJob(String, Task...)}. The name of a job is used to for informational purposes and
  * does not affect its behavior.
  *
+ * ## Parallel execution
+ *
+ * Tasks annotated with {@link ParallelAware} are ordered only where their declared accesses conflict: a task
+ * runs after every earlier task that modifies a component type it reads or modifies, and after every
+ * earlier task that reads a type it modifies. Tasks that are independent of each other are processed
+ * concurrently on the scheduler's fork-join pool, while conflicting tasks keep their declaration order.
+ * Tasks that are not parallel aware, that modify the entity set, or that receive results through `report`
+ * methods are ordered with respect to every other task in the job, so a receiving task sees every result
+ * reported by the tasks before it and is never reported to while it is processing.
+ *
+ * ## Optimistic reads
+ *
+ * A job whose tasks only read component types and declare {@link ParallelAware#optimisticReads()} can be
+ * made {@link #setOptimistic(boolean) optimistic}. It then runs without acquiring any lock, and afterwards
+ * validates that no job modifying its types or the entity set started or completed in the meantime. If
+ * validation fails, the job is run again under its read locks, which resets every task first.
+ *
  * @author Michael Ludwig
  */
 public class Job implements Runnable {
+    // parallelization info and report methods of each task class, computed once per class
+    private static final ClassValue<TaskMetadata> METADATA = new ClassValue<TaskMetadata>() {
+        @Override
+        protected TaskMetadata computeValue(Class<?> type) {
+            return new TaskMetadata(type);
+        }
+    };
+
     private final Task[] tasks;
-    private final Map<Class<? extends Result>, List<ResultReporter>> resultMethods;
+    private final Map<Class<? extends Result>, List<MethodHandle>> resultMethods;
+    // flattened reporters for every concrete result class reported so far, subclass receivers first
+    private final Map<Class<? extends Result>, MethodHandle[]> dispatchTable;
 
     private final List<Lock> locks; // includes system lock and type locks in proper, consistent order to prevent deadlocks
 
+    // write sequences incremented before and after this job's writes, odd while it holds its locks
+    private final AtomicLong[] writeSequences;
+    // write sequences validated by an optimistic run, null if the job cannot be optimistic
+    private final AtomicLong[] readSequences;
+    private volatile boolean optimistic;
+    // written before validating an optimistic run so that its reads are not reordered after validation
+    private volatile int readFence;
+
     private final Scheduler scheduler;
     private final String name;
 
+    // task dependency graph, each task has edges to the later tasks that must wait for it
+    private final int[][] successors;
+    private final int[] predecessorCounts;
+    private final boolean parallel; // true if at least two tasks can be processed concurrently
+
     private final Set<Class<? extends Result>> singletonResults;
     private int taskIndex;
 
+    // tasks returned by the last execution, reused between executions
+    private final Task[] returned;
+    // the post-process job of the last execution, reused while the same tasks are returned
+    private Task[] postProcessTasks;
+    private Job postProcessJob;
+
     /**
      * Create a new job with the given name and tasks.
      *
@@ -75,33 +129,40 @@ public class Job implements Runnable {
         this.scheduler = scheduler;
         this.tasks = new Task[tasks.length];
         this.name = name;
+        returned = new Task[tasks.length];
 
         singletonResults = new HashSet<>();
         resultMethods = new HashMap<>();
+        dispatchTable = new HashMap<>();
         taskIndex = -1;
 
         boolean exclusive = false;
+        boolean optimisticReads = true;
         Set<Class<? extends Component>> writtenTypes = new HashSet<>();
         Set<Class<? extends Component>> readTypes = new HashSet<>();
+
+        // per-task accesses, a null set means the task conflicts with every other task
+        List<Set<Class<? extends Component>>> taskWrites = new ArrayList<>(tasks.length);
+        List<Set<Class<? extends Component>>> taskReads = new ArrayList<>(tasks.length);
         for (int i = 0; i < tasks.length; i++) {
             if (tasks[i] == null) {
                 throw new NullPointerException("Task cannot be null");
             }
 
             this.tasks[i] = tasks[i];
+            TaskMetadata metadata = METADATA.get(tasks[i].getClass());
 
             // collect parallelization info
-            ParallelAware config = tasks[i].getClass().getAnnotation(ParallelAware.class);
-            if (config == null) {
-                // must assume it could touch anything
-                exclusive = true;
-            } else {
-                exclusive |= config.entitySetModified();
-                for (Class<? extends Component> written : config.modifiedComponents()) {
+            exclusive |= metadata.exclusive;
+            optimisticReads &= metadata.config != null && metadata.config.optimisticReads();
+            taskWrites.add(metadata.writes);
+            taskReads.add(metadata.reads);
+            if (metadata.config != null) {
+                for (Class<? extends Component> written : metadata.config.modifiedComponents()) {
                     readTypes.remove(written); // if it was read-only it can't be anymore
                     writtenTypes.add(written);
                 }
-                for (Class<? extends Component> readOnly : config.readOnlyComponents()) {
+                for (Class<? extends Component> readOnly : metadata.lockedReads) {
                     // if it's a modified type don't put it in the readtypes collection
                     if (!writtenTypes.contains(readOnly)) {
                         readTypes.add(readOnly);
@@ -109,28 +170,41 @@ public class Job implements Runnable {
                 }
             }
 
-            // record all result report methods exposed by this task
-            for (Method m : tasks[i].getClass().getMethods()) {
-                if (m.getName().equals("report")) {
-                    if (m.getReturnType().equals(void.class) &&
-                        m.getParameterTypes().length == 1 &&
-                        Result.class.isAssignableFrom(m.getParameterTypes()[0])) {
-                        // found a valid report method
-                        m.setAccessible(true);
-                        ResultReporter reporter = new ResultReporter(m, i);
-                        Class<? extends Result> type = reporter.getResultType();
+            // bind all result report methods exposed by this task
+            for (int j = 0; j < metadata.reporters.size(); j++) {
+                Class<? extends Result> type = metadata.resultTypes.get(j);
+                List<MethodHandle> all = resultMethods.get(type);
+                if (all == null) {
+                    all = new ArrayList<>();
+                    resultMethods.put(type, all);
+                }
 
-                        List<ResultReporter> all = resultMethods.get(type);
-                        if (all == null) {
-                            all = new ArrayList<>();
-                            resultMethods.put(type, all);
-                        }
+                all.add(metadata.reporters.get(j).bindTo(tasks[i])
+                                          .asType(MethodType.methodType(void.class, Result.class)));
+            }
+        }
 
-                        all.add(reporter);
-                    }
+        successors = new int[tasks.length][];
+        predecessorCounts = new int[tasks.length];
+        boolean sequential = true;
+        for (int i = 0; i < tasks.length; i++) {
+            List<Integer> after = new ArrayList<>();
+            for (int j = i + 1; j < tasks.length; j++) {
+                if (conflicts(taskWrites.get(i), taskReads.get(i), taskWrites.get(j), taskReads.get(j))) {
+                    after.add(j);
+                    predecessorCounts[j]++;
+                } else if (j == i + 1) {
+                    // consecutive tasks that do not conflict mean the graph is not a single chain
+                    sequential = false;
                 }
             }
+
+            successors[i] = new int[after.size()];
+            for (int j = 0; j < successors[i].length; j++) {
+                successors[i][j] = after.get(j);
+            }
         }
+        parallel = !sequential;
 
         locks = new ArrayList<>();
         // first lock is always for the system, either read or write depending on exclusivity of tasks
@@ -158,6 +232,41 @@ public class Job implements Runnable {
                 locks.add(scheduler.getTypeLock(type).readLock());
             }
         }
+
+        List<AtomicLong> sequences = new ArrayList<>();
+        if (exclusive) {
+            sequences.add(scheduler.getEntitySystemSequence());
+        }
+        for (Class<? extends Component> type : writtenTypes) {
+            sequences.add(scheduler.getTypeSequence(type));
+        }
+        writeSequences = sequences.toArray(new AtomicLong[sequences.size()]);
+
+        if (sequences.isEmpty() && optimisticReads) {
+            // nothing is modified and every task tolerates concurrent writes, so the job can be optimistic
+            sequences.add(scheduler.getEntitySystemSequence());
+            for (Class<? extends Component> type : readTypes) {
+                sequences.add(scheduler.getTypeSequence(type));
+            }
+            readSequences = sequences.toArray(new AtomicLong[sequences.size()]);
+        } else {
+            readSequences = null;
+        }
+    }
+
+    /*
+     * Determine if two tasks must be ordered, given their modified and read-only component types. Null
+     * types mean the task could access anything.
+     */
+    private static boolean conflicts(Set<Class<? extends Component>> writesA,
+                                     Set<Class<? extends Component>> readsA,
+                                     Set<Class<? extends Component>> writesB,
+                                     Set<Class<? extends Component>> readsB) {
+        if (writesA == null || writesB == null) {
+            return true;
+        }
+        return !Collections.disjoint(writesA, writesB) || !Collections.disjoint(writesA, readsB) ||
+               !Collections.disjoint(readsA, writesB);
     }
 
     /**
@@ -174,6 +283,38 @@ public class Job implements Runnable {
         return scheduler;
     }
 
+    /**
+     * Set whether this job runs without acquiring its locks, validating afterwards that nothing it reads was
+     * modified by another job. This avoids contention on the locks for frequently run jobs that only read,
+     * such as telemetry or render extraction. A job can only be optimistic if every task is {@link
+     * ParallelAware}, modifies no component type, does not modify the entity set, and declares {@link
+     * ParallelAware#optimisticReads()}.
+     *
+     * An optimistic run may observe torn or inconsistent component data while another job modifies it,
+     * which is why tasks must declare that they tolerate it. Exceptions and errors thrown during a run that
+     * fails validation are discarded and the job is run again under its locks, but a task that does not
+     * terminate on inconsistent values cannot be recovered. Modifications made outside of any job are not
+     * detected, just as they are not locked.
+     *
+     * @param optimistic True if the job should read optimistically
+     * @throws IllegalStateException if optimistic is true and the job's tasks are not all read-only and
+     *                               declared safe for optimistic reads
+     */
+    public void setOptimistic(boolean optimistic) {
+        if (optimistic && readSequences == null) {
+            throw new IllegalStateException("Only jobs whose tasks are read-only and allow optimistic reads " +
+                                            "can be optimistic");
+        }
+        this.optimistic = optimistic;
+    }
+
+    /**
+     * @return True if the job runs without acquiring its locks
+     */
+    public boolean isOptimistic() {
+        return optimistic;
+    }
+
     /**
      * Invoke all tasks in this job. This method is thread-safe and will use its owning scheduler to
      * coordinate the locks necessary to safely execute its tasks.
@@ -191,52 +332,185 @@ public class Job implements Runnable {
     }
 
     private Job runJob() {
+        long[] stamps = (optimistic ? beginOptimisticRead() : null);
+        if (stamps != null) {
+            Job next = null;
+            Throwable failure = null;
+            try {
+                next = processTasks();
+            } catch (Throwable t) {
+                // the task may have failed because it observed a write in progress
+                failure = t;
+            }
+
+            if (validateOptimisticRead(stamps)) {
+                if (failure instanceof RuntimeException) {
+                    throw (RuntimeException) failure;
+                } else if (failure instanceof Error) {
+                    throw (Error) failure;
+                } else if (failure != null) {
+                    throw new RuntimeException(failure);
+                }
+                return next;
+            }
+            // fall back to running with the read locks
+        }
+
         // acquire locks (already correctly organized in the constructor)
         for (int i = 0; i < locks.size(); i++) {
             locks.get(i).lock();
         }
+        // mark the written types as modified for optimistic readers, once before and after writing
+        for (int i = 0; i < writeSequences.length; i++) {
+            writeSequences[i].incrementAndGet();
+        }
 
         try {
-            // reset all tasks and the job
-            taskIndex = 0;
-            singletonResults.clear();
-            for (int i = 0; i < tasks.length; i++) {
-                tasks[i].reset(scheduler.getEntitySystem());
+            return processTasks();
+        } finally {
+            for (int i = 0; i < writeSequences.length; i++) {
+                writeSequences[i].incrementAndGet();
             }
+            // unlock
+            for (int i = locks.size() - 1; i >= 0; i--) {
+                locks.get(i).unlock();
+            }
+        }
+    }
 
-            // process all tasks and collect all returned tasks, in order
-            List<Task> postProcess = new ArrayList<>();
+    /*
+     * Record the write sequences of the types read by the job, returning null if a job is writing to any
+     * of them right now.
+     */
+    private long[] beginOptimisticRead() {
+        long[] stamps = new long[readSequences.length];
+        for (int i = 0; i < readSequences.length; i++) {
+            long stamp = readSequences[i].get();
+            if ((stamp & 1) != 0) {
+                return null;
+            }
+            stamps[i] = stamp;
+        }
+        return stamps;
+    }
+
+    /*
+     * Check that no write to the types read by the job started since beginOptimisticRead(). The volatile
+     * write orders the job's reads before the loads of the sequences, which only read the shared counters.
+     */
+    private boolean validateOptimisticRead(long[] stamps) {
+        readFence = 0;
+        for (int i = 0; i < readSequences.length; i++) {
+            if (readSequences[i].get() != stamps[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Reset and process every task, returning the job of post-process tasks or null. The caller is
+     * responsible for locking.
+     */
+    private Job processTasks() {
+        // reset all tasks and the job
+        taskIndex = 0;
+        singletonResults.clear();
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i].reset(scheduler.getEntitySystem());
+        }
+
+        // process all tasks and collect all returned tasks, in order
+        Arrays.fill(returned, null);
+        if (parallel) {
+            processConcurrently(returned);
+        } else {
             for (int i = 0; i < tasks.length; i++) {
                 taskIndex = i;
-                Task after = tasks[i].process(scheduler.getEntitySystem(), this);
-                if (after != null) {
-                    postProcess.add(after);
+                returned[i] = tasks[i].process(scheduler.getEntitySystem(), this);
+            }
+        }
+
+        // set this to negative so that report() can fail now that
+        // we're not executing tasks anymore
+        taskIndex = -1;
+
+        // the previous post-process job is reused if the same tasks were returned in the same order
+        int count = 0;
+        boolean reuse = postProcessTasks != null;
+        for (int i = 0; i < returned.length; i++) {
+            if (returned[i] != null) {
+                if (reuse && (count >= postProcessTasks.length || postProcessTasks[count] != returned[i])) {
+                    reuse = false;
+                }
+                count++;
+            }
+        }
+
+        if (count == 0) {
+            // nothing to process afterwards
+            return null;
+        } else if (reuse && count == postProcessTasks.length) {
+            return postProcessJob;
+        } else {
+            Task[] postProcess = new Task[count];
+            count = 0;
+            for (int i = 0; i < returned.length; i++) {
+                if (returned[i] != null) {
+                    postProcess[count++] = returned[i];
                 }
             }
+            postProcessJob = new Job(name + "-postprocess", scheduler, postProcess);
+            postProcessTasks = postProcess;
+            return postProcessJob;
+        }
+    }
 
-            // set this to negative so that report() can fail now that
-            // we're not executing tasks anymore
-            taskIndex = -1;
+    /*
+     * Process every task on the scheduler's pool, starting each one once the tasks it depends on have
+     * completed, and block until all have completed. The first exception thrown by a task is rethrown, and
+     * tasks that had not started by then are skipped.
+     */
+    private void processConcurrently(Task[] returned) {
+        // report() only checks that tasks are running, there is no single current task
+        taskIndex = 0;
 
-            if (postProcess.isEmpty()) {
-                // nothing to process afterwards
-                return null;
-            } else {
-                Task[] tasks = postProcess.toArray(new Task[postProcess.size()]);
-                return new Job(name + "-postprocess", scheduler, tasks);
+        Execution execution = new Execution(returned);
+        ForkJoinPool pool = scheduler.getTaskPool();
+        for (int i = 0; i < tasks.length; i++) {
+            if (predecessorCounts[i] == 0) {
+                pool.execute(new TaskAction(execution, i));
             }
-        } finally {
-            // unlock
-            for (int i = locks.size() - 1; i >= 0; i--) {
-                locks.get(i).unlock();
+        }
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                execution.completed.await();
+                break;
+            } catch (InterruptedException e) {
+                // the locks are held until every started task is done, so keep waiting
+                interrupted = true;
             }
         }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        Throwable failure = execution.failure.get();
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw new RuntimeException("Error processing task", failure);
+        }
     }
 
     /**
      * Report the given result instance to all tasks in this job (ignoring post-processing tasks), that have
      * declared a public method named 'report' that takes a Result sub-type that is compatible with `r`'s
-     * type.
+     * type. Unchecked exceptions thrown by a report method are propagated to the reporting task.
      *
      * @param r The result to report
      * @throws NullPointerException  if r is null
@@ -251,6 +525,17 @@ public class Job implements Runnable {
             throw new IllegalStateException("Can only be invoked by a task from within run()");
         }
 
+        if (parallel) {
+            // tasks that run concurrently may report to the same receivers
+            synchronized (singletonResults) {
+                dispatch(r);
+            }
+        } else {
+            dispatch(r);
+        }
+    }
+
+    private void dispatch(Result r) {
         if (r.isSingleton()) {
             // make sure this is the first we've seen the result
             if (!singletonResults.add(r.getClass())) {
@@ -259,19 +544,37 @@ public class Job implements Runnable {
             }
         }
 
-        Class<?> type = r.getClass();
+        MethodHandle[] reporters = dispatchTable.get(r.getClass());
+        if (reporters == null) {
+            reporters = compileDispatch(r.getClass());
+            dispatchTable.put(r.getClass(), reporters);
+        }
+
+        for (int i = 0; i < reporters.length; i++) {
+            try {
+                reporters[i].invokeExact(r);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new RuntimeException("Error reporting result", t);
+            }
+        }
+    }
+
+    /*
+     * Collect the reporters of every class in the result type's hierarchy, starting with the type itself.
+     */
+    private MethodHandle[] compileDispatch(Class<? extends Result> resultType) {
+        List<MethodHandle> reporters = new ArrayList<>();
+        Class<?> type = resultType;
         while (Result.class.isAssignableFrom(type)) {
-            // report to all methods that receive the type
-            List<ResultReporter> all = resultMethods.get(type);
+            List<MethodHandle> all = resultMethods.get(type);
             if (all != null) {
-                int ct = all.size();
-                for (int i = 0; i < ct; i++) {
-                    all.get(i).report(r);
-                }
+                reporters.addAll(all);
             }
-
             type = type.getSuperclass();
         }
+        return reporters.toArray(new MethodHandle[reporters.size()]);
     }
 
     @Override
@@ -279,29 +582,115 @@ public class Job implements Runnable {
         return "Job(" + name + ", # tasks=" + tasks.length + ")";
     }
 
-    private class ResultReporter {
-        private final Method reportMethod;
-        private final int taskIndex;
+    private static class TaskMetadata {
+        final ParallelAware config;
+        final boolean exclusive; // true if the system's exclusive lock is needed
 
-        public ResultReporter(Method reportMethod, int taskIndex) {
-            this.reportMethod = reportMethod;
-            this.taskIndex = taskIndex;
-        }
+        // read-only types that need a read lock, including types only read through double buffers
+        final Set<Class<? extends Component>> lockedReads;
 
-        public void report(Result r) {
-            try {
-                reportMethod.invoke(Job.this.tasks[taskIndex], r);
-            } catch (IllegalArgumentException | IllegalAccessException e) {
-                // shouldn't happen, since we check the type before invoking
-                throw new RuntimeException(e);
-            } catch (InvocationTargetException e) {
-                throw new RuntimeException("Error reporting result", e.getCause());
+        // accesses used to order the task within a job, null if it conflicts with every other task
+        final Set<Class<? extends Component>> writes;
+        final Set<Class<? extends Component>> reads;
+
+        // unbound report methods and the result types they receive
+        final List<MethodHandle> reporters;
+        final List<Class<? extends Result>> resultTypes;
+
+        @SuppressWarnings("unchecked")
+        TaskMetadata(Class<?> taskType) {
+            config = taskType.getAnnotation(ParallelAware.class);
+            // without the annotation, it must be assumed the task could touch anything
+            exclusive = config == null || config.entitySetModified();
+
+            reporters = new ArrayList<>();
+            resultTypes = new ArrayList<>();
+            for (Method m : taskType.getMethods()) {
+                if (m.getName().equals("report")) {
+                    if (m.getReturnType().equals(void.class) &&
+                        m.getParameterTypes().length == 1 &&
+                        Result.class.isAssignableFrom(m.getParameterTypes()[0])) {
+                        // found a valid report method
+                        m.setAccessible(true);
+                        try {
+                            reporters.add(MethodHandles.lookup().unreflect(m));
+                        } catch (IllegalAccessException e) {
+                            // shouldn't happen, since the method was made accessible
+                            throw new RuntimeException(e);
+                        }
+                        resultTypes.add((Class<? extends Result>) m.getParameterTypes()[0]);
+                    }
+                }
+            }
+
+            lockedReads = new HashSet<>();
+            if (config != null) {
+                lockedReads.addAll(Arrays.asList(config.readOnlyComponents()));
+                // buffered types are still locked, since another job could add or remove their components
+                lockedReads.addAll(Arrays.asList(config.bufferedComponents()));
+                lockedReads.removeAll(Arrays.asList(config.modifiedComponents()));
             }
+
+            if (exclusive || !reporters.isEmpty()) {
+                // results are reported while tasks run, so receivers are ordered against everything
+                writes = null;
+                reads = null;
+            } else {
+                // buffered reads don't conflict with the writes of other tasks in the job, which go to
+                // the back buffer, so they don't order the task
+                writes = new HashSet<>(Arrays.asList(config.modifiedComponents()));
+                reads = new HashSet<>(lockedReads);
+                reads.removeAll(Arrays.asList(config.bufferedComponents()));
+            }
+        }
+    }
+
+    /*
+     * State shared by the tasks processed during one concurrent run of the job.
+     */
+    private class Execution {
+        final Task[] returned;
+        final AtomicIntegerArray remainingPredecessors;
+        final CountDownLatch completed;
+        final AtomicReference<Throwable> failure;
+
+        Execution(Task[] returned) {
+            this.returned = returned;
+            remainingPredecessors = new AtomicIntegerArray(predecessorCounts);
+            completed = new CountDownLatch(tasks.length);
+            failure = new AtomicReference<>();
         }
+    }
 
-        @SuppressWarnings("unchecked")
-        public Class<? extends Result> getResultType() {
-            return (Class<? extends Result>) reportMethod.getParameterTypes()[0];
+    private class TaskAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Execution execution;
+        private final int index;
+
+        TaskAction(Execution execution, int index) {
+            this.execution = execution;
+            this.index = index;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                if (execution.failure.get() == null) {
+                    execution.returned[index] = tasks[index].process(scheduler.getEntitySystem(), Job.this);
+                }
+            } catch (Throwable t) {
+                execution.failure.compareAndSet(null, t);
+            } finally {
+                // successors still complete after a failure so that the job stops waiting
+                int[] after = successors[index];
+                for (int i = 0; i < after.length; i++) {
+                    if (execution.remainingPredecessors.decrementAndGet(after[i]) == 0) {
+                        new TaskAction(execution, after[i]).fork();
+                    }
+                }
+                execution.completed.countDown();
+            }
         }
     }
 }
@@ -86,6 +86,34 @@ public @interface ParallelAware {
      */
     public Class<? extends Component>[] readOnlyComponents();
 
+    /**
+     * Return the set of component data types that are read by the task only through double-buffered
+     * properties, such as {@link com.lhkbob.entreri.property.BufferedFloatProperty}. Getters of those
+     * properties read the values committed by the last {@link EntitySystem#swapBuffers()}, which are not
+     * modified until the next swap. A job acquires the read lock of these types like it does for {@link
+     * #readOnlyComponents()}, so other jobs cannot add or remove their components while the task runs, but
+     * the task is not ordered against tasks of its own job that modify them. It is still ordered against
+     * tasks that hold the exclusive lock, which is required to swap.
+     *
+     * This is only safe if the task reads no other properties of these types, and if the other tasks of its
+     * job only set the values of components of these types, without adding or removing them. A type that is
+     * also returned by {@link #modifiedComponents()} is locked and ordered as usual.
+     *
+     * @return The set of component types read only through double-buffered properties
+     */
+    public Class<? extends Component>[] bufferedComponents() default { };
+
+    /**
+     * Return whether the task can be run by an {@link Job#setOptimistic(boolean) optimistic} job, which does
+     * not acquire the read locks of its types. The task may then observe component data while another job
+     * is modifying it, so it must tolerate torn and inconsistent values: it must terminate for any values it
+     * could read, and it must not have effects outside of the job since it is reset and run again when the
+     * optimistic run is invalidated.
+     *
+     * @return True if the task is safe to run without its read locks
+     */
+    public boolean optimisticReads() default false;
+
     /**
      * Return whether or not {@link Entity entities} are added or removed from an EntitySystem. Note that
      * this refers to using {@link EntitySystem#addEntity()} or {@link EntitySystem#removeEntity(Entity)}, or
@@ -29,7 +29,10 @@ package com.lhkbob.entreri.task;
 import com.lhkbob.entreri.Component;
 import com.lhkbob.entreri.EntitySystem;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
@@ -49,6 +52,12 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * service.shutdown();
  * ```
  *
+ * By default every `runX(Job)` method creates its own thread. A scheduler can instead be given a shared
+ * {@link Executor}, such as a bounded thread pool, with {@link #Scheduler(EntitySystem, Executor)} or {@link
+ * #setExecutor(Executor)}. Every job is then executed by that executor, and the periods of repeated jobs are
+ * timed by a single daemon thread owned by the scheduler, which is stopped once every repeated job has been
+ * shut down.
+ *
  * @author Michael Ludwig
  */
 public class Scheduler {
@@ -62,8 +71,22 @@ public class Scheduler {
     // dynamically the first time each type is requested
     private final ConcurrentHashMap<Class<? extends Component>, ReentrantReadWriteLock> typeLocks;
 
+    // write sequences validated by optimistic jobs, odd while a job holds the matching write lock
+    private final AtomicLong exclusiveSequence;
+    private final ConcurrentHashMap<Class<? extends Component>, AtomicLong> typeSequences;
+
     private final EntitySystem system;
 
+    // pool processing the independent tasks of jobs, created the first time a job needs it
+    private volatile ForkJoinPool taskPool;
+
+    // shared executor for the runX() methods, or null to create threads per job
+    private volatile Executor executor;
+    // delays repeated jobs that run on the shared executor, created the first time one is scheduled
+    // and shut down when no repeated job remains, both guarded by this
+    private ScheduledExecutorService timer;
+    private int repeatingJobs;
+
     /**
      * Create a new Scheduler for the given EntitySystem. It is recommended to use the scheduler provided by
      * the system. If multiple schedulers exist for the same entity system, they cannot guarantee thread
@@ -82,6 +105,44 @@ public class Scheduler {
         schedulerGroup = new ThreadGroup("job-scheduler");
         exclusiveLock = new ReentrantReadWriteLock();
         typeLocks = new ConcurrentHashMap<>();
+        exclusiveSequence = new AtomicLong();
+        typeSequences = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Create a new Scheduler for the given EntitySystem that executes jobs on a shared executor, as if {@link
+     * #setExecutor(Executor)} were called after {@link #Scheduler(EntitySystem)}.
+     *
+     * @param system   The EntitySystem accessed by jobs created by this scheduler
+     * @param executor The executor that runs jobs, or null to create a thread per job
+     * @throws NullPointerException if system is null
+     */
+    public Scheduler(EntitySystem system, Executor executor) {
+        this(system);
+        this.executor = executor;
+    }
+
+    /**
+     * Set the executor that runs the jobs passed to {@link #runOnSeparateThread(Job)}, {@link
+     * #runEvery(double, Job)}, and {@link #runContinuously(Job)}. Sharing one executor, such as a bounded
+     * thread pool, avoids creating a thread for every job execution and an idle thread for every repeated
+     * job. Repeated jobs are resubmitted to the executor after each execution so they do not hold a thread
+     * between executions. The executor is not shut down by the scheduler.
+     *
+     * Jobs that were already started keep the executor they were started with. If `executor` is null, each
+     * job started afterwards creates its own thread, which is the default.
+     *
+     * @param executor The executor that runs jobs, or null
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @return The executor that runs jobs, or null if a thread is created per job
+     */
+    public Executor getExecutor() {
+        return executor;
     }
 
     /**
@@ -98,6 +159,78 @@ public class Scheduler {
         return exclusiveLock;
     }
 
+    /**
+     * @return The pool used to process the tasks of a job concurrently
+     */
+    ForkJoinPool getTaskPool() {
+        ForkJoinPool pool = taskPool;
+        if (pool == null) {
+            synchronized (this) {
+                pool = taskPool;
+                if (pool == null) {
+                    // worker threads are daemons so the pool does not keep the JVM alive
+                    pool = new ForkJoinPool();
+                    taskPool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * @return The thread that delays repeated jobs on the shared executor
+     */
+    private synchronized ScheduledExecutorService getTimer() {
+        if (timer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(schedulerGroup, r, "job-scheduler-timer");
+                    // the shared executor decides if jobs keep the JVM alive
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return timer;
+    }
+
+    private synchronized void repeatingJobStarted() {
+        repeatingJobs++;
+    }
+
+    private synchronized void repeatingJobTerminated() {
+        repeatingJobs--;
+        if (repeatingJobs == 0 && timer != null) {
+            // nothing left to delay, a later repeated job creates a new timer
+            timer.shutdown();
+            timer = null;
+        }
+    }
+
+    /**
+     * @return The write sequence of jobs that hold the exclusive lock
+     */
+    AtomicLong getEntitySystemSequence() {
+        return exclusiveSequence;
+    }
+
+    /**
+     * @param id The component type
+     * @return The write sequence of jobs that hold the type's write lock
+     */
+    AtomicLong getTypeSequence(Class<? extends Component> id) {
+        AtomicLong sequence = typeSequences.get(id);
+        if (sequence == null) {
+            AtomicLong newSequence = new AtomicLong();
+            sequence = typeSequences.putIfAbsent(id, newSequence);
+            if (sequence == null) {
+                sequence = newSequence;
+            }
+        }
+        return sequence;
+    }
+
     /**
      * @param id The component type to lock
      * @return The lock used to coordinate access to the particular componen type
@@ -154,7 +287,8 @@ public class Scheduler {
     /**
      * Execute the given job once on a new thread. This will create a new thread that will invoke the job once
      * and then terminate once the job returns. This method will return after the thread starts and will not
-     * block the calling thread while the job is executed.
+     * block the calling thread while the job is executed. If the scheduler has a shared executor, the job is
+     * submitted to it instead of creating a thread.
      *
      * This should be used as a convenience to invoke one-off jobs that should not block a performance
      * sensitive thread.
@@ -171,6 +305,12 @@ public class Scheduler {
             throw new IllegalArgumentException("Job was created by a different scheduler");
         }
 
+        Executor shared = executor;
+        if (shared != null) {
+            shared.execute(job);
+            return;
+        }
+
         // spawn a new thread that will terminate when the job completes
         Thread jobThread = new Thread(schedulerGroup, job, "job-" + job.getName());
         jobThread.start();
@@ -184,7 +324,8 @@ public class Scheduler {
      *
      * The returned ExecutorService should have its {@link ExecutorService#shutdown() shutdown()} method
      * called when the job no longer needs to be invoked. Scheduling timing is undefined if new Runnables or
-     * Callables are submitted to the returned service.
+     * Callables are submitted to the returned service. If the scheduler has a shared executor, shutting down
+     * the returned service stops the repetition but does not shut down the shared executor.
      *
      * @param dt  The amount of time between the start of each job execution
      * @param job The job to be repeatedly executed
@@ -203,6 +344,13 @@ public class Scheduler {
             throw new IllegalArgumentException("Time between jobs cannot be negative: " + dt);
         }
 
+        Executor shared = executor;
+        if (shared != null) {
+            RepeatingJob repeat = new RepeatingJob(job, shared, (long) (dt * 1e9));
+            repeat.start();
+            return repeat;
+        }
+
         final String name = String.format("job-%s-every-%.2fs", job.getName(), dt);
         ScheduledExecutorService service = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
             @Override
@@ -227,7 +375,8 @@ public class Scheduler {
      *
      * The returned ExecutorService should have its {@link ExecutorService#shutdown() shutdown()} method
      * called when the job no longer needs to be invoked. Scheduling timing is undefined if new Runnables or
-     * Callables are submitted to the returned service.
+     * Callables are submitted to the returned service. If the scheduler has a shared executor, shutting down
+     * the returned service stops the repetition but does not shut down the shared executor.
      *
      * @param job The job to be repeatedly executed
      * @return An unconfigurable executor service that performs the scheduling, and owns the execution thread
@@ -242,6 +391,13 @@ public class Scheduler {
             throw new IllegalArgumentException("Job was created by a different scheduler");
         }
 
+        Executor shared = executor;
+        if (shared != null) {
+            RepeatingJob repeat = new RepeatingJob(job, shared, 0L);
+            repeat.start();
+            return repeat;
+        }
+
         final String name = String.format("job-%s-as-fast-as-possible", job.getName());
         ScheduledExecutorService service = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
             @Override
@@ -257,4 +413,150 @@ public class Scheduler {
         service.scheduleAtFixedRate(job, 0L, 1L, TimeUnit.NANOSECONDS);
         return Executors.unconfigurableExecutorService(service);
     }
+
+    /*
+     * ExecutorService returned by runEvery() and runContinuously() when jobs run on a shared executor. Each
+     * execution is submitted to the executor by the timer, after a delay until its start time or immediately
+     * if that has passed, so no thread is held between executions and an executor that runs jobs on the
+     * calling thread cannot recurse. Like a fixed-rate scheduled task, executions never overlap, late
+     * executions run back to back, and the repetition stops if the job throws an exception.
+     */
+    private class RepeatingJob extends AbstractExecutorService implements Runnable {
+        private final Job job;
+        private final Executor executor;
+        private final long period; // nanoseconds
+        private final Runnable submit;
+
+        // guarded by this
+        private long nextStart;
+        private boolean shutdown;
+        private boolean active; // true while an execution is submitted, delayed, or running
+        private ScheduledFuture<?> delayed;
+
+        public RepeatingJob(Job job, Executor executor, long period) {
+            this.job = job;
+            this.executor = executor;
+            this.period = period;
+            submit = new Runnable() {
+                @Override
+                public void run() {
+                    resubmit();
+                }
+            };
+        }
+
+        public synchronized void start() {
+            repeatingJobStarted();
+            nextStart = System.nanoTime();
+            active = true;
+            schedule(0L);
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (shutdown) {
+                    terminate();
+                    return;
+                }
+            }
+
+            boolean completed = false;
+            try {
+                job.run();
+                completed = true;
+            } finally {
+                synchronized (this) {
+                    if (!completed || shutdown) {
+                        terminate();
+                    } else {
+                        nextStart += period;
+                        schedule(nextStart - System.nanoTime());
+                    }
+                }
+            }
+        }
+
+        // must be called while synchronized, the timer never runs the submission on the calling thread
+        private void schedule(long delay) {
+            delayed = getTimer().schedule(submit, Math.max(delay, 0L), TimeUnit.NANOSECONDS);
+        }
+
+        // invoked on the timer thread without holding the monitor, since the executor may run the job inline
+        private void resubmit() {
+            synchronized (this) {
+                delayed = null;
+                if (shutdown) {
+                    terminate();
+                    return;
+                }
+            }
+
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                // the shared executor was shut down
+                synchronized (this) {
+                    terminate();
+                }
+            }
+        }
+
+        // must be called while synchronized
+        private void terminate() {
+            shutdown = true;
+            if (active) {
+                active = false;
+                repeatingJobTerminated();
+            }
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void shutdown() {
+            shutdown = true;
+            if (delayed != null && delayed.cancel(false)) {
+                // the next execution was never submitted
+                terminate();
+            }
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown();
+            return Collections.emptyList();
+        }
+
+        @Override
+        public synchronized boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public synchronized boolean isTerminated() {
+            return shutdown && !active;
+        }
+
+        @Override
+        public synchronized boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            long remaining = unit.toNanos(timeout);
+            long end = System.nanoTime() + remaining;
+            while (!isTerminated()) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                remaining = end - System.nanoTime();
+            }
+            return true;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (isShutdown()) {
+                throw new RejectedExecutionException("Job repetition has been shut down");
+            }
+            executor.execute(command);
+        }
+    }
 }
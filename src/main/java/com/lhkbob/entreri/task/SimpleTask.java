@@ -31,7 +31,11 @@ import com.lhkbob.entreri.ComponentIterator;
 import com.lhkbob.entreri.EntitySystem;
 
 import java.lang.annotation.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.util.Arrays;
 
 /**
  * SimpleTask
@@ -80,8 +84,15 @@ public abstract class SimpleTask implements Task {
     public static @interface Optional {
     }
 
-    private final Method processMethod;
-    private final boolean[] optional;
+    // processEntity() method and its adapted handle, computed once per task class
+    private static final ClassValue<ProcessMetadata> METADATA = new ClassValue<ProcessMetadata>() {
+        @Override
+        protected ProcessMetadata computeValue(Class<?> type) {
+            return new ProcessMetadata(type);
+        }
+    };
+
+    private final ProcessMetadata metadata;
 
     // filled with instances after first call to processEntities
     private final Component[] componentDatas;
@@ -91,52 +102,8 @@ public abstract class SimpleTask implements Task {
     private EntitySystem lastSystem;
 
     public SimpleTask() {
-        Method processMethod = null;
-
-        Class<?> cls = getClass();
-        while (!SimpleTask.class.equals(cls)) {
-            for (Method m : cls.getDeclaredMethods()) {
-                if (m.getName().equals("processEntity")) {
-                    if (m.getParameterTypes().length > 0 && m.getReturnType().equals(boolean.class)) {
-                        boolean paramsValid = true;
-                        for (Class<?> p : m.getParameterTypes()) {
-                            if (!Component.class.isAssignableFrom(p)) {
-                                paramsValid = false;
-                                break;
-                            }
-                        }
-
-                        if (paramsValid) {
-                            if (processMethod == null) {
-                                processMethod = m;
-                            } else {
-                                throw new IllegalStateException("More than one processEntity() method defined");
-                            }
-                        }
-                    }
-                }
-            }
-            cls = cls.getSuperclass();
-        }
-
-        if (processMethod == null) {
-            throw new IllegalStateException("SimpleTask subclasses must define a processEntity() method");
-        }
-
-        processMethod.setAccessible(true);
-
-        this.processMethod = processMethod;
-        optional = new boolean[processMethod.getParameterTypes().length];
-        componentDatas = new Component[optional.length];
-
-        for (int i = 0; i < optional.length; i++) {
-            for (Annotation a : processMethod.getParameterAnnotations()[i]) {
-                if (a instanceof Optional) {
-                    optional[i] = true;
-                    break;
-                }
-            }
-        }
+        metadata = METADATA.get(getClass());
+        componentDatas = new Component[metadata.optional.length];
     }
 
     /**
@@ -162,34 +129,109 @@ public abstract class SimpleTask implements Task {
      */
     @SuppressWarnings({ "unchecked", "rawtypes" })
     protected void processEntities(EntitySystem system) {
+        boolean[] optional = metadata.optional;
         if (iterator == null || lastSystem != system) {
             iterator = system.fastIterator();
             for (int i = 0; i < optional.length; i++) {
                 if (optional[i]) {
-                    componentDatas[i] = iterator.addOptional((Class) processMethod.getParameterTypes()[i]);
+                    componentDatas[i] = iterator.addOptional((Class) metadata.types[i]);
                 } else {
-                    componentDatas[i] = iterator.addRequired((Class) processMethod.getParameterTypes()[i]);
+                    componentDatas[i] = iterator.addRequired((Class) metadata.types[i]);
                 }
             }
 
             lastSystem = system;
         }
 
-        try {
-            Object[] invokeArgs = new Object[optional.length];
-            iterator.reset();
-            while (iterator.next()) {
-                for (int i = 0; i < optional.length; i++) {
-                    invokeArgs[i] = (optional[i] && !componentDatas[i].isAlive() ? null : componentDatas[i]);
+        MethodHandle processHandle = metadata.processHandle;
+        Component[] invokeArgs = new Component[optional.length];
+        iterator.reset();
+        while (iterator.next()) {
+            for (int i = 0; i < optional.length; i++) {
+                invokeArgs[i] = (optional[i] && !componentDatas[i].isAlive() ? null : componentDatas[i]);
+            }
+
+            boolean iterate;
+            try {
+                iterate = (boolean) processHandle.invokeExact(this, invokeArgs);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new RuntimeException("Exception while invoking processEntity()", t);
+            }
+            if (!iterate) {
+                break;
+            }
+        }
+    }
+
+    /*
+     * The processEntity() method of a task class, with a handle of type (SimpleTask, Component[])boolean so
+     * that it is shared by every instance and each entity is a direct call without boxing or argument checks.
+     */
+    private static class ProcessMetadata {
+        final Class<?>[] types;
+        final boolean[] optional;
+        final MethodHandle processHandle;
+
+        ProcessMetadata(Class<?> taskType) {
+            Method processMethod = null;
+
+            Class<?> cls = taskType;
+            while (!SimpleTask.class.equals(cls)) {
+                for (Method m : cls.getDeclaredMethods()) {
+                    if (m.getName().equals("processEntity")) {
+                        if (m.getParameterTypes().length > 0 && m.getReturnType().equals(boolean.class)) {
+                            boolean paramsValid = true;
+                            for (Class<?> p : m.getParameterTypes()) {
+                                if (!Component.class.isAssignableFrom(p)) {
+                                    paramsValid = false;
+                                    break;
+                                }
+                            }
+
+                            if (paramsValid) {
+                                if (processMethod == null) {
+                                    processMethod = m;
+                                } else {
+                                    throw new IllegalStateException(
+                                            "More than one processEntity() method defined");
+                                }
+                            }
+                        }
+                    }
                 }
+                cls = cls.getSuperclass();
+            }
+
+            if (processMethod == null) {
+                throw new IllegalStateException("SimpleTask subclasses must define a processEntity() method");
+            }
 
-                boolean iterate = ((Boolean) processMethod.invoke(this, invokeArgs));
-                if (!iterate) {
-                    break;
+            processMethod.setAccessible(true);
+
+            types = processMethod.getParameterTypes();
+            optional = new boolean[types.length];
+            for (int i = 0; i < optional.length; i++) {
+                for (Annotation a : processMethod.getParameterAnnotations()[i]) {
+                    if (a instanceof Optional) {
+                        optional[i] = true;
+                        break;
+                    }
                 }
             }
-        } catch (Exception e) {
-            throw new RuntimeException("Exception while invoking processEntity()", e);
+
+            Class<?>[] erased = new Class<?>[types.length + 1];
+            Arrays.fill(erased, Component.class);
+            erased[0] = SimpleTask.class;
+            try {
+                processHandle = MethodHandles.lookup().unreflect(processMethod)
+                                             .asType(MethodType.methodType(boolean.class, erased))
+                                             .asSpreader(Component[].class, types.length);
+            } catch (IllegalAccessException e) {
+                // shouldn't happen, since the method was made accessible
+                throw new RuntimeException(e);
+            }
         }
     }
 }
@@ -201,6 +201,80 @@ public class ComponentIteratorTest {
         doTestBulkComponentIterator(it);
     }
 
+    @Test
+    public void testJoinSortedAndUnsortedTypes() {
+        EntitySystem system = EntitySystem.Factory.create();
+        List<Entity> entities = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Entity e = system.addEntity();
+            e.add(IntComponent.class).setInt(i);
+            if (i % 3 == 0) {
+                e.add(FloatComponent.class).setFloat(i);
+            }
+            entities.add(e);
+        }
+        // add float components in descending entity order so that the float type is no longer sorted
+        for (int i = entities.size() - 1; i >= 0; i--) {
+            if (i % 5 == 0 && i % 3 != 0) {
+                entities.get(i).add(FloatComponent.class).setFloat(i);
+            }
+        }
+
+        ComponentIterator it = system.fastIterator();
+        IntComponent intData = it.addRequired(IntComponent.class);
+        FloatComponent floatData = it.addRequired(FloatComponent.class);
+        ObjectComponent objData = it.addOptional(ObjectComponent.class);
+
+        for (int pass = 0; pass < 2; pass++) {
+            int count = 0;
+            while (it.next()) {
+                Assert.assertEquals(intData.getInt(), floatData.getFloat(), .0001f);
+                Assert.assertTrue(intData.getInt() % 3 == 0 || intData.getInt() % 5 == 0);
+                Assert.assertFalse(objData.isAlive());
+                count++;
+            }
+            Assert.assertEquals(47, count);
+
+            // after compacting both types are sorted and the merge join must produce identical results
+            system.compact();
+            it.reset();
+        }
+    }
+
+    @Test
+    public void testCompactDuringSortedJoin() {
+        EntitySystem system = EntitySystem.Factory.create();
+        List<Entity> entities = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Entity e = system.addEntity();
+            e.add(IntComponent.class).setInt(i);
+            e.add(FloatComponent.class).setFloat(i);
+            entities.add(e);
+        }
+
+        ComponentIterator it = system.fastIterator();
+        IntComponent intData = it.addRequired(IntComponent.class);
+        FloatComponent floatData = it.addRequired(FloatComponent.class);
+        while (it.next()) {
+            if (intData.getInt() == 10) {
+                break;
+            }
+        }
+
+        // compacting shifts the remaining float components below the merge cursor
+        for (int i = 3; i < 6; i++) {
+            entities.get(i).remove(FloatComponent.class);
+        }
+        system.compact();
+
+        int count = 0;
+        while (it.next()) {
+            Assert.assertEquals(intData.getInt(), floatData.getFloat(), .0001f);
+            count++;
+        }
+        Assert.assertEquals(9, count);
+    }
+
     @Test
     public void testEntityIteratorRemove() {
         doIteratorRemove(system.iterator());
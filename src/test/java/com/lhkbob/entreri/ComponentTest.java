@@ -30,6 +30,15 @@ import com.lhkbob.entreri.components.*;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 public class ComponentTest {
     @Test
     public void testIsAliveComponentRemove() {
@@ -254,6 +263,425 @@ public class ComponentTest {
         Assert.assertEquals(ComplexComponent.TestEnum.V1, c2.getEnum());
     }
 
+    @Test
+    public void testPackedBooleanProperties() {
+        EntitySystem system = EntitySystem.Factory.create();
+        FlagsComponent[] flags = new FlagsComponent[100];
+        for (int i = 0; i < flags.length; i++) {
+            flags[i] = system.addEntity().add(FlagsComponent.class);
+            Assert.assertFalse(flags[i].isVisible());
+            Assert.assertTrue(flags[i].isActive());
+            flags[i].setVisible(i % 2 == 0);
+        }
+        for (int i = 0; i < flags.length; i++) {
+            Assert.assertEquals(i % 2 == 0, flags[i].isVisible());
+            Assert.assertTrue(flags[i].isActive());
+        }
+
+        // values must follow their components when the data store is compacted
+        for (int i = 0; i < flags.length; i += 3) {
+            system.removeEntity(flags[i].getEntity());
+        }
+        system.compact();
+        for (int i = 0; i < flags.length; i++) {
+            if (i % 3 != 0) {
+                Assert.assertEquals(i % 2 == 0, flags[i].isVisible());
+            }
+        }
+    }
+
+    @Test
+    public void testVectorProperties() {
+        EntitySystem system = EntitySystem.Factory.create();
+        TransformComponent[] transforms = new TransformComponent[50];
+        for (int i = 0; i < transforms.length; i++) {
+            transforms[i] = system.addEntity().add(TransformComponent.class);
+            Assert.assertArrayEquals(new float[3], transforms[i].getPosition(), 0.0001f);
+            double[] matrix = transforms[i].getMatrix(new double[16]);
+            for (int j = 0; j < 16; j++) {
+                Assert.assertEquals(1.0, matrix[j], 0.0001);
+            }
+            transforms[i].setPosition(new float[] { i, i + 1, i + 2 });
+        }
+
+        float[] shared = new float[3];
+        for (int i = 0; i < transforms.length; i++) {
+            Assert.assertSame(shared, transforms[i].getPosition(shared));
+            Assert.assertArrayEquals(new float[] { i, i + 1, i + 2 }, shared, 0.0001f);
+        }
+
+        // values must follow their components when the data store is compacted
+        for (int i = 0; i < transforms.length; i += 3) {
+            system.removeEntity(transforms[i].getEntity());
+        }
+        system.compact();
+        for (int i = 0; i < transforms.length; i++) {
+            if (i % 3 != 0) {
+                Assert.assertArrayEquals(new float[] { i, i + 1, i + 2 }, transforms[i].getPosition(),
+                                         0.0001f);
+            }
+        }
+
+        try {
+            transforms[1].setPosition(new float[2]);
+            Assert.fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testPrimitiveListProperties() {
+        EntitySystem system = EntitySystem.Factory.create();
+        InventoryComponent[] inventories = new InventoryComponent[30];
+        for (int i = 0; i < inventories.length; i++) {
+            inventories[i] = system.addEntity().add(InventoryComponent.class);
+            Assert.assertEquals(0, inventories[i].getItems().length);
+            Assert.assertEquals(0, inventories[i].getWeights().length);
+        }
+
+        // interleave appends across components so lists are relocated within the shared pool
+        for (int j = 0; j < 10; j++) {
+            for (int i = 0; i < inventories.length; i++) {
+                Assert.assertTrue(inventories[i].addItem(i * 100 + j));
+                Assert.assertSame(inventories[i], inventories[i].addOwner(i));
+                inventories[i].addWeight(j / 2f);
+            }
+        }
+
+        for (int i = 0; i < inventories.length; i++) {
+            int[] items = inventories[i].getItems();
+            Assert.assertEquals(10, items.length);
+            for (int j = 0; j < 10; j++) {
+                Assert.assertEquals(i * 100 + j, items[j]);
+            }
+            Assert.assertTrue(inventories[i].containsItem(i * 100 + 5));
+            Assert.assertFalse(inventories[i].containsItem(-1));
+            Assert.assertTrue(inventories[i].containsOwner(i));
+            Assert.assertEquals(10, inventories[i].getWeights().length);
+        }
+
+        Assert.assertTrue(inventories[4].removeItem(405));
+        Assert.assertFalse(inventories[4].removeItem(405));
+        Assert.assertArrayEquals(new int[] { 400, 401, 402, 403, 404, 406, 407, 408, 409 },
+                                 inventories[4].getItems());
+        inventories[4].removeOwner(4);
+        Assert.assertTrue(inventories[4].containsOwner(4));
+
+        // setters copy the value
+        int[] replacement = new int[] { 1, 2, 3 };
+        inventories[5].setItems(replacement);
+        replacement[0] = 10;
+        Assert.assertArrayEquals(new int[] { 1, 2, 3 }, inventories[5].getItems());
+
+        // values must follow their components when the data store is compacted
+        for (int i = 0; i < inventories.length; i += 3) {
+            system.removeEntity(inventories[i].getEntity());
+        }
+        system.compact();
+        for (int i = 1; i < inventories.length; i++) {
+            if (i % 3 != 0 && i != 4 && i != 5) {
+                Assert.assertEquals(10, inventories[i].getItems().length);
+                Assert.assertEquals(i * 100 + 9, inventories[i].getItems()[9]);
+            }
+        }
+        Assert.assertArrayEquals(new int[] { 1, 2, 3 }, inventories[5].getItems());
+    }
+
+    @Test
+    public void testPrimitiveMapAndSetProperties() {
+        EntitySystem system = EntitySystem.Factory.create();
+        ModifierComponent[] modifiers = new ModifierComponent[30];
+        for (int i = 0; i < modifiers.length; i++) {
+            modifiers[i] = system.addEntity().add(ModifierComponent.class);
+            Assert.assertTrue(modifiers[i].getModifiers().isEmpty());
+            Assert.assertTrue(modifiers[i].getBuffs().isEmpty());
+        }
+
+        // interleave inserts across components so tables are rehashed within the shared pools
+        for (int j = 0; j < 20; j++) {
+            for (int i = 0; i < modifiers.length; i++) {
+                Assert.assertNull(modifiers[i].putModifier(j * 7, "m" + i + "-" + j));
+                Assert.assertTrue(modifiers[i].addBuff((long) i << 32 | j));
+            }
+        }
+
+        for (int i = 0; i < modifiers.length; i++) {
+            Map<Integer, String> map = modifiers[i].getModifiers();
+            Assert.assertEquals(20, map.size());
+            Set<Long> buffs = modifiers[i].getBuffs();
+            Assert.assertEquals(20, buffs.size());
+            for (int j = 0; j < 20; j++) {
+                Assert.assertEquals("m" + i + "-" + j, map.get(j * 7));
+                Assert.assertEquals("m" + i + "-" + j, modifiers[i].getModifier(j * 7));
+                Assert.assertTrue(modifiers[i].containsModifier(j * 7));
+                Assert.assertTrue(buffs.contains((long) i << 32 | j));
+                Assert.assertTrue(modifiers[i].containsBuff((long) i << 32 | j));
+            }
+            Assert.assertFalse(modifiers[i].containsModifier(1));
+            Assert.assertFalse(modifiers[i].addBuff((long) i << 32));
+        }
+
+        Assert.assertEquals("m3-4", modifiers[3].putModifier(28, "replaced"));
+        Assert.assertEquals("replaced", modifiers[3].removeModifier(28));
+        Assert.assertNull(modifiers[3].removeModifier(28));
+        Assert.assertFalse(modifiers[3].containsModifier(28));
+        Assert.assertSame(modifiers[3], modifiers[3].removeBuff(3L << 32 | 5));
+        Assert.assertFalse(modifiers[3].containsBuff(3L << 32 | 5));
+        Assert.assertEquals(19, modifiers[3].getBuffs().size());
+
+        // values must follow their components when the data store is compacted
+        for (int i = 0; i < modifiers.length; i += 3) {
+            system.removeEntity(modifiers[i].getEntity());
+        }
+        system.compact();
+        for (int i = 1; i < modifiers.length; i++) {
+            if (i % 3 != 0 && i != 3) {
+                Assert.assertEquals("m" + i + "-19", modifiers[i].getModifier(19 * 7));
+                Assert.assertEquals(20, modifiers[i].getBuffs().size());
+            }
+        }
+    }
+
+    @Test
+    public void testPrimitiveKeyedPropertiesAreOptIn() {
+        EntitySystem system = EntitySystem.Factory.create();
+        ModifierComponent c = system.addEntity().add(ModifierComponent.class);
+
+        // the general value map is still the default, so null keys are allowed
+        Map<Integer, String> values = new HashMap<>();
+        values.put(null, "none");
+        values.put(1, "one");
+        c.setAliases(values);
+        Assert.assertEquals(values, c.getAliases());
+
+        c.setTags(new HashSet<>(Arrays.asList(5, 1, 3)));
+        // the explicit TreeSet implementation is kept, so iteration is sorted
+        Assert.assertEquals(Arrays.asList(1, 3, 5), new ArrayList<>(c.getTags()));
+
+        // the primitive-keyed properties return copies that cannot be modified
+        c.putModifier(1, "one");
+        try {
+            c.getModifiers().put(2, "two");
+            Assert.fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        Assert.assertFalse(c.containsModifier(2));
+    }
+
+    @Test
+    public void testEntityReferenceProperty() {
+        EntitySystem system = EntitySystem.Factory.create();
+        Entity removed = system.addEntity();
+        Entity target = system.addEntity();
+        Entity e = system.addEntity();
+
+        TargetComponent c = e.add(TargetComponent.class);
+        Assert.assertNull(c.getTarget());
+        c.setTarget(target);
+        Assert.assertSame(target, c.getTarget());
+
+        // the reference follows the target to its new index after compaction
+        system.removeEntity(removed);
+        system.compact();
+        Assert.assertSame(target, c.getTarget());
+
+        // and references to removed entities become null, both before and after compaction
+        system.removeEntity(target);
+        Assert.assertNull(c.getTarget());
+        system.compact();
+        Assert.assertNull(c.getTarget());
+
+        // a newly added entity does not inherit the removed entity's reference
+        Entity added = system.addEntity();
+        Assert.assertNull(c.getTarget());
+        c.setTarget(added);
+        Assert.assertSame(added, c.getTarget());
+
+        // references are copied when cloning within the same system
+        Entity clone = system.addEntity(e);
+        Assert.assertSame(added, clone.get(TargetComponent.class).getTarget());
+    }
+
+    @Test
+    public void testEntityReferenceFromOtherSystem() {
+        EntitySystem system = EntitySystem.Factory.create();
+        EntitySystem other = EntitySystem.Factory.create();
+        TargetComponent c = system.addEntity().add(TargetComponent.class);
+        c.setTarget(system.addEntity());
+
+        try {
+            c.setTarget(other.addEntity());
+            Assert.fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        // a reference cannot be carried to another system when cloning a template
+        Entity clone = other.addEntity(c.getEntity());
+        Assert.assertNull(clone.get(TargetComponent.class).getTarget());
+    }
+
+    @Test
+    public void testQuantizedProperties() {
+        EntitySystem system = EntitySystem.Factory.create();
+        NetworkedComponent c = system.addEntity().add(NetworkedComponent.class);
+        Assert.assertEquals(100f, c.getHealth(), 0f);
+        // 0 falls halfway between two steps when 8 bits span [-180, 180]
+        Assert.assertEquals(0.0, c.getAngle(), 360.0 / 255);
+
+        c.setHealth(42.5f);
+        c.setAngle(-90.0);
+        Assert.assertEquals(42.5f, c.getHealth(), 100f / 65535 / 2);
+        Assert.assertEquals(-90.0, c.getAngle(), 360.0 / 255 / 2);
+
+        // the declared range is still validated
+        try {
+            c.setHealth(101f);
+            Assert.fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        Entity clone = system.addEntity(c.getEntity());
+        Assert.assertEquals(c.getHealth(), clone.get(NetworkedComponent.class).getHealth(), 0f);
+        Assert.assertEquals(c.getAngle(), clone.get(NetworkedComponent.class).getAngle(), 0.0);
+    }
+
+    @Test
+    public void testDictionaryObjectProperty() {
+        EntitySystem system = EntitySystem.Factory.create();
+        String red = "red";
+        String blue = "blue";
+
+        LabelComponent a = system.addEntity().add(LabelComponent.class);
+        LabelComponent b = system.addEntity().add(LabelComponent.class);
+        Assert.assertNull(a.getLabel());
+
+        a.setLabel(red);
+        b.setLabel(blue);
+        Assert.assertSame(red, a.getLabel());
+        Assert.assertSame(blue, b.getLabel());
+
+        b.setLabel(null);
+        Assert.assertNull(b.getLabel());
+
+        Entity clone = system.addEntity(a.getEntity());
+        Assert.assertSame(red, clone.get(LabelComponent.class).getLabel());
+
+        system.removeEntity(a.getEntity());
+        system.compact();
+        Assert.assertSame(red, clone.get(LabelComponent.class).getLabel());
+    }
+
+    @Test
+    public void testDoubleBufferedProperties() {
+        EntitySystem system = EntitySystem.Factory.create();
+        MotionComponent c = system.addEntity().add(MotionComponent.class);
+        Assert.assertEquals(1.0, c.getScale(), 0.0);
+
+        c.setSpeed(3f);
+        c.setScale(2.0);
+        c.setFrame(7);
+        // writes are not visible until the buffers are swapped
+        Assert.assertEquals(0f, c.getSpeed(), 0f);
+        Assert.assertEquals(1.0, c.getScale(), 0.0);
+        Assert.assertEquals(0, c.getFrame());
+
+        system.swapBuffers();
+        Assert.assertEquals(3f, c.getSpeed(), 0f);
+        Assert.assertEquals(2.0, c.getScale(), 0.0);
+        Assert.assertEquals(7, c.getFrame());
+
+        // values that are not written keep their state across swaps
+        c.setFrame(8);
+        system.swapBuffers();
+        Assert.assertEquals(3f, c.getSpeed(), 0f);
+        Assert.assertEquals(8, c.getFrame());
+
+        // clones are visible immediately
+        Entity clone = system.addEntity(c.getEntity());
+        Assert.assertEquals(8, clone.get(MotionComponent.class).getFrame());
+    }
+
+    @Test
+    public void testDirtyTracking() {
+        EntitySystem system = EntitySystem.Factory.create();
+        ComplexComponent a = system.addEntity().add(ComplexComponent.class);
+        ComplexComponent b = system.addEntity().add(ComplexComponent.class);
+        ComplexComponent c = system.addEntity().add(ComplexComponent.class);
+
+        // new components are not dirty
+        Assert.assertFalse(system.getDirtyComponents(ComplexComponent.class, "long").hasNext());
+
+        a.setLong(4L);
+        c.setLong(5L);
+        b.setParams((short) 1, (short) 2);
+
+        Assert.assertEquals(Arrays.asList(a, c), toList(system.getDirtyComponents(ComplexComponent.class,
+                                                                                  "long")));
+        Assert.assertEquals(Arrays.asList(b), toList(system.getDirtyComponents(ComplexComponent.class,
+                                                                               "param1")));
+        Assert.assertEquals(Arrays.asList(b), toList(system.getDirtyComponents(ComplexComponent.class,
+                                                                               "param2")));
+        Assert.assertFalse(system.getDirtyComponents(ComplexComponent.class, "enum").hasNext());
+
+        // remove() clears the flag of a single component
+        Iterator<ComplexComponent> it = system.getDirtyComponents(ComplexComponent.class, "long");
+        it.next();
+        it.remove();
+        Assert.assertEquals(Arrays.asList(c), toList(system.getDirtyComponents(ComplexComponent.class,
+                                                                               "long")));
+
+        // flags follow their components through compaction, and removed components are not reported
+        system.removeEntity(a.getEntity());
+        system.compact();
+        Assert.assertEquals(Arrays.asList(c), toList(system.getDirtyComponents(ComplexComponent.class,
+                                                                               "long")));
+        system.removeEntity(c.getEntity());
+        Assert.assertFalse(system.getDirtyComponents(ComplexComponent.class, "long").hasNext());
+
+        system.clearDirty(ComplexComponent.class, "param1");
+        Assert.assertFalse(system.getDirtyComponents(ComplexComponent.class, "param1").hasNext());
+        Assert.assertTrue(system.getDirtyComponents(ComplexComponent.class, "param2").hasNext());
+    }
+
+    @Test
+    public void testDirtyTrackingCollections() {
+        EntitySystem system = EntitySystem.Factory.create();
+        CollectionComponent c = system.addEntity().add(CollectionComponent.class);
+        // the reference list defaults to null
+        c.setPoints(new ArrayList<CollectionComponent.Point>());
+        system.clearDirty(CollectionComponent.class, "points");
+
+        CollectionComponent.Point p = new CollectionComponent.Point();
+        c.addPoint(p);
+        Assert.assertTrue(system.getDirtyComponents(CollectionComponent.class, "points").hasNext());
+
+        // queries do not mark the property dirty
+        system.clearDirty(CollectionComponent.class, "points");
+        Assert.assertTrue(c.containsPoint(p));
+        Assert.assertFalse(system.getDirtyComponents(CollectionComponent.class, "points").hasNext());
+
+        c.removePoint(p);
+        Assert.assertTrue(system.getDirtyComponents(CollectionComponent.class, "points").hasNext());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDirtyTrackingUnknownProperty() {
+        EntitySystem system = EntitySystem.Factory.create();
+        system.getDirtyComponents(ComplexComponent.class, "missing");
+    }
+
+    private static <T> List<T> toList(Iterator<T> it) {
+        List<T> list = new ArrayList<>();
+        while (it.hasNext()) {
+            list.add(it.next());
+        }
+        return list;
+    }
+
     @Test
     public void testValidation() {
         EntitySystem system = EntitySystem.Factory.create();
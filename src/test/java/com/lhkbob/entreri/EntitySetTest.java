@@ -0,0 +1,200 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri;
+
+import com.lhkbob.entreri.components.FloatComponent;
+import com.lhkbob.entreri.components.IntComponent;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+public class EntitySetTest {
+    private static List<Entity> addEntities(EntitySystem system, int count) {
+        List<Entity> entities = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Entity e = system.addEntity();
+            e.add(IntComponent.class).setInt(i);
+            entities.add(e);
+        }
+        return entities;
+    }
+
+    @Test
+    public void testAddRemoveContains() {
+        EntitySystem system = EntitySystem.Factory.create();
+        List<Entity> entities = addEntities(system, 100);
+
+        EntitySet set = system.createEntitySet();
+        Assert.assertSame(system, set.getEntitySystem());
+        Assert.assertTrue(set.isEmpty());
+
+        Assert.assertTrue(set.add(entities.get(5)));
+        Assert.assertTrue(set.add(entities.get(80)));
+        Assert.assertFalse(set.add(entities.get(5)));
+        Assert.assertEquals(2, set.size());
+        Assert.assertTrue(set.contains(entities.get(5)));
+        Assert.assertTrue(set.contains(entities.get(80)));
+        Assert.assertFalse(set.contains(entities.get(6)));
+
+        Assert.assertTrue(set.remove(entities.get(5)));
+        Assert.assertFalse(set.remove(entities.get(5)));
+        Assert.assertEquals(1, set.size());
+        Assert.assertFalse(set.contains(entities.get(5)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddEntityFromOtherSystem() {
+        EntitySet set = EntitySystem.Factory.create().createEntitySet();
+        set.add(EntitySystem.Factory.create().addEntity());
+    }
+
+    @Test
+    public void testIterationOrder() {
+        EntitySystem system = EntitySystem.Factory.create();
+        List<Entity> entities = addEntities(system, 200);
+
+        EntitySet set = system.createEntitySet();
+        set.add(entities.get(150));
+        set.add(entities.get(3));
+        set.add(entities.get(64));
+
+        Iterator<Entity> it = set.iterator();
+        Assert.assertSame(entities.get(3), it.next());
+        Assert.assertSame(entities.get(64), it.next());
+        it.remove();
+        Assert.assertSame(entities.get(150), it.next());
+        Assert.assertFalse(it.hasNext());
+        Assert.assertEquals(2, set.size());
+        Assert.assertFalse(set.contains(entities.get(64)));
+    }
+
+    @Test
+    public void testRemoveEntityAndCompact() {
+        EntitySystem system = EntitySystem.Factory.create();
+        List<Entity> entities = addEntities(system, 100);
+
+        EntitySet set = system.createEntitySet();
+        for (int i = 0; i < entities.size(); i += 2) {
+            set.add(entities.get(i));
+        }
+        Assert.assertEquals(50, set.size());
+
+        for (int i = 0; i < 50; i++) {
+            system.removeEntity(entities.get(i));
+        }
+        Assert.assertEquals(25, set.size());
+        Assert.assertFalse(set.contains(entities.get(0)));
+
+        system.compact();
+        Assert.assertEquals(25, set.size());
+        int expected = 50;
+        for (Entity e : set) {
+            Assert.assertSame(entities.get(expected), e);
+            expected += 2;
+        }
+        Assert.assertEquals(100, expected);
+    }
+
+    @Test
+    public void testSetAlgebra() {
+        EntitySystem system = EntitySystem.Factory.create();
+        List<Entity> entities = addEntities(system, 300);
+
+        EntitySet evens = system.createEntitySet();
+        EntitySet threes = system.createEntitySet();
+        for (int i = 0; i < entities.size(); i++) {
+            if (i % 2 == 0) {
+                evens.add(entities.get(i));
+            }
+            if (i % 3 == 0) {
+                threes.add(entities.get(i));
+            }
+        }
+
+        EntitySet union = system.createEntitySet();
+        union.addAll(evens);
+        Assert.assertTrue(union.addAll(threes));
+        Assert.assertEquals(200, union.size());
+
+        EntitySet intersect = system.createEntitySet();
+        intersect.addAll(evens);
+        Assert.assertTrue(intersect.retainAll(threes));
+        Assert.assertEquals(50, intersect.size());
+        for (Entity e : intersect) {
+            Assert.assertEquals(0, e.get(IntComponent.class).getInt() % 6);
+        }
+
+        EntitySet difference = system.createEntitySet();
+        difference.addAll(evens);
+        Assert.assertTrue(difference.removeAll(threes));
+        Assert.assertEquals(100, difference.size());
+        Assert.assertFalse(difference.removeAll(threes));
+
+        // non-EntitySet arguments use the regular collection behavior
+        EntitySet plain = system.createEntitySet();
+        plain.addAll(Arrays.asList(entities.get(0), entities.get(1)));
+        Assert.assertEquals(2, plain.size());
+        Assert.assertTrue(intersect.retainAll(plain));
+        Assert.assertEquals(1, intersect.size());
+        Assert.assertTrue(intersect.contains(entities.get(0)));
+    }
+
+    @Test
+    public void testFastIterator() {
+        EntitySystem system = EntitySystem.Factory.create();
+        List<Entity> entities = addEntities(system, 100);
+
+        EntitySet set = system.createEntitySet();
+        for (int i = entities.size() - 1; i >= 0; i--) {
+            if (i % 4 == 0) {
+                set.add(entities.get(i));
+            }
+            if (i % 8 == 0) {
+                entities.get(i).add(FloatComponent.class);
+            }
+        }
+
+        ComponentIterator it = system.fastIterator(set);
+        IntComponent intData = it.addRequired(IntComponent.class);
+        FloatComponent floatData = it.addOptional(FloatComponent.class);
+
+        for (int pass = 0; pass < 2; pass++) {
+            int expected = 0;
+            while (it.next()) {
+                Assert.assertEquals(expected, intData.getInt());
+                Assert.assertEquals(expected % 8 == 0, floatData.isAlive());
+                expected += 4;
+            }
+            Assert.assertEquals(100, expected);
+            it.reset();
+        }
+    }
+}
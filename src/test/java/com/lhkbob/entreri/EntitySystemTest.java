@@ -26,13 +26,28 @@
  */
 package com.lhkbob.entreri;
 
+import com.lhkbob.entreri.components.CollectionComponent;
 import com.lhkbob.entreri.components.ComplexComponent;
 import com.lhkbob.entreri.components.FloatComponent;
+import com.lhkbob.entreri.components.FlagsComponent;
 import com.lhkbob.entreri.components.IntComponent;
+import com.lhkbob.entreri.components.MotionComponent;
+import com.lhkbob.entreri.components.NetworkedComponent;
+import com.lhkbob.entreri.components.ObjectComponent;
+import com.lhkbob.entreri.components.RequiresAComponent;
+import com.lhkbob.entreri.components.SensorComponent;
+import com.lhkbob.entreri.components.TargetComponent;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
@@ -287,4 +302,597 @@ public class EntitySystemTest {
         Assert.assertFalse(it.hasNext());
         Assert.assertFalse(si.hasNext());
     }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        EntitySystem system = EntitySystem.Factory.create();
+        Entity e1 = system.addEntity();
+        Entity e2 = system.addEntity();
+        Entity e3 = system.addEntity();
+        Entity e4 = system.addEntity();
+
+        e1.add(IntComponent.class).setInt(10);
+        e1.add(FlagsComponent.class).setVisible(true);
+        e2.add(IntComponent.class).setInt(20);
+        e2.add(TargetComponent.class).setTarget(e4);
+        e3.add(IntComponent.class).setInt(30);
+        e4.add(NetworkedComponent.class).setHealth(50f);
+        e4.add(TargetComponent.class).setTarget(e1);
+        FloatComponent f = e4.add(FloatComponent.class);
+        f.setFloat(4f);
+
+        // leave a removed entity and a removed component uncompacted
+        system.removeEntity(e3);
+        e4.remove(FloatComponent.class);
+
+        int intVersion = e2.get(IntComponent.class).getVersion();
+        int intIndex = e2.get(IntComponent.class).getIndex();
+
+        File file = File.createTempFile("entreri", ".snapshot");
+        file.deleteOnExit();
+        try (FileChannel out = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            system.save(out);
+        }
+
+        EntitySystem loaded;
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            loaded = EntitySystem.Factory.load(in);
+        }
+
+        List<Entity> entities = new ArrayList<>();
+        for (Entity e : loaded) {
+            entities.add(e);
+        }
+        Assert.assertEquals(3, entities.size());
+        Entity l1 = entities.get(0);
+        Entity l2 = entities.get(1);
+        Entity l4 = entities.get(2);
+        Assert.assertEquals(e1.getId(), l1.getId());
+        Assert.assertEquals(e2.getId(), l2.getId());
+        Assert.assertEquals(e4.getId(), l4.getId());
+
+        Assert.assertEquals(10, l1.get(IntComponent.class).getInt());
+        Assert.assertTrue(l1.get(FlagsComponent.class).isVisible());
+        Assert.assertTrue(l1.get(FlagsComponent.class).isActive());
+        Assert.assertEquals(20, l2.get(IntComponent.class).getInt());
+        Assert.assertEquals(intIndex, l2.get(IntComponent.class).getIndex());
+        Assert.assertEquals(intVersion, l2.get(IntComponent.class).getVersion());
+        Assert.assertSame(l4, l2.get(TargetComponent.class).getTarget());
+        Assert.assertSame(l1, l4.get(TargetComponent.class).getTarget());
+        Assert.assertEquals(50f, l4.get(NetworkedComponent.class).getHealth(), .01f);
+        Assert.assertNull(l4.get(FloatComponent.class));
+        Assert.assertNull(l1.get(TargetComponent.class));
+
+        // the loaded system continues the id sequences and can be compacted like any other
+        Entity added = loaded.addEntity();
+        Assert.assertTrue(added.getId() > e4.getId());
+        added.add(IntComponent.class).setInt(40);
+        loaded.compact();
+        Assert.assertEquals(10, l1.get(IntComponent.class).getInt());
+        Assert.assertSame(l4, l2.get(TargetComponent.class).getTarget());
+
+        int count = 0;
+        Iterator<IntComponent> it = loaded.iterator(IntComponent.class);
+        while (it.hasNext()) {
+            it.next();
+            count++;
+        }
+        Assert.assertEquals(3, count);
+    }
+
+    @Test
+    public void testSaveUnsupportedProperty() throws IOException {
+        EntitySystem system = EntitySystem.Factory.create();
+        system.addEntity().add(IntComponent.class);
+        system.addEntity().add(ObjectComponent.class);
+
+        File file = File.createTempFile("entreri", ".snapshot");
+        file.deleteOnExit();
+        try (FileChannel out = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            system.save(out);
+            Assert.fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected, and nothing was written
+            Assert.assertEquals(0, file.length());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testLoadInvalidSnapshot() throws IOException {
+        File file = File.createTempFile("entreri", ".snapshot");
+        file.deleteOnExit();
+        try (FileChannel out = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            out.write(ByteBuffer.wrap(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 }));
+        }
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            EntitySystem.Factory.load(in);
+        }
+    }
+
+    @Test
+    public void testMappedSaveAndLoad() throws IOException {
+        File directory = Files.createTempDirectory("entreri").toFile();
+        File snapshot = new File(directory, "snapshot");
+        try {
+            EntitySystem system = EntitySystem.Factory.create(directory);
+            List<Entity> entities = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                Entity e = system.addEntity();
+                SensorComponent s = e.add(SensorComponent.class);
+                s.setReading(i / 2f);
+                s.setChannel(i);
+                e.add(IntComponent.class).setInt(-i);
+                entities.add(e);
+            }
+            Assert.assertTrue(new File(new File(directory, SensorComponent.class.getName()), "reading").isFile());
+
+            try (FileChannel out = FileChannel.open(snapshot.toPath(), StandardOpenOption.CREATE,
+                                                    StandardOpenOption.WRITE)) {
+                system.save(out);
+            }
+
+            EntitySystem loaded;
+            try (FileChannel in = FileChannel.open(snapshot.toPath(), StandardOpenOption.READ)) {
+                loaded = EntitySystem.Factory.load(in, directory);
+            }
+
+            int i = 0;
+            for (Entity e : loaded) {
+                SensorComponent s = e.get(SensorComponent.class);
+                Assert.assertEquals(entities.get(i).getId(), e.getId());
+                Assert.assertEquals(i / 2f, s.getReading(), .0001f);
+                Assert.assertEquals(1.0, s.getGain(), .0001);
+                Assert.assertEquals(i, s.getChannel());
+                Assert.assertEquals(-i, e.get(IntComponent.class).getInt());
+                i++;
+            }
+            Assert.assertEquals(100, i);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testLoadMappedSnapshotWithoutDirectory() throws IOException {
+        File directory = Files.createTempDirectory("entreri").toFile();
+        File snapshot = new File(directory, "snapshot");
+        try {
+            EntitySystem system = EntitySystem.Factory.create(directory);
+            system.addEntity().add(SensorComponent.class).setReading(2f);
+            try (FileChannel out = FileChannel.open(snapshot.toPath(), StandardOpenOption.CREATE,
+                                                    StandardOpenOption.WRITE)) {
+                system.save(out);
+            }
+
+            // the mapped values are not in the snapshot, so it cannot be loaded onto the heap
+            try (FileChannel in = FileChannel.open(snapshot.toPath(), StandardOpenOption.READ)) {
+                EntitySystem.Factory.load(in);
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testFork() {
+        EntitySystem system = EntitySystem.Factory.create();
+        Entity e1 = system.addEntity();
+        Entity e2 = system.addEntity();
+        Entity e3 = system.addEntity();
+        e1.add(IntComponent.class).setInt(10);
+        e1.add(FlagsComponent.class).setVisible(true);
+        e2.add(IntComponent.class).setInt(20);
+        e2.add(TargetComponent.class).setTarget(e1);
+        e3.add(FloatComponent.class).setFloat(3f);
+        system.removeEntity(e3);
+
+        EntitySystem fork = system.fork();
+        List<Entity> entities = new ArrayList<>();
+        for (Entity e : fork) {
+            entities.add(e);
+        }
+        Assert.assertEquals(2, entities.size());
+        Entity f1 = entities.get(0);
+        Entity f2 = entities.get(1);
+        Assert.assertNotSame(e1, f1);
+        Assert.assertEquals(e1.getId(), f1.getId());
+        Assert.assertEquals(e2.getId(), f2.getId());
+        Assert.assertEquals(10, f1.get(IntComponent.class).getInt());
+        Assert.assertTrue(f1.get(FlagsComponent.class).isVisible());
+        Assert.assertEquals(e2.get(IntComponent.class).getVersion(), f2.get(IntComponent.class).getVersion());
+        Assert.assertSame(f1, f2.get(TargetComponent.class).getTarget());
+        Iterator<IntComponent> dirty = fork.getDirtyComponents(IntComponent.class, "int");
+        Assert.assertSame(f1.get(IntComponent.class), dirty.next());
+        Assert.assertSame(f2.get(IntComponent.class), dirty.next());
+        Assert.assertFalse(dirty.hasNext());
+
+        // changes to either system are not seen by the other
+        f1.get(IntComponent.class).setInt(11);
+        f2.remove(TargetComponent.class);
+        fork.addEntity().add(IntComponent.class).setInt(40);
+        e2.get(IntComponent.class).setInt(21);
+        Assert.assertEquals(10, e1.get(IntComponent.class).getInt());
+        Assert.assertSame(e1, e2.get(TargetComponent.class).getTarget());
+        Assert.assertEquals(20, f2.get(IntComponent.class).getInt());
+
+        fork.compact();
+        int count = 0;
+        Iterator<IntComponent> it = system.iterator(IntComponent.class);
+        while (it.hasNext()) {
+            it.next();
+            count++;
+        }
+        Assert.assertEquals(2, count);
+    }
+
+    @Test
+    public void testForkObjectProperties() {
+        EntitySystem system = EntitySystem.Factory.create();
+        ObjectComponent.FooBlah foo = new ObjectComponent.FooBlah();
+        Entity e1 = system.addEntity();
+        e1.add(ObjectComponent.class).setObject(foo);
+        CollectionComponent c = e1.add(CollectionComponent.class);
+        c.setPoints(new ArrayList<>(Arrays.asList(new CollectionComponent.Point(1, 2))));
+        c.addValuePoint(new CollectionComponent.Point(3, 4));
+
+        EntitySystem fork = system.fork();
+        Entity f1 = fork.iterator().next();
+        Assert.assertSame(foo, f1.get(ObjectComponent.class).getObject());
+
+        // reference collections are copied shallowly, value collections are copied
+        CollectionComponent fc = f1.get(CollectionComponent.class);
+        Assert.assertNotSame(c.getPoints(), fc.getPoints());
+        Assert.assertEquals(c.getPoints(), fc.getPoints());
+        Assert.assertSame(c.getPoints().get(0), fc.getPoints().get(0));
+        fc.addPoint(new CollectionComponent.Point(5, 6));
+        Assert.assertEquals(1, c.getPoints().size());
+        Assert.assertTrue(fc.containsValuePoint(new CollectionComponent.Point(3, 4)));
+        fc.removeValuePoint(new CollectionComponent.Point(3, 4));
+        Assert.assertTrue(c.containsValuePoint(new CollectionComponent.Point(3, 4)));
+    }
+
+    @Test
+    public void testForkMappedSystem() throws IOException {
+        File directory = Files.createTempDirectory("entreri").toFile();
+        try {
+            EntitySystem system = EntitySystem.Factory.create(directory);
+            system.addEntity().add(IntComponent.class).setInt(5);
+            system.addEntity().add(SensorComponent.class).setReading(2.5f);
+
+            // mapped values are copied onto the heap
+            EntitySystem fork = system.fork();
+            Assert.assertEquals(5, fork.iterator(IntComponent.class).next().getInt());
+            SensorComponent sensor = fork.iterator(SensorComponent.class).next();
+            Assert.assertEquals(2.5f, sensor.getReading(), 0.0001f);
+
+            sensor.setReading(4f);
+            Assert.assertEquals(2.5f, system.iterator(SensorComponent.class).next().getReading(), 0.0001f);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testJournalRecover() throws IOException {
+        File directory = Files.createTempDirectory("entreri").toFile();
+        try {
+            EntitySystem system = EntitySystem.Factory.create();
+            Entity e1 = system.addEntity();
+            e1.add(IntComponent.class).setInt(1);
+
+            Journal journal = system.openJournal(directory);
+            Assert.assertEquals(directory, journal.getDirectory());
+
+            Entity e2 = system.addEntity();
+            Entity e3 = system.addEntity();
+            Entity e4 = system.addEntity();
+            e1.get(IntComponent.class).setInt(10);
+            e2.add(IntComponent.class).setInt(20);
+            e2.add(TargetComponent.class).setTarget(e4);
+            e3.add(FlagsComponent.class).setVisible(true);
+            e4.add(RequiresAComponent.class);
+            e4.get(FloatComponent.class).setFloat(4f);
+            journal.commit();
+
+            // structural changes that shift indices, and a template whose values are cloned
+            system.removeEntity(e3);
+            e2.remove(IntComponent.class);
+            system.compact();
+            Entity e5 = system.addEntity(e4);
+            e5.get(IntComponent.class).setInt(50);
+            journal.commit();
+
+            // uncommitted changes are not recovered
+            e1.get(IntComponent.class).setInt(-1);
+            system.addEntity().add(IntComponent.class);
+
+            EntitySystem recovered = EntitySystem.Factory.recover(directory);
+            List<Entity> entities = new ArrayList<>();
+            for (Entity e : recovered) {
+                entities.add(e);
+            }
+            Assert.assertEquals(4, entities.size());
+            Entity r1 = entities.get(0);
+            Entity r2 = entities.get(1);
+            Entity r4 = entities.get(2);
+            Entity r5 = entities.get(3);
+            Assert.assertEquals(e1.getId(), r1.getId());
+            Assert.assertEquals(e2.getId(), r2.getId());
+            Assert.assertEquals(e4.getId(), r4.getId());
+            Assert.assertEquals(e5.getId(), r5.getId());
+
+            Assert.assertEquals(10, r1.get(IntComponent.class).getInt());
+            Assert.assertNull(r2.get(IntComponent.class));
+            Assert.assertSame(r4, r2.get(TargetComponent.class).getTarget());
+            Assert.assertNotNull(r4.get(RequiresAComponent.class));
+            Assert.assertEquals(4f, r4.get(FloatComponent.class).getFloat(), .0001f);
+            Assert.assertEquals(4f, r5.get(FloatComponent.class).getFloat(), .0001f);
+            Assert.assertEquals(50, r5.get(IntComponent.class).getInt());
+            // replay reproduces the component indices
+            Assert.assertEquals(e1.get(IntComponent.class).getIndex(), r1.get(IntComponent.class).getIndex());
+            Assert.assertEquals(e4.get(IntComponent.class).getIndex(), r4.get(IntComponent.class).getIndex());
+            Assert.assertEquals(e5.get(FloatComponent.class).getIndex(), r5.get(FloatComponent.class).getIndex());
+            journal.close();
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testJournalCheckpoint() throws IOException {
+        File directory = Files.createTempDirectory("entreri").toFile();
+        try {
+            EntitySystem system = EntitySystem.Factory.create();
+            Journal journal = system.openJournal(directory);
+            Entity e = system.addEntity();
+            e.add(IntComponent.class).setInt(3);
+            journal.commit();
+            String[] before = directory.list();
+
+            journal.checkpoint();
+            e.get(IntComponent.class).setInt(4);
+            journal.close();
+
+            // the older generation was deleted
+            for (String name : before) {
+                Assert.assertFalse(new File(directory, name).exists());
+            }
+            Assert.assertEquals(2, directory.list().length);
+
+            // changes after close are not journaled
+            e.get(IntComponent.class).setInt(5);
+            EntitySystem recovered = EntitySystem.Factory.recover(directory);
+            Assert.assertEquals(4, recovered.iterator(IntComponent.class).next().getInt());
+
+            // a new journal continues from the recovered system
+            Journal next = recovered.openJournal(directory);
+            recovered.addEntity().add(IntComponent.class).setInt(6);
+            next.close();
+            int count = 0;
+            Iterator<IntComponent> it = EntitySystem.Factory.recover(directory).iterator(IntComponent.class);
+            while (it.hasNext()) {
+                count += it.next().getInt();
+            }
+            Assert.assertEquals(10, count);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testJournalUnsupportedProperty() throws IOException {
+        File directory = Files.createTempDirectory("entreri").toFile();
+        try {
+            EntitySystem system = EntitySystem.Factory.create();
+            system.addEntity().add(ObjectComponent.class);
+            system.openJournal(directory);
+            Assert.fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testOpenJournalTwice() throws IOException {
+        File directory = Files.createTempDirectory("entreri").toFile();
+        try {
+            EntitySystem system = EntitySystem.Factory.create();
+            system.openJournal(directory);
+            system.openJournal(directory);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testRecoverWithoutJournal() throws IOException {
+        File directory = Files.createTempDirectory("entreri").toFile();
+        try {
+            EntitySystem.Factory.recover(directory);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testDeltaReplication() throws IOException {
+        EntitySystem server = EntitySystem.Factory.create();
+        EntitySystem client = EntitySystem.Factory.create();
+        DeltaEncoder encoder = server.createDeltaEncoder();
+        DeltaDecoder decoder = client.createDeltaDecoder();
+
+        Entity e1 = server.addEntity();
+        Entity e2 = server.addEntity();
+        Entity e3 = server.addEntity();
+        e1.add(IntComponent.class).setInt(1);
+        e2.add(IntComponent.class).setInt(2);
+        e2.add(TargetComponent.class).setTarget(e3);
+        e3.add(NetworkedComponent.class).setHealth(30f);
+        server.addEntity(); // no components
+
+        long ack = decoder.apply(encoder.encode(0));
+        Assert.assertEquals(encoder.getWatermark(), ack);
+        assertMirrored(server, client, decoder, 4);
+        Entity m3 = decoder.getEntity(e3.getId());
+        Assert.assertSame(m3, decoder.getEntity(e2.getId()).get(TargetComponent.class).getTarget());
+
+        // only the changed component is sent
+        IntComponent m1 = decoder.getEntity(e1.getId()).get(IntComponent.class);
+        IntComponent m2 = decoder.getEntity(e2.getId()).get(IntComponent.class);
+        int m1Version = m1.getVersion();
+        int m2Version = m2.getVersion();
+        e2.get(IntComponent.class).setInt(20);
+        ack = decoder.apply(encoder.encode(ack));
+        Assert.assertEquals(m1Version, m1.getVersion());
+        Assert.assertTrue(m2.getVersion() != m2Version);
+        Assert.assertEquals(20, m2.getInt());
+
+        // removals, additions, and compaction
+        server.removeEntity(e1);
+        e3.remove(NetworkedComponent.class);
+        server.compact();
+        Entity e5 = server.addEntity(e2);
+        e5.get(TargetComponent.class).setTarget(e5);
+        ack = decoder.apply(encoder.encode(ack));
+        assertMirrored(server, client, decoder, 4);
+        Assert.assertNull(decoder.getEntity(e1.getId()));
+        Assert.assertFalse(m1.isAlive());
+        Assert.assertNull(m3.get(NetworkedComponent.class));
+        Entity m5 = decoder.getEntity(e5.getId());
+        Assert.assertSame(m5, m5.get(TargetComponent.class).getTarget());
+        Assert.assertEquals(20, m5.get(IntComponent.class).getInt());
+
+        // nothing changed, so the delta carries no components
+        int unchanged = encoder.encode(ack).remaining();
+        Assert.assertTrue(unchanged < 64);
+    }
+
+    @Test
+    public void testDeltaLostAndStale() throws IOException {
+        EntitySystem server = EntitySystem.Factory.create();
+        EntitySystem client = EntitySystem.Factory.create();
+        DeltaEncoder encoder = server.createDeltaEncoder();
+        DeltaDecoder decoder = client.createDeltaDecoder();
+
+        Entity e1 = server.addEntity();
+        e1.add(IntComponent.class).setInt(1);
+        e1.add(MotionComponent.class).setSpeed(2f);
+        long ack = decoder.apply(encoder.encode(0));
+
+        // the next delta is lost, so the following one is encoded from the last acknowledgement
+        e1.get(IntComponent.class).setInt(2);
+        ByteBuffer lost = encoder.encode(ack);
+        ByteBuffer copy = ByteBuffer.allocate(lost.remaining());
+        copy.put(lost).flip();
+
+        Entity e2 = server.addEntity();
+        e2.add(IntComponent.class).setInt(3);
+        server.swapBuffers();
+        long latest = decoder.apply(encoder.encode(ack));
+        Assert.assertEquals(encoder.getWatermark(), latest);
+        assertMirrored(server, client, decoder, 2);
+        Assert.assertEquals(2f, decoder.getEntity(e1.getId()).get(MotionComponent.class).getSpeed(), .0001f);
+
+        // the late delta is older than the mirror and is ignored
+        Assert.assertEquals(latest, decoder.apply(copy));
+        assertMirrored(server, client, decoder, 2);
+
+        // a full state delta repairs a mirror that has diverged
+        server.removeEntity(e1);
+        encoder.release(latest);
+        try {
+            encoder.encode(ack);
+            Assert.fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected, the watermark was released
+        }
+        decoder.apply(encoder.encode(0));
+        assertMirrored(server, client, decoder, 1);
+        encoder.close();
+    }
+
+    @Test
+    public void testFullDeltaRemovesMissingComponents() throws IOException {
+        EntitySystem server = EntitySystem.Factory.create();
+        EntitySystem client = EntitySystem.Factory.create();
+        DeltaEncoder encoder = server.createDeltaEncoder();
+        DeltaDecoder decoder = client.createDeltaDecoder();
+
+        Entity e1 = server.addEntity();
+        e1.add(IntComponent.class).setInt(1);
+        e1.add(NetworkedComponent.class).setHealth(10f);
+        Entity e2 = server.addEntity();
+        e2.add(NetworkedComponent.class).setHealth(20f);
+        long ack = decoder.apply(encoder.encode(0));
+        assertMirrored(server, client, decoder, 2);
+
+        // the removals are never delivered, and the frames that logged them are released
+        e1.remove(NetworkedComponent.class);
+        e2.remove(NetworkedComponent.class);
+        encoder.encode(ack);
+        encoder.release(encoder.getWatermark());
+
+        decoder.apply(encoder.encode(0));
+        assertMirrored(server, client, decoder, 2);
+        Entity m1 = decoder.getEntity(e1.getId());
+        Assert.assertEquals(1, m1.get(IntComponent.class).getInt());
+        Assert.assertNull(m1.get(NetworkedComponent.class));
+        Assert.assertNull(decoder.getEntity(e2.getId()).get(NetworkedComponent.class));
+    }
+
+    @Test(expected = IOException.class)
+    public void testDeltaFromUnknownWatermark() throws IOException {
+        EntitySystem server = EntitySystem.Factory.create();
+        DeltaEncoder encoder = server.createDeltaEncoder();
+        server.addEntity().add(IntComponent.class);
+        encoder.encode(0);
+        ByteBuffer delta = encoder.encode(encoder.getWatermark());
+
+        // the client never applied the first delta
+        EntitySystem.Factory.create().createDeltaDecoder().apply(delta);
+    }
+
+    private static void assertMirrored(EntitySystem server, EntitySystem client, DeltaDecoder decoder,
+                                       int entityCount) {
+        int count = 0;
+        for (Entity e : server) {
+            Entity m = decoder.getEntity(e.getId());
+            Assert.assertNotNull(m);
+            Assert.assertTrue(m.isAlive());
+            count++;
+
+            Assert.assertEquals(e.get(IntComponent.class) != null, m.get(IntComponent.class) != null);
+            if (e.get(IntComponent.class) != null) {
+                Assert.assertEquals(e.get(IntComponent.class).getInt(), m.get(IntComponent.class).getInt());
+            }
+            Assert.assertEquals(e.get(NetworkedComponent.class) != null, m.get(NetworkedComponent.class) != null);
+            if (e.get(NetworkedComponent.class) != null) {
+                Assert.assertEquals(e.get(NetworkedComponent.class).getHealth(),
+                                    m.get(NetworkedComponent.class).getHealth(), .0001f);
+            }
+            if (e.get(MotionComponent.class) != null) {
+                Assert.assertEquals(e.get(MotionComponent.class).getSpeed(),
+                                    m.get(MotionComponent.class).getSpeed(), .0001f);
+            }
+        }
+        Assert.assertEquals(entityCount, count);
+
+        count = 0;
+        for (Entity m : client) {
+            count++;
+        }
+        Assert.assertEquals(entityCount, count);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
 }
@@ -26,12 +26,27 @@
  */
 package com.lhkbob.entreri;
 
+import com.lhkbob.entreri.components.FloatComponent;
+import com.lhkbob.entreri.components.IntComponent;
+import com.lhkbob.entreri.components.MotionComponent;
 import com.lhkbob.entreri.task.Job;
+import com.lhkbob.entreri.task.ParallelAware;
 import com.lhkbob.entreri.task.Result;
+import com.lhkbob.entreri.task.SimpleTask;
 import com.lhkbob.entreri.task.Task;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 // NOTE: this does not test the thread-safety aspects of a job, because
 // it's a little too difficult to write a unit test for that
 public class SchedulerTest {
@@ -81,6 +96,25 @@ public class SchedulerTest {
         Assert.assertTrue(t3.invoked);
     }
 
+    @Test
+    public void testPostProcessJobReused() {
+        EntitySystem system = EntitySystem.Factory.create();
+
+        JobRecordingTask post = new JobRecordingTask(null);
+        JobRecordingTask t1 = new JobRecordingTask(post);
+
+        Job j = system.getScheduler().createJob("test", t1);
+        j.run();
+        Job firstPostProcess = post.job;
+        Assert.assertNotNull(firstPostProcess);
+        Assert.assertNotSame(j, firstPostProcess);
+
+        post.job = null;
+        j.run();
+        Assert.assertSame(firstPostProcess, post.job);
+        Assert.assertTrue(post.reset);
+    }
+
     @Test(expected = IllegalStateException.class)
     public void testMultipleSingletonResultsReported() {
         EntitySystem system = EntitySystem.Factory.create();
@@ -131,6 +165,223 @@ public class SchedulerTest {
         Assert.assertTrue(t1.reset);
     }
 
+    @Test
+    public void testIndependentTasksRunConcurrently() {
+        // the pool has a single worker on a single processor
+        Assume.assumeTrue(Runtime.getRuntime().availableProcessors() > 1);
+        EntitySystem system = EntitySystem.Factory.create();
+
+        // each task waits for the other to start, which only succeeds if they run at the same time
+        CountDownLatch started = new CountDownLatch(2);
+        IntWritingTask t1 = new IntWritingTask(started, null);
+        FloatWritingTask t2 = new FloatWritingTask(started, null);
+
+        Job j = system.getScheduler().createJob("test", t1, t2);
+        j.run();
+        Assert.assertTrue(t1.overlapped);
+        Assert.assertTrue(t2.overlapped);
+    }
+
+    @Test
+    public void testConflictingTasksKeepOrder() {
+        EntitySystem system = EntitySystem.Factory.create();
+
+        List<Task> order = Collections.synchronizedList(new ArrayList<Task>());
+        IntWritingTask t1 = new IntWritingTask(null, order);
+        FloatWritingTask t2 = new FloatWritingTask(null, order);
+        IntReadingTask t3 = new IntReadingTask(order);
+        IntWritingTask t4 = new IntWritingTask(null, order);
+
+        Job j = system.getScheduler().createJob("test", t1, t2, t3, t4);
+        for (int i = 0; i < 10; i++) {
+            order.clear();
+            j.run();
+
+            // t2 is independent, but t1, t3 and t4 all touch IntComponent
+            Assert.assertEquals(4, order.size());
+            Assert.assertTrue(order.indexOf(t1) < order.indexOf(t3));
+            Assert.assertTrue(order.indexOf(t3) < order.indexOf(t4));
+        }
+    }
+
+    @Test
+    public void testConcurrentTaskFailure() {
+        EntitySystem system = EntitySystem.Factory.create();
+
+        IntWritingTask t1 = new IntWritingTask(null, null);
+        FloatWritingTask t2 = new FloatWritingTask(null, null);
+        t1.fail = true;
+
+        Job j = system.getScheduler().createJob("test", t1, t2);
+        try {
+            j.run();
+            Assert.fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        // the job released its locks and can run again
+        t1.fail = false;
+        j.run();
+        Assert.assertTrue(t2.invoked);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testReportExceptionPropagated() {
+        EntitySystem system = EntitySystem.Factory.create();
+
+        ResultReportingTask t1 = new ResultReportingTask(null, new ResultA());
+        ResultAListeningTask t2 = new ResultAListeningTask(null) {
+            @Override
+            public void report(ResultA r) {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        Job j = system.getScheduler().createJob("test", t1, t2);
+        j.run();
+    }
+
+    @Test
+    public void testSimpleTaskProcessesEntities() {
+        EntitySystem system = EntitySystem.Factory.create();
+        for (int i = 0; i < 5; i++) {
+            Entity e = system.addEntity();
+            e.add(IntComponent.class).setInt(i);
+            if (i % 2 == 0) {
+                e.add(FloatComponent.class).setFloat(i);
+            }
+        }
+        system.addEntity().add(FloatComponent.class);
+
+        SumTask sum = new SumTask(Integer.MAX_VALUE);
+        system.getScheduler().createJob("test", sum).run();
+        Assert.assertEquals(5, sum.processed);
+        Assert.assertEquals(10, sum.intSum);
+        Assert.assertEquals(6f, sum.floatSum, .0001f);
+
+        // returning false stops the iteration
+        SumTask limited = new SumTask(2);
+        system.getScheduler().createJob("test", limited).run();
+        Assert.assertEquals(2, limited.processed);
+    }
+
+    @Test
+    public void testOptimisticJobRetriedAfterWrite() {
+        EntitySystem system = EntitySystem.Factory.create();
+        IntComponent c = system.addEntity().add(IntComponent.class);
+        c.setInt(1);
+
+        IntSettingTask write = new IntSettingTask(c, 2);
+        OptimisticReadingTask reader = new OptimisticReadingTask(c, system.getScheduler()
+                                                                          .createJob("writer", write));
+
+        Job j = system.getScheduler().createJob("reader", reader);
+        j.setOptimistic(true);
+        Assert.assertTrue(j.isOptimistic());
+        j.run();
+
+        // the first run was invalidated by the writer and run again under the read locks
+        Assert.assertEquals(2, reader.observed.size());
+        Assert.assertEquals(1, reader.observed.get(0).intValue());
+        Assert.assertEquals(2, reader.observed.get(1).intValue());
+
+        // without conflicting writes the optimistic run is kept
+        j.run();
+        Assert.assertEquals(3, reader.observed.size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testOptimisticJobMustBeReadOnly() {
+        EntitySystem system = EntitySystem.Factory.create();
+        Job j = system.getScheduler().createJob("test", new IntWritingTask(null, null));
+        j.setOptimistic(true);
+    }
+
+    @Test
+    public void testBufferedReadsKeepReadLock() throws InterruptedException {
+        EntitySystem system = EntitySystem.Factory.create();
+        MotionWritingTask write = new MotionWritingTask();
+        Thread writer = new Thread(system.getScheduler().createJob("writer", write));
+        writer.start();
+        Thread reader = new Thread(system.getScheduler().createJob("reader", new BufferedReadingTask()));
+        try {
+            Assert.assertTrue(write.writing.await(10, TimeUnit.SECONDS));
+
+            // the writer could add or remove components, so the reader waits for the type's lock
+            reader.start();
+            reader.join(100);
+            Assert.assertTrue(reader.isAlive());
+        } finally {
+            write.release.countDown();
+            writer.join();
+        }
+        reader.join(10000);
+        Assert.assertFalse(reader.isAlive());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testOptimisticJobMustAllowOptimisticReads() {
+        EntitySystem system = EntitySystem.Factory.create();
+        Job j = system.getScheduler().createJob("test", new IntReadingTask(null));
+        j.setOptimistic(true);
+    }
+
+    @Test
+    public void testSharedExecutor() throws InterruptedException {
+        EntitySystem system = EntitySystem.Factory.create();
+        ExecutorService shared = Executors.newFixedThreadPool(2);
+        try {
+            system.getScheduler().setExecutor(shared);
+            Assert.assertSame(shared, system.getScheduler().getExecutor());
+
+            CountingTask once = new CountingTask(1);
+            system.getScheduler().runOnSeparateThread(system.getScheduler().createJob("once", once));
+            Assert.assertTrue(once.done.await(10, TimeUnit.SECONDS));
+
+            CountingTask every = new CountingTask(3);
+            CountingTask continuous = new CountingTask(3);
+            ExecutorService s1 = system.getScheduler()
+                                       .runEvery(0.01, system.getScheduler().createJob("every", every));
+            ExecutorService s2 = system.getScheduler()
+                                       .runContinuously(system.getScheduler().createJob("fast", continuous));
+            Assert.assertTrue(every.done.await(10, TimeUnit.SECONDS));
+            Assert.assertTrue(continuous.done.await(10, TimeUnit.SECONDS));
+
+            s1.shutdown();
+            s2.shutdown();
+            Assert.assertTrue(s1.awaitTermination(10, TimeUnit.SECONDS));
+            Assert.assertTrue(s2.awaitTermination(10, TimeUnit.SECONDS));
+
+            // stopping the repetition does not stop the shared executor
+            Assert.assertFalse(shared.isShutdown());
+            int count = every.count;
+            Thread.sleep(50);
+            Assert.assertEquals(count, every.count);
+        } finally {
+            shared.shutdown();
+        }
+    }
+
+    @Test
+    public void testDirectExecutorDoesNotRecurse() throws InterruptedException {
+        EntitySystem system = EntitySystem.Factory.create();
+        system.getScheduler().setExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+
+        // enough back to back executions to overflow the stack if each one ran inside the previous one
+        CountingTask continuous = new CountingTask(100000);
+        ExecutorService s = system.getScheduler()
+                                  .runContinuously(system.getScheduler().createJob("fast", continuous));
+        Assert.assertTrue(continuous.done.await(60, TimeUnit.SECONDS));
+        s.shutdown();
+        Assert.assertTrue(s.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
     private static class ResultA extends Result {
         @Override
         public boolean isSingleton() {
@@ -167,6 +418,201 @@ public class SchedulerTest {
         }
     }
 
+    private static class OrderedTask extends BasicTask {
+        final CountDownLatch started;
+        final List<Task> order;
+        boolean overlapped;
+        boolean fail;
+
+        public OrderedTask(CountDownLatch started, List<Task> order) {
+            super(null);
+            this.started = started;
+            this.order = order;
+        }
+
+        @Override
+        public Task process(EntitySystem system, Job job) {
+            if (fail) {
+                throw new IllegalStateException("Failing task");
+            }
+            if (started != null) {
+                started.countDown();
+                try {
+                    overlapped = started.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    overlapped = false;
+                }
+            }
+            if (order != null) {
+                order.add(this);
+            }
+            return super.process(system, job);
+        }
+    }
+
+    @ParallelAware(modifiedComponents = IntComponent.class, readOnlyComponents = { },
+                   entitySetModified = false)
+    private static class IntWritingTask extends OrderedTask {
+        public IntWritingTask(CountDownLatch started, List<Task> order) {
+            super(started, order);
+        }
+    }
+
+    @ParallelAware(modifiedComponents = FloatComponent.class, readOnlyComponents = { },
+                   entitySetModified = false)
+    private static class FloatWritingTask extends OrderedTask {
+        public FloatWritingTask(CountDownLatch started, List<Task> order) {
+            super(started, order);
+        }
+    }
+
+    @ParallelAware(modifiedComponents = { }, readOnlyComponents = IntComponent.class,
+                   entitySetModified = false)
+    private static class IntReadingTask extends OrderedTask {
+        public IntReadingTask(List<Task> order) {
+            super(null, order);
+        }
+    }
+
+    @ParallelAware(modifiedComponents = MotionComponent.class, readOnlyComponents = { },
+                   entitySetModified = false)
+    private static class MotionWritingTask extends BasicTask {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        public MotionWritingTask() {
+            super(null);
+        }
+
+        @Override
+        public Task process(EntitySystem system, Job job) {
+            writing.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return super.process(system, job);
+        }
+    }
+
+    @ParallelAware(modifiedComponents = { }, readOnlyComponents = MotionComponent.class,
+                   bufferedComponents = MotionComponent.class, entitySetModified = false)
+    private static class BufferedReadingTask extends BasicTask {
+        public BufferedReadingTask() {
+            super(null);
+        }
+    }
+
+    private static class CountingTask extends BasicTask {
+        final CountDownLatch done;
+        volatile int count;
+
+        public CountingTask(int executions) {
+            super(null);
+            done = new CountDownLatch(executions);
+        }
+
+        @Override
+        public Task process(EntitySystem system, Job job) {
+            count++;
+            done.countDown();
+            return super.process(system, job);
+        }
+    }
+
+    private static class SumTask extends SimpleTask {
+        final int limit;
+        int processed;
+        int intSum;
+        float floatSum;
+
+        public SumTask(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void reset(EntitySystem system) {
+            processed = 0;
+            intSum = 0;
+            floatSum = 0f;
+        }
+
+        @SuppressWarnings("unused")
+        private boolean processEntity(IntComponent i, @Optional FloatComponent f) {
+            processed++;
+            intSum += i.getInt();
+            if (f != null) {
+                floatSum += f.getFloat();
+            }
+            return processed < limit;
+        }
+    }
+
+    private static class JobRecordingTask extends BasicTask {
+        Job job;
+
+        public JobRecordingTask(BasicTask postProcess) {
+            super(postProcess);
+        }
+
+        @Override
+        public Task process(EntitySystem system, Job job) {
+            this.job = job;
+            return super.process(system, job);
+        }
+    }
+
+    @ParallelAware(modifiedComponents = IntComponent.class, readOnlyComponents = { },
+                   entitySetModified = false)
+    private static class IntSettingTask extends BasicTask {
+        final IntComponent component;
+        final int value;
+
+        public IntSettingTask(IntComponent component, int value) {
+            super(null);
+            this.component = component;
+            this.value = value;
+        }
+
+        @Override
+        public Task process(EntitySystem system, Job job) {
+            component.setInt(value);
+            return super.process(system, job);
+        }
+    }
+
+    @ParallelAware(modifiedComponents = { }, readOnlyComponents = IntComponent.class,
+                   entitySetModified = false, optimisticReads = true)
+    private static class OptimisticReadingTask extends BasicTask {
+        final IntComponent component;
+        final Job writer;
+        final List<Integer> observed;
+
+        public OptimisticReadingTask(IntComponent component, Job writer) {
+            super(null);
+            this.component = component;
+            this.writer = writer;
+            observed = new ArrayList<>();
+        }
+
+        @Override
+        public Task process(EntitySystem system, Job job) {
+            observed.add(component.getInt());
+            if (observed.size() == 1) {
+                // the writer can only complete because the optimistic job holds no locks
+                Thread t = new Thread(writer);
+                t.start();
+                try {
+                    t.join();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            return super.process(system, job);
+        }
+    }
+
     private static class ResultReportingTask extends BasicTask {
         private final Result[] toReport;
 
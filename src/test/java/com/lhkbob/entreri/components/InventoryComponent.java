@@ -0,0 +1,68 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.components;
+
+import com.lhkbob.entreri.Component;
+import com.lhkbob.entreri.property.*;
+
+/**
+ * A test component that covers the pooled primitive list properties.
+ *
+ * @author Michael Ludwig
+ */
+public interface InventoryComponent extends Component {
+    // testing primitive lists with the container type identified from the bean methods
+    @ImplementedBy(IntListProperty.class)
+    public int[] getItems();
+
+    public void setItems(int[] items);
+
+    public boolean addItem(int item);
+
+    public boolean containsItem(int item);
+
+    public boolean removeItem(int item);
+
+
+    // testing primitive lists with the container type identified from the attribute, and the `return this`
+    // and `return void` options
+    @Collection(type = Collection.Type.LIST)
+    @ImplementedBy(LongListProperty.class)
+    public InventoryComponent addOwner(long owner);
+
+    public boolean containsOwner(long owner);
+
+    public void removeOwner(long owner);
+
+
+    @ImplementedBy(FloatListProperty.class)
+    public float[] getWeights();
+
+    public void setWeights(float[] weights);
+
+    public void addWeight(float weight);
+}
@@ -0,0 +1,81 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.components;
+
+import com.lhkbob.entreri.Component;
+import com.lhkbob.entreri.property.Collection;
+import com.lhkbob.entreri.property.ImplementedBy;
+import com.lhkbob.entreri.property.IntObjectMapProperty;
+import com.lhkbob.entreri.property.LongSetProperty;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A test component that covers the primitive-keyed map and set properties selected with ImplementedBy.
+ *
+ * @author Michael Ludwig
+ */
+public interface ModifierComponent extends Component {
+    // testing int-keyed maps, with boxed and primitive keys
+    @ImplementedBy(IntObjectMapProperty.class)
+    public Map<Integer, String> getModifiers();
+
+    public void setModifiers(Map<Integer, String> modifiers);
+
+    public String putModifier(Integer key, String value);
+
+    public String getModifier(Integer key);
+
+    public String removeModifier(int key);
+
+    public boolean containsModifier(int key);
+
+
+    // testing long sets, with the container type identified from the attribute
+    @Collection(type = Collection.Type.SET)
+    public boolean addBuff(long buff);
+
+    public boolean containsBuff(Long buff);
+
+    public ModifierComponent removeBuff(long buff);
+
+    @ImplementedBy(LongSetProperty.class)
+    public Set<Long> getBuffs();
+
+
+    // testing that integer-keyed collections keep the general properties by default
+    public Map<Integer, String> getAliases();
+
+    public void setAliases(Map<Integer, String> aliases);
+
+    @Collection(setImpl = TreeSet.class)
+    public Set<Integer> getTags();
+
+    public void setTags(Set<Integer> tags);
+}
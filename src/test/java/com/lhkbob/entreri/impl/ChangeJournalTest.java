@@ -0,0 +1,130 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.impl;
+
+import com.lhkbob.entreri.Entity;
+import com.lhkbob.entreri.EntitySystem;
+import com.lhkbob.entreri.components.IntComponent;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+
+public class ChangeJournalTest {
+    @Test
+    public void testSegmentRotation() throws IOException {
+        File directory = Files.createTempDirectory("entreri").toFile();
+        try {
+            EntitySystemImpl system = (EntitySystemImpl) EntitySystem.Factory.create();
+            ChangeJournal journal = system.openJournal(directory, 64);
+            for (int i = 0; i < 10; i++) {
+                system.addEntity().add(IntComponent.class).setInt(i);
+                journal.commit();
+            }
+            journal.close();
+            Assert.assertTrue(new File(directory, "journal-00000000-00000009").isFile());
+
+            Assert.assertEquals(45, sum(EntitySystem.Factory.recover(directory)));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testRecoverTornFrame() throws IOException {
+        File directory = Files.createTempDirectory("entreri").toFile();
+        try {
+            EntitySystemImpl system = (EntitySystemImpl) EntitySystem.Factory.create();
+            ChangeJournal journal = system.openJournal(directory, ChangeJournal.DEFAULT_SEGMENT_SIZE);
+            Entity e = system.addEntity();
+            e.add(IntComponent.class).setInt(1);
+            journal.commit();
+            e.get(IntComponent.class).setInt(2);
+            journal.commit();
+            journal.close();
+
+            // cut the last frame short, as if the process died while it was written
+            File segment = new File(directory, "journal-00000000-00000000");
+            try (FileChannel channel = FileChannel.open(segment.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(channel.size() - 2);
+            }
+            Assert.assertEquals(1, sum(EntitySystem.Factory.recover(directory)));
+
+            // a frame with a bad checksum is discarded as well
+            try (FileChannel channel = FileChannel.open(segment.toPath(), StandardOpenOption.APPEND)) {
+                channel.write(ByteBuffer.wrap(new byte[] { 1, 0, 0, 0, 0, 0, 0, 0, 9 }));
+            }
+            Assert.assertEquals(1, sum(EntitySystem.Factory.recover(directory)));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testFailedOpenDoesNotRecord() throws IOException {
+        File directory = Files.createTempDirectory("entreri").toFile();
+        File file = new File(directory, "file");
+        try {
+            Assert.assertTrue(file.createNewFile());
+            EntitySystemImpl system = (EntitySystemImpl) EntitySystem.Factory.create();
+            try {
+                system.openJournal(file);
+                Assert.fail("Expected IOException");
+            } catch (IOException e) {
+                // expected, the journal cannot be created within a file
+            }
+            Assert.assertNull(system.getJournal());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static int sum(EntitySystem system) {
+        int sum = 0;
+        Iterator<IntComponent> it = system.iterator(IntComponent.class);
+        while (it.hasNext()) {
+            sum += it.next().getInt();
+        }
+        return sum;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -94,6 +94,38 @@ public class ComponentDataStoreTest {
         Assert.assertEquals(2, count);
     }
 
+    @Test
+    public void testNextComponentIndexSkipsRemoved() {
+        EntitySystemImpl system = (EntitySystemImpl) EntitySystem.Factory.create();
+        List<Entity> entities = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Entity e = system.addEntity();
+            e.add(IntComponent.class);
+            entities.add(e);
+        }
+        // remove everything except a handful of components spread across multiple bitmap words
+        for (int i = 0; i < entities.size(); i++) {
+            if (i != 3 && i != 70 && i != 199) {
+                system.removeEntity(entities.get(i));
+            }
+        }
+
+        ComponentDataStore<IntComponent> cr = system.getRepository(IntComponent.class);
+        int first = cr.nextComponentIndex(1);
+        int second = cr.nextComponentIndex(first + 1);
+        int third = cr.nextComponentIndex(second + 1);
+        Assert.assertEquals(entities.get(3).get(IntComponent.class).getIndex(), first);
+        Assert.assertEquals(entities.get(70).get(IntComponent.class).getIndex(), second);
+        Assert.assertEquals(entities.get(199).get(IntComponent.class).getIndex(), third);
+        Assert.assertEquals(-1, cr.nextComponentIndex(third + 1));
+
+        system.compact();
+        Assert.assertEquals(1, cr.nextComponentIndex(1));
+        Assert.assertEquals(2, cr.nextComponentIndex(2));
+        Assert.assertEquals(3, cr.nextComponentIndex(3));
+        Assert.assertEquals(-1, cr.nextComponentIndex(4));
+    }
+
     @Test
     @SuppressWarnings({ "unused", "UnusedAssignment" })
     public void testUndecorateValidProperty() throws Exception {
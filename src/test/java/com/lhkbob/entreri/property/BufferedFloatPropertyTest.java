@@ -0,0 +1,147 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import org.junit.Test;
+
+import java.lang.annotation.Annotation;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.BufferedFloatProperty}.
+ *
+ * @author Michael Ludwig
+ */
+public class BufferedFloatPropertyTest {
+    private void doDefaultValueTest(BufferedFloatProperty property, float expectedValue) {
+        property.setCapacity(1);
+        property.setDefaultValue(0);
+        assertEquals(expectedValue, property.get(0), 0.0001f);
+        assertEquals(expectedValue, property.getPending(0), 0.0001f);
+    }
+
+    private void doClonePolicy(BufferedFloatProperty property, boolean clone) {
+        property.setCapacity(2);
+        property.set(0, 2f);
+        property.set(1, 3f);
+        property.swapBuffers();
+        property.set(0, 4f);
+
+        // now for the actual clone, which copies the pending value
+        property.clone(property, 0, 1);
+        if (clone) {
+            assertEquals(4f, property.get(1), 0.0001f);
+            assertEquals(4f, property.getPending(1), 0.0001f);
+        } else {
+            assertEquals(0f, property.get(1), 0.0001f);
+            assertEquals(0f, property.getPending(1), 0.0001f);
+        }
+    }
+
+    @Test
+    public void testSimpleConstructorDefaultValue() {
+        doDefaultValueTest(new BufferedFloatProperty(2f, false), 2f);
+    }
+
+    @Test
+    public void testSimpleConstructorClone() {
+        doClonePolicy(new BufferedFloatProperty(0f, true), true);
+    }
+
+    @Test
+    public void testSimpleConstructorDoNotClone() {
+        doClonePolicy(new BufferedFloatProperty(0f, false), false);
+    }
+
+    @Test
+    public void testAnnotationConstructorDefaultValue() throws NoSuchMethodException {
+        doDefaultValueTest(new BufferedFloatProperty(getDefaultValue(), null), 1.5f);
+    }
+
+    @Test
+    public void testAnnotationConstructorDoNotClone() throws NoSuchMethodException {
+        doClonePolicy(new BufferedFloatProperty(null, getClonePolicy()), false);
+    }
+
+    @Test
+    public void testSetCapacity() {
+        BufferedFloatProperty p = new BufferedFloatProperty(0f, false);
+        assertEquals(1, p.getCapacity());
+        p.setCapacity(5);
+        assertEquals(5, p.getCapacity());
+        assertEquals(5, p.getIndexedData().length);
+        assertEquals(5, p.getIndexedPendingData().length);
+    }
+
+    @Test
+    public void testSwapBuffers() {
+        BufferedFloatProperty p = new BufferedFloatProperty(0f, false);
+        p.set(0, 5f);
+        assertEquals(0f, p.get(0), 0.0001f);
+        assertEquals(5f, p.getPending(0), 0.0001f);
+
+        p.swapBuffers();
+        assertEquals(5f, p.get(0), 0.0001f);
+        assertEquals(5f, p.getIndexedData()[0], 0.0001f);
+
+        // the back buffer keeps the value after a swap
+        p.swapBuffers();
+        assertEquals(5f, p.get(0), 0.0001f);
+    }
+
+    @Test
+    public void testSwap() {
+        BufferedFloatProperty p = new BufferedFloatProperty(0f, false);
+        p.setCapacity(2);
+        p.set(0, 1f);
+        p.set(1, 2f);
+        p.swapBuffers();
+        p.set(0, 3f);
+        p.swap(0, 1);
+
+        assertEquals(2f, p.get(0), 0.0001f);
+        assertEquals(1f, p.get(1), 0.0001f);
+        assertEquals(2f, p.getPending(0), 0.0001f);
+        assertEquals(3f, p.getPending(1), 0.0001f);
+    }
+
+    @DefaultFloat(1.5f)
+    private static DefaultFloat getDefaultValue() throws NoSuchMethodException {
+        return getAnnotation(DefaultFloat.class, "getDefaultValue");
+    }
+
+    @DoNotClone
+    private static DoNotClone getClonePolicy() throws NoSuchMethodException {
+        return getAnnotation(DoNotClone.class, "getClonePolicy");
+    }
+
+    private static <T extends Annotation> T getAnnotation(Class<T> type, String methodName)
+            throws NoSuchMethodException {
+        return BufferedFloatPropertyTest.class.getDeclaredMethod(methodName).getAnnotation(type);
+    }
+}
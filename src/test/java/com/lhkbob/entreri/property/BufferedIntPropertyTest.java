@@ -0,0 +1,147 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import org.junit.Test;
+
+import java.lang.annotation.Annotation;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.BufferedIntProperty}.
+ *
+ * @author Michael Ludwig
+ */
+public class BufferedIntPropertyTest {
+    private void doDefaultValueTest(BufferedIntProperty property, int expectedValue) {
+        property.setCapacity(1);
+        property.setDefaultValue(0);
+        assertEquals(expectedValue, property.get(0));
+        assertEquals(expectedValue, property.getPending(0));
+    }
+
+    private void doClonePolicy(BufferedIntProperty property, boolean clone) {
+        property.setCapacity(2);
+        property.set(0, 2);
+        property.set(1, 3);
+        property.swapBuffers();
+        property.set(0, 4);
+
+        // now for the actual clone, which copies the pending value
+        property.clone(property, 0, 1);
+        if (clone) {
+            assertEquals(4, property.get(1));
+            assertEquals(4, property.getPending(1));
+        } else {
+            assertEquals(0, property.get(1));
+            assertEquals(0, property.getPending(1));
+        }
+    }
+
+    @Test
+    public void testSimpleConstructorDefaultValue() {
+        doDefaultValueTest(new BufferedIntProperty(2, false), 2);
+    }
+
+    @Test
+    public void testSimpleConstructorClone() {
+        doClonePolicy(new BufferedIntProperty(0, true), true);
+    }
+
+    @Test
+    public void testSimpleConstructorDoNotClone() {
+        doClonePolicy(new BufferedIntProperty(0, false), false);
+    }
+
+    @Test
+    public void testAnnotationConstructorDefaultValue() throws NoSuchMethodException {
+        doDefaultValueTest(new BufferedIntProperty(getDefaultValue(), null), 15);
+    }
+
+    @Test
+    public void testAnnotationConstructorDoNotClone() throws NoSuchMethodException {
+        doClonePolicy(new BufferedIntProperty(null, getClonePolicy()), false);
+    }
+
+    @Test
+    public void testSetCapacity() {
+        BufferedIntProperty p = new BufferedIntProperty(0, false);
+        assertEquals(1, p.getCapacity());
+        p.setCapacity(5);
+        assertEquals(5, p.getCapacity());
+        assertEquals(5, p.getIndexedData().length);
+        assertEquals(5, p.getIndexedPendingData().length);
+    }
+
+    @Test
+    public void testSwapBuffers() {
+        BufferedIntProperty p = new BufferedIntProperty(0, false);
+        p.set(0, 5);
+        assertEquals(0, p.get(0));
+        assertEquals(5, p.getPending(0));
+
+        p.swapBuffers();
+        assertEquals(5, p.get(0));
+        assertEquals(5, p.getIndexedData()[0]);
+
+        // the back buffer keeps the value after a swap
+        p.swapBuffers();
+        assertEquals(5, p.get(0));
+    }
+
+    @Test
+    public void testSwap() {
+        BufferedIntProperty p = new BufferedIntProperty(0, false);
+        p.setCapacity(2);
+        p.set(0, 1);
+        p.set(1, 2);
+        p.swapBuffers();
+        p.set(0, 3);
+        p.swap(0, 1);
+
+        assertEquals(2, p.get(0));
+        assertEquals(1, p.get(1));
+        assertEquals(2, p.getPending(0));
+        assertEquals(3, p.getPending(1));
+    }
+
+    @DefaultInt(15)
+    private static DefaultInt getDefaultValue() throws NoSuchMethodException {
+        return getAnnotation(DefaultInt.class, "getDefaultValue");
+    }
+
+    @DoNotClone
+    private static DoNotClone getClonePolicy() throws NoSuchMethodException {
+        return getAnnotation(DoNotClone.class, "getClonePolicy");
+    }
+
+    private static <T extends Annotation> T getAnnotation(Class<T> type, String methodName)
+            throws NoSuchMethodException {
+        return BufferedIntPropertyTest.class.getDeclaredMethod(methodName).getAnnotation(type);
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.ColumnWriter} and {@link
+ * com.lhkbob.entreri.property.ColumnReader}.
+ *
+ * @author Michael Ludwig
+ */
+public class ColumnWriterTest {
+    private static final int COUNT = 1000;
+
+    @Test
+    public void testRoundTripLargeBuffer() throws IOException {
+        doRoundTrip(ColumnWriter.DEFAULT_BUFFER_SIZE);
+    }
+
+    @Test
+    public void testRoundTripSmallBuffer() throws IOException {
+        // columns span many buffer flushes and refills, and values straddle the buffer boundaries
+        doRoundTrip(13);
+    }
+
+    private void doRoundTrip(int bufferSize) throws IOException {
+        boolean[] booleans = new boolean[COUNT];
+        byte[] bytes = new byte[COUNT];
+        short[] shorts = new short[COUNT];
+        char[] chars = new char[COUNT];
+        int[] ints = new int[COUNT];
+        long[] longs = new long[COUNT];
+        float[] floats = new float[COUNT];
+        double[] doubles = new double[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            booleans[i] = i % 3 == 0;
+            bytes[i] = (byte) i;
+            shorts[i] = (short) (i * 37);
+            chars[i] = (char) (i + 'a');
+            ints[i] = i * 100003;
+            longs[i] = i * 1000000007L;
+            floats[i] = i / 7f;
+            doubles[i] = i / 11.0;
+        }
+
+        ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+        ColumnWriter out = new ColumnWriter(Channels.newChannel(bytesOut), bufferSize);
+        out.writeInt(42);
+        out.writeBooleans(booleans, 0, COUNT);
+        out.writeString("h\u00e9llo");
+        out.writeBytes(bytes, 0, COUNT);
+        out.writeShorts(shorts, 0, COUNT);
+        out.writeLong(-5L);
+        out.writeChars(chars, 0, COUNT);
+        out.writeInts(ints, 0, COUNT);
+        out.writeLongs(longs, 0, COUNT);
+        out.writeFloats(floats, 0, COUNT);
+        out.writeDoubles(doubles, 1, COUNT - 1);
+        out.flush();
+
+        ColumnReader in = new ColumnReader(Channels.newChannel(new ByteArrayInputStream(bytesOut.toByteArray())),
+                                           bufferSize);
+        assertEquals(42, in.readInt());
+        boolean[] booleansIn = new boolean[COUNT];
+        in.readBooleans(booleansIn, 0, COUNT);
+        for (int i = 0; i < COUNT; i++) {
+            assertEquals(booleans[i], booleansIn[i]);
+        }
+        assertEquals("h\u00e9llo", in.readString());
+        byte[] bytesIn = new byte[COUNT];
+        in.readBytes(bytesIn, 0, COUNT);
+        assertArrayEquals(bytes, bytesIn);
+        short[] shortsIn = new short[COUNT];
+        in.readShorts(shortsIn, 0, COUNT);
+        assertArrayEquals(shorts, shortsIn);
+        assertEquals(-5L, in.readLong());
+        char[] charsIn = new char[COUNT];
+        in.readChars(charsIn, 0, COUNT);
+        assertArrayEquals(chars, charsIn);
+        int[] intsIn = new int[COUNT];
+        in.readInts(intsIn, 0, COUNT);
+        assertArrayEquals(ints, intsIn);
+        long[] longsIn = new long[COUNT];
+        in.readLongs(longsIn, 0, COUNT);
+        assertArrayEquals(longs, longsIn);
+        float[] floatsIn = new float[COUNT];
+        in.readFloats(floatsIn, 0, COUNT);
+        assertArrayEquals(floats, floatsIn, 0f);
+        double[] doublesIn = new double[COUNT];
+        in.readDoubles(doublesIn, 1, COUNT - 1);
+        assertEquals(0.0, doublesIn[0], 0.0);
+        for (int i = 1; i < COUNT; i++) {
+            assertEquals(doubles[i], doublesIn[i], 0.0);
+        }
+    }
+
+    @Test
+    public void testLittleEndian() throws IOException {
+        ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+        ColumnWriter out = new ColumnWriter(Channels.newChannel(bytesOut));
+        out.writeInt(0x01020304);
+        out.flush();
+        assertArrayEquals(new byte[] { 4, 3, 2, 1 }, bytesOut.toByteArray());
+    }
+
+    @Test(expected = EOFException.class)
+    public void testReadPastEnd() throws IOException {
+        ColumnReader in = new ColumnReader(Channels.newChannel(new ByteArrayInputStream(new byte[6])));
+        in.readInts(new int[2], 0, 2);
+    }
+}
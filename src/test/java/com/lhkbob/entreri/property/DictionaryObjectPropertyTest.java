@@ -0,0 +1,170 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.DictionaryObjectProperty}.
+ *
+ * @author Michael Ludwig
+ */
+public class DictionaryObjectPropertyTest {
+    private void doClonePolicy(DictionaryObjectProperty<Object> property, boolean clone) {
+        Object a = new Object();
+        Object b = new Object();
+        property.setCapacity(2);
+        property.set(0, a);
+        property.set(1, b);
+
+        property.clone(property, 0, 1);
+        if (clone) {
+            assertSame(a, property.get(1));
+            assertEquals(1, property.getDictionarySize());
+        } else {
+            assertNull(property.get(1));
+        }
+    }
+
+    @Test
+    public void testSimpleConstructorClone() {
+        doClonePolicy(new DictionaryObjectProperty<>(Object.class, true), true);
+    }
+
+    @Test
+    public void testSimpleConstructorDoNotClone() {
+        doClonePolicy(new DictionaryObjectProperty<>(Object.class, false), false);
+    }
+
+    @Test
+    public void testAnnotationConstructorClone() {
+        // no DoNotClone annotation maps to true
+        doClonePolicy(new DictionaryObjectProperty<>(Object.class, (DoNotClone) null), true);
+    }
+
+    @Test
+    public void testInitialCapacity() {
+        DictionaryObjectProperty<Object> p = new DictionaryObjectProperty<>(Object.class, false);
+        assertEquals(1, p.getCapacity());
+        assertNull(p.get(0));
+    }
+
+    @Test
+    public void testSetCapacity() {
+        DictionaryObjectProperty<Object> p = new DictionaryObjectProperty<>(Object.class, false);
+        p.setCapacity(5);
+        assertEquals(5, p.getCapacity());
+        assertEquals(5, p.getIndexedShortData().length);
+        assertNull(p.getIndexedIntData());
+    }
+
+    @Test
+    public void testDeduplication() {
+        DictionaryObjectProperty<String> p = new DictionaryObjectProperty<>(String.class, false);
+        String red = "red";
+        String otherRed = new String("red");
+
+        p.setCapacity(4);
+        p.set(0, red);
+        p.set(1, red);
+        p.set(2, otherRed);
+
+        assertEquals(p.getCode(0), p.getCode(1));
+        // deduplication is by identity, not equality
+        assertTrue(p.getCode(0) != p.getCode(2));
+        assertEquals(0, p.getCode(3));
+        assertEquals(2, p.getDictionarySize());
+        assertSame(red, p.getValue(p.getCode(1)));
+        assertSame(otherRed, p.get(2));
+    }
+
+    @Test
+    public void testUnusedValuesReleased() {
+        DictionaryObjectProperty<Object> p = new DictionaryObjectProperty<>(Object.class, false);
+        Object a = new Object();
+        Object b = new Object();
+
+        p.setCapacity(3);
+        p.set(0, a);
+        p.set(1, a);
+        p.set(2, b);
+        int codeA = p.getCode(0);
+        int codeB = p.getCode(2);
+        assertEquals(2, p.getDictionarySize());
+
+        p.set(2, null);
+        assertEquals(1, p.getDictionarySize());
+        assertNull(p.getValue(codeB));
+
+        p.setDefaultValue(0);
+        assertEquals(1, p.getDictionarySize());
+
+        // shrinking drops the last reference to a
+        p.setCapacity(1);
+        assertEquals(0, p.getDictionarySize());
+
+        // released codes are reused
+        p.set(0, b);
+        assertTrue(p.getCode(0) == codeA || p.getCode(0) == codeB);
+    }
+
+    @Test
+    public void testSwap() {
+        DictionaryObjectProperty<Object> p = new DictionaryObjectProperty<>(Object.class, false);
+        Object a = new Object();
+        Object b = new Object();
+        p.setCapacity(2);
+        p.set(0, a);
+        p.set(1, b);
+        p.swap(0, 1);
+
+        assertSame(b, p.get(0));
+        assertSame(a, p.get(1));
+        assertEquals(2, p.getDictionarySize());
+    }
+
+    @Test
+    public void testWideCodes() {
+        DictionaryObjectProperty<Integer> p = new DictionaryObjectProperty<>(Integer.class, false);
+        int count = 70000;
+        p.setCapacity(count);
+        Integer[] values = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = new Integer(i);
+            p.set(i, values[i]);
+        }
+
+        assertNull(p.getIndexedShortData());
+        assertEquals(count, p.getIndexedIntData().length);
+        assertEquals(count, p.getDictionarySize());
+        for (int i = 0; i < count; i++) {
+            assertSame(values[i], p.get(i));
+        }
+    }
+}
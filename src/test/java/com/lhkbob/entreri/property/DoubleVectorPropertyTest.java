@@ -0,0 +1,192 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import com.lhkbob.entreri.IllegalComponentDefinitionException;
+import org.junit.Test;
+
+import java.lang.annotation.Annotation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.DoubleVectorProperty}.
+ *
+ * @author Michael Ludwig
+ */
+public class DoubleVectorPropertyTest {
+    private void doDefaultValueTest(DoubleVectorProperty property, double expectedValue) {
+        property.setCapacity(1);
+        property.setDefaultValue(0);
+        for (int i = 0; i < property.getDimension(); i++) {
+            assertEquals(expectedValue, property.get(0, i), 0.00001);
+        }
+    }
+
+    private void doClonePolicy(DoubleVectorProperty property, boolean clone) {
+        property.setCapacity(2);
+        property.set(0, new double[] { 1, 2, 3 });
+        property.set(1, new double[] { 0, 0, 0 });
+
+        // now for the actual clone
+        property.clone(property, 0, 1);
+        if (clone) {
+            assertArrayEquals(new double[] { 1, 2, 3 }, property.get(1), 0.00001);
+        } else {
+            assertArrayEquals(new double[] { 0, 0, 0 }, property.get(1), 0.00001);
+        }
+    }
+
+    @Test
+    public void testSimpleConstructorDefaultValue() {
+        doDefaultValueTest(new DoubleVectorProperty(3, 5.0, true), 5.0);
+    }
+
+    @Test
+    public void testSimpleConstructorClone() {
+        doClonePolicy(new DoubleVectorProperty(3, 0.0, true), true);
+    }
+
+    @Test
+    public void testSimpleConstructorDoNotClone() {
+        doClonePolicy(new DoubleVectorProperty(3, 0.0, false), false);
+    }
+
+    @Test
+    public void testAnnotationConstructorDefaultValue() throws NoSuchMethodException {
+        doDefaultValueTest(new DoubleVectorProperty(getDimension(), getDefaultValue(), null), 5.0);
+    }
+
+    @Test
+    public void testAnnotationConstructorNoDefaultValue() throws NoSuchMethodException {
+        // no DefaultDouble annotation maps to 0
+        doDefaultValueTest(new DoubleVectorProperty(getDimension(), null, null), 0.0);
+    }
+
+    @Test
+    public void testAnnotationConstructorClone() throws NoSuchMethodException {
+        // no DoNotClone annotation maps to true
+        doClonePolicy(new DoubleVectorProperty(getDimension(), null, null), true);
+    }
+
+    @Test
+    public void testAnnotationConstructorDoNotClone() throws NoSuchMethodException {
+        doClonePolicy(new DoubleVectorProperty(getDimension(), null, getClonePolicy()), false);
+    }
+
+    @Test(expected = IllegalComponentDefinitionException.class)
+    public void testAnnotationConstructorNoDimension() {
+        new DoubleVectorProperty(null, null, null);
+    }
+
+    @Test
+    public void testInitialCapacity() {
+        assertEquals(1, new DoubleVectorProperty(3, 0.0, false).getCapacity());
+    }
+
+    @Test
+    public void testSetCapacity() {
+        DoubleVectorProperty p = new DoubleVectorProperty(4, 0.0, false);
+        p.setCapacity(5);
+        assertEquals(5, p.getCapacity());
+        assertEquals(20, p.getIndexedData().length);
+    }
+
+    @Test
+    public void testGetAndSet() {
+        DoubleVectorProperty p = new DoubleVectorProperty(3, 0.0, false);
+        assertArrayEquals(new double[3], p.get(0), 0.00001);
+        p.set(0, new double[] { 1, 2, 3 });
+        assertArrayEquals(new double[] { 1, 2, 3 }, p.get(0), 0.00001);
+
+        // fill a caller-owned array, which may be longer than the dimension
+        double[] result = new double[] { 0, 0, 0, 4 };
+        p.get(0, result);
+        assertArrayEquals(new double[] { 1, 2, 3, 4 }, result, 0.00001);
+
+        p.set(0, 1, 7);
+        assertEquals(7, p.get(0, 1), 0.00001);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetTooShort() {
+        new DoubleVectorProperty(3, 0.0, false).set(0, new double[2]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetTooShort() {
+        new DoubleVectorProperty(3, 0.0, false).get(0, new double[2]);
+    }
+
+    @Test
+    public void testSwap() {
+        DoubleVectorProperty p = new DoubleVectorProperty(3, 0.0, false);
+        p.setCapacity(2);
+        p.set(0, new double[] { 1, 2, 3 });
+        p.set(1, new double[] { 4, 5, 6 });
+        p.swap(0, 1);
+
+        assertArrayEquals(new double[] { 1, 2, 3 }, p.get(1), 0.00001);
+        assertArrayEquals(new double[] { 4, 5, 6 }, p.get(0), 0.00001);
+
+        // make sure order doesn't matter
+        p.swap(1, 0);
+        assertArrayEquals(new double[] { 1, 2, 3 }, p.get(0), 0.00001);
+        assertArrayEquals(new double[] { 4, 5, 6 }, p.get(1), 0.00001);
+    }
+
+    @Test
+    public void testGetIndexedData() {
+        DoubleVectorProperty p = new DoubleVectorProperty(3, 0.0, false);
+        p.setCapacity(2);
+        double[] data = p.getIndexedData();
+        p.set(1, new double[] { 1, 2, 3 });
+        assertEquals(1.0, data[3], 0.00001);
+        assertEquals(3.0, data[5], 0.00001);
+    }
+
+    @Dimension(3)
+    private static Dimension getDimension() throws NoSuchMethodException {
+        return getAnnotation(Dimension.class, "getDimension");
+    }
+
+    @DefaultDouble(5.0)
+    private static DefaultDouble getDefaultValue() throws NoSuchMethodException {
+        return getAnnotation(DefaultDouble.class, "getDefaultValue");
+    }
+
+    @DoNotClone
+    private static DoNotClone getClonePolicy() throws NoSuchMethodException {
+        return getAnnotation(DoNotClone.class, "getClonePolicy");
+    }
+
+    private static <T extends Annotation> T getAnnotation(Class<T> type, String methodName)
+            throws NoSuchMethodException {
+        return DoubleVectorPropertyTest.class.getDeclaredMethod(methodName).getAnnotation(type);
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import com.lhkbob.entreri.Entity;
+import com.lhkbob.entreri.EntitySystem;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.EntityReferenceProperty}.
+ *
+ * @author Michael Ludwig
+ */
+public class EntityReferencePropertyTest {
+    /**
+     * An entity index over the entities added through it, standing in for the index a system attaches.
+     */
+    private static class TestEntityIndex implements Property.EntityIndex {
+        private final EntitySystem system = EntitySystem.Factory.create();
+        private final List<Entity> entities = new ArrayList<>();
+
+        public Entity addEntity() {
+            Entity e = system.addEntity();
+            entities.add(e);
+            return e;
+        }
+
+        @Override
+        public EntitySystem getEntitySystem() {
+            return system;
+        }
+
+        @Override
+        public Entity getEntity(int index) {
+            Entity e = entities.get(index - 1);
+            return e.isAlive() ? e : null;
+        }
+
+        @Override
+        public int getIndex(Entity entity) {
+            return entity.isAlive() ? entities.indexOf(entity) + 1 : 0;
+        }
+    }
+
+    private void doClonePolicy(EntityReferenceProperty property, boolean clone) {
+        TestEntityIndex entities = new TestEntityIndex();
+        Entity a = entities.addEntity();
+        Entity b = entities.addEntity();
+
+        property.attach(entities);
+
+        property.setCapacity(2);
+        property.set(0, a);
+        property.set(1, b);
+
+        property.clone(property, 0, 1);
+        if (clone) {
+            assertSame(a, property.get(1));
+        } else {
+            assertNull(property.get(1));
+        }
+    }
+
+    @Test
+    public void testSimpleConstructorClone() {
+        doClonePolicy(new EntityReferenceProperty(true), true);
+    }
+
+    @Test
+    public void testSimpleConstructorDoNotClone() {
+        doClonePolicy(new EntityReferenceProperty(false), false);
+    }
+
+    @Test
+    public void testAnnotationConstructorClone() {
+        // no DoNotClone annotation maps to true
+        doClonePolicy(new EntityReferenceProperty((DoNotClone) null), true);
+    }
+
+    @Test
+    public void testInitialCapacity() {
+        assertEquals(1, new EntityReferenceProperty(false).getCapacity());
+    }
+
+    @Test
+    public void testSetCapacity() {
+        EntityReferenceProperty p = new EntityReferenceProperty(false);
+        p.setCapacity(5);
+        assertEquals(5, p.getCapacity());
+        assertEquals(5, p.getIndexedData().length);
+    }
+
+    @Test
+    public void testGetAndSet() {
+        TestEntityIndex entities = new TestEntityIndex();
+        Entity e = entities.addEntity();
+
+        EntityReferenceProperty p = new EntityReferenceProperty(false);
+        assertNull(p.get(0));
+        assertNull(p.getEntitySystem());
+
+        p.attach(entities);
+        assertSame(entities.getEntitySystem(), p.getEntitySystem());
+        p.set(0, e);
+        assertSame(e, p.get(0));
+        assertTrue(p.getIndexedData()[0] != 0);
+
+        p.set(0, null);
+        assertNull(p.get(0));
+        assertEquals(0, p.getIndexedData()[0]);
+    }
+
+    @Test
+    public void testRemovedEntity() {
+        TestEntityIndex entities = new TestEntityIndex();
+        Entity e = entities.addEntity();
+
+        EntityReferenceProperty p = new EntityReferenceProperty(false);
+        p.attach(entities);
+        p.set(0, e);
+        entities.getEntitySystem().removeEntity(e);
+        assertNull(p.get(0));
+
+        // a removed entity is stored as a null reference
+        p.set(0, e);
+        assertEquals(0, p.getIndexedData()[0]);
+    }
+
+    @Test
+    public void testRemap() {
+        EntityReferenceProperty p = new EntityReferenceProperty(false);
+        p.setCapacity(3);
+        p.getIndexedData()[0] = 1;
+        p.getIndexedData()[1] = 2;
+        p.getIndexedData()[2] = 3;
+
+        p.remap(new int[] { 0, 0, 1, 2 });
+        assertArrayEquals(new int[] { 0, 1, 2 }, p.getIndexedData());
+    }
+
+    @Test
+    public void testSwap() {
+        TestEntityIndex entities = new TestEntityIndex();
+        Entity a = entities.addEntity();
+        Entity b = entities.addEntity();
+
+        EntityReferenceProperty p = new EntityReferenceProperty(false);
+        p.attach(entities);
+        p.setCapacity(2);
+        p.set(0, a);
+        p.set(1, b);
+        p.swap(0, 1);
+
+        assertSame(b, p.get(0));
+        assertSame(a, p.get(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOtherSystemRejected() {
+        EntityReferenceProperty p = new EntityReferenceProperty(false);
+        p.attach(new TestEntityIndex());
+        p.set(0, EntitySystem.Factory.create().addEntity());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnattachedRejected() {
+        EntityReferenceProperty p = new EntityReferenceProperty(false);
+        p.set(0, EntitySystem.Factory.create().addEntity());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReattachRejected() {
+        EntityReferenceProperty p = new EntityReferenceProperty(false);
+        p.attach(new TestEntityIndex());
+        p.attach(new TestEntityIndex());
+    }
+}
@@ -28,9 +28,14 @@ package com.lhkbob.entreri.property;
 
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.lang.annotation.Annotation;
+import java.nio.channels.Channels;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 /**
  * Unit tests for {@link com.lhkbob.entreri.property.EnumProperty}.
@@ -44,6 +49,30 @@ public class EnumPropertyTest {
         V3
     }
 
+    // 200 constants, too many to fit ordinals in a signed byte
+    public static enum WideEnum {
+        W0, W1, W2, W3, W4, W5, W6, W7, W8, W9,
+        W10, W11, W12, W13, W14, W15, W16, W17, W18, W19,
+        W20, W21, W22, W23, W24, W25, W26, W27, W28, W29,
+        W30, W31, W32, W33, W34, W35, W36, W37, W38, W39,
+        W40, W41, W42, W43, W44, W45, W46, W47, W48, W49,
+        W50, W51, W52, W53, W54, W55, W56, W57, W58, W59,
+        W60, W61, W62, W63, W64, W65, W66, W67, W68, W69,
+        W70, W71, W72, W73, W74, W75, W76, W77, W78, W79,
+        W80, W81, W82, W83, W84, W85, W86, W87, W88, W89,
+        W90, W91, W92, W93, W94, W95, W96, W97, W98, W99,
+        W100, W101, W102, W103, W104, W105, W106, W107, W108, W109,
+        W110, W111, W112, W113, W114, W115, W116, W117, W118, W119,
+        W120, W121, W122, W123, W124, W125, W126, W127, W128, W129,
+        W130, W131, W132, W133, W134, W135, W136, W137, W138, W139,
+        W140, W141, W142, W143, W144, W145, W146, W147, W148, W149,
+        W150, W151, W152, W153, W154, W155, W156, W157, W158, W159,
+        W160, W161, W162, W163, W164, W165, W166, W167, W168, W169,
+        W170, W171, W172, W173, W174, W175, W176, W177, W178, W179,
+        W180, W181, W182, W183, W184, W185, W186, W187, W188, W189,
+        W190, W191, W192, W193, W194, W195, W196, W197, W198, W199
+    }
+
     private void doDefaultValueTest(EnumProperty<TestEnum> property, TestEnum expectedValue) {
         property.setCapacity(1);
         property.setDefaultValue(0);
@@ -107,6 +136,7 @@ public class EnumPropertyTest {
     }
 
     @Test
+    @SuppressWarnings("deprecation") // covers the deprecated int[] accessor
     public void testSetCapacity() {
         EnumProperty<TestEnum> p = new EnumProperty<>(TestEnum.V1, false);
         p.setCapacity(5);
@@ -140,6 +170,7 @@ public class EnumPropertyTest {
     }
 
     @Test
+    @SuppressWarnings("deprecation") // covers the deprecated int[] accessor
     public void testGetIndexedData() {
         EnumProperty<TestEnum> p = new EnumProperty<>(TestEnum.V1, false);
         int[] data = p.getIndexedData();
@@ -147,6 +178,113 @@ public class EnumPropertyTest {
         assertEquals(TestEnum.V3.ordinal(), data[0]);
     }
 
+    @Test
+    @SuppressWarnings("deprecation") // covers the deprecated int[] accessor
+    public void testGetIndexedDataWidensStorage() {
+        EnumProperty<TestEnum> p = new EnumProperty<>(TestEnum.V1, false);
+        p.setCapacity(2);
+        p.set(1, TestEnum.V2);
+        int[] data = p.getIndexedData();
+        assertEquals(TestEnum.V2.ordinal(), data[1]);
+        assertNull(p.getIndexedByteData());
+        assertEquals(TestEnum.V2, p.get(1));
+    }
+
+    @Test
+    public void testGetIndexedByteData() {
+        EnumProperty<TestEnum> p = new EnumProperty<>(TestEnum.V1, false);
+        byte[] data = p.getIndexedByteData();
+        p.set(0, TestEnum.V3);
+        assertEquals(TestEnum.V3.ordinal(), data[0]);
+        assertNull(p.getIndexedShortData());
+        assertNull(p.getIndexedIntData());
+    }
+
+    @Test
+    public void testUnsignedByteStorage() {
+        EnumProperty<WideEnum> p = new EnumProperty<>(WideEnum.W0, false);
+        assertNull(p.getIndexedShortData());
+        assertNull(p.getIndexedIntData());
+        byte[] data = p.getIndexedByteData();
+        assertEquals(1, data.length);
+
+        p.setCapacity(3);
+        p.set(1, WideEnum.W199);
+        p.set(2, WideEnum.W150);
+        assertEquals(WideEnum.W199, p.get(1));
+        assertEquals(WideEnum.W199.ordinal(), p.getIndexedByteData()[1] & 0xff);
+
+        p.swap(1, 2);
+        assertEquals(WideEnum.W150, p.get(1));
+        assertEquals(WideEnum.W199, p.get(2));
+
+        p.setDefaultValue(2);
+        assertEquals(WideEnum.W0, p.get(2));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testWriteAndReadWidened() throws IOException {
+        EnumProperty<TestEnum> p = new EnumProperty<>(TestEnum.V1, false);
+        p.setCapacity(3);
+        p.set(1, TestEnum.V3);
+        p.set(2, TestEnum.V2);
+        p.getIndexedData();
+
+        // the widened storage is written as bytes, so the following column stays aligned
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ColumnWriter out = new ColumnWriter(Channels.newChannel(bytes));
+        p.write(out, 3);
+        out.writeInt(42);
+        out.flush();
+
+        EnumProperty<TestEnum> loaded = new EnumProperty<>(TestEnum.V1, false);
+        loaded.setCapacity(3);
+        ColumnReader in = new ColumnReader(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+        loaded.read(in, 3);
+        assertEquals(TestEnum.V3, loaded.get(1));
+        assertEquals(TestEnum.V2, loaded.get(2));
+        assertEquals(42, in.readInt());
+
+        // a widened property reads narrow data as well
+        in = new ColumnReader(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+        EnumProperty<TestEnum> widened = new EnumProperty<>(TestEnum.V1, false);
+        widened.setCapacity(3);
+        widened.getIndexedData();
+        widened.read(in, 3);
+        assertEquals(TestEnum.V3, widened.get(1));
+        assertEquals(TestEnum.V2, widened.get(2));
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadInvalidOrdinal() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ColumnWriter out = new ColumnWriter(Channels.newChannel(bytes));
+        out.writeInt(TestEnum.values().length);
+        out.writeBytes(new byte[] { 0, 3 }, 0, 2);
+        out.flush();
+
+        EnumProperty<TestEnum> loaded = new EnumProperty<>(TestEnum.V1, false);
+        loaded.setCapacity(2);
+        loaded.read(new ColumnReader(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray()))), 2);
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testCopyWidened() {
+        EnumProperty<TestEnum> p = new EnumProperty<>(TestEnum.V1, false);
+        p.setCapacity(2);
+        p.set(1, TestEnum.V3);
+        p.getIndexedData();
+
+        EnumProperty<TestEnum> copy = new EnumProperty<>(TestEnum.V1, false);
+        copy.setCapacity(2);
+        copy.copy(p, 2);
+        assertEquals(TestEnum.V1, copy.get(0));
+        assertEquals(TestEnum.V3, copy.get(1));
+        assertNull(copy.getIndexedIntData());
+    }
+
     @Test(expected = NullPointerException.class)
     public void testNoNullValues() {
         EnumProperty<TestEnum> p = new EnumProperty<>(TestEnum.V1, false);
@@ -0,0 +1,118 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.FloatListProperty}.
+ *
+ * @author Michael Ludwig
+ */
+public class FloatListPropertyTest {
+    @Test
+    public void testGetAndSet() {
+        FloatListProperty p = new FloatListProperty(false);
+        p.setCapacity(2);
+        assertArrayEquals(new float[0], p.get(1), 0.00001f);
+        p.set(1, new float[] { 1f, 2f });
+        assertArrayEquals(new float[] { 1f, 2f }, p.get(1), 0.00001f);
+        assertEquals(2f, p.get(1, 1), 0.00001f);
+    }
+
+    @Test
+    public void testClone() {
+        FloatListProperty p = new FloatListProperty(true);
+        p.setCapacity(2);
+        p.set(0, new float[] { 1f, 2f });
+        p.clone(p, 0, 1);
+        assertArrayEquals(new float[] { 1f, 2f }, p.get(1), 0.00001f);
+    }
+
+    @Test
+    public void testElementEquality() {
+        FloatListProperty p = new FloatListProperty(false);
+        p.add(0, Float.NaN);
+        p.add(0, 0f);
+        assertTrue(p.contains(0, Float.NaN));
+        assertFalse(p.contains(0, -0f));
+        assertFalse(p.remove(0, -0f));
+        assertTrue(p.remove(0, Float.NaN));
+        assertArrayEquals(new float[] { 0f }, p.get(0), 0.00001f);
+    }
+
+    @Test
+    public void testInterleavedGrowth() {
+        FloatListProperty p = new FloatListProperty(false);
+        p.setCapacity(10);
+        for (int j = 0; j < 50; j++) {
+            for (int i = 0; i < 10; i++) {
+                p.add(i, i + j / 100f);
+            }
+        }
+        for (int i = 0; i < 10; i++) {
+            assertEquals(50, p.size(i));
+            for (int j = 0; j < 50; j++) {
+                assertEquals(i + j / 100f, p.get(i, j), 0.00001f);
+            }
+        }
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        FloatListProperty p = new FloatListProperty(false);
+        p.setCapacity(3);
+        p.set(0, new float[] { 1, 2, 3 });
+        p.set(2, new float[] { 4 });
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ColumnWriter out = new ColumnWriter(Channels.newChannel(bytes));
+        p.write(out, 3);
+        p.write(out, new int[] { 2, 0 }, 2);
+        out.flush();
+
+        FloatListProperty loaded = new FloatListProperty(false);
+        loaded.setCapacity(3);
+        ColumnReader in = new ColumnReader(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+        loaded.read(in, 3);
+        assertArrayEquals(new float[] { 1, 2, 3 }, loaded.get(0), 0.00001f);
+        assertArrayEquals(new float[0], loaded.get(1), 0.00001f);
+        assertArrayEquals(new float[] { 4 }, loaded.get(2), 0.00001f);
+
+        // the indexed values are read into other components
+        loaded.read(in, new int[] { 1, 2 }, 2);
+        assertArrayEquals(new float[] { 4 }, loaded.get(1), 0.00001f);
+        assertArrayEquals(new float[] { 1, 2, 3 }, loaded.get(2), 0.00001f);
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import com.lhkbob.entreri.IllegalComponentDefinitionException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.lang.annotation.Annotation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.FloatVectorProperty}.
+ *
+ * @author Michael Ludwig
+ */
+public class FloatVectorPropertyTest {
+    private void doDefaultValueTest(FloatVectorProperty property, float expectedValue) {
+        property.setCapacity(1);
+        property.setDefaultValue(0);
+        for (int i = 0; i < property.getDimension(); i++) {
+            assertEquals(expectedValue, property.get(0, i), 0.00001f);
+        }
+    }
+
+    private void doClonePolicy(FloatVectorProperty property, boolean clone) {
+        property.setCapacity(2);
+        property.set(0, new float[] { 1f, 2f, 3f });
+        property.set(1, new float[] { 0f, 0f, 0f });
+
+        // now for the actual clone
+        property.clone(property, 0, 1);
+        if (clone) {
+            assertArrayEquals(new float[] { 1f, 2f, 3f }, property.get(1), 0.00001f);
+        } else {
+            assertArrayEquals(new float[] { 0f, 0f, 0f }, property.get(1), 0.00001f);
+        }
+    }
+
+    @Test
+    public void testSimpleConstructorDefaultValue() {
+        doDefaultValueTest(new FloatVectorProperty(3, 5.0f, true), 5.0f);
+    }
+
+    @Test
+    public void testSimpleConstructorClone() {
+        doClonePolicy(new FloatVectorProperty(3, 0.0f, true), true);
+    }
+
+    @Test
+    public void testSimpleConstructorDoNotClone() {
+        doClonePolicy(new FloatVectorProperty(3, 0.0f, false), false);
+    }
+
+    @Test
+    public void testAnnotationConstructorDefaultValue() throws NoSuchMethodException {
+        doDefaultValueTest(new FloatVectorProperty(getDimension(), getDefaultValue(), null), 5.0f);
+    }
+
+    @Test
+    public void testAnnotationConstructorNoDefaultValue() throws NoSuchMethodException {
+        // no DefaultFloat annotation maps to 0
+        doDefaultValueTest(new FloatVectorProperty(getDimension(), null, null), 0.0f);
+    }
+
+    @Test
+    public void testAnnotationConstructorClone() throws NoSuchMethodException {
+        // no DoNotClone annotation maps to true
+        doClonePolicy(new FloatVectorProperty(getDimension(), null, null), true);
+    }
+
+    @Test
+    public void testAnnotationConstructorDoNotClone() throws NoSuchMethodException {
+        doClonePolicy(new FloatVectorProperty(getDimension(), null, getClonePolicy()), false);
+    }
+
+    @Test(expected = IllegalComponentDefinitionException.class)
+    public void testAnnotationConstructorNoDimension() {
+        new FloatVectorProperty(null, null, null);
+    }
+
+    @Test
+    public void testInitialCapacity() {
+        assertEquals(1, new FloatVectorProperty(3, 0.0f, false).getCapacity());
+    }
+
+    @Test
+    public void testSetCapacity() {
+        FloatVectorProperty p = new FloatVectorProperty(4, 0.0f, false);
+        p.setCapacity(5);
+        assertEquals(5, p.getCapacity());
+        assertEquals(20, p.getIndexedData().length);
+    }
+
+    @Test
+    public void testGetAndSet() {
+        FloatVectorProperty p = new FloatVectorProperty(3, 0.0f, false);
+        assertArrayEquals(new float[3], p.get(0), 0.00001f);
+        p.set(0, new float[] { 1f, 2f, 3f });
+        assertArrayEquals(new float[] { 1f, 2f, 3f }, p.get(0), 0.00001f);
+
+        // fill a caller-owned array, which may be longer than the dimension
+        float[] result = new float[] { 0f, 0f, 0f, 4f };
+        p.get(0, result);
+        assertArrayEquals(new float[] { 1f, 2f, 3f, 4f }, result, 0.00001f);
+
+        p.set(0, 1, 7f);
+        assertEquals(7f, p.get(0, 1), 0.00001f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetTooShort() {
+        new FloatVectorProperty(3, 0.0f, false).set(0, new float[2]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetTooShort() {
+        new FloatVectorProperty(3, 0.0f, false).get(0, new float[2]);
+    }
+
+    @Test
+    public void testSwap() {
+        FloatVectorProperty p = new FloatVectorProperty(3, 0.0f, false);
+        p.setCapacity(2);
+        p.set(0, new float[] { 1f, 2f, 3f });
+        p.set(1, new float[] { 4f, 5f, 6f });
+        p.swap(0, 1);
+
+        assertArrayEquals(new float[] { 1f, 2f, 3f }, p.get(1), 0.00001f);
+        assertArrayEquals(new float[] { 4f, 5f, 6f }, p.get(0), 0.00001f);
+
+        // make sure order doesn't matter
+        p.swap(1, 0);
+        assertArrayEquals(new float[] { 1f, 2f, 3f }, p.get(0), 0.00001f);
+        assertArrayEquals(new float[] { 4f, 5f, 6f }, p.get(1), 0.00001f);
+    }
+
+    @Test
+    public void testGetIndexedData() {
+        FloatVectorProperty p = new FloatVectorProperty(3, 0.0f, false);
+        p.setCapacity(2);
+        float[] data = p.getIndexedData();
+        p.set(1, new float[] { 1f, 2f, 3f });
+        assertEquals(1.0, data[3], 0.00001);
+        assertEquals(3.0, data[5], 0.00001);
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        FloatVectorProperty p = new FloatVectorProperty(3, 0f, false);
+        p.setCapacity(3);
+        p.set(1, new float[] { 1f, 2f, 3f });
+        p.set(2, new float[] { 4f, 5f, 6f });
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ColumnWriter out = new ColumnWriter(Channels.newChannel(bytes));
+        p.write(out, 3);
+        out.flush();
+
+        FloatVectorProperty loaded = new FloatVectorProperty(3, 0f, false);
+        loaded.setCapacity(3);
+        loaded.read(new ColumnReader(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray()))), 3);
+        assertArrayEquals(new float[] { 1f, 2f, 3f }, loaded.get(1), 0f);
+        assertArrayEquals(new float[] { 4f, 5f, 6f }, loaded.get(2), 0f);
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadMismatchedDimension() throws IOException {
+        FloatVectorProperty p = new FloatVectorProperty(3, 0f, false);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ColumnWriter out = new ColumnWriter(Channels.newChannel(bytes));
+        p.write(out, 1);
+        out.flush();
+
+        FloatVectorProperty loaded = new FloatVectorProperty(4, 0f, false);
+        loaded.read(new ColumnReader(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray()))), 1);
+    }
+
+    @Dimension(3)
+    private static Dimension getDimension() throws NoSuchMethodException {
+        return getAnnotation(Dimension.class, "getDimension");
+    }
+
+    @DefaultFloat(5.0f)
+    private static DefaultFloat getDefaultValue() throws NoSuchMethodException {
+        return getAnnotation(DefaultFloat.class, "getDefaultValue");
+    }
+
+    @DoNotClone
+    private static DoNotClone getClonePolicy() throws NoSuchMethodException {
+        return getAnnotation(DoNotClone.class, "getClonePolicy");
+    }
+
+    private static <T extends Annotation> T getAnnotation(Class<T> type, String methodName)
+            throws NoSuchMethodException {
+        return FloatVectorPropertyTest.class.getDeclaredMethod(methodName).getAnnotation(type);
+    }
+}
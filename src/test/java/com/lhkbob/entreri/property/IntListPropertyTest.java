@@ -0,0 +1,251 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.nio.channels.Channels;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.IntListProperty}.
+ *
+ * @author Michael Ludwig
+ */
+public class IntListPropertyTest {
+    private void doClonePolicy(IntListProperty property, boolean clone) {
+        property.setCapacity(2);
+        property.set(0, new int[] { 1, 2, 3 });
+        property.set(1, new int[] { 4 });
+
+        // now for the actual clone
+        property.clone(property, 0, 1);
+        if (clone) {
+            assertArrayEquals(new int[] { 1, 2, 3 }, property.get(1));
+        } else {
+            assertArrayEquals(new int[0], property.get(1));
+        }
+    }
+
+    @Test
+    public void testDefaultValue() {
+        IntListProperty p = new IntListProperty(true);
+        p.setCapacity(2);
+        p.set(1, new int[] { 1, 2 });
+        p.setDefaultValue(1);
+        assertEquals(0, p.size(1));
+        assertArrayEquals(new int[0], p.get(1));
+    }
+
+    @Test
+    public void testSimpleConstructorClone() {
+        doClonePolicy(new IntListProperty(true), true);
+    }
+
+    @Test
+    public void testSimpleConstructorDoNotClone() {
+        doClonePolicy(new IntListProperty(false), false);
+    }
+
+    @Test
+    public void testAnnotationConstructorClone() {
+        // no DoNotClone annotation maps to true
+        doClonePolicy(new IntListProperty((DoNotClone) null), true);
+    }
+
+    @Test
+    public void testAnnotationConstructorDoNotClone() throws NoSuchMethodException {
+        doClonePolicy(new IntListProperty(getClonePolicy()), false);
+    }
+
+    @Test
+    public void testInitialCapacity() {
+        assertEquals(1, new IntListProperty(false).getCapacity());
+    }
+
+    @Test
+    public void testSetCapacity() {
+        IntListProperty p = new IntListProperty(false);
+        p.setCapacity(5);
+        assertEquals(5, p.getCapacity());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, p.size(i));
+        }
+    }
+
+    @Test
+    public void testGetAndSet() {
+        IntListProperty p = new IntListProperty(false);
+        assertArrayEquals(new int[0], p.get(0));
+        p.set(0, new int[] { 5, 6 });
+        assertArrayEquals(new int[] { 5, 6 }, p.get(0));
+        assertEquals(6, p.get(0, 1));
+        p.set(0, 1, 7);
+        assertArrayEquals(new int[] { 5, 7 }, p.get(0));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNoNullValues() {
+        new IntListProperty(false).set(0, null);
+    }
+
+    @Test
+    public void testAddRemoveContains() {
+        IntListProperty p = new IntListProperty(false);
+        assertFalse(p.contains(0, 1));
+        assertTrue(p.add(0, 1));
+        assertTrue(p.add(0, 2));
+        assertTrue(p.add(0, 1));
+        assertTrue(p.contains(0, 2));
+        assertArrayEquals(new int[] { 1, 2, 1 }, p.get(0));
+
+        // only the first occurrence is removed
+        assertTrue(p.remove(0, 1));
+        assertArrayEquals(new int[] { 2, 1 }, p.get(0));
+        assertFalse(p.remove(0, 3));
+        assertTrue(p.remove(0, 2));
+        assertFalse(p.contains(0, 2));
+        assertArrayEquals(new int[] { 1 }, p.get(0));
+    }
+
+    @Test
+    public void testInterleavedGrowth() {
+        IntListProperty p = new IntListProperty(false);
+        p.setCapacity(10);
+        // appending to every list in turn forces lists to relocate and the pool to be repacked
+        for (int j = 0; j < 100; j++) {
+            for (int i = 0; i < 10; i++) {
+                p.add(i, i * 1000 + j);
+            }
+        }
+        for (int i = 0; i < 10; i++) {
+            assertEquals(100, p.size(i));
+            int offset = p.getOffset(i);
+            for (int j = 0; j < 100; j++) {
+                assertEquals(i * 1000 + j, p.get(i, j));
+                assertEquals(i * 1000 + j, p.getIndexedData()[offset + j]);
+            }
+        }
+        // the pool should not hold more than twice the reserved slots
+        assertTrue(p.getIndexedData().length <= 4 * 10 * 128);
+    }
+
+    @Test
+    public void testShrinkCapacity() {
+        IntListProperty p = new IntListProperty(false);
+        p.setCapacity(4);
+        for (int i = 0; i < 4; i++) {
+            p.set(i, new int[] { i, i, i });
+        }
+        p.setCapacity(2);
+        p.add(1, 9);
+        assertArrayEquals(new int[] { 0, 0, 0 }, p.get(0));
+        assertArrayEquals(new int[] { 1, 1, 1, 9 }, p.get(1));
+    }
+
+    @Test
+    public void testSwap() {
+        IntListProperty p = new IntListProperty(false);
+        p.setCapacity(2);
+        p.set(0, new int[] { 1, 2, 3 });
+        p.set(1, new int[] { 4 });
+        p.swap(0, 1);
+
+        assertArrayEquals(new int[] { 1, 2, 3 }, p.get(1));
+        assertArrayEquals(new int[] { 4 }, p.get(0));
+
+        // make sure order doesn't matter
+        p.swap(1, 0);
+        assertArrayEquals(new int[] { 1, 2, 3 }, p.get(0));
+        assertArrayEquals(new int[] { 4 }, p.get(1));
+
+        // lists keep growing correctly after being swapped
+        p.add(1, 5);
+        p.add(0, 6);
+        assertArrayEquals(new int[] { 1, 2, 3, 6 }, p.get(0));
+        assertArrayEquals(new int[] { 4, 5 }, p.get(1));
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        IntListProperty p = new IntListProperty(false);
+        p.setCapacity(3);
+        p.set(0, new int[] { 1, 2, 3 });
+        p.set(2, new int[] { 4 });
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ColumnWriter out = new ColumnWriter(Channels.newChannel(bytes));
+        p.write(out, 3);
+        p.write(out, new int[] { 2, 0 }, 2);
+        out.flush();
+
+        IntListProperty loaded = new IntListProperty(false);
+        loaded.setCapacity(3);
+        ColumnReader in = new ColumnReader(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+        loaded.read(in, 3);
+        assertArrayEquals(new int[] { 1, 2, 3 }, loaded.get(0));
+        assertArrayEquals(new int[0], loaded.get(1));
+        assertArrayEquals(new int[] { 4 }, loaded.get(2));
+
+        // the indexed values are read into other components
+        loaded.read(in, new int[] { 1, 2 }, 2);
+        assertArrayEquals(new int[] { 4 }, loaded.get(1));
+        assertArrayEquals(new int[] { 1, 2, 3 }, loaded.get(2));
+    }
+
+    @Test
+    public void testCopy() {
+        IntListProperty p = new IntListProperty(false);
+        p.setCapacity(3);
+        p.set(0, new int[] { 1, 2, 3 });
+        p.set(2, new int[] { 4 });
+
+        // copies ignore the clone policy
+        IntListProperty copy = new IntListProperty(false);
+        copy.setCapacity(3);
+        copy.set(1, new int[] { 5 });
+        copy.copy(p, 3);
+        assertArrayEquals(new int[] { 1, 2, 3 }, copy.get(0));
+        assertArrayEquals(new int[0], copy.get(1));
+        assertArrayEquals(new int[] { 4 }, copy.get(2));
+    }
+
+    @DoNotClone
+    private static DoNotClone getClonePolicy() throws NoSuchMethodException {
+        return getAnnotation(DoNotClone.class, "getClonePolicy");
+    }
+
+    private static <T extends Annotation> T getAnnotation(Class<T> type, String methodName)
+            throws NoSuchMethodException {
+        return IntListPropertyTest.class.getDeclaredMethod(methodName).getAnnotation(type);
+    }
+}
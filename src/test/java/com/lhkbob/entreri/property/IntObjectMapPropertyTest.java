@@ -0,0 +1,195 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import org.junit.Test;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.IntObjectMapProperty}.
+ *
+ * @author Michael Ludwig
+ */
+public class IntObjectMapPropertyTest {
+    private static Map<Integer, String> map(Object... entries) {
+        Map<Integer, String> map = new HashMap<>();
+        for (int i = 0; i < entries.length; i += 2) {
+            map.put((Integer) entries[i], (String) entries[i + 1]);
+        }
+        return map;
+    }
+
+    private void doClonePolicy(IntObjectMapProperty<String> property, boolean clone) {
+        property.setCapacity(2);
+        property.set(0, map(1, "a", 2, "b"));
+        property.set(1, map(3, "c"));
+
+        // now for the actual clone
+        property.clone(property, 0, 1);
+        if (clone) {
+            assertEquals(map(1, "a", 2, "b"), property.get(1));
+        } else {
+            assertEquals(map(), property.get(1));
+        }
+    }
+
+    @Test
+    public void testDefaultValue() {
+        IntObjectMapProperty<String> p = new IntObjectMapProperty<>(true);
+        p.setCapacity(2);
+        p.set(1, map(1, "a"));
+        p.setDefaultValue(1);
+        assertEquals(0, p.size(1));
+        assertFalse(p.contains(1, 1));
+        assertEquals(map(), p.get(1));
+    }
+
+    @Test
+    public void testSimpleConstructorClone() {
+        doClonePolicy(new IntObjectMapProperty<String>(true), true);
+    }
+
+    @Test
+    public void testSimpleConstructorDoNotClone() {
+        doClonePolicy(new IntObjectMapProperty<String>(false), false);
+    }
+
+    @Test
+    public void testAnnotationConstructorClone() {
+        // no DoNotClone annotation maps to true
+        doClonePolicy(new IntObjectMapProperty<String>((DoNotClone) null), true);
+    }
+
+    @Test
+    public void testAnnotationConstructorDoNotClone() throws NoSuchMethodException {
+        doClonePolicy(new IntObjectMapProperty<String>(getClonePolicy()), false);
+    }
+
+    @Test
+    public void testInitialCapacity() {
+        assertEquals(1, new IntObjectMapProperty<String>(false).getCapacity());
+    }
+
+    @Test
+    public void testSetCapacity() {
+        IntObjectMapProperty<String> p = new IntObjectMapProperty<>(false);
+        p.setCapacity(5);
+        assertEquals(5, p.getCapacity());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, p.size(i));
+        }
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        IntObjectMapProperty<String> p = new IntObjectMapProperty<>(false);
+        assertNull(p.put(0, 1, "a"));
+        assertNull(p.put(0, Integer.valueOf(2), "b"));
+        assertNull(p.put(0, 3, null));
+        assertEquals(3, p.size(0));
+        assertTrue(p.contains(0, 3));
+        assertNull(p.get(0, 3));
+        assertEquals("a", p.put(0, 1, "c"));
+        assertEquals("c", p.get(0, Integer.valueOf(1)));
+
+        assertEquals("b", p.remove(0, 2));
+        assertNull(p.remove(0, Integer.valueOf(2)));
+        assertFalse(p.contains(0, Integer.valueOf(2)));
+        assertEquals(map(1, "c", 3, null), p.get(0));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNoNullValues() {
+        new IntObjectMapProperty<String>(false).set(0, null);
+    }
+
+    @Test
+    public void testRandomOperations() {
+        IntObjectMapProperty<String> p = new IntObjectMapProperty<>(false);
+        p.setCapacity(8);
+        List<Map<Integer, String>> expected = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            expected.add(new HashMap<Integer, String>());
+        }
+
+        // a small key range forces collisions, removals from probe runs, and rehashing
+        Random r = new Random(12345);
+        for (int n = 0; n < 20000; n++) {
+            int i = r.nextInt(expected.size());
+            int key = r.nextInt(64) - 32;
+            if (r.nextInt(3) == 0) {
+                assertEquals(expected.get(i).remove(key), p.remove(i, key));
+            } else {
+                String value = "v" + n;
+                assertEquals(expected.get(i).put(key, value), p.put(i, key, value));
+            }
+            assertEquals(expected.get(i).size(), p.size(i));
+        }
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), p.get(i));
+            for (int key = -32; key < 32; key++) {
+                assertEquals(expected.get(i).containsKey(key), p.contains(i, key));
+            }
+        }
+    }
+
+    @Test
+    public void testSwap() {
+        IntObjectMapProperty<String> p = new IntObjectMapProperty<>(false);
+        p.setCapacity(2);
+        p.set(0, map(1, "a", 2, "b"));
+        p.set(1, map(3, "c"));
+        p.swap(0, 1);
+
+        assertEquals(map(1, "a", 2, "b"), p.get(1));
+        assertEquals(map(3, "c"), p.get(0));
+
+        // make sure order doesn't matter
+        p.swap(1, 0);
+        assertEquals(map(1, "a", 2, "b"), p.get(0));
+        assertEquals(map(3, "c"), p.get(1));
+    }
+
+    @DoNotClone
+    private static DoNotClone getClonePolicy() throws NoSuchMethodException {
+        return getAnnotation(DoNotClone.class, "getClonePolicy");
+    }
+
+    private static <T extends Annotation> T getAnnotation(Class<T> type, String methodName)
+            throws NoSuchMethodException {
+        return IntObjectMapPropertyTest.class.getDeclaredMethod(methodName).getAnnotation(type);
+    }
+}
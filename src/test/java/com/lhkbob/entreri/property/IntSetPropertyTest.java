@@ -0,0 +1,226 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.IntSetProperty}.
+ *
+ * @author Michael Ludwig
+ */
+public class IntSetPropertyTest {
+    private static Set<Integer> set(Integer... elements) {
+        return new HashSet<>(Arrays.asList(elements));
+    }
+
+    private void doClonePolicy(IntSetProperty property, boolean clone) {
+        property.setCapacity(2);
+        property.set(0, set(1, 2, 3));
+        property.set(1, set(4));
+
+        // now for the actual clone
+        property.clone(property, 0, 1);
+        if (clone) {
+            assertEquals(set(1, 2, 3), property.get(1));
+        } else {
+            assertEquals(set(), property.get(1));
+        }
+    }
+
+    @Test
+    public void testDefaultValue() {
+        IntSetProperty p = new IntSetProperty(true);
+        p.setCapacity(2);
+        p.set(1, set(1, 2));
+        p.setDefaultValue(1);
+        assertEquals(0, p.size(1));
+        assertEquals(set(), p.get(1));
+    }
+
+    @Test
+    public void testSimpleConstructorClone() {
+        doClonePolicy(new IntSetProperty(true), true);
+    }
+
+    @Test
+    public void testSimpleConstructorDoNotClone() {
+        doClonePolicy(new IntSetProperty(false), false);
+    }
+
+    @Test
+    public void testAnnotationConstructorClone() {
+        // no DoNotClone annotation maps to true
+        doClonePolicy(new IntSetProperty((DoNotClone) null), true);
+    }
+
+    @Test
+    public void testAnnotationConstructorDoNotClone() throws NoSuchMethodException {
+        doClonePolicy(new IntSetProperty(getClonePolicy()), false);
+    }
+
+    @Test
+    public void testInitialCapacity() {
+        assertEquals(1, new IntSetProperty(false).getCapacity());
+    }
+
+    @Test
+    public void testAddRemoveContains() {
+        IntSetProperty p = new IntSetProperty(false);
+        assertTrue(p.add(0, 1));
+        assertTrue(p.add(0, Integer.valueOf(2)));
+        assertFalse(p.add(0, 1));
+        assertEquals(2, p.size(0));
+        assertTrue(p.contains(0, 2));
+        assertTrue(p.remove(0, Integer.valueOf(2)));
+        assertFalse(p.remove(0, 2));
+        assertFalse(p.contains(0, Integer.valueOf(2)));
+        assertEquals(set(1), p.get(0));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNoNullValues() {
+        new IntSetProperty(false).set(0, null);
+    }
+
+    @Test
+    public void testRandomOperations() {
+        IntSetProperty p = new IntSetProperty(false);
+        p.setCapacity(8);
+        List<Set<Integer>> expected = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            expected.add(new HashSet<Integer>());
+        }
+
+        // a small element range forces collisions, removals from probe runs, and rehashing
+        Random r = new Random(54321);
+        for (int n = 0; n < 20000; n++) {
+            int i = r.nextInt(expected.size());
+            int element = r.nextInt(64) - 32;
+            if (r.nextInt(3) == 0) {
+                assertEquals(expected.get(i).remove(element), p.remove(i, element));
+            } else {
+                assertEquals(expected.get(i).add(element), p.add(i, element));
+            }
+            assertEquals(expected.get(i).size(), p.size(i));
+        }
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), p.get(i));
+        }
+    }
+
+    @Test
+    public void testSwap() {
+        IntSetProperty p = new IntSetProperty(false);
+        p.setCapacity(2);
+        p.set(0, set(1, 2, 3));
+        p.set(1, set(4));
+        p.swap(0, 1);
+
+        assertEquals(set(1, 2, 3), p.get(1));
+        assertEquals(set(4), p.get(0));
+
+        // make sure order doesn't matter
+        p.swap(1, 0);
+        assertEquals(set(1, 2, 3), p.get(0));
+        assertEquals(set(4), p.get(1));
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        IntSetProperty p = new IntSetProperty(false);
+        p.setCapacity(3);
+        for (int i = 0; i < 10; i++) {
+            p.add(0, i * 7);
+        }
+        p.add(2, 1);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ColumnWriter out = new ColumnWriter(Channels.newChannel(bytes));
+        p.write(out, 3);
+        p.write(out, new int[] { 2, 0 }, 2);
+        out.flush();
+
+        IntSetProperty loaded = new IntSetProperty(false);
+        loaded.setCapacity(3);
+        ColumnReader in = new ColumnReader(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+        loaded.read(in, 3);
+        assertEquals(p.get(0), loaded.get(0));
+        assertEquals(0, loaded.size(1));
+        assertEquals(p.get(2), loaded.get(2));
+
+        // the indexed values are read into other components
+        loaded.read(in, new int[] { 1, 2 }, 2);
+        assertEquals(p.get(2), loaded.get(1));
+        assertEquals(p.get(0), loaded.get(2));
+        assertTrue(loaded.contains(2, 63));
+    }
+
+    @Test
+    public void testCopy() {
+        IntSetProperty p = new IntSetProperty(false);
+        p.setCapacity(3);
+        for (int i = 0; i < 10; i++) {
+            p.add(0, i * 7);
+        }
+        p.add(2, 1);
+
+        // copies ignore the clone policy
+        IntSetProperty copy = new IntSetProperty(false);
+        copy.setCapacity(3);
+        copy.add(1, 5);
+        copy.copy(p, 3);
+        assertEquals(p.get(0), copy.get(0));
+        assertEquals(0, copy.size(1));
+        assertEquals(p.get(2), copy.get(2));
+    }
+
+    @DoNotClone
+    private static DoNotClone getClonePolicy() throws NoSuchMethodException {
+        return getAnnotation(DoNotClone.class, "getClonePolicy");
+    }
+
+    private static <T extends Annotation> T getAnnotation(Class<T> type, String methodName)
+            throws NoSuchMethodException {
+        return IntSetPropertyTest.class.getDeclaredMethod(methodName).getAnnotation(type);
+    }
+}
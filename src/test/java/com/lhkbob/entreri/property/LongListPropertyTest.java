@@ -0,0 +1,234 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.nio.channels.Channels;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.LongListProperty}.
+ *
+ * @author Michael Ludwig
+ */
+public class LongListPropertyTest {
+    private void doClonePolicy(LongListProperty property, boolean clone) {
+        property.setCapacity(2);
+        property.set(0, new long[] { 1, 2, 3 });
+        property.set(1, new long[] { 4 });
+
+        // now for the actual clone
+        property.clone(property, 0, 1);
+        if (clone) {
+            assertArrayEquals(new long[] { 1, 2, 3 }, property.get(1));
+        } else {
+            assertArrayEquals(new long[0], property.get(1));
+        }
+    }
+
+    @Test
+    public void testDefaultValue() {
+        LongListProperty p = new LongListProperty(true);
+        p.setCapacity(2);
+        p.set(1, new long[] { 1, 2 });
+        p.setDefaultValue(1);
+        assertEquals(0, p.size(1));
+        assertArrayEquals(new long[0], p.get(1));
+    }
+
+    @Test
+    public void testSimpleConstructorClone() {
+        doClonePolicy(new LongListProperty(true), true);
+    }
+
+    @Test
+    public void testSimpleConstructorDoNotClone() {
+        doClonePolicy(new LongListProperty(false), false);
+    }
+
+    @Test
+    public void testAnnotationConstructorClone() {
+        // no DoNotClone annotation maps to true
+        doClonePolicy(new LongListProperty((DoNotClone) null), true);
+    }
+
+    @Test
+    public void testAnnotationConstructorDoNotClone() throws NoSuchMethodException {
+        doClonePolicy(new LongListProperty(getClonePolicy()), false);
+    }
+
+    @Test
+    public void testInitialCapacity() {
+        assertEquals(1, new LongListProperty(false).getCapacity());
+    }
+
+    @Test
+    public void testSetCapacity() {
+        LongListProperty p = new LongListProperty(false);
+        p.setCapacity(5);
+        assertEquals(5, p.getCapacity());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, p.size(i));
+        }
+    }
+
+    @Test
+    public void testGetAndSet() {
+        LongListProperty p = new LongListProperty(false);
+        assertArrayEquals(new long[0], p.get(0));
+        p.set(0, new long[] { 5, 6 });
+        assertArrayEquals(new long[] { 5, 6 }, p.get(0));
+        assertEquals(6, p.get(0, 1));
+        p.set(0, 1, 7);
+        assertArrayEquals(new long[] { 5, 7 }, p.get(0));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNoNullValues() {
+        new LongListProperty(false).set(0, null);
+    }
+
+    @Test
+    public void testAddRemoveContains() {
+        LongListProperty p = new LongListProperty(false);
+        assertFalse(p.contains(0, 1));
+        assertTrue(p.add(0, 1));
+        assertTrue(p.add(0, 2));
+        assertTrue(p.add(0, 1));
+        assertTrue(p.contains(0, 2));
+        assertArrayEquals(new long[] { 1, 2, 1 }, p.get(0));
+
+        // only the first occurrence is removed
+        assertTrue(p.remove(0, 1));
+        assertArrayEquals(new long[] { 2, 1 }, p.get(0));
+        assertFalse(p.remove(0, 3));
+        assertTrue(p.remove(0, 2));
+        assertFalse(p.contains(0, 2));
+        assertArrayEquals(new long[] { 1 }, p.get(0));
+    }
+
+    @Test
+    public void testInterleavedGrowth() {
+        LongListProperty p = new LongListProperty(false);
+        p.setCapacity(10);
+        // appending to every list in turn forces lists to relocate and the pool to be repacked
+        for (int j = 0; j < 100; j++) {
+            for (int i = 0; i < 10; i++) {
+                p.add(i, i * 1000 + j);
+            }
+        }
+        for (int i = 0; i < 10; i++) {
+            assertEquals(100, p.size(i));
+            int offset = p.getOffset(i);
+            for (int j = 0; j < 100; j++) {
+                assertEquals(i * 1000 + j, p.get(i, j));
+                assertEquals(i * 1000 + j, p.getIndexedData()[offset + j]);
+            }
+        }
+        // the pool should not hold more than twice the reserved slots
+        assertTrue(p.getIndexedData().length <= 4 * 10 * 128);
+    }
+
+    @Test
+    public void testShrinkCapacity() {
+        LongListProperty p = new LongListProperty(false);
+        p.setCapacity(4);
+        for (int i = 0; i < 4; i++) {
+            p.set(i, new long[] { i, i, i });
+        }
+        p.setCapacity(2);
+        p.add(1, 9);
+        assertArrayEquals(new long[] { 0, 0, 0 }, p.get(0));
+        assertArrayEquals(new long[] { 1, 1, 1, 9 }, p.get(1));
+    }
+
+    @Test
+    public void testSwap() {
+        LongListProperty p = new LongListProperty(false);
+        p.setCapacity(2);
+        p.set(0, new long[] { 1, 2, 3 });
+        p.set(1, new long[] { 4 });
+        p.swap(0, 1);
+
+        assertArrayEquals(new long[] { 1, 2, 3 }, p.get(1));
+        assertArrayEquals(new long[] { 4 }, p.get(0));
+
+        // make sure order doesn't matter
+        p.swap(1, 0);
+        assertArrayEquals(new long[] { 1, 2, 3 }, p.get(0));
+        assertArrayEquals(new long[] { 4 }, p.get(1));
+
+        // lists keep growing correctly after being swapped
+        p.add(1, 5);
+        p.add(0, 6);
+        assertArrayEquals(new long[] { 1, 2, 3, 6 }, p.get(0));
+        assertArrayEquals(new long[] { 4, 5 }, p.get(1));
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        LongListProperty p = new LongListProperty(false);
+        p.setCapacity(3);
+        p.set(0, new long[] { 1, 2, 3 });
+        p.set(2, new long[] { 4 });
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ColumnWriter out = new ColumnWriter(Channels.newChannel(bytes));
+        p.write(out, 3);
+        p.write(out, new int[] { 2, 0 }, 2);
+        out.flush();
+
+        LongListProperty loaded = new LongListProperty(false);
+        loaded.setCapacity(3);
+        ColumnReader in = new ColumnReader(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+        loaded.read(in, 3);
+        assertArrayEquals(new long[] { 1, 2, 3 }, loaded.get(0));
+        assertArrayEquals(new long[0], loaded.get(1));
+        assertArrayEquals(new long[] { 4 }, loaded.get(2));
+
+        // the indexed values are read into other components
+        loaded.read(in, new int[] { 1, 2 }, 2);
+        assertArrayEquals(new long[] { 4 }, loaded.get(1));
+        assertArrayEquals(new long[] { 1, 2, 3 }, loaded.get(2));
+    }
+
+    @DoNotClone
+    private static DoNotClone getClonePolicy() throws NoSuchMethodException {
+        return getAnnotation(DoNotClone.class, "getClonePolicy");
+    }
+
+    private static <T extends Annotation> T getAnnotation(Class<T> type, String methodName)
+            throws NoSuchMethodException {
+        return LongListPropertyTest.class.getDeclaredMethod(methodName).getAnnotation(type);
+    }
+}
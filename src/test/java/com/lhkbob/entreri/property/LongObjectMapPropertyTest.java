@@ -0,0 +1,95 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.LongObjectMapProperty}.
+ *
+ * @author Michael Ludwig
+ */
+public class LongObjectMapPropertyTest {
+    @Test
+    public void testPutGetRemove() {
+        LongObjectMapProperty<String> p = new LongObjectMapProperty<>(false);
+        // keys that only differ in their high bits
+        assertNull(p.put(0, 1L << 40, "a"));
+        assertNull(p.put(0, Long.valueOf(2L << 40), "b"));
+        assertEquals("a", p.get(0, 1L << 40));
+        assertEquals("b", p.get(0, Long.valueOf(2L << 40)));
+        assertFalse(p.contains(0, 0L));
+        assertEquals("a", p.remove(0, 1L << 40));
+        assertEquals(1, p.size(0));
+    }
+
+    @Test
+    public void testClone() {
+        LongObjectMapProperty<String> p = new LongObjectMapProperty<>(true);
+        p.setCapacity(2);
+        Map<Long, String> map = new HashMap<>();
+        map.put(5L, "a");
+        map.put(-5L, "b");
+        p.set(0, map);
+        p.clone(p, 0, 1);
+        assertEquals(map, p.get(1));
+    }
+
+    @Test
+    public void testRandomOperations() {
+        LongObjectMapProperty<String> p = new LongObjectMapProperty<>(false);
+        p.setCapacity(4);
+        List<Map<Long, String>> expected = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            expected.add(new HashMap<Long, String>());
+        }
+
+        Random r = new Random(777);
+        for (int n = 0; n < 10000; n++) {
+            int i = r.nextInt(expected.size());
+            long key = (long) r.nextInt(32) << 33;
+            if (r.nextInt(3) == 0) {
+                assertEquals(expected.get(i).remove(key), p.remove(i, key));
+            } else {
+                String value = "v" + n;
+                assertEquals(expected.get(i).put(key, value), p.put(i, key, value));
+            }
+        }
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), p.get(i));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.LongSetProperty}.
+ *
+ * @author Michael Ludwig
+ */
+public class LongSetPropertyTest {
+    @Test
+    public void testAddRemoveContains() {
+        LongSetProperty p = new LongSetProperty(false);
+        // elements that only differ in their high bits
+        assertTrue(p.add(0, 1L << 40));
+        assertTrue(p.add(0, Long.valueOf(2L << 40)));
+        assertFalse(p.add(0, 1L << 40));
+        assertTrue(p.contains(0, 2L << 40));
+        assertFalse(p.contains(0, 0L));
+        assertTrue(p.remove(0, Long.valueOf(1L << 40)));
+        assertEquals(1, p.size(0));
+    }
+
+    @Test
+    public void testClone() {
+        LongSetProperty p = new LongSetProperty(true);
+        p.setCapacity(2);
+        Set<Long> set = new HashSet<>();
+        set.add(5L);
+        set.add(-5L);
+        p.set(0, set);
+        p.clone(p, 0, 1);
+        assertEquals(set, p.get(1));
+    }
+
+    @Test
+    public void testRandomOperations() {
+        LongSetProperty p = new LongSetProperty(false);
+        p.setCapacity(4);
+        List<Set<Long>> expected = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            expected.add(new HashSet<Long>());
+        }
+
+        Random r = new Random(999);
+        for (int n = 0; n < 10000; n++) {
+            int i = r.nextInt(expected.size());
+            long element = (long) r.nextInt(32) << 33;
+            if (r.nextInt(3) == 0) {
+                assertEquals(expected.get(i).remove(element), p.remove(i, element));
+            } else {
+                assertEquals(expected.get(i).add(element), p.add(i, element));
+            }
+        }
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), p.get(i));
+        }
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        LongSetProperty p = new LongSetProperty(false);
+        p.setCapacity(3);
+        for (int i = 0; i < 10; i++) {
+            p.add(0, i * 7L);
+        }
+        p.add(2, 1L);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ColumnWriter out = new ColumnWriter(Channels.newChannel(bytes));
+        p.write(out, 3);
+        p.write(out, new int[] { 2, 0 }, 2);
+        out.flush();
+
+        LongSetProperty loaded = new LongSetProperty(false);
+        loaded.setCapacity(3);
+        ColumnReader in = new ColumnReader(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+        loaded.read(in, 3);
+        assertEquals(p.get(0), loaded.get(0));
+        assertEquals(0, loaded.size(1));
+        assertEquals(p.get(2), loaded.get(2));
+
+        // the indexed values are read into other components
+        loaded.read(in, new int[] { 1, 2 }, 2);
+        assertEquals(p.get(2), loaded.get(1));
+        assertEquals(p.get(0), loaded.get(2));
+        assertTrue(loaded.contains(2, 63L));
+    }
+}
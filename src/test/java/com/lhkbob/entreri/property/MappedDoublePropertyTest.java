@@ -0,0 +1,174 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.MappedDoubleProperty}.
+ *
+ * @author Michael Ludwig
+ */
+public class MappedDoublePropertyTest {
+    private File file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = File.createTempFile("entreri", ".col");
+        file.deleteOnExit();
+    }
+
+    @After
+    public void deleteFile() {
+        file.delete();
+    }
+
+    private void doDefaultValueTest(MappedDoubleProperty property, double expectedValue) {
+        property.setCapacity(1);
+        property.setDefaultValue(0);
+        assertEquals(expectedValue, property.get(0), 0.0001);
+    }
+
+    private void doClonePolicy(MappedDoubleProperty property, boolean clone) {
+        property.setCapacity(2);
+        property.set(0, 2.0);
+        property.set(1, 3.0);
+
+        property.clone(property, 0, 1);
+        if (clone) {
+            assertEquals(2.0, property.get(1), 0.0001);
+        } else {
+            assertEquals(0.0, property.get(1), 0.0001);
+        }
+    }
+
+    @Test
+    public void testSimpleConstructorDefaultValue() {
+        doDefaultValueTest(new MappedDoubleProperty(2.0, false), 2.0);
+    }
+
+    @Test
+    public void testSimpleConstructorClone() {
+        doClonePolicy(new MappedDoubleProperty(0.0, true), true);
+    }
+
+    @Test
+    public void testSimpleConstructorDoNotClone() {
+        doClonePolicy(new MappedDoubleProperty(0.0, false), false);
+    }
+
+    @Test
+    public void testAnnotationConstructorDefaultValue() throws NoSuchMethodException {
+        doDefaultValueTest(new MappedDoubleProperty(getDefaultValue(), null), 1.5);
+    }
+
+    @Test
+    public void testAnnotationConstructorDoNotClone() throws NoSuchMethodException {
+        doClonePolicy(new MappedDoubleProperty(null, getClonePolicy()), false);
+    }
+
+    @Test
+    public void testSetCapacity() {
+        MappedDoubleProperty p = new MappedDoubleProperty(0.0, false);
+        assertEquals(1, p.getCapacity());
+        p.set(0, 4.0);
+        p.setCapacity(5);
+        assertEquals(5, p.getCapacity());
+        assertEquals(5, p.getIndexedData().capacity());
+        assertEquals(4.0, p.get(0), 0.0001);
+    }
+
+    @Test
+    public void testSwap() {
+        MappedDoubleProperty p = new MappedDoubleProperty(0.0, false);
+        p.setCapacity(2);
+        p.set(0, 1.0);
+        p.set(1, 2.0);
+        p.swap(0, 1);
+        assertEquals(2.0, p.get(0), 0.0001);
+        assertEquals(1.0, p.get(1), 0.0001);
+    }
+
+    @Test
+    public void testMapNewFile() throws IOException {
+        MappedDoubleProperty p = new MappedDoubleProperty(0.0, false);
+        p.setCapacity(3);
+        p.set(2, 7.0);
+        assertFalse(p.isMapped());
+
+        // an empty file takes the current values
+        p.map(file);
+        assertTrue(p.isMapped());
+        assertEquals(7.0, p.get(2), 0.0001);
+
+        // growing remaps the file
+        p.setCapacity(100);
+        p.set(99, 8.0);
+        p.force();
+        assertEquals(7.0, p.get(2), 0.0001);
+        assertEquals(800, file.length());
+    }
+
+    @Test
+    public void testMapExistingFile() throws IOException {
+        MappedDoubleProperty p = new MappedDoubleProperty(0.0, false);
+        p.map(file);
+        p.setCapacity(10);
+        p.set(9, 3.0);
+        p.force();
+
+        // a second property mapped to the same file adopts its values once it grows to cover them
+        MappedDoubleProperty restored = new MappedDoubleProperty(0.0, false);
+        restored.map(file);
+        assertEquals(1, restored.getCapacity());
+        restored.setCapacity(10);
+        assertEquals(3.0, restored.get(9), 0.0001);
+    }
+
+    @DefaultDouble(1.5)
+    private static DefaultDouble getDefaultValue() throws NoSuchMethodException {
+        return getAnnotation(DefaultDouble.class, "getDefaultValue");
+    }
+
+    @DoNotClone
+    private static DoNotClone getClonePolicy() throws NoSuchMethodException {
+        return getAnnotation(DoNotClone.class, "getClonePolicy");
+    }
+
+    private static <T extends Annotation> T getAnnotation(Class<T> type, String methodName)
+            throws NoSuchMethodException {
+        return MappedDoublePropertyTest.class.getDeclaredMethod(methodName).getAnnotation(type);
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.MappedFloatProperty}.
+ *
+ * @author Michael Ludwig
+ */
+public class MappedFloatPropertyTest {
+    private File file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = File.createTempFile("entreri", ".col");
+        file.deleteOnExit();
+    }
+
+    @After
+    public void deleteFile() {
+        file.delete();
+    }
+
+    private void doDefaultValueTest(MappedFloatProperty property, float expectedValue) {
+        property.setCapacity(1);
+        property.setDefaultValue(0);
+        assertEquals(expectedValue, property.get(0), 0.0001f);
+    }
+
+    private void doClonePolicy(MappedFloatProperty property, boolean clone) {
+        property.setCapacity(2);
+        property.set(0, 2f);
+        property.set(1, 3f);
+
+        property.clone(property, 0, 1);
+        if (clone) {
+            assertEquals(2f, property.get(1), 0.0001f);
+        } else {
+            assertEquals(0f, property.get(1), 0.0001f);
+        }
+    }
+
+    @Test
+    public void testSimpleConstructorDefaultValue() {
+        doDefaultValueTest(new MappedFloatProperty(2f, false), 2f);
+    }
+
+    @Test
+    public void testSimpleConstructorClone() {
+        doClonePolicy(new MappedFloatProperty(0f, true), true);
+    }
+
+    @Test
+    public void testSimpleConstructorDoNotClone() {
+        doClonePolicy(new MappedFloatProperty(0f, false), false);
+    }
+
+    @Test
+    public void testAnnotationConstructorDefaultValue() throws NoSuchMethodException {
+        doDefaultValueTest(new MappedFloatProperty(getDefaultValue(), null), 1.5f);
+    }
+
+    @Test
+    public void testAnnotationConstructorDoNotClone() throws NoSuchMethodException {
+        doClonePolicy(new MappedFloatProperty(null, getClonePolicy()), false);
+    }
+
+    @Test
+    public void testSetCapacity() {
+        MappedFloatProperty p = new MappedFloatProperty(0f, false);
+        assertEquals(1, p.getCapacity());
+        p.set(0, 4f);
+        p.setCapacity(5);
+        assertEquals(5, p.getCapacity());
+        assertEquals(5, p.getIndexedData().capacity());
+        assertEquals(4f, p.get(0), 0.0001f);
+    }
+
+    @Test
+    public void testSwap() {
+        MappedFloatProperty p = new MappedFloatProperty(0f, false);
+        p.setCapacity(2);
+        p.set(0, 1f);
+        p.set(1, 2f);
+        p.swap(0, 1);
+        assertEquals(2f, p.get(0), 0.0001f);
+        assertEquals(1f, p.get(1), 0.0001f);
+    }
+
+    @Test
+    public void testMapNewFile() throws IOException {
+        MappedFloatProperty p = new MappedFloatProperty(0f, false);
+        p.setCapacity(3);
+        p.set(2, 7f);
+        assertFalse(p.isMapped());
+
+        // an empty file takes the current values
+        p.map(file);
+        assertTrue(p.isMapped());
+        assertEquals(7f, p.get(2), 0.0001f);
+
+        // growing remaps the file
+        p.setCapacity(100);
+        p.set(99, 8f);
+        p.force();
+        assertEquals(7f, p.get(2), 0.0001f);
+        assertEquals(400, file.length());
+    }
+
+    @Test
+    public void testMapExistingFile() throws IOException {
+        MappedFloatProperty p = new MappedFloatProperty(0f, false);
+        p.map(file);
+        p.setCapacity(10);
+        p.set(9, 3f);
+        p.force();
+
+        // a second property mapped to the same file adopts its values once it grows to cover them
+        MappedFloatProperty restored = new MappedFloatProperty(0f, false);
+        restored.map(file);
+        assertEquals(1, restored.getCapacity());
+        restored.setCapacity(10);
+        assertEquals(3f, restored.get(9), 0.0001f);
+    }
+
+    @DefaultFloat(1.5f)
+    private static DefaultFloat getDefaultValue() throws NoSuchMethodException {
+        return getAnnotation(DefaultFloat.class, "getDefaultValue");
+    }
+
+    @DoNotClone
+    private static DoNotClone getClonePolicy() throws NoSuchMethodException {
+        return getAnnotation(DoNotClone.class, "getClonePolicy");
+    }
+
+    private static <T extends Annotation> T getAnnotation(Class<T> type, String methodName)
+            throws NoSuchMethodException {
+        return MappedFloatPropertyTest.class.getDeclaredMethod(methodName).getAnnotation(type);
+    }
+}
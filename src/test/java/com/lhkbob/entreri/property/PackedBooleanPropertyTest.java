@@ -0,0 +1,285 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.lang.annotation.Annotation;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.PackedBooleanProperty}.
+ *
+ * @author Michael Ludwig
+ */
+public class PackedBooleanPropertyTest {
+    private void doDefaultValueTest(PackedBooleanProperty property, boolean expectedValue) {
+        property.setCapacity(1);
+        property.setDefaultValue(0);
+        assertEquals(expectedValue, property.get(0));
+    }
+
+    private void doClonePolicy(PackedBooleanProperty property, boolean clone) {
+        property.setCapacity(2);
+        property.set(0, true);
+        property.set(1, false);
+
+        // now for the actual clone
+        property.clone(property, 0, 1);
+        if (clone) {
+            assertTrue(property.get(1));
+        } else {
+            assertFalse(property.get(1));
+        }
+    }
+
+    @Test
+    public void testSimpleConstructorDefaultValue() {
+        doDefaultValueTest(new PackedBooleanProperty(true, true), true);
+    }
+
+    @Test
+    public void testSimpleConstructorClone() {
+        doClonePolicy(new PackedBooleanProperty(false, true), true);
+    }
+
+    @Test
+    public void testSimpleConstructorDoNotClone() {
+        doClonePolicy(new PackedBooleanProperty(false, false), false);
+    }
+
+    @Test
+    public void testAnnotationConstructorDefaultValue() throws NoSuchMethodException {
+        doDefaultValueTest(new PackedBooleanProperty(getDefaultValue(), null), true);
+    }
+
+    @Test
+    public void testAnnotationConstructorNoDefaultValue() {
+        // no DefaultBoolean annotation maps to false
+        doDefaultValueTest(new PackedBooleanProperty(null, null), false);
+    }
+
+    @Test
+    public void testAnnotationConstructorClone() {
+        // no DoNotClone annotation maps to true
+        doClonePolicy(new PackedBooleanProperty(null, null), true);
+    }
+
+    @Test
+    public void testAnnotationConstructorDoNotClone() throws NoSuchMethodException {
+        doClonePolicy(new PackedBooleanProperty(null, getClonePolicy()), false);
+    }
+
+    @Test
+    public void testInitialCapacity() {
+        assertEquals(1, new PackedBooleanProperty(false, false).getCapacity());
+    }
+
+    @Test
+    public void testSetCapacity() {
+        PackedBooleanProperty p = new PackedBooleanProperty(false, false);
+        p.setCapacity(5);
+        assertEquals(5, p.getCapacity());
+        assertEquals(1, p.getIndexedData().length);
+    }
+
+    @Test
+    public void testGetAndSet() {
+        PackedBooleanProperty p = new PackedBooleanProperty(false, false);
+        assertFalse(p.get(0));
+        p.set(0, true);
+        assertTrue(p.get(0));
+    }
+
+    @Test
+    public void testSwap() {
+        PackedBooleanProperty p = new PackedBooleanProperty(false, false);
+        p.setCapacity(2);
+        p.set(0, true);
+        p.set(1, false);
+        p.swap(0, 1);
+
+        assertTrue(p.get(1));
+        assertFalse(p.get(0));
+
+        // make sure order doesn't matter
+        p.swap(1, 0);
+        assertTrue(p.get(0));
+        assertFalse(p.get(1));
+    }
+
+    @Test
+    public void testGetIndexedData() {
+        PackedBooleanProperty p = new PackedBooleanProperty(false, false);
+        long[] data = p.getIndexedData();
+        p.set(0, true);
+        assertEquals(1L, data[0]);
+    }
+
+    @Test
+    public void testSetCapacityPacksValues() {
+        PackedBooleanProperty p = new PackedBooleanProperty(true, false);
+        p.setCapacity(130);
+        assertEquals(3, p.getIndexedData().length);
+        for (int i = 0; i < 130; i++) {
+            p.setDefaultValue(i);
+        }
+        assertEquals(129, p.count());
+
+        // shrinking discards values beyond the capacity
+        p.setCapacity(65);
+        assertEquals(64, p.count());
+        p.setCapacity(130);
+        assertEquals(64, p.count());
+        assertFalse(p.get(100));
+    }
+
+    @Test
+    public void testNextSetIndex() {
+        PackedBooleanProperty p = new PackedBooleanProperty(false, false);
+        p.setCapacity(200);
+        p.set(5, true);
+        p.set(64, true);
+        p.set(199, true);
+
+        assertEquals(5, p.nextSetIndex(1));
+        assertEquals(5, p.nextSetIndex(5));
+        assertEquals(64, p.nextSetIndex(6));
+        assertEquals(199, p.nextSetIndex(65));
+        assertEquals(-1, p.nextSetIndex(200));
+    }
+
+    @Test
+    public void testClear() {
+        PackedBooleanProperty p = new PackedBooleanProperty(true, false);
+        p.setCapacity(130);
+        for (int i = 0; i < 130; i++) {
+            p.setDefaultValue(i);
+        }
+        p.clear();
+        assertEquals(0, p.count());
+        assertEquals(-1, p.nextSetIndex(0));
+    }
+
+    @Test
+    public void testBulkOperations() {
+        PackedBooleanProperty a = new PackedBooleanProperty(false, false);
+        PackedBooleanProperty b = new PackedBooleanProperty(false, false);
+        a.setCapacity(100);
+        b.setCapacity(100);
+        for (int i = 1; i < 100; i++) {
+            a.set(i, i % 2 == 0);
+            b.set(i, i % 3 == 0);
+        }
+        assertEquals(49, a.count());
+        assertEquals(33, b.count());
+
+        PackedBooleanProperty or = new PackedBooleanProperty(false, false);
+        or.setCapacity(100);
+        or.or(a);
+        or.or(b);
+        assertEquals(66, or.count());
+
+        PackedBooleanProperty and = new PackedBooleanProperty(false, false);
+        and.setCapacity(100);
+        and.or(a);
+        and.and(b);
+        assertEquals(16, and.count());
+        for (int i = and.nextSetIndex(1); i >= 0; i = and.nextSetIndex(i + 1)) {
+            assertEquals(0, i % 6);
+        }
+
+        a.andNot(b);
+        assertEquals(33, a.count());
+        assertFalse(a.get(6));
+        assertTrue(a.get(4));
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        PackedBooleanProperty p = new PackedBooleanProperty(false, false);
+        p.setCapacity(100);
+        p.set(3, true);
+        p.set(64, true);
+        p.set(99, true);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ColumnWriter out = new ColumnWriter(Channels.newChannel(bytes));
+        p.write(out, 70);
+        out.flush();
+
+        PackedBooleanProperty loaded = new PackedBooleanProperty(false, false);
+        loaded.setCapacity(100);
+        loaded.read(new ColumnReader(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray()))), 70);
+        assertTrue(loaded.get(3));
+        assertTrue(loaded.get(64));
+        assertFalse(loaded.get(99)); // beyond the written count
+        assertEquals(2, loaded.count());
+    }
+
+    @Test
+    public void testCopy() {
+        PackedBooleanProperty p = new PackedBooleanProperty(false, false);
+        p.setCapacity(100);
+        for (int i = 0; i < 100; i += 3) {
+            p.set(i, true);
+        }
+
+        // values past the copied count, including those in the last partial word, are preserved
+        PackedBooleanProperty copy = new PackedBooleanProperty(false, false);
+        copy.setCapacity(100);
+        copy.set(70, true);
+        copy.set(71, true);
+        copy.copy(p, 70);
+        for (int i = 0; i < 70; i++) {
+            assertEquals(i % 3 == 0, copy.get(i));
+        }
+        assertTrue(copy.get(70));
+        assertTrue(copy.get(71));
+        assertFalse(copy.get(72));
+    }
+
+    @DefaultBoolean(true)
+    private static DefaultBoolean getDefaultValue() throws NoSuchMethodException {
+        return getAnnotation(DefaultBoolean.class, "getDefaultValue");
+    }
+
+    @DoNotClone
+    private static DoNotClone getClonePolicy() throws NoSuchMethodException {
+        return getAnnotation(DoNotClone.class, "getClonePolicy");
+    }
+
+    private static <T extends Annotation> T getAnnotation(Class<T> type, String methodName)
+            throws NoSuchMethodException {
+        return PackedBooleanPropertyTest.class.getDeclaredMethod(methodName).getAnnotation(type);
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import com.lhkbob.entreri.IllegalComponentDefinitionException;
+import org.junit.Test;
+
+import java.lang.annotation.Annotation;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.QuantizedDoubleProperty}.
+ *
+ * @author Michael Ludwig
+ */
+public class QuantizedDoublePropertyTest {
+    private void doDefaultValueTest(QuantizedDoubleProperty property, double expectedValue) {
+        property.setCapacity(1);
+        property.setDefaultValue(0);
+        assertEquals(expectedValue, property.get(0), property.getStep() / 2);
+    }
+
+    private void doClonePolicy(QuantizedDoubleProperty property, boolean clone) {
+        property.setCapacity(2);
+        property.set(0, property.getMaximum());
+        property.set(1, property.getMinimum());
+
+        // now for the actual clone
+        property.clone(property, 0, 1);
+        if (clone) {
+            assertEquals(property.getMaximum(), property.get(1), 0);
+        } else {
+            assertEquals(property.getMinimum(), property.get(1), 0);
+        }
+    }
+
+    @Test
+    public void testSimpleConstructorDefaultValue() {
+        doDefaultValueTest(new QuantizedDoubleProperty(0, 10, 16, 2.5, false), 2.5);
+    }
+
+    @Test
+    public void testSimpleConstructorClone() {
+        doClonePolicy(new QuantizedDoubleProperty(0, 10, 16, 0, true), true);
+    }
+
+    @Test
+    public void testSimpleConstructorDoNotClone() {
+        doClonePolicy(new QuantizedDoubleProperty(0, 10, 16, 0, false), false);
+    }
+
+    @Test
+    public void testAnnotationConstructorDefaultValue() throws NoSuchMethodException {
+        doDefaultValueTest(new QuantizedDoubleProperty(getRange(), null, getDefaultValue(), null), 0.5);
+    }
+
+    @Test
+    public void testAnnotationConstructorNoDefaultValue() throws NoSuchMethodException {
+        doDefaultValueTest(new QuantizedDoubleProperty(getRange(), null, null, null), 0);
+    }
+
+    @Test
+    public void testAnnotationConstructorDoNotClone() throws NoSuchMethodException {
+        doClonePolicy(new QuantizedDoubleProperty(getRange(), null, null, getClonePolicy()), false);
+    }
+
+    @Test
+    public void testAnnotationConstructorPrecision() throws NoSuchMethodException {
+        QuantizedDoubleProperty p = new QuantizedDoubleProperty(getRange(), getPrecision(), null, null);
+        assertEquals(4, p.getBits());
+        assertNotNull(p.getIndexedByteData());
+        assertNull(p.getIndexedShortData());
+
+        // the default precision is 16 bits
+        p = new QuantizedDoubleProperty(getRange(), null, null, null);
+        assertEquals(16, p.getBits());
+        assertNull(p.getIndexedByteData());
+        assertNotNull(p.getIndexedShortData());
+    }
+
+    @Test(expected = IllegalComponentDefinitionException.class)
+    public void testAnnotationConstructorRequiresRange() {
+        new QuantizedDoubleProperty(null, null, null, null);
+    }
+
+    @Test(expected = IllegalComponentDefinitionException.class)
+    public void testAnnotationConstructorRequiresBoundedRange() throws NoSuchMethodException {
+        new QuantizedDoubleProperty(getUnboundedRange(), null, null, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBits() {
+        new QuantizedDoubleProperty(0, 1, 17, 0, false);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRange() {
+        new QuantizedDoubleProperty(1, 1, 8, 0, false);
+    }
+
+    @Test
+    public void testInitialCapacity() {
+        assertEquals(1, new QuantizedDoubleProperty(0, 1, 8, 0, false).getCapacity());
+    }
+
+    @Test
+    public void testSetCapacity() {
+        QuantizedDoubleProperty p = new QuantizedDoubleProperty(0, 1, 8, 0, false);
+        p.setCapacity(5);
+        assertEquals(5, p.getCapacity());
+        assertEquals(5, p.getIndexedByteData().length);
+    }
+
+    @Test
+    public void testGetAndSet() {
+        QuantizedDoubleProperty p = new QuantizedDoubleProperty(-1, 1, 8, 0, false);
+        double step = p.getStep();
+        assertEquals(2.0 / 255, step, 1e-6);
+
+        for (double v = -1; v <= 1; v += 0.01) {
+            p.set(0, v);
+            assertEquals(v, p.get(0), step / 2 + 1e-6);
+        }
+
+        // range bounds are exact
+        p.set(0, -1);
+        assertEquals(-1, p.get(0), 0);
+        assertEquals(0, p.getQuantized(0));
+        p.set(0, 1);
+        assertEquals(1, p.get(0), 0);
+        assertEquals(255, p.getQuantized(0));
+        assertEquals((byte) 255, p.getIndexedByteData()[0]);
+    }
+
+    @Test
+    public void testClamping() {
+        QuantizedDoubleProperty p = new QuantizedDoubleProperty(0, 100, 12, 0, false);
+        p.set(0, 150);
+        assertEquals(100, p.get(0), 0);
+        p.set(0, -5);
+        assertEquals(0, p.get(0), 0);
+        p.set(0, Double.NaN);
+        assertEquals(0, p.get(0), 0);
+    }
+
+    @Test
+    public void testSwap() {
+        QuantizedDoubleProperty p = new QuantizedDoubleProperty(0, 100, 16, 0, false);
+        p.setCapacity(2);
+        p.set(0, 25);
+        p.set(1, 75);
+        p.swap(0, 1);
+
+        assertEquals(75, p.get(0), p.getStep());
+        assertEquals(25, p.get(1), p.getStep());
+    }
+
+    @Test
+    public void testCloneWithDifferentPrecision() {
+        QuantizedDoubleProperty src = new QuantizedDoubleProperty(0, 100, 16, 0, true);
+        QuantizedDoubleProperty dst = new QuantizedDoubleProperty(0, 100, 8, 0, true);
+        src.set(0, 33.3);
+        dst.clone(src, 0, 0);
+        assertEquals(33.3, dst.get(0), dst.getStep() / 2 + src.getStep());
+    }
+
+    @Within(min = 0, max = 1)
+    private static Within getRange() throws NoSuchMethodException {
+        return getAnnotation(Within.class, "getRange");
+    }
+
+    @Within(min = 0)
+    private static Within getUnboundedRange() throws NoSuchMethodException {
+        return getAnnotation(Within.class, "getUnboundedRange");
+    }
+
+    @Quantized(bits = 4)
+    private static Quantized getPrecision() throws NoSuchMethodException {
+        return getAnnotation(Quantized.class, "getPrecision");
+    }
+
+    @DefaultDouble(0.5)
+    private static DefaultDouble getDefaultValue() throws NoSuchMethodException {
+        return getAnnotation(DefaultDouble.class, "getDefaultValue");
+    }
+
+    @DoNotClone
+    private static DoNotClone getClonePolicy() throws NoSuchMethodException {
+        return getAnnotation(DoNotClone.class, "getClonePolicy");
+    }
+
+    private static <T extends Annotation> T getAnnotation(Class<T> type, String methodName)
+            throws NoSuchMethodException {
+        return QuantizedDoublePropertyTest.class.getDeclaredMethod(methodName).getAnnotation(type);
+    }
+}
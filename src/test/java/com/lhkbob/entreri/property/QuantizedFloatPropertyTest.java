@@ -0,0 +1,296 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import com.lhkbob.entreri.IllegalComponentDefinitionException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.lang.annotation.Annotation;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.QuantizedFloatProperty}.
+ *
+ * @author Michael Ludwig
+ */
+public class QuantizedFloatPropertyTest {
+    private void doDefaultValueTest(QuantizedFloatProperty property, float expectedValue) {
+        property.setCapacity(1);
+        property.setDefaultValue(0);
+        assertEquals(expectedValue, property.get(0), property.getStep() / 2);
+    }
+
+    private void doClonePolicy(QuantizedFloatProperty property, boolean clone) {
+        property.setCapacity(2);
+        property.set(0, property.getMaximum());
+        property.set(1, property.getMinimum());
+
+        // now for the actual clone
+        property.clone(property, 0, 1);
+        if (clone) {
+            assertEquals(property.getMaximum(), property.get(1), 0f);
+        } else {
+            assertEquals(property.getMinimum(), property.get(1), 0f);
+        }
+    }
+
+    @Test
+    public void testSimpleConstructorDefaultValue() {
+        doDefaultValueTest(new QuantizedFloatProperty(0f, 10f, 16, 2.5f, false), 2.5f);
+    }
+
+    @Test
+    public void testSimpleConstructorClone() {
+        doClonePolicy(new QuantizedFloatProperty(0f, 10f, 16, 0f, true), true);
+    }
+
+    @Test
+    public void testSimpleConstructorDoNotClone() {
+        doClonePolicy(new QuantizedFloatProperty(0f, 10f, 16, 0f, false), false);
+    }
+
+    @Test
+    public void testAnnotationConstructorDefaultValue() throws NoSuchMethodException {
+        doDefaultValueTest(new QuantizedFloatProperty(getRange(), null, getDefaultValue(), null), 0.5f);
+    }
+
+    @Test
+    public void testAnnotationConstructorNoDefaultValue() throws NoSuchMethodException {
+        doDefaultValueTest(new QuantizedFloatProperty(getRange(), null, null, null), 0f);
+    }
+
+    @Test
+    public void testAnnotationConstructorDoNotClone() throws NoSuchMethodException {
+        doClonePolicy(new QuantizedFloatProperty(getRange(), null, null, getClonePolicy()), false);
+    }
+
+    @Test
+    public void testAnnotationConstructorPrecision() throws NoSuchMethodException {
+        QuantizedFloatProperty p = new QuantizedFloatProperty(getRange(), getPrecision(), null, null);
+        assertEquals(4, p.getBits());
+        assertNotNull(p.getIndexedByteData());
+        assertNull(p.getIndexedShortData());
+
+        // the default precision is 16 bits
+        p = new QuantizedFloatProperty(getRange(), null, null, null);
+        assertEquals(16, p.getBits());
+        assertNull(p.getIndexedByteData());
+        assertNotNull(p.getIndexedShortData());
+    }
+
+    @Test(expected = IllegalComponentDefinitionException.class)
+    public void testAnnotationConstructorRequiresRange() {
+        new QuantizedFloatProperty(null, null, null, null);
+    }
+
+    @Test(expected = IllegalComponentDefinitionException.class)
+    public void testAnnotationConstructorRequiresBoundedRange() throws NoSuchMethodException {
+        new QuantizedFloatProperty(getUnboundedRange(), null, null, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBits() {
+        new QuantizedFloatProperty(0f, 1f, 17, 0f, false);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRange() {
+        new QuantizedFloatProperty(1f, 1f, 8, 0f, false);
+    }
+
+    @Test
+    public void testInitialCapacity() {
+        assertEquals(1, new QuantizedFloatProperty(0f, 1f, 8, 0f, false).getCapacity());
+    }
+
+    @Test
+    public void testSetCapacity() {
+        QuantizedFloatProperty p = new QuantizedFloatProperty(0f, 1f, 8, 0f, false);
+        p.setCapacity(5);
+        assertEquals(5, p.getCapacity());
+        assertEquals(5, p.getIndexedByteData().length);
+    }
+
+    @Test
+    public void testGetAndSet() {
+        QuantizedFloatProperty p = new QuantizedFloatProperty(-1f, 1f, 8, 0f, false);
+        float step = p.getStep();
+        assertEquals(2f / 255, step, 1e-6f);
+
+        for (float v = -1f; v <= 1f; v += 0.01f) {
+            p.set(0, v);
+            assertEquals(v, p.get(0), step / 2 + 1e-6f);
+        }
+
+        // range bounds are exact
+        p.set(0, -1f);
+        assertEquals(-1f, p.get(0), 0f);
+        assertEquals(0, p.getQuantized(0));
+        p.set(0, 1f);
+        assertEquals(1f, p.get(0), 0f);
+        assertEquals(255, p.getQuantized(0));
+        assertEquals((byte) 255, p.getIndexedByteData()[0]);
+    }
+
+    @Test
+    public void testClamping() {
+        QuantizedFloatProperty p = new QuantizedFloatProperty(0f, 100f, 12, 0f, false);
+        p.set(0, 150f);
+        assertEquals(100f, p.get(0), 0f);
+        p.set(0, -5f);
+        assertEquals(0f, p.get(0), 0f);
+        p.set(0, Float.NaN);
+        assertEquals(0f, p.get(0), 0f);
+    }
+
+    @Test
+    public void testSwap() {
+        QuantizedFloatProperty p = new QuantizedFloatProperty(0f, 100f, 16, 0f, false);
+        p.setCapacity(2);
+        p.set(0, 25f);
+        p.set(1, 75f);
+        p.swap(0, 1);
+
+        assertEquals(75f, p.get(0), p.getStep());
+        assertEquals(25f, p.get(1), p.getStep());
+    }
+
+    @Test
+    public void testCloneWithDifferentPrecision() {
+        QuantizedFloatProperty src = new QuantizedFloatProperty(0f, 100f, 16, 0f, true);
+        QuantizedFloatProperty dst = new QuantizedFloatProperty(0f, 100f, 8, 0f, true);
+        src.set(0, 33.3f);
+        dst.clone(src, 0, 0);
+        assertEquals(33.3f, dst.get(0), dst.getStep() / 2 + src.getStep());
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        QuantizedFloatProperty p = new QuantizedFloatProperty(0f, 10f, 8, 0f, false);
+        p.setCapacity(3);
+        p.set(1, 2.5f);
+        p.set(2, 10f);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ColumnWriter out = new ColumnWriter(Channels.newChannel(bytes));
+        p.write(out, 3);
+        out.flush();
+
+        QuantizedFloatProperty loaded = new QuantizedFloatProperty(0f, 10f, 8, 0f, false);
+        loaded.setCapacity(3);
+        loaded.read(new ColumnReader(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray()))), 3);
+        assertEquals(p.getQuantized(1), loaded.getQuantized(1));
+        assertEquals(10f, loaded.get(2), 0f);
+    }
+
+    @Test
+    public void testIndexedWriteAndRead() throws IOException {
+        QuantizedFloatProperty bytes = new QuantizedFloatProperty(0f, 10f, 8, 0f, false);
+        QuantizedFloatProperty shorts = new QuantizedFloatProperty(0f, 10f, 12, 0f, false);
+        bytes.setCapacity(4);
+        shorts.setCapacity(4);
+        bytes.set(1, 10f);
+        bytes.set(3, 2.5f);
+        shorts.set(1, 10f);
+        shorts.set(3, 2.5f);
+        int[] indices = new int[] { 3, 1 };
+
+        // each value is written in the width of the storage
+        ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+        ColumnWriter out = new ColumnWriter(Channels.newChannel(byteOut));
+        bytes.write(out, indices, 2);
+        out.flush();
+        assertEquals(2, byteOut.size());
+
+        ByteArrayOutputStream shortOut = new ByteArrayOutputStream();
+        out = new ColumnWriter(Channels.newChannel(shortOut));
+        shorts.write(out, indices, 2);
+        out.flush();
+        assertEquals(4, shortOut.size());
+
+        QuantizedFloatProperty loaded = new QuantizedFloatProperty(0f, 10f, 8, 0f, false);
+        loaded.setCapacity(2);
+        loaded.read(new ColumnReader(Channels.newChannel(new ByteArrayInputStream(byteOut.toByteArray()))),
+                    new int[] { 0, 1 }, 2);
+        assertEquals(bytes.getQuantized(3), loaded.getQuantized(0));
+        assertEquals(10f, loaded.get(1), 0f);
+
+        loaded = new QuantizedFloatProperty(0f, 10f, 12, 0f, false);
+        loaded.setCapacity(2);
+        loaded.read(new ColumnReader(Channels.newChannel(new ByteArrayInputStream(shortOut.toByteArray()))),
+                    new int[] { 0, 1 }, 2);
+        assertEquals(shorts.getQuantized(3), loaded.getQuantized(0));
+        assertEquals(10f, loaded.get(1), 0f);
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadMismatchedRange() throws IOException {
+        QuantizedFloatProperty p = new QuantizedFloatProperty(0f, 10f, 8, 0f, false);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ColumnWriter out = new ColumnWriter(Channels.newChannel(bytes));
+        p.write(out, 1);
+        out.flush();
+
+        QuantizedFloatProperty loaded = new QuantizedFloatProperty(0f, 20f, 8, 0f, false);
+        loaded.read(new ColumnReader(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray()))), 1);
+    }
+
+    @Within(min = 0, max = 1)
+    private static Within getRange() throws NoSuchMethodException {
+        return getAnnotation(Within.class, "getRange");
+    }
+
+    @Within(min = 0)
+    private static Within getUnboundedRange() throws NoSuchMethodException {
+        return getAnnotation(Within.class, "getUnboundedRange");
+    }
+
+    @Quantized(bits = 4)
+    private static Quantized getPrecision() throws NoSuchMethodException {
+        return getAnnotation(Quantized.class, "getPrecision");
+    }
+
+    @DefaultFloat(0.5f)
+    private static DefaultFloat getDefaultValue() throws NoSuchMethodException {
+        return getAnnotation(DefaultFloat.class, "getDefaultValue");
+    }
+
+    @DoNotClone
+    private static DoNotClone getClonePolicy() throws NoSuchMethodException {
+        return getAnnotation(DoNotClone.class, "getClonePolicy");
+    }
+
+    private static <T extends Annotation> T getAnnotation(Class<T> type, String methodName)
+            throws NoSuchMethodException {
+        return QuantizedFloatPropertyTest.class.getDeclaredMethod(methodName).getAnnotation(type);
+    }
+}
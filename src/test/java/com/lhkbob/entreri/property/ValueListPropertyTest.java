@@ -46,6 +46,7 @@ public class ValueListPropertyTest {
     private void doDefaultValueTest(ValueListProperty<Object> property, Class<? extends List> baseList)
             throws Exception {
         property.setCapacity(1);
+        property.add(0, new Object());
         property.setDefaultValue(0);
         assertTrue(property.get(0).isEmpty());
 
@@ -154,10 +155,9 @@ public class ValueListPropertyTest {
     public void testAddContainsRemove() {
         Object e = new Object();
         ValueListProperty<Object> p = new ValueListProperty<>(ArrayList.class, false);
-        List<Object> v = p.get(0);
-
         assertFalse(p.contains(0, e));
         assertTrue(p.add(0, e));
+        List<Object> v = p.get(0);
         assertTrue(v.contains(e));
         assertTrue(p.contains(0, e));
         assertEquals(1, v.size());
@@ -168,6 +168,28 @@ public class ValueListPropertyTest {
         assertEquals(0, v.size());
     }
 
+    @Test
+    public void testLazyInitialization() {
+        Object e = new Object();
+        ValueListProperty<Object> p = new ValueListProperty<>(ArrayList.class, true);
+        p.setCapacity(1000);
+
+        // reading and resetting an untouched slot behaves like an empty value
+        assertFalse(p.contains(500, e));
+        assertFalse(p.remove(500, e));
+        p.setDefaultValue(500);
+        p.clone(p, 500, 501);
+        assertTrue(p.get(501).isEmpty());
+
+        // untouched slots share one empty value, and the value of a modified slot mirrors later changes
+        assertSame(p.get(500), p.get(501));
+        assertTrue(p.add(500, e));
+        List<Object> v = p.get(500);
+        assertTrue(v.contains(e));
+        assertTrue(p.remove(500, e));
+        assertTrue(v.isEmpty());
+    }
+
     @Test
     public void testSwap() {
         List<Object> v1 = Arrays.asList(new Object(), new Object());
@@ -45,6 +45,7 @@ public class ValueMapPropertyTest {
     private void doDefaultValueTest(ValueMapProperty<Object, Object> property, Class<? extends Map> baseSet)
             throws Exception {
         property.setCapacity(1);
+        property.put(0, new Object(), new Object());
         property.setDefaultValue(0);
         assertTrue(property.get(0).isEmpty());
 
@@ -149,11 +150,10 @@ public class ValueMapPropertyTest {
         Object v2 = new Object();
 
         ValueMapProperty<Object, Object> p = new ValueMapProperty<>(HashMap.class, false);
-        Map<Object, Object> m = p.get(0);
-
         // totally new value
         assertFalse(p.contains(0, k));
         assertNull(p.put(0, k, v));
+        Map<Object, Object> m = p.get(0);
         assertTrue(m.containsKey(k));
         assertTrue(p.contains(0, k));
         assertSame(v, p.get(0, k));
@@ -173,6 +173,30 @@ public class ValueMapPropertyTest {
         assertEquals(0, m.size());
     }
 
+    @Test
+    public void testLazyInitialization() {
+        Object k = new Object();
+        Object e = new Object();
+        ValueMapProperty<Object, Object> p = new ValueMapProperty<>(HashMap.class, true);
+        p.setCapacity(1000);
+
+        // reading and resetting an untouched slot behaves like an empty value
+        assertFalse(p.contains(500, k));
+        assertNull(p.get(500, k));
+        assertNull(p.remove(500, k));
+        p.setDefaultValue(500);
+        p.clone(p, 500, 501);
+        assertTrue(p.get(501).isEmpty());
+
+        // untouched slots share one empty value, and the value of a modified slot mirrors later changes
+        assertSame(p.get(500), p.get(501));
+        assertNull(p.put(500, k, e));
+        Map<Object, Object> v = p.get(500);
+        assertSame(e, v.get(k));
+        assertSame(e, p.remove(500, k));
+        assertTrue(v.isEmpty());
+    }
+
     @Test
     public void testSwap() {
         Map<Object, Object> v1 = new HashMap<>();